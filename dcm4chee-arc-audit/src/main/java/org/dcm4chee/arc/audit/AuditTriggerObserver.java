@@ -59,6 +59,7 @@ import org.dcm4chee.arc.study.StudyMgtContext;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Default;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 import java.net.Socket;
@@ -93,7 +94,7 @@ public class AuditTriggerObserver {
         }
     }
 
-    public void onStore(@Observes StoreContext ctx) {
+    public void onStore(@Observes @Default StoreContext ctx) {
         if (auditService.hasAuditLoggers()) {
             if (ctx.getRejectionNote() != null)
                 auditService.spoolInstancesDeleted(ctx);
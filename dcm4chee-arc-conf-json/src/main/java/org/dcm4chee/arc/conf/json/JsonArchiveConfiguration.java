@@ -193,6 +193,41 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
         writer.writeNotNull("hl7ScheduledStationAETInOrder", arcDev.getHl7ScheduledStationAETInOrder());
         writer.writeNotNull("dcmAuditUnknownStudyInstanceUID", arcDev.getAuditUnknownStudyInstanceUID());
         writer.writeNotNull("dcmAuditUnknownPatientID", arcDev.getAuditUnknownPatientID());
+        writer.writeNotDef("dcmPostStoreEventMaxThreads", arcDev.getPostStoreEventMaxThreads(), 0);
+        writer.writeNotDef("dcmPostStoreEventMaxQueueSize", arcDev.getPostStoreEventMaxQueueSize(), 1000);
+        writer.writeNotDef("dcmQueryFetchSize", arcDev.getQueryFetchSize(), 100);
+        writer.writeNotDef("dcmPurgeQueueMessageFetchSize", arcDev.getPurgeQueueMessageFetchSize(), 100);
+        writer.writeNotDef("dcmExportMaxConcurrencyPerDestination", arcDev.getExportMaxConcurrencyPerDestination(), 0);
+        writer.writeNotNull("dcmPatientCacheStaleTimeout", arcDev.getPatientCacheStaleTimeout());
+        writer.writeNotDef("dcmPatientCacheSize", arcDev.getPatientCacheSize(), 1000);
+        writer.writeNotNull("dcmWadoRenderedImageCacheDirectory", arcDev.getWadoRenderedImageCacheDirectory());
+        writer.writeNotNull("dcmWadoRenderedImageCacheMaxSize", arcDev.getWadoRenderedImageCacheMaxSize());
+        writer.writeNotDef("dcmSeriesThumbnailSize", arcDev.getSeriesThumbnailSize(), 128);
+        writer.writeNotDef("dcmSeriesPreviewSize", arcDev.getSeriesPreviewSize(), 512);
+        writer.writeNotDef("dcmWadoRenderConcurrency", arcDev.getWadoRenderConcurrency(), 4);
+        writer.writeNotNull("dcmAssociationPoolIdleTimeout", arcDev.getAssociationPoolIdleTimeout());
+        writer.writeNotDef("dcmAssociationPoolMaxIdle", arcDev.getAssociationPoolMaxIdle(), 4);
+        writer.writeNotNull("dcmLeadingCFindSCPQueryCacheRefreshTimeout", arcDev.getLeadingCFindSCPQueryCacheRefreshTimeout());
+        writer.writeNotNull("dcmAcceptedTransferSyntaxCacheStaleTimeout", arcDev.getAcceptedTransferSyntaxCacheStaleTimeout());
+        writer.writeNotDef("dcmAcceptedTransferSyntaxCacheSize", arcDev.getAcceptedTransferSyntaxCacheSize(), 100);
+        writer.writeNotDef("dcmHttpClientMaxConnections", arcDev.getHttpClientMaxConnections(), 50);
+        writer.writeNotDef("dcmHttpClientMaxConnectionsPerHost", arcDev.getHttpClientMaxConnectionsPerHost(), 10);
+        writer.writeNotNull("dcmHttpClientConnectTimeout", arcDev.getHttpClientConnectTimeout());
+        writer.writeNotNull("dcmHttpClientReadTimeout", arcDev.getHttpClientReadTimeout());
+        writer.writeNotDef("dcmExportTaskBatchSize", arcDev.getExportTaskBatchSize(), 1);
+        writer.writeNotNull("dcmCompressionPollingInterval", arcDev.getCompressionPollingInterval());
+        writer.writeNotDef("dcmCompressionFetchSize", arcDev.getCompressionFetchSize(), 100);
+        writer.writeNotDef("dcmCompressionThreads", arcDev.getCompressionThreads(), 1);
+        writer.writeNotEmpty("dcmCompressionSchedule", arcDev.getCompressionSchedules());
+        writer.writeNotNull("dcmStoragePlacement", arcDev.getStoragePlacement());
+        writer.writeNotNull("dcmTieringPollingInterval", arcDev.getTieringPollingInterval());
+        writer.writeNotDef("dcmTieringFetchSize", arcDev.getTieringFetchSize(), 100);
+        writer.writeNotDef("dcmTieringThreads", arcDev.getTieringThreads(), 1);
+        writer.writeNotNull("dcmScrubPollingInterval", arcDev.getScrubPollingInterval());
+        writer.writeNotDef("dcmScrubFetchSize", arcDev.getScrubFetchSize(), 100);
+        writer.writeNotDef("dcmScrubThreads", arcDev.getScrubThreads(), 1);
+        writer.writeNotDef("dcmScrubMaxBytesPerSecond", arcDev.getScrubMaxBytesPerSecond(), 0);
+        writer.writeNotEmpty("dcmScrubSchedule", arcDev.getScrubSchedules());
         writeAttributeFilters(writer, arcDev);
         writeStorageDescriptor(writer, arcDev.getStorageDescriptors());
         writeQueryRetrieveView(writer, arcDev.getQueryRetrieveViews());
@@ -260,6 +295,13 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
             writer.writeNotEmpty("dcmDeleterThreshold", st.getDeleterThresholdsAsStrings());
             writer.writeNotEmpty("dcmProperty", descriptorProperties(st.getProperties()));
             writer.writeNotNull("dcmExternalRetrieveAET", st.getExternalRetrieveAETitle());
+            writer.writeNotNull("dcmStorageGroupID", st.getStorageGroupID());
+            writer.writeNotNull("dcmStorageThreshold", st.getStorageThreshold());
+            writer.writeNotNull("dcmTieringStorageID", st.getTieringStorageID());
+            writer.writeNotNull("dcmTieringDelay", st.getTieringDelay());
+            writer.writeNotDef("dcmTieringRecall", st.isTieringRecall(), false);
+            writer.writeNotDef("dcmDeduplication", st.isDeduplication(), false);
+            writer.writeNotNull("dcmScrubInterval", st.getScrubInterval());
             writer.writeEnd();
         }
         writer.writeEnd();
@@ -319,6 +361,7 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
             writer.writeNotNull("dcmRetrieveLocationUID", ed.getRetrieveLocationUID());
             writer.writeNotNull("dcmInstanceAvailability", ed.getInstanceAvailability());
             writer.writeNotEmpty("dcmSchedule", ed.getSchedules());
+            writer.writeNotDef("dcmExportPriority", ed.getPriority(), 4);
             writer.writeNotEmpty("dcmProperty", descriptorProperties(ed.getProperties()));
             writer.writeEnd();
         }
@@ -351,6 +394,7 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
             writer.writeNotDef("dcmRulePriority", acr.getPriority(), 0);
             writer.writeNotEmpty("dcmProperty", toStrings(acr.getConditions().getMap()));
             writer.writeNotEmpty("dcmImageWriteParam", acr.getImageWriteParams());
+            writer.writeNotNull("dcmDuration", acr.getDelay());
             writer.writeEnd();
         }
         writer.writeEnd();
@@ -910,6 +954,111 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                 case "dcmAuditUnknownPatientID":
                     arcDev.setAuditUnknownPatientID(reader.stringValue());
                     break;
+                case "dcmPostStoreEventMaxThreads":
+                    arcDev.setPostStoreEventMaxThreads(reader.intValue());
+                    break;
+                case "dcmPostStoreEventMaxQueueSize":
+                    arcDev.setPostStoreEventMaxQueueSize(reader.intValue());
+                    break;
+                case "dcmQueryFetchSize":
+                    arcDev.setQueryFetchSize(reader.intValue());
+                    break;
+                case "dcmPurgeQueueMessageFetchSize":
+                    arcDev.setPurgeQueueMessageFetchSize(reader.intValue());
+                    break;
+                case "dcmExportMaxConcurrencyPerDestination":
+                    arcDev.setExportMaxConcurrencyPerDestination(reader.intValue());
+                    break;
+                case "dcmPatientCacheStaleTimeout":
+                    arcDev.setPatientCacheStaleTimeout(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmPatientCacheSize":
+                    arcDev.setPatientCacheSize(reader.intValue());
+                    break;
+                case "dcmWadoRenderedImageCacheDirectory":
+                    arcDev.setWadoRenderedImageCacheDirectory(reader.stringValue());
+                    break;
+                case "dcmWadoRenderedImageCacheMaxSize":
+                    arcDev.setWadoRenderedImageCacheMaxSize(reader.stringValue());
+                    break;
+                case "dcmSeriesThumbnailSize":
+                    arcDev.setSeriesThumbnailSize(reader.intValue());
+                    break;
+                case "dcmSeriesPreviewSize":
+                    arcDev.setSeriesPreviewSize(reader.intValue());
+                    break;
+                case "dcmWadoRenderConcurrency":
+                    arcDev.setWadoRenderConcurrency(reader.intValue());
+                    break;
+                case "dcmAssociationPoolIdleTimeout":
+                    arcDev.setAssociationPoolIdleTimeout(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmAssociationPoolMaxIdle":
+                    arcDev.setAssociationPoolMaxIdle(reader.intValue());
+                    break;
+                case "dcmLeadingCFindSCPQueryCacheRefreshTimeout":
+                    arcDev.setLeadingCFindSCPQueryCacheRefreshTimeout(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmAcceptedTransferSyntaxCacheStaleTimeout":
+                    arcDev.setAcceptedTransferSyntaxCacheStaleTimeout(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmAcceptedTransferSyntaxCacheSize":
+                    arcDev.setAcceptedTransferSyntaxCacheSize(reader.intValue());
+                    break;
+                case "dcmHttpClientMaxConnections":
+                    arcDev.setHttpClientMaxConnections(reader.intValue());
+                    break;
+                case "dcmHttpClientMaxConnectionsPerHost":
+                    arcDev.setHttpClientMaxConnectionsPerHost(reader.intValue());
+                    break;
+                case "dcmHttpClientConnectTimeout":
+                    arcDev.setHttpClientConnectTimeout(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmHttpClientReadTimeout":
+                    arcDev.setHttpClientReadTimeout(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmExportTaskBatchSize":
+                    arcDev.setExportTaskBatchSize(reader.intValue());
+                    break;
+                case "dcmCompressionPollingInterval":
+                    arcDev.setCompressionPollingInterval(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmCompressionFetchSize":
+                    arcDev.setCompressionFetchSize(reader.intValue());
+                    break;
+                case "dcmCompressionThreads":
+                    arcDev.setCompressionThreads(reader.intValue());
+                    break;
+                case "dcmCompressionSchedule":
+                    arcDev.setCompressionSchedules(scheduleExpressions(reader.stringArray()));
+                    break;
+                case "dcmStoragePlacement":
+                    arcDev.setStoragePlacement(StoragePlacement.valueOf(reader.stringValue()));
+                    break;
+                case "dcmTieringPollingInterval":
+                    arcDev.setTieringPollingInterval(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmTieringFetchSize":
+                    arcDev.setTieringFetchSize(reader.intValue());
+                    break;
+                case "dcmTieringThreads":
+                    arcDev.setTieringThreads(reader.intValue());
+                    break;
+                case "dcmScrubPollingInterval":
+                    arcDev.setScrubPollingInterval(Duration.parse(reader.stringValue()));
+                    break;
+                case "dcmScrubFetchSize":
+                    arcDev.setScrubFetchSize(reader.intValue());
+                    break;
+                case "dcmScrubThreads":
+                    arcDev.setScrubThreads(reader.intValue());
+                    break;
+                case "dcmScrubMaxBytesPerSecond":
+                    arcDev.setScrubMaxBytesPerSecond(reader.intValue());
+                    break;
+                case "dcmScrubSchedule":
+                    arcDev.setScrubSchedules(scheduleExpressions(reader.stringArray()));
+                    break;
                 case "dcmAttributeFilter":
                     loadAttributeFilterListFrom(arcDev, reader);
                     break;
@@ -1060,6 +1209,27 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                     case "dcmExternalRetrieveAET":
                         st.setExternalRetrieveAETitle(reader.stringValue());
                         break;
+                    case "dcmStorageGroupID":
+                        st.setStorageGroupID(reader.stringValue());
+                        break;
+                    case "dcmStorageThreshold":
+                        st.setStorageThreshold(reader.stringValue());
+                        break;
+                    case "dcmTieringStorageID":
+                        st.setTieringStorageID(reader.stringValue());
+                        break;
+                    case "dcmTieringDelay":
+                        st.setTieringDelay(Duration.parse(reader.stringValue()));
+                        break;
+                    case "dcmTieringRecall":
+                        st.setTieringRecall(reader.booleanValue());
+                        break;
+                    case "dcmDeduplication":
+                        st.setDeduplication(reader.booleanValue());
+                        break;
+                    case "dcmScrubInterval":
+                        st.setScrubInterval(Duration.parse(reader.stringValue()));
+                        break;
                     default:
                         reader.skipUnknownProperty();
                 }
@@ -1186,6 +1356,9 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                     case "dcmSchedule":
                         ed.setSchedules(scheduleExpressions(reader.stringArray()));
                         break;
+                    case "dcmExportPriority":
+                        ed.setPriority(reader.intValue());
+                        break;
                     case "dcmProperty":
                         ed.setProperties(reader.stringArray());
                         break;
@@ -1269,6 +1442,9 @@ public class JsonArchiveConfiguration extends JsonConfigurationExtension {
                     case "dcmImageWriteParam":
                         acr.setImageWriteParams(Property.valueOf(reader.stringArray()));
                         break;
+                    case "dcmDuration":
+                        acr.setDelay(Duration.parse(reader.stringValue()));
+                        break;
                     default:
                         reader.skipUnknownProperty();
                 }
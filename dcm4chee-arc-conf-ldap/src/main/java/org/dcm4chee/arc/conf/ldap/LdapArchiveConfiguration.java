@@ -187,6 +187,46 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotNull(attrs, "hl7ScheduledStationAETInOrder", ext.getHl7ScheduledStationAETInOrder());
         LdapUtils.storeNotNull(attrs, "dcmAuditUnknownStudyInstanceUID", ext.getAuditUnknownStudyInstanceUID());
         LdapUtils.storeNotNull(attrs, "dcmAuditUnknownPatientID", ext.getAuditUnknownPatientID());
+        LdapUtils.storeNotDef(attrs, "dcmPostStoreEventMaxThreads", ext.getPostStoreEventMaxThreads(), 0);
+        LdapUtils.storeNotDef(attrs, "dcmPostStoreEventMaxQueueSize", ext.getPostStoreEventMaxQueueSize(), 1000);
+        LdapUtils.storeNotDef(attrs, "dcmQueryFetchSize", ext.getQueryFetchSize(), 100);
+        LdapUtils.storeNotDef(attrs, "dcmPurgeQueueMessageFetchSize", ext.getPurgeQueueMessageFetchSize(), 100);
+        LdapUtils.storeNotDef(attrs, "dcmExportMaxConcurrencyPerDestination",
+                ext.getExportMaxConcurrencyPerDestination(), 0);
+        LdapUtils.storeNotNull(attrs, "dcmPatientCacheStaleTimeout", ext.getPatientCacheStaleTimeout());
+        LdapUtils.storeNotDef(attrs, "dcmPatientCacheSize", ext.getPatientCacheSize(), 1000);
+        LdapUtils.storeNotNull(attrs, "dcmWadoRenderedImageCacheDirectory", ext.getWadoRenderedImageCacheDirectory());
+        LdapUtils.storeNotNull(attrs, "dcmWadoRenderedImageCacheMaxSize", ext.getWadoRenderedImageCacheMaxSize());
+        LdapUtils.storeNotDef(attrs, "dcmSeriesThumbnailSize", ext.getSeriesThumbnailSize(), 128);
+        LdapUtils.storeNotDef(attrs, "dcmSeriesPreviewSize", ext.getSeriesPreviewSize(), 512);
+        LdapUtils.storeNotDef(attrs, "dcmWadoRenderConcurrency", ext.getWadoRenderConcurrency(), 4);
+        LdapUtils.storeNotNull(attrs, "dcmAssociationPoolIdleTimeout", ext.getAssociationPoolIdleTimeout());
+        LdapUtils.storeNotDef(attrs, "dcmAssociationPoolMaxIdle", ext.getAssociationPoolMaxIdle(), 4);
+        LdapUtils.storeNotNull(attrs, "dcmLeadingCFindSCPQueryCacheRefreshTimeout",
+                ext.getLeadingCFindSCPQueryCacheRefreshTimeout());
+        LdapUtils.storeNotNull(attrs, "dcmAcceptedTransferSyntaxCacheStaleTimeout",
+                ext.getAcceptedTransferSyntaxCacheStaleTimeout());
+        LdapUtils.storeNotDef(attrs, "dcmAcceptedTransferSyntaxCacheSize",
+                ext.getAcceptedTransferSyntaxCacheSize(), 100);
+        LdapUtils.storeNotDef(attrs, "dcmHttpClientMaxConnections", ext.getHttpClientMaxConnections(), 50);
+        LdapUtils.storeNotDef(attrs, "dcmHttpClientMaxConnectionsPerHost",
+                ext.getHttpClientMaxConnectionsPerHost(), 10);
+        LdapUtils.storeNotNull(attrs, "dcmHttpClientConnectTimeout", ext.getHttpClientConnectTimeout());
+        LdapUtils.storeNotNull(attrs, "dcmHttpClientReadTimeout", ext.getHttpClientReadTimeout());
+        LdapUtils.storeNotDef(attrs, "dcmExportTaskBatchSize", ext.getExportTaskBatchSize(), 1);
+        LdapUtils.storeNotNull(attrs, "dcmCompressionPollingInterval", ext.getCompressionPollingInterval());
+        LdapUtils.storeNotDef(attrs, "dcmCompressionFetchSize", ext.getCompressionFetchSize(), 100);
+        LdapUtils.storeNotDef(attrs, "dcmCompressionThreads", ext.getCompressionThreads(), 1);
+        LdapUtils.storeNotEmpty(attrs, "dcmCompressionSchedule", ext.getCompressionSchedules());
+        LdapUtils.storeNotNull(attrs, "dcmStoragePlacement", ext.getStoragePlacement());
+        LdapUtils.storeNotNull(attrs, "dcmTieringPollingInterval", ext.getTieringPollingInterval());
+        LdapUtils.storeNotDef(attrs, "dcmTieringFetchSize", ext.getTieringFetchSize(), 100);
+        LdapUtils.storeNotDef(attrs, "dcmTieringThreads", ext.getTieringThreads(), 1);
+        LdapUtils.storeNotNull(attrs, "dcmScrubPollingInterval", ext.getScrubPollingInterval());
+        LdapUtils.storeNotDef(attrs, "dcmScrubFetchSize", ext.getScrubFetchSize(), 100);
+        LdapUtils.storeNotDef(attrs, "dcmScrubThreads", ext.getScrubThreads(), 1);
+        LdapUtils.storeNotDef(attrs, "dcmScrubMaxBytesPerSecond", ext.getScrubMaxBytesPerSecond(), 0);
+        LdapUtils.storeNotEmpty(attrs, "dcmScrubSchedule", ext.getScrubSchedules());
     }
 
     @Override
@@ -312,6 +352,44 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 attrs.get("hl7ScheduledStationAETInOrder"), null));
         ext.setAuditUnknownStudyInstanceUID(LdapUtils.stringValue(attrs.get("dcmAuditUnknownStudyInstanceUID"), null));
         ext.setAuditUnknownPatientID(LdapUtils.stringValue(attrs.get("dcmAuditUnknownPatientID"), null));
+        ext.setPostStoreEventMaxThreads(LdapUtils.intValue(attrs.get("dcmPostStoreEventMaxThreads"), 0));
+        ext.setPostStoreEventMaxQueueSize(LdapUtils.intValue(attrs.get("dcmPostStoreEventMaxQueueSize"), 1000));
+        ext.setQueryFetchSize(LdapUtils.intValue(attrs.get("dcmQueryFetchSize"), 100));
+        ext.setPurgeQueueMessageFetchSize(LdapUtils.intValue(attrs.get("dcmPurgeQueueMessageFetchSize"), 100));
+        ext.setExportMaxConcurrencyPerDestination(
+                LdapUtils.intValue(attrs.get("dcmExportMaxConcurrencyPerDestination"), 0));
+        ext.setPatientCacheStaleTimeout(toDuration(attrs.get("dcmPatientCacheStaleTimeout")));
+        ext.setPatientCacheSize(LdapUtils.intValue(attrs.get("dcmPatientCacheSize"), 1000));
+        ext.setWadoRenderedImageCacheDirectory(
+                LdapUtils.stringValue(attrs.get("dcmWadoRenderedImageCacheDirectory"), null));
+        ext.setWadoRenderedImageCacheMaxSize(
+                LdapUtils.stringValue(attrs.get("dcmWadoRenderedImageCacheMaxSize"), null));
+        ext.setSeriesThumbnailSize(LdapUtils.intValue(attrs.get("dcmSeriesThumbnailSize"), 128));
+        ext.setSeriesPreviewSize(LdapUtils.intValue(attrs.get("dcmSeriesPreviewSize"), 512));
+        ext.setWadoRenderConcurrency(LdapUtils.intValue(attrs.get("dcmWadoRenderConcurrency"), 4));
+        ext.setAssociationPoolIdleTimeout(toDuration(attrs.get("dcmAssociationPoolIdleTimeout")));
+        ext.setAssociationPoolMaxIdle(LdapUtils.intValue(attrs.get("dcmAssociationPoolMaxIdle"), 4));
+        ext.setLeadingCFindSCPQueryCacheRefreshTimeout(toDuration(attrs.get("dcmLeadingCFindSCPQueryCacheRefreshTimeout")));
+        ext.setAcceptedTransferSyntaxCacheStaleTimeout(toDuration(attrs.get("dcmAcceptedTransferSyntaxCacheStaleTimeout")));
+        ext.setAcceptedTransferSyntaxCacheSize(LdapUtils.intValue(attrs.get("dcmAcceptedTransferSyntaxCacheSize"), 100));
+        ext.setHttpClientMaxConnections(LdapUtils.intValue(attrs.get("dcmHttpClientMaxConnections"), 50));
+        ext.setHttpClientMaxConnectionsPerHost(LdapUtils.intValue(attrs.get("dcmHttpClientMaxConnectionsPerHost"), 10));
+        ext.setHttpClientConnectTimeout(toDuration(attrs.get("dcmHttpClientConnectTimeout")));
+        ext.setHttpClientReadTimeout(toDuration(attrs.get("dcmHttpClientReadTimeout")));
+        ext.setExportTaskBatchSize(LdapUtils.intValue(attrs.get("dcmExportTaskBatchSize"), 1));
+        ext.setCompressionPollingInterval(toDuration(attrs.get("dcmCompressionPollingInterval")));
+        ext.setCompressionFetchSize(LdapUtils.intValue(attrs.get("dcmCompressionFetchSize"), 100));
+        ext.setCompressionThreads(LdapUtils.intValue(attrs.get("dcmCompressionThreads"), 1));
+        ext.setCompressionSchedules(toScheduleExpressions(LdapUtils.stringArray(attrs.get("dcmCompressionSchedule"))));
+        ext.setStoragePlacement(LdapUtils.enumValue(StoragePlacement.class, attrs.get("dcmStoragePlacement"), null));
+        ext.setTieringPollingInterval(toDuration(attrs.get("dcmTieringPollingInterval")));
+        ext.setTieringFetchSize(LdapUtils.intValue(attrs.get("dcmTieringFetchSize"), 100));
+        ext.setTieringThreads(LdapUtils.intValue(attrs.get("dcmTieringThreads"), 1));
+        ext.setScrubPollingInterval(toDuration(attrs.get("dcmScrubPollingInterval")));
+        ext.setScrubFetchSize(LdapUtils.intValue(attrs.get("dcmScrubFetchSize"), 100));
+        ext.setScrubThreads(LdapUtils.intValue(attrs.get("dcmScrubThreads"), 1));
+        ext.setScrubMaxBytesPerSecond(LdapUtils.intValue(attrs.get("dcmScrubMaxBytesPerSecond"), 0));
+        ext.setScrubSchedules(toScheduleExpressions(LdapUtils.stringArray(attrs.get("dcmScrubSchedule"))));
     }
 
     @Override
@@ -500,6 +578,66 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeDiff(mods, "hl7ScheduledStationAETInOrder", aa.getHl7ScheduledStationAETInOrder(), bb.getHl7ScheduledStationAETInOrder());
         LdapUtils.storeDiff(mods, "dcmAuditUnknownStudyInstanceUID", aa.getAuditUnknownStudyInstanceUID(), bb.getAuditUnknownStudyInstanceUID());
         LdapUtils.storeDiff(mods, "dcmAuditUnknownPatientID", aa.getAuditUnknownPatientID(), bb.getAuditUnknownPatientID());
+        LdapUtils.storeDiff(mods, "dcmPostStoreEventMaxThreads",
+                aa.getPostStoreEventMaxThreads(), bb.getPostStoreEventMaxThreads(), 0);
+        LdapUtils.storeDiff(mods, "dcmPostStoreEventMaxQueueSize",
+                aa.getPostStoreEventMaxQueueSize(), bb.getPostStoreEventMaxQueueSize(), 1000);
+        LdapUtils.storeDiff(mods, "dcmQueryFetchSize", aa.getQueryFetchSize(), bb.getQueryFetchSize(), 100);
+        LdapUtils.storeDiff(mods, "dcmPurgeQueueMessageFetchSize",
+                aa.getPurgeQueueMessageFetchSize(), bb.getPurgeQueueMessageFetchSize(), 100);
+        LdapUtils.storeDiff(mods, "dcmExportMaxConcurrencyPerDestination",
+                aa.getExportMaxConcurrencyPerDestination(), bb.getExportMaxConcurrencyPerDestination(), 0);
+        LdapUtils.storeDiff(mods, "dcmPatientCacheStaleTimeout",
+                aa.getPatientCacheStaleTimeout(), bb.getPatientCacheStaleTimeout());
+        LdapUtils.storeDiff(mods, "dcmPatientCacheSize", aa.getPatientCacheSize(), bb.getPatientCacheSize(), 1000);
+        LdapUtils.storeDiff(mods, "dcmWadoRenderedImageCacheDirectory",
+                aa.getWadoRenderedImageCacheDirectory(), bb.getWadoRenderedImageCacheDirectory());
+        LdapUtils.storeDiff(mods, "dcmWadoRenderedImageCacheMaxSize",
+                aa.getWadoRenderedImageCacheMaxSize(), bb.getWadoRenderedImageCacheMaxSize());
+        LdapUtils.storeDiff(mods, "dcmSeriesThumbnailSize",
+                aa.getSeriesThumbnailSize(), bb.getSeriesThumbnailSize(), 128);
+        LdapUtils.storeDiff(mods, "dcmSeriesPreviewSize", aa.getSeriesPreviewSize(), bb.getSeriesPreviewSize(), 512);
+        LdapUtils.storeDiff(mods, "dcmWadoRenderConcurrency",
+                aa.getWadoRenderConcurrency(), bb.getWadoRenderConcurrency(), 4);
+        LdapUtils.storeDiff(mods, "dcmAssociationPoolIdleTimeout",
+                aa.getAssociationPoolIdleTimeout(), bb.getAssociationPoolIdleTimeout());
+        LdapUtils.storeDiff(mods, "dcmAssociationPoolMaxIdle",
+                aa.getAssociationPoolMaxIdle(), bb.getAssociationPoolMaxIdle(), 4);
+        LdapUtils.storeDiff(mods, "dcmLeadingCFindSCPQueryCacheRefreshTimeout",
+                aa.getLeadingCFindSCPQueryCacheRefreshTimeout(), bb.getLeadingCFindSCPQueryCacheRefreshTimeout());
+        LdapUtils.storeDiff(mods, "dcmAcceptedTransferSyntaxCacheStaleTimeout",
+                aa.getAcceptedTransferSyntaxCacheStaleTimeout(), bb.getAcceptedTransferSyntaxCacheStaleTimeout());
+        LdapUtils.storeDiff(mods, "dcmAcceptedTransferSyntaxCacheSize",
+                aa.getAcceptedTransferSyntaxCacheSize(), bb.getAcceptedTransferSyntaxCacheSize(), 100);
+        LdapUtils.storeDiff(mods, "dcmHttpClientMaxConnections",
+                aa.getHttpClientMaxConnections(), bb.getHttpClientMaxConnections(), 50);
+        LdapUtils.storeDiff(mods, "dcmHttpClientMaxConnectionsPerHost",
+                aa.getHttpClientMaxConnectionsPerHost(), bb.getHttpClientMaxConnectionsPerHost(), 10);
+        LdapUtils.storeDiff(mods, "dcmHttpClientConnectTimeout",
+                aa.getHttpClientConnectTimeout(), bb.getHttpClientConnectTimeout());
+        LdapUtils.storeDiff(mods, "dcmHttpClientReadTimeout",
+                aa.getHttpClientReadTimeout(), bb.getHttpClientReadTimeout());
+        LdapUtils.storeDiff(mods, "dcmExportTaskBatchSize",
+                aa.getExportTaskBatchSize(), bb.getExportTaskBatchSize(), 1);
+        LdapUtils.storeDiff(mods, "dcmCompressionPollingInterval",
+                aa.getCompressionPollingInterval(), bb.getCompressionPollingInterval());
+        LdapUtils.storeDiff(mods, "dcmCompressionFetchSize",
+                aa.getCompressionFetchSize(), bb.getCompressionFetchSize(), 100);
+        LdapUtils.storeDiff(mods, "dcmCompressionThreads", aa.getCompressionThreads(), bb.getCompressionThreads(), 1);
+        LdapUtils.storeDiff(mods, "dcmCompressionSchedule",
+                aa.getCompressionSchedules(), bb.getCompressionSchedules());
+        LdapUtils.storeDiff(mods, "dcmStoragePlacement", aa.getStoragePlacement(), bb.getStoragePlacement());
+        LdapUtils.storeDiff(mods, "dcmTieringPollingInterval",
+                aa.getTieringPollingInterval(), bb.getTieringPollingInterval());
+        LdapUtils.storeDiff(mods, "dcmTieringFetchSize", aa.getTieringFetchSize(), bb.getTieringFetchSize(), 100);
+        LdapUtils.storeDiff(mods, "dcmTieringThreads", aa.getTieringThreads(), bb.getTieringThreads(), 1);
+        LdapUtils.storeDiff(mods, "dcmScrubPollingInterval",
+                aa.getScrubPollingInterval(), bb.getScrubPollingInterval());
+        LdapUtils.storeDiff(mods, "dcmScrubFetchSize", aa.getScrubFetchSize(), bb.getScrubFetchSize(), 100);
+        LdapUtils.storeDiff(mods, "dcmScrubThreads", aa.getScrubThreads(), bb.getScrubThreads(), 1);
+        LdapUtils.storeDiff(mods, "dcmScrubMaxBytesPerSecond",
+                aa.getScrubMaxBytesPerSecond(), bb.getScrubMaxBytesPerSecond(), 0);
+        LdapUtils.storeDiff(mods, "dcmScrubSchedule", aa.getScrubSchedules(), bb.getScrubSchedules());
     }
 
     @Override
@@ -1055,6 +1193,13 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotEmpty(attrs, "dcmDeleterThreshold", descriptor.getDeleterThresholdsAsStrings());
         LdapUtils.storeNotEmpty(attrs, "dcmProperty", toStrings(descriptor.getProperties()));
         LdapUtils.storeNotNull(attrs, "dcmExternalRetrieveAET", descriptor.getExternalRetrieveAETitle());
+        LdapUtils.storeNotNull(attrs, "dcmStorageGroupID", descriptor.getStorageGroupID());
+        LdapUtils.storeNotNull(attrs, "dcmStorageThreshold", descriptor.getStorageThreshold());
+        LdapUtils.storeNotNull(attrs, "dcmTieringStorageID", descriptor.getTieringStorageID());
+        LdapUtils.storeNotNull(attrs, "dcmTieringDelay", descriptor.getTieringDelay());
+        LdapUtils.storeNotDef(attrs, "dcmTieringRecall", descriptor.isTieringRecall(), false);
+        LdapUtils.storeNotDef(attrs, "dcmDeduplication", descriptor.isDeduplication(), false);
+        LdapUtils.storeNotNull(attrs, "dcmScrubInterval", descriptor.getScrubInterval());
         return attrs;
     }
 
@@ -1081,6 +1226,13 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 desc.setDeleterThresholdsFromStrings(LdapUtils.stringArray(attrs.get("dcmDeleterThreshold")));
                 desc.setProperties(LdapUtils.stringArray(attrs.get("dcmProperty")));
                 desc.setExternalRetrieveAETitle(LdapUtils.stringValue(attrs.get("dcmExternalRetrieveAET"), null));
+                desc.setStorageGroupID(LdapUtils.stringValue(attrs.get("dcmStorageGroupID"), null));
+                desc.setStorageThreshold(LdapUtils.stringValue(attrs.get("dcmStorageThreshold"), null));
+                desc.setTieringStorageID(LdapUtils.stringValue(attrs.get("dcmTieringStorageID"), null));
+                desc.setTieringDelay(toDuration(attrs.get("dcmTieringDelay")));
+                desc.setTieringRecall(LdapUtils.booleanValue(attrs.get("dcmTieringRecall"), false));
+                desc.setDeduplication(LdapUtils.booleanValue(attrs.get("dcmDeduplication"), false));
+                desc.setScrubInterval(toDuration(attrs.get("dcmScrubInterval")));
                 arcdev.addStorageDescriptor(desc);
             }
         } finally {
@@ -1119,6 +1271,13 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 prev.getDeleterThresholdsAsStrings(), desc.getDeleterThresholdsAsStrings());
         storeDiffProperties(mods, prev.getProperties(), desc.getProperties());
         LdapUtils.storeDiff(mods, "dcmExternalRetrieveAET", prev.getExternalRetrieveAETitle(), desc.getExternalRetrieveAETitle());
+        LdapUtils.storeDiff(mods, "dcmStorageGroupID", prev.getStorageGroupID(), desc.getStorageGroupID());
+        LdapUtils.storeDiff(mods, "dcmStorageThreshold", prev.getStorageThreshold(), desc.getStorageThreshold());
+        LdapUtils.storeDiff(mods, "dcmTieringStorageID", prev.getTieringStorageID(), desc.getTieringStorageID());
+        LdapUtils.storeDiff(mods, "dcmTieringDelay", prev.getTieringDelay(), desc.getTieringDelay());
+        LdapUtils.storeDiff(mods, "dcmTieringRecall", prev.isTieringRecall(), desc.isTieringRecall(), false);
+        LdapUtils.storeDiff(mods, "dcmDeduplication", prev.isDeduplication(), desc.isDeduplication(), false);
+        LdapUtils.storeDiff(mods, "dcmScrubInterval", prev.getScrubInterval(), desc.getScrubInterval());
         return mods;
     }
 
@@ -1234,6 +1393,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotNull(attrs, "dcmRetrieveLocationUID", descriptor.getRetrieveLocationUID());
         LdapUtils.storeNotNull(attrs, "dcmInstanceAvailability", descriptor.getInstanceAvailability());
         LdapUtils.storeNotEmpty(attrs, "dcmSchedule", descriptor.getSchedules());
+        LdapUtils.storeNotDef(attrs, "dcmExportPriority", descriptor.getPriority(), 4);
         LdapUtils.storeNotEmpty(attrs, "dcmProperty", toStrings(descriptor.getProperties()));
         return attrs;
     }
@@ -1256,6 +1416,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 desc.setInstanceAvailability(
                         LdapUtils.enumValue(Availability.class, attrs.get("dcmInstanceAvailability"), null));
                 desc.setSchedules(toScheduleExpressions(LdapUtils.stringArray(attrs.get("dcmSchedule"))));
+                desc.setPriority(LdapUtils.intValue(attrs.get("dcmExportPriority"), 4));
                 desc.setProperties(LdapUtils.stringArray(attrs.get("dcmProperty")));
                 arcdev.addExporterDescriptor(desc);
             }
@@ -1305,6 +1466,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeDiff(mods, "dcmInstanceAvailability",
                 prev.getInstanceAvailability(), desc.getInstanceAvailability());
         LdapUtils.storeDiff(mods, "dcmSchedule", prev.getSchedules(), desc.getSchedules());
+        LdapUtils.storeDiff(mods, "dcmExportPriority", prev.getPriority(), desc.getPriority(), 4);
         storeDiffProperties(mods, prev.getProperties(), desc.getProperties());
         return mods;
     }
@@ -1486,6 +1648,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeNotNull(attrs, "dicomTransferSyntax", rule.getTransferSyntax());
         LdapUtils.storeNotEmpty(attrs, "dcmImageWriteParam", rule.getImageWriteParams());
         LdapUtils.storeNotDef(attrs, "dcmRulePriority", rule.getPriority(), 0);
+        LdapUtils.storeNotNull(attrs, "dcmDuration", rule.getDelay());
         return attrs;
     }
 
@@ -1545,6 +1708,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
                 rule.setTransferSyntax(LdapUtils.stringValue(attrs.get("dicomTransferSyntax"), null));
                 rule.setImageWriteParams(Property.valueOf(LdapUtils.stringArray(attrs.get("dcmImageWriteParam"))));
                 rule.setPriority(LdapUtils.intValue(attrs.get("dcmRulePriority"), 0));
+                rule.setDelay(toDuration(attrs.get("dcmDuration")));
                 rules.add(rule);
             }
         } finally {
@@ -1784,6 +1948,7 @@ class LdapArchiveConfiguration extends LdapDicomConfigurationExtension {
         LdapUtils.storeDiff(mods, "dicomTransferSyntax", prev.getTransferSyntax(), rule.getTransferSyntax());
         LdapUtils.storeDiff(mods, "dcmImageWriteParam", prev.getImageWriteParams(), rule.getImageWriteParams());
         LdapUtils.storeDiff(mods, "dcmRulePriority", prev.getPriority(), rule.getPriority(), 0);
+        LdapUtils.storeDiff(mods, "dcmDuration", prev.getDelay(), rule.getDelay());
         return mods;
     }
 
@@ -21,6 +21,8 @@ public class ArchiveCompressionRule {
 
     private Property[] imageWriteParams = {};
 
+    private Duration delay;
+
     public ArchiveCompressionRule() {
     }
 
@@ -68,6 +70,14 @@ public class ArchiveCompressionRule {
         this.imageWriteParams = imageWriteParams;
     }
 
+    public Duration getDelay() {
+        return delay;
+    }
+
+    public void setDelay(Duration delay) {
+        this.delay = delay;
+    }
+
     public boolean match(String hostname, String sendingAET, String receivingAET, Attributes attrs) {
         return conditions.match(hostname, sendingAET, receivingAET, attrs);
     }
@@ -78,6 +88,7 @@ public class ArchiveCompressionRule {
                 "cn=" + commonName +
                 ", transferSyntax=" + transferSyntax +
                 ", imageWriteParams=" + Arrays.toString(imageWriteParams) +
+                ", delay=" + delay +
                 '}';
     }
 }
@@ -167,6 +167,41 @@ public class ArchiveDeviceExtension extends DeviceExtension {
     private ScheduledStationAETInOrder hl7ScheduledStationAETInOrder;
     private String auditUnknownStudyInstanceUID;
     private String auditUnknownPatientID;
+    private int postStoreEventMaxThreads = 0;
+    private int postStoreEventMaxQueueSize = 1000;
+    private int queryFetchSize = 100;
+    private int purgeQueueMessageFetchSize = 100;
+    private int exportMaxConcurrencyPerDestination = 0;
+    private Duration patientCacheStaleTimeout;
+    private int patientCacheSize = 1000;
+    private String wadoRenderedImageCacheDirectory;
+    private String wadoRenderedImageCacheMaxSize;
+    private int seriesThumbnailSize = 128;
+    private int seriesPreviewSize = 512;
+    private int wadoRenderConcurrency = 4;
+    private Duration associationPoolIdleTimeout;
+    private int associationPoolMaxIdle = 4;
+    private Duration leadingCFindSCPQueryCacheRefreshTimeout;
+    private Duration acceptedTransferSyntaxCacheStaleTimeout;
+    private int acceptedTransferSyntaxCacheSize = 100;
+    private int httpClientMaxConnections = 50;
+    private int httpClientMaxConnectionsPerHost = 10;
+    private Duration httpClientConnectTimeout;
+    private Duration httpClientReadTimeout;
+    private int exportTaskBatchSize = 1;
+    private Duration compressionPollingInterval;
+    private int compressionFetchSize = 100;
+    private int compressionThreads = 1;
+    private ScheduleExpression[] compressionSchedules = {};
+    private StoragePlacement storagePlacement;
+    private Duration tieringPollingInterval;
+    private int tieringFetchSize = 100;
+    private int tieringThreads = 1;
+    private Duration scrubPollingInterval;
+    private int scrubFetchSize = 100;
+    private int scrubThreads = 1;
+    private int scrubMaxBytesPerSecond = 0;
+    private ScheduleExpression[] scrubSchedules = {};
 
     private final HashSet<String> wadoSupportedSRClasses = new HashSet<>();
     private final EnumMap<Entity,AttributeFilter> attributeFilters = new EnumMap<>(Entity.class);
@@ -1480,6 +1515,310 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         return StringUtils.maskNull(auditUnknownPatientID, "<none>");
     }
 
+    public int getPostStoreEventMaxThreads() {
+        return postStoreEventMaxThreads;
+    }
+
+    public void setPostStoreEventMaxThreads(int postStoreEventMaxThreads) {
+        this.postStoreEventMaxThreads = greaterOrEqualsZero(postStoreEventMaxThreads, "postStoreEventMaxThreads");
+    }
+
+    public int getPostStoreEventMaxQueueSize() {
+        return postStoreEventMaxQueueSize;
+    }
+
+    public void setPostStoreEventMaxQueueSize(int postStoreEventMaxQueueSize) {
+        this.postStoreEventMaxQueueSize = greaterZero(postStoreEventMaxQueueSize, "postStoreEventMaxQueueSize");
+    }
+
+    public int getQueryFetchSize() {
+        return queryFetchSize;
+    }
+
+    public void setQueryFetchSize(int queryFetchSize) {
+        this.queryFetchSize = greaterOrEqualsZero(queryFetchSize, "queryFetchSize");
+    }
+
+    public int getPurgeQueueMessageFetchSize() {
+        return purgeQueueMessageFetchSize;
+    }
+
+    public void setPurgeQueueMessageFetchSize(int purgeQueueMessageFetchSize) {
+        this.purgeQueueMessageFetchSize = greaterZero(purgeQueueMessageFetchSize, "purgeQueueMessageFetchSize");
+    }
+
+    public int getExportMaxConcurrencyPerDestination() {
+        return exportMaxConcurrencyPerDestination;
+    }
+
+    public void setExportMaxConcurrencyPerDestination(int exportMaxConcurrencyPerDestination) {
+        this.exportMaxConcurrencyPerDestination =
+                greaterOrEqualsZero(exportMaxConcurrencyPerDestination, "exportMaxConcurrencyPerDestination");
+    }
+
+    public Duration getPatientCacheStaleTimeout() {
+        return patientCacheStaleTimeout;
+    }
+
+    public void setPatientCacheStaleTimeout(Duration patientCacheStaleTimeout) {
+        this.patientCacheStaleTimeout = patientCacheStaleTimeout;
+    }
+
+    public int getPatientCacheStaleTimeoutSeconds() {
+        return toSeconds(patientCacheStaleTimeout);
+    }
+
+    public int getPatientCacheSize() {
+        return patientCacheSize;
+    }
+
+    public void setPatientCacheSize(int patientCacheSize) {
+        this.patientCacheSize = greaterOrEqualsZero(patientCacheSize, "patientCacheSize");
+    }
+
+    public String getWadoRenderedImageCacheDirectory() {
+        return wadoRenderedImageCacheDirectory;
+    }
+
+    public void setWadoRenderedImageCacheDirectory(String wadoRenderedImageCacheDirectory) {
+        this.wadoRenderedImageCacheDirectory = wadoRenderedImageCacheDirectory;
+    }
+
+    public String getWadoRenderedImageCacheMaxSize() {
+        return wadoRenderedImageCacheMaxSize;
+    }
+
+    public void setWadoRenderedImageCacheMaxSize(String wadoRenderedImageCacheMaxSize) {
+        if (wadoRenderedImageCacheMaxSize != null)
+            BinaryPrefix.parse(wadoRenderedImageCacheMaxSize);
+        this.wadoRenderedImageCacheMaxSize = wadoRenderedImageCacheMaxSize;
+    }
+
+    public long wadoRenderedImageCacheMaxSizeInBytes() {
+        return wadoRenderedImageCacheMaxSize != null
+                ? BinaryPrefix.parse(wadoRenderedImageCacheMaxSize)
+                : BinaryPrefix.Gi.size();
+    }
+
+    public int getSeriesThumbnailSize() {
+        return seriesThumbnailSize;
+    }
+
+    public void setSeriesThumbnailSize(int seriesThumbnailSize) {
+        this.seriesThumbnailSize = greaterZero(seriesThumbnailSize, "seriesThumbnailSize");
+    }
+
+    public int getSeriesPreviewSize() {
+        return seriesPreviewSize;
+    }
+
+    public void setSeriesPreviewSize(int seriesPreviewSize) {
+        this.seriesPreviewSize = greaterZero(seriesPreviewSize, "seriesPreviewSize");
+    }
+
+    public int getWadoRenderConcurrency() {
+        return wadoRenderConcurrency;
+    }
+
+    public void setWadoRenderConcurrency(int wadoRenderConcurrency) {
+        this.wadoRenderConcurrency = greaterZero(wadoRenderConcurrency, "wadoRenderConcurrency");
+    }
+
+    public Duration getAssociationPoolIdleTimeout() {
+        return associationPoolIdleTimeout;
+    }
+
+    public void setAssociationPoolIdleTimeout(Duration associationPoolIdleTimeout) {
+        this.associationPoolIdleTimeout = associationPoolIdleTimeout;
+    }
+
+    public int getAssociationPoolMaxIdle() {
+        return associationPoolMaxIdle;
+    }
+
+    public void setAssociationPoolMaxIdle(int associationPoolMaxIdle) {
+        this.associationPoolMaxIdle = greaterZero(associationPoolMaxIdle, "associationPoolMaxIdle");
+    }
+
+    public Duration getLeadingCFindSCPQueryCacheRefreshTimeout() {
+        return leadingCFindSCPQueryCacheRefreshTimeout;
+    }
+
+    public void setLeadingCFindSCPQueryCacheRefreshTimeout(Duration leadingCFindSCPQueryCacheRefreshTimeout) {
+        this.leadingCFindSCPQueryCacheRefreshTimeout = leadingCFindSCPQueryCacheRefreshTimeout;
+    }
+
+    public int getLeadingCFindSCPQueryCacheRefreshTimeoutSeconds() {
+        return toSeconds(leadingCFindSCPQueryCacheRefreshTimeout);
+    }
+
+    public Duration getAcceptedTransferSyntaxCacheStaleTimeout() {
+        return acceptedTransferSyntaxCacheStaleTimeout;
+    }
+
+    public void setAcceptedTransferSyntaxCacheStaleTimeout(Duration acceptedTransferSyntaxCacheStaleTimeout) {
+        this.acceptedTransferSyntaxCacheStaleTimeout = acceptedTransferSyntaxCacheStaleTimeout;
+    }
+
+    public int getAcceptedTransferSyntaxCacheStaleTimeoutSeconds() {
+        return toSeconds(acceptedTransferSyntaxCacheStaleTimeout);
+    }
+
+    public int getAcceptedTransferSyntaxCacheSize() {
+        return acceptedTransferSyntaxCacheSize;
+    }
+
+    public void setAcceptedTransferSyntaxCacheSize(int acceptedTransferSyntaxCacheSize) {
+        this.acceptedTransferSyntaxCacheSize =
+                greaterZero(acceptedTransferSyntaxCacheSize, "acceptedTransferSyntaxCacheSize");
+    }
+
+    public int getHttpClientMaxConnections() {
+        return httpClientMaxConnections;
+    }
+
+    public void setHttpClientMaxConnections(int httpClientMaxConnections) {
+        this.httpClientMaxConnections =
+                greaterZero(httpClientMaxConnections, "httpClientMaxConnections");
+    }
+
+    public int getHttpClientMaxConnectionsPerHost() {
+        return httpClientMaxConnectionsPerHost;
+    }
+
+    public void setHttpClientMaxConnectionsPerHost(int httpClientMaxConnectionsPerHost) {
+        this.httpClientMaxConnectionsPerHost =
+                greaterZero(httpClientMaxConnectionsPerHost, "httpClientMaxConnectionsPerHost");
+    }
+
+    public Duration getHttpClientConnectTimeout() {
+        return httpClientConnectTimeout;
+    }
+
+    public void setHttpClientConnectTimeout(Duration httpClientConnectTimeout) {
+        this.httpClientConnectTimeout = httpClientConnectTimeout;
+    }
+
+    public Duration getHttpClientReadTimeout() {
+        return httpClientReadTimeout;
+    }
+
+    public void setHttpClientReadTimeout(Duration httpClientReadTimeout) {
+        this.httpClientReadTimeout = httpClientReadTimeout;
+    }
+
+    public int getExportTaskBatchSize() {
+        return exportTaskBatchSize;
+    }
+
+    public void setExportTaskBatchSize(int exportTaskBatchSize) {
+        this.exportTaskBatchSize = greaterZero(exportTaskBatchSize, "exportTaskBatchSize");
+    }
+
+    public Duration getCompressionPollingInterval() {
+        return compressionPollingInterval;
+    }
+
+    public void setCompressionPollingInterval(Duration compressionPollingInterval) {
+        this.compressionPollingInterval = compressionPollingInterval;
+    }
+
+    public int getCompressionFetchSize() {
+        return compressionFetchSize;
+    }
+
+    public void setCompressionFetchSize(int compressionFetchSize) {
+        this.compressionFetchSize = greaterZero(compressionFetchSize, "compressionFetchSize");
+    }
+
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    public void setCompressionThreads(int compressionThreads) {
+        this.compressionThreads = greaterZero(compressionThreads, "compressionThreads");
+    }
+
+    public ScheduleExpression[] getCompressionSchedules() {
+        return compressionSchedules;
+    }
+
+    public void setCompressionSchedules(ScheduleExpression... compressionSchedules) {
+        this.compressionSchedules = compressionSchedules;
+    }
+
+    public StoragePlacement getStoragePlacement() {
+        return storagePlacement;
+    }
+
+    public void setStoragePlacement(StoragePlacement storagePlacement) {
+        this.storagePlacement = storagePlacement;
+    }
+
+    public Duration getTieringPollingInterval() {
+        return tieringPollingInterval;
+    }
+
+    public void setTieringPollingInterval(Duration tieringPollingInterval) {
+        this.tieringPollingInterval = tieringPollingInterval;
+    }
+
+    public int getTieringFetchSize() {
+        return tieringFetchSize;
+    }
+
+    public void setTieringFetchSize(int tieringFetchSize) {
+        this.tieringFetchSize = greaterZero(tieringFetchSize, "tieringFetchSize");
+    }
+
+    public int getTieringThreads() {
+        return tieringThreads;
+    }
+
+    public void setTieringThreads(int tieringThreads) {
+        this.tieringThreads = greaterZero(tieringThreads, "tieringThreads");
+    }
+
+    public Duration getScrubPollingInterval() {
+        return scrubPollingInterval;
+    }
+
+    public void setScrubPollingInterval(Duration scrubPollingInterval) {
+        this.scrubPollingInterval = scrubPollingInterval;
+    }
+
+    public int getScrubFetchSize() {
+        return scrubFetchSize;
+    }
+
+    public void setScrubFetchSize(int scrubFetchSize) {
+        this.scrubFetchSize = greaterZero(scrubFetchSize, "scrubFetchSize");
+    }
+
+    public int getScrubThreads() {
+        return scrubThreads;
+    }
+
+    public void setScrubThreads(int scrubThreads) {
+        this.scrubThreads = greaterZero(scrubThreads, "scrubThreads");
+    }
+
+    public int getScrubMaxBytesPerSecond() {
+        return scrubMaxBytesPerSecond;
+    }
+
+    public void setScrubMaxBytesPerSecond(int scrubMaxBytesPerSecond) {
+        this.scrubMaxBytesPerSecond = greaterOrEqualsZero(scrubMaxBytesPerSecond, "scrubMaxBytesPerSecond");
+    }
+
+    public ScheduleExpression[] getScrubSchedules() {
+        return scrubSchedules;
+    }
+
+    public void setScrubSchedules(ScheduleExpression... scrubSchedules) {
+        this.scrubSchedules = scrubSchedules;
+    }
+
     @Override
     public void reconfigure(DeviceExtension from) {
         ArchiveDeviceExtension arcdev = (ArchiveDeviceExtension) from;
@@ -1594,6 +1933,41 @@ public class ArchiveDeviceExtension extends DeviceExtension {
         hl7ScheduledStationAETInOrder = arcdev.hl7ScheduledStationAETInOrder;
         auditUnknownStudyInstanceUID = arcdev.auditUnknownStudyInstanceUID;
         auditUnknownPatientID = arcdev.auditUnknownPatientID;
+        postStoreEventMaxThreads = arcdev.postStoreEventMaxThreads;
+        postStoreEventMaxQueueSize = arcdev.postStoreEventMaxQueueSize;
+        queryFetchSize = arcdev.queryFetchSize;
+        purgeQueueMessageFetchSize = arcdev.purgeQueueMessageFetchSize;
+        exportMaxConcurrencyPerDestination = arcdev.exportMaxConcurrencyPerDestination;
+        patientCacheStaleTimeout = arcdev.patientCacheStaleTimeout;
+        patientCacheSize = arcdev.patientCacheSize;
+        wadoRenderedImageCacheDirectory = arcdev.wadoRenderedImageCacheDirectory;
+        wadoRenderedImageCacheMaxSize = arcdev.wadoRenderedImageCacheMaxSize;
+        seriesThumbnailSize = arcdev.seriesThumbnailSize;
+        seriesPreviewSize = arcdev.seriesPreviewSize;
+        wadoRenderConcurrency = arcdev.wadoRenderConcurrency;
+        associationPoolIdleTimeout = arcdev.associationPoolIdleTimeout;
+        associationPoolMaxIdle = arcdev.associationPoolMaxIdle;
+        leadingCFindSCPQueryCacheRefreshTimeout = arcdev.leadingCFindSCPQueryCacheRefreshTimeout;
+        acceptedTransferSyntaxCacheStaleTimeout = arcdev.acceptedTransferSyntaxCacheStaleTimeout;
+        acceptedTransferSyntaxCacheSize = arcdev.acceptedTransferSyntaxCacheSize;
+        httpClientMaxConnections = arcdev.httpClientMaxConnections;
+        httpClientMaxConnectionsPerHost = arcdev.httpClientMaxConnectionsPerHost;
+        httpClientConnectTimeout = arcdev.httpClientConnectTimeout;
+        httpClientReadTimeout = arcdev.httpClientReadTimeout;
+        exportTaskBatchSize = arcdev.exportTaskBatchSize;
+        compressionPollingInterval = arcdev.compressionPollingInterval;
+        compressionFetchSize = arcdev.compressionFetchSize;
+        compressionThreads = arcdev.compressionThreads;
+        compressionSchedules = arcdev.compressionSchedules;
+        storagePlacement = arcdev.storagePlacement;
+        tieringPollingInterval = arcdev.tieringPollingInterval;
+        tieringFetchSize = arcdev.tieringFetchSize;
+        tieringThreads = arcdev.tieringThreads;
+        scrubPollingInterval = arcdev.scrubPollingInterval;
+        scrubFetchSize = arcdev.scrubFetchSize;
+        scrubThreads = arcdev.scrubThreads;
+        scrubMaxBytesPerSecond = arcdev.scrubMaxBytesPerSecond;
+        scrubSchedules = arcdev.scrubSchedules;
         attributeFilters.clear();
         attributeFilters.putAll(arcdev.attributeFilters);
         metadataFilters.clear();
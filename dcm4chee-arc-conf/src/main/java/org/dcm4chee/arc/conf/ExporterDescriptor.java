@@ -25,6 +25,7 @@ public class ExporterDescriptor {
     private Availability instanceAvailability;
     private String stgCmtSCPAETitle;
     private ScheduleExpression[] schedules = {};
+    private int priority = 4;
     private final Map<String, String> properties = new HashMap<>();
 
     public ExporterDescriptor() {
@@ -150,6 +151,16 @@ public class ExporterDescriptor {
         this.stgCmtSCPAETitle = stgCmtSCPAETitle;
     }
 
+    public int getPriority() {
+        return priority;
+    }
+
+    public void setPriority(int priority) {
+        if (priority < 0 || priority > 9)
+            throw new IllegalArgumentException("priority: " + priority);
+        this.priority = priority;
+    }
+
     @Override
     public String toString() {
         return "ExporterDescriptor{" +
@@ -161,6 +172,7 @@ public class ExporterDescriptor {
                 ", retrieveLocationUID=" + retrieveLocationUID +
                 ", availability=" + instanceAvailability +
                 ", schedules=" + Arrays.toString(schedules) +
+                ", priority=" + priority +
                 ", properties=" + properties +
                 ", stgCmtSCPAETitle=" + stgCmtSCPAETitle +
                 '}';
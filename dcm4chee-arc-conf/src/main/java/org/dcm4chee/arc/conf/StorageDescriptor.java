@@ -20,6 +20,14 @@ public final class StorageDescriptor {
     private Availability instanceAvailability;
     private String externalRetrieveAETitle;
     private boolean readOnly;
+    private String storageGroupID;
+    private String storageThreshold;
+    private long storageThresholdMinUsableSpace = -1L;
+    private String tieringStorageID;
+    private Duration tieringDelay;
+    private boolean tieringRecall;
+    private boolean deduplication;
+    private Duration scrubInterval;
 
     private final ArrayList<DeleterThreshold> deleterThresholds = new ArrayList<>();
     private final Map<String, String> properties = new HashMap<>();
@@ -97,6 +105,71 @@ public final class StorageDescriptor {
         this.readOnly = readOnly;
     }
 
+    public String getStorageGroupID() {
+        return storageGroupID;
+    }
+
+    public void setStorageGroupID(String storageGroupID) {
+        this.storageGroupID = storageGroupID;
+    }
+
+    public String getStorageThreshold() {
+        return storageThreshold;
+    }
+
+    public void setStorageThreshold(String storageThreshold) {
+        this.storageThresholdMinUsableSpace = storageThreshold != null ? BinaryPrefix.parse(storageThreshold) : -1L;
+        this.storageThreshold = storageThreshold;
+    }
+
+    public boolean isStorageThresholdExceeded(long usableSpace) {
+        return usableSpace < storageThresholdMinUsableSpace;
+    }
+
+    public String getTieringStorageID() {
+        return tieringStorageID;
+    }
+
+    public void setTieringStorageID(String tieringStorageID) {
+        this.tieringStorageID = tieringStorageID;
+    }
+
+    public Duration getTieringDelay() {
+        return tieringDelay;
+    }
+
+    public void setTieringDelay(Duration tieringDelay) {
+        this.tieringDelay = tieringDelay;
+    }
+
+    public boolean isTieringRecall() {
+        return tieringRecall;
+    }
+
+    public void setTieringRecall(boolean tieringRecall) {
+        this.tieringRecall = tieringRecall;
+    }
+
+    public boolean isDeduplication() {
+        return deduplication;
+    }
+
+    public void setDeduplication(boolean deduplication) {
+        this.deduplication = deduplication;
+    }
+
+    public Duration getScrubInterval() {
+        return scrubInterval;
+    }
+
+    public void setScrubInterval(Duration scrubInterval) {
+        this.scrubInterval = scrubInterval;
+    }
+
+    public boolean isTiering() {
+        return tieringStorageID != null && tieringDelay != null;
+    }
+
     public boolean hasDeleterThresholds() {
         return !deleterThresholds.isEmpty();
     }
@@ -159,6 +232,13 @@ public final class StorageDescriptor {
                 ", deleterThresholds=" + deleterThresholds +
                 ", externalRetrieveAETitle=" + externalRetrieveAETitle +
                 ", readOnly=" + readOnly +
+                ", storageGroupID=" + storageGroupID +
+                ", storageThreshold=" + storageThreshold +
+                ", tieringStorageID=" + tieringStorageID +
+                ", tieringDelay=" + tieringDelay +
+                ", tieringRecall=" + tieringRecall +
+                ", deduplication=" + deduplication +
+                ", scrubInterval=" + scrubInterval +
                 ", properties=" + properties +
                 '}';
     }
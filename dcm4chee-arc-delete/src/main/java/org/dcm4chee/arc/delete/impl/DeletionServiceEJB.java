@@ -231,6 +231,7 @@ public class DeletionServiceEJB {
             if (countInstancesOfSeries(ser) == 0) {
                 if (ser.getMetadata() != null)
                     ser.getMetadata().setStatus(Metadata.Status.TO_DELETE);
+                ser.discardPreviews();
                 em.remove(em.contains(ser) ? ser : em.merge(ser));
             } else {
                 studies.put(study.getPk(), null);
@@ -271,6 +272,7 @@ public class DeletionServiceEJB {
             }
             if (ser.getMetadata() != null)
                 ser.getMetadata().setStatus(Metadata.Status.TO_DELETE);
+            ser.discardPreviews();
             em.remove(ser);
         }
         em.remove(study);
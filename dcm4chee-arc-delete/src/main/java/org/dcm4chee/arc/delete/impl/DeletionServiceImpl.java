@@ -50,6 +50,7 @@ import org.dcm4chee.arc.delete.*;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.patient.PatientMgtContext;
 import org.dcm4chee.arc.patient.PatientService;
+import org.dcm4chee.arc.retrieve.RenderedImageCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -91,6 +92,9 @@ public class DeletionServiceImpl implements DeletionService {
     @Inject
     private Event<PatientMgtContext> patientMgtEvent;
 
+    @Inject
+    private RenderedImageCache renderedImageCache;
+
 
     @Override
     public int deleteRejectedInstancesBefore(Code rjCode, Date before, int fetchSize) {
@@ -180,10 +184,12 @@ public class DeletionServiceImpl implements DeletionService {
         ctx.setDeletePatientOnDeleteLastStudy(false);
         if (study.getRejectionState() == RejectionState.COMPLETE || allowDeleteStudy == AllowDeleteStudyPermanently.ALWAYS) {
             ejb.deleteStudy(ctx);
+            renderedImageCache.invalidate(study.getStudyInstanceUID());
             return true;
         }
         else if (study.getRejectionState() == RejectionState.EMPTY) {
             ejb.deleteEmptyStudy(ctx);
+            renderedImageCache.invalidate(study.getStudyInstanceUID());
             return true;
         }
         else
@@ -50,6 +50,7 @@ import org.dcm4chee.arc.delete.StudyDeleteContext;
 import org.dcm4chee.arc.entity.Location;
 import org.dcm4chee.arc.entity.Metadata;
 import org.dcm4chee.arc.entity.Study;
+import org.dcm4chee.arc.retrieve.RenderedImageCache;
 import org.dcm4chee.arc.storage.Storage;
 import org.dcm4chee.arc.storage.StorageFactory;
 import org.slf4j.Logger;
@@ -89,6 +90,9 @@ public class PurgeStorageScheduler extends Scheduler {
     @Inject
     private Event<StudyDeleteContext> studyDeletedEvent;
 
+    @Inject
+    private RenderedImageCache renderedImageCache;
+
     protected PurgeStorageScheduler() {
         super(Mode.scheduleWithFixedDelay);
     }
@@ -168,6 +172,7 @@ public class PurgeStorageScheduler extends Scheduler {
                 Study study = ejb.deleteStudy(ctx);
                 removed++;
                 LOG.info("Successfully delete {} on {}", study, desc.getStorageURI());
+                renderedImageCache.invalidate(study.getStudyInstanceUID());
                 studyDeletedEvent.fire(ctx);
             } catch (Exception e) {
                 LOG.warn("Failed to delete Study[pk={}] on {}", studyPk, desc.getStorageURI(), e);
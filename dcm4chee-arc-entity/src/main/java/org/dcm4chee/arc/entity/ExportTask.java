@@ -67,6 +67,11 @@ import java.util.Date;
         @NamedQuery(name = ExportTask.FIND_SCHEDULED_BY_DEVICE_NAME,
                 query = "select o from ExportTask o where o.deviceName=?1 and o.scheduledTime < current_timestamp " +
                         "and o.queueMessage is null"),
+        @NamedQuery(name = ExportTask.FIND_SCHEDULED_BY_DEVICE_NAME_AND_EXPORTER_ID,
+                query = "select o from ExportTask o join fetch o.queueMessage q " +
+                        "where o.deviceName=?1 and o.exporterID=?2 " +
+                        "and q.status=?3 and q.scheduledTime < current_timestamp " +
+                        "order by q.scheduledTime"),
         @NamedQuery(name = ExportTask.FIND_BY_EXPORTER_ID_AND_STUDY_IUID,
                 query = "select o from ExportTask o where o.exporterID=?1 and o.studyInstanceUID=?2 " +
                         "and o.queueMessage is null"),
@@ -78,6 +83,9 @@ import java.util.Date;
                 query = "select o from ExportTask o where o.exporterID=?1 and o.studyInstanceUID=?2 " +
                         "and o.seriesInstanceUID in ('*',?3) and o.sopInstanceUID in ('*',?4) " +
                         "and o.queueMessage is null"),
+        @NamedQuery(name = ExportTask.DELETE_BY_QUEUE_MSG_PKS,
+                query = "delete from ExportTask t where t.queueMessage in " +
+                        "(select o from QueueMessage o where o.pk in ?1)"),
         @NamedQuery(name = ExportTask.DELETE_BY_QUEUE_NAME,
                 query = "delete from ExportTask t where t.queueMessage in " +
                         "(select o from QueueMessage o where o.queueName=?1)"),
@@ -95,12 +103,15 @@ public class ExportTask {
 
     public static final String FIND_SCHEDULED_BY_DEVICE_NAME =
             "ExportTask.FindScheduledByDeviceName";
+    public static final String FIND_SCHEDULED_BY_DEVICE_NAME_AND_EXPORTER_ID =
+            "ExportTask.FindScheduledByDeviceNameAndExporterID";
     public static final String FIND_BY_EXPORTER_ID_AND_STUDY_IUID =
             "ExportTask.FindByExporterIDAndStudyIUID";
     public static final String FIND_BY_EXPORTER_ID_AND_STUDY_IUID_AND_SERIES_IUID =
             "ExportTask.FindByExporterIDAndStudyIUIDAndSeriesIUID";
     public static final String FIND_BY_EXPORTER_ID_AND_STUDY_IUID_AND_SERIES_IUID_AND_SOP_IUID =
             "ExportTask.FindByExporterIDAndStudyIUIDAndSeriesIUIDAndSopInstanceUID";
+    public static final String DELETE_BY_QUEUE_MSG_PKS = "ExportTask.DeleteByQueueMsgPks";
     public static final String DELETE_BY_QUEUE_NAME = "ExportTask.DeleteByQueueName";
     public static final String DELETE_BY_QUEUE_NAME_AND_STATUS = "ExportTask.DeleteByQueueNameAndStatus";
     public static final String DELETE_BY_QUEUE_NAME_AND_UPDATED_BEFORE =
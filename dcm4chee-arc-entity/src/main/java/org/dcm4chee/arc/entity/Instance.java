@@ -140,6 +140,10 @@ import java.util.*;
     name=Instance.COUNT_INSTANCES_OF_SERIES,
     query="select count(i) from Instance i " +
             "where i.series = ?1"),
+@NamedQuery(
+    name=Instance.COUNT_AND_MAX_UPDATED_TIME_OF_SERIES,
+    query="select count(i), max(i.updatedTime) from Instance i " +
+            "where i.series = ?1"),
 @NamedQuery(
     name = Instance.FIND_BY_STUDY_IUID,
     query = "select instance from Instance instance " +
@@ -176,6 +180,7 @@ public class Instance {
     public static final String FIND_BY_SERIES_AND_SOP_IUID = "Instance.findBySeriesAndSopIUID";
     public static final String FIND_BY_STUDY_SERIES_SOP_IUID_EAGER = "Instance.findByStudySeriesSopIUIDEager";
     public static final String COUNT_INSTANCES_OF_SERIES = "Instance.countInstancesOfSeries";
+    public static final String COUNT_AND_MAX_UPDATED_TIME_OF_SERIES = "Instance.countAndMaxUpdatedTimeOfSeries";
     public static final String COUNT_REJECTED_INSTANCES_OF_SERIES = "Instance.countRejectedInstancesOfSeries";
     public static final String COUNT_NOT_REJECTED_INSTANCES_OF_SERIES = "Instance.countNotRejectedInstancesOfSeries";
     public static final String FIND_BY_STUDY_IUID = "Instance.findByStudyIUID";
@@ -54,15 +54,40 @@ import java.util.Date;
 @Entity
 @Table(name = "location", indexes = {
     @Index(columnList = "storage_id,status"),
-    @Index(columnList = "multi_ref")
+    @Index(columnList = "multi_ref"),
+    @Index(columnList = "storage_id,digest"),
+    @Index(columnList = "storage_id,verified_time")
 })
 @NamedQueries({
         @NamedQuery(name = Location.FIND_BY_STORAGE_ID_AND_STATUS,
                 query = "select l from Location l where l.storageID=?1 and l.status=?2"),
+        @NamedQuery(name = Location.FIND_BY_STORAGE_ID_AND_STATUS_VERIFIED_BEFORE,
+                query = "select l from Location l " +
+                        "where l.storageID=?1 and l.status=?2 and l.verifiedTime<?3 order by l.verifiedTime"),
+        @NamedQuery(name = Location.UPDATE_VERIFIED_TIME,
+                query = "update Location l set l.verifiedTime=?2 where l.pk in ?1"),
+        @NamedQuery(name = Location.UPDATE_STATUS,
+                query = "update Location l set l.status=?3 where l.pk=?1 and l.status=?2"),
         @NamedQuery(name = Location.FIND_BY_STUDY_PK,
                 query = "select l from Location l where l.instance.series.study.pk=?1"),
         @NamedQuery(name = Location.FIND_BY_SERIES_PK,
                 query = "select l from Location l where l.instance.series.pk=?1"),
+        @NamedQuery(name = Location.FIND_NOT_MULTI_REFERENCED_BY_SERIES_PK,
+                query = "select l from Location l join fetch l.instance i " +
+                        "where i.series.pk=?1 and l.objectType=?2 and l.status=?3 and l.multiReference is null"),
+        @NamedQuery(name = Location.FIND_NOT_MULTI_REFERENCED_BY_STUDY_PK_AND_STORAGE_ID,
+                query = "select l from Location l join fetch l.instance i join fetch i.series se " +
+                        "join fetch se.study st " +
+                        "where st.pk=?1 and l.storageID=?2 and l.objectType=?3 and l.status=?4 " +
+                        "and l.multiReference is null"),
+        @NamedQuery(name = Location.FIND_BY_STORAGE_ID_AND_DIGEST,
+                query = "select l from Location l " +
+                        "where l.storageID=?1 and l.digest=?2 and l.size=?3 and l.objectType=?4 and l.status=?5 " +
+                        "and l.uidMap is null and l.instance is not null"),
+        @NamedQuery(name = Location.FIND_STORAGE_PATH_AND_SIZE_BY_STUDY_IUID_AND_STORAGE_ID,
+                query = "select l.storagePath, l.size from Location l " +
+                        "join l.instance i join i.series se join se.study st " +
+                        "where st.studyInstanceUID=?1 and l.storageID=?2 and l.objectType=?3 and l.status=?4"),
         @NamedQuery(name = Location.FIND_BY_STUDY_PK_AND_STORAGE_ID,
                 query = "select l from Location l where l.instance.series.study.pk=?1 and l.storageID=?2"),
         @NamedQuery(name = Location.FIND_BY_REJECTION_CODE,
@@ -85,9 +110,19 @@ import java.util.Date;
 public class Location {
 
     public static final String FIND_BY_STORAGE_ID_AND_STATUS = "Location.FindByStorageIDAndStatus";
+    public static final String FIND_BY_STORAGE_ID_AND_STATUS_VERIFIED_BEFORE =
+            "Location.FindByStorageIDAndStatusVerifiedBefore";
+    public static final String UPDATE_VERIFIED_TIME = "Location.UpdateVerifiedTime";
+    public static final String UPDATE_STATUS = "Location.UpdateStatus";
     public static final String FIND_BY_STUDY_PK = "Location.FindByStudyPk";
     public static final String FIND_BY_SERIES_PK = "Location.FindBySeriesPk";
+    public static final String FIND_NOT_MULTI_REFERENCED_BY_SERIES_PK = "Location.FindNotMultiReferencedBySeriesPk";
+    public static final String FIND_NOT_MULTI_REFERENCED_BY_STUDY_PK_AND_STORAGE_ID =
+            "Location.FindNotMultiReferencedByStudyPkAndStorageID";
     public static final String FIND_BY_STUDY_PK_AND_STORAGE_ID = "Location.FindByStudyPkAndStorageID";
+    public static final String FIND_BY_STORAGE_ID_AND_DIGEST = "Location.FindByStorageIDAndDigest";
+    public static final String FIND_STORAGE_PATH_AND_SIZE_BY_STUDY_IUID_AND_STORAGE_ID =
+            "Location.FindStoragePathAndSizeByStudyIUIDAndStorageID";
     public static final String FIND_BY_REJECTION_CODE = "Location.FindByRejectionCode";
     public static final String FIND_BY_CONCEPT_NAME_CODE = "Location.FindByConceptNameCode";
     public static final String FIND_BY_REJECTION_CODE_BEFORE = "Location.FindByRejectionCodeBefore";
@@ -95,7 +130,9 @@ public class Location {
     public static final String COUNT_BY_MULTI_REF = "Location.CountByMultiRef";
     public static final String COUNT_BY_UIDMAP = "Location.CountByUIDMap";
 
-    public enum Status { OK, TO_DELETE, FAILED_TO_DELETE }
+    public enum Status {
+        OK, TO_DELETE, FAILED_TO_DELETE, MISSING_OBJECT, DIFFERING_OBJECT_SIZE, DIFFERING_OBJECT_CHECKSUM
+    }
 
     public enum ObjectType { DICOM_FILE, METADATA }
 
@@ -109,6 +146,11 @@ public class Location {
     @Column(name = "created_time", updatable = false)
     private Date createdTime;
 
+    @Basic(optional = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    @Column(name = "verified_time")
+    private Date verifiedTime;
+
     @Basic(optional = false)
     @Column(name = "storage_id", updatable = false)
     private String storageID;
@@ -142,6 +184,10 @@ public class Location {
     @Column(name = "multi_ref", updatable = true)
     private Integer multiReference;
 
+    @Basic(optional = true)
+    @Column(name = "origin_storage_id", updatable = false)
+    private String originStorageID;
+
     @ManyToOne
     @JoinColumn(name = "uidmap_fk", updatable = false)
     private UIDMap uidMap;
@@ -159,6 +205,7 @@ public class Location {
         private String digest;
         private Status status = Status.OK;
         private ObjectType objectType = ObjectType.DICOM_FILE;
+        private String originStorageID;
 
         public Builder pk(long pk) {
             this.pk = pk;
@@ -204,6 +251,11 @@ public class Location {
             return this;
         }
 
+        public Builder originStorageID(String originStorageID) {
+            this.originStorageID = originStorageID;
+            return this;
+        }
+
         public Location build() {
             return new Location(this);
         }
@@ -220,6 +272,7 @@ public class Location {
         digest = builder.digest;
         status = builder.status;
         objectType = builder.objectType;
+        originStorageID = builder.originStorageID;
     }
 
     public Location(Location other) {
@@ -232,11 +285,13 @@ public class Location {
         this.status = other.status;
         this.objectType = other.objectType;
         this.multiReference = other.multiReference;
+        this.originStorageID = other.originStorageID;
     }
 
     @PrePersist
     public void onPrePersist() {
         createdTime = new Date();
+        verifiedTime = createdTime;
     }
 
     public long getPk() {
@@ -247,6 +302,10 @@ public class Location {
         return createdTime;
     }
 
+    public Date getVerifiedTime() {
+        return verifiedTime;
+    }
+
     public String getStorageID() {
         return storageID;
     }
@@ -291,6 +350,13 @@ public class Location {
         this.multiReference = multiReference;
     }
 
+    /**
+     * Returns the Storage ID from which the object was migrated to its Tiering Storage, or {@code null}.
+     */
+    public String getOriginStorageID() {
+        return originStorageID;
+    }
+
     public UIDMap getUidMap() {
         return uidMap;
     }
@@ -63,6 +63,7 @@ import java.util.*;
     indexes = {
         @Index(columnList = "queue_name"),
         @Index(columnList = "msg_status"),
+        @Index(columnList = "priority"),
         @Index(columnList = "updated_time")
 })
 @NamedQueries({
@@ -72,6 +73,16 @@ import java.util.*;
                 query = "select o from QueueMessage o where o.queueName=?1 order by o.scheduledTime desc"),
         @NamedQuery(name = QueueMessage.FIND_BY_QUEUE_NAME_AND_STATUS,
                 query = "select o from QueueMessage o where o.queueName=?1 and o.status=?2 order by o.pk desc"),
+        @NamedQuery(name = QueueMessage.FIND_PK_BY_QUEUE_NAME_AND_STATUS_AND_UPDATED_BEFORE,
+                query = "select o.pk from QueueMessage o where o.queueName=?1 and o.status=?2 and o.updatedTime<?3"),
+        @NamedQuery(name = QueueMessage.UPDATE_STATUS_TO_IN_PROCESS,
+                query = "update QueueMessage o set o.status=?3, o.processingStartTime=?2, o.updatedTime=?2, " +
+                        "o.version=o.version+1 where o.messageID=?1 and o.status=?4"),
+        @NamedQuery(name = QueueMessage.UPDATE_STATUS_TO_COMPLETED,
+                query = "update QueueMessage o set o.status=?3, o.processingEndTime=?2, o.updatedTime=?2, " +
+                        "o.outcomeMessage=?4, o.version=o.version+1 where o.messageID=?1"),
+        @NamedQuery(name = QueueMessage.DELETE_BY_PKS,
+                query = "delete from QueueMessage o where o.pk in ?1"),
         @NamedQuery(name = QueueMessage.DELETE_BY_QUEUE_NAME,
                 query = "delete from QueueMessage o where o.queueName=?1"),
         @NamedQuery(name = QueueMessage.DELETE_BY_QUEUE_NAME_AND_STATUS,
@@ -86,6 +97,11 @@ public class QueueMessage {
     public static final String FIND_BY_MSG_ID = "QueueMessage.FindByMsgId";
     public static final String FIND_BY_QUEUE_NAME = "QueueMessage.FindByQueueName";
     public static final String FIND_BY_QUEUE_NAME_AND_STATUS = "QueueMessage.FindByQueueNameAndStatus";
+    public static final String FIND_PK_BY_QUEUE_NAME_AND_STATUS_AND_UPDATED_BEFORE =
+            "QueueMessage.FindPkByQueueNameAndStatusAndUpdatedBefore";
+    public static final String UPDATE_STATUS_TO_IN_PROCESS = "QueueMessage.UpdateStatusToInProcess";
+    public static final String UPDATE_STATUS_TO_COMPLETED = "QueueMessage.UpdateStatusToCompleted";
+    public static final String DELETE_BY_PKS = "QueueMessage.DeleteByPks";
     public static final String DELETE_BY_QUEUE_NAME = "QueueMessage.DeleteByQueueName";
     public static final String DELETE_BY_QUEUE_NAME_AND_STATUS = "QueueMessage.DeleteByQueueNameAndStatus";
     public static final String DELETE_BY_QUEUE_NAME_AND_UPDATED_BEFORE =
@@ -137,10 +153,6 @@ public class QueueMessage {
     @Column(name = "msg_props", updatable = false, length = 4000)
     private String messageProperties;
 
-    @Basic(optional = false)
-    @Column(name = "msg_body", updatable = false)
-    private byte[] messageBody;
-
     @Basic(optional = false)
     @Column(name = "msg_status")
     private Status status;
@@ -158,6 +170,10 @@ public class QueueMessage {
     @Column(name = "proc_end_time")
     private Date processingEndTime;
 
+    @Basic(optional = false)
+    @Column(name = "priority")
+    private int priority;
+
     @Basic(optional = false)
     @Column(name = "num_failures")
     private int numberOfFailures;
@@ -174,12 +190,12 @@ public class QueueMessage {
     public QueueMessage() {
     }
 
-    public QueueMessage(String queueName, ObjectMessage msg) {
+    public QueueMessage(String queueName, ObjectMessage msg, int priority) {
         try {
             this.queueName = queueName;
+            this.priority = priority;
             this.messageID = msg.getJMSMessageID();
             this.messageProperties = propertiesOf(msg);
-            this.messageBody = serialize(msg.getObject());
             this.status = Status.SCHEDULED;
         } catch (JMSException e) {
             throw toJMSRuntimeException(e);
@@ -214,6 +230,10 @@ public class QueueMessage {
         this.processingEndTime = processingEndTime;
     }
 
+    public int getPriority() {
+        return priority;
+    }
+
     public int getNumberOfFailures() {
         return numberOfFailures;
     }
@@ -298,6 +318,7 @@ public class QueueMessage {
 
     public void writeStatusAsJSONTo(JsonGenerator gen, DateFormat df) {
         gen.write("status", status.toString());
+        gen.write("priority", priority);
         if (numberOfFailures > 0)
             gen.write("failures", numberOfFailures);
         gen.write("scheduledTime", df.format(scheduledTime));
@@ -365,27 +386,6 @@ public class QueueMessage {
         }
     }
 
-    public Serializable getMessageBody() {
-        ByteArrayInputStream bais = new ByteArrayInputStream(messageBody);
-        try (ObjectInputStream ois = new ObjectInputStream(bais)) {
-            return (Serializable) ois.readObject();
-        } catch (Exception e) {
-            throw new RuntimeException("Unexpected Exception", e);
-        }
-    }
-
-    private byte[] serialize(Serializable obj) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
-        try {
-            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
-                oos.writeObject(obj);
-            }
-        } catch (IOException e) {
-            throw new RuntimeException("Unexpected Exception", e);
-        }
-        return baos.toByteArray();
-    }
-
     @PrePersist
     public void onPrePersist() {
         Date now = new Date();
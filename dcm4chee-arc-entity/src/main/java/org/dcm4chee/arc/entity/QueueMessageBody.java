@@ -0,0 +1,145 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.entity;
+
+import javax.jms.JMSException;
+import javax.jms.ObjectMessage;
+import javax.persistence.*;
+import java.io.*;
+
+/**
+ * Serialized body of a {@link QueueMessage}, kept in a separate table and sharing the primary key of the
+ * Queue Message, so it is only read on rescheduling the message.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@Entity
+@Table(name = "queue_msg_body")
+@NamedQueries({
+        @NamedQuery(name = QueueMessageBody.DELETE_BY_PK,
+                query = "delete from QueueMessageBody o where o.pk=?1"),
+        @NamedQuery(name = QueueMessageBody.DELETE_BY_PKS,
+                query = "delete from QueueMessageBody o where o.pk in ?1"),
+        @NamedQuery(name = QueueMessageBody.DELETE_BY_QUEUE_NAME,
+                query = "delete from QueueMessageBody b where b.queueMessage in " +
+                        "(select o from QueueMessage o where o.queueName=?1)"),
+        @NamedQuery(name = QueueMessageBody.DELETE_BY_QUEUE_NAME_AND_STATUS,
+                query = "delete from QueueMessageBody b where b.queueMessage in " +
+                        "(select o from QueueMessage o where o.queueName=?1 and o.status=?2)"),
+        @NamedQuery(name = QueueMessageBody.DELETE_BY_QUEUE_NAME_AND_UPDATED_BEFORE,
+                query = "delete from QueueMessageBody b where b.queueMessage in " +
+                        "(select o from QueueMessage o where o.queueName=?1 and o.updatedTime<?2)"),
+        @NamedQuery(name = QueueMessageBody.DELETE_BY_QUEUE_NAME_AND_STATUS_AND_UPDATED_BEFORE,
+                query = "delete from QueueMessageBody b where b.queueMessage in " +
+                        "(select o from QueueMessage o where o.queueName=?1 and o.status=?2 and o.updatedTime<?3)")
+})
+public class QueueMessageBody {
+
+    public static final String DELETE_BY_PK = "QueueMessageBody.DeleteByPk";
+    public static final String DELETE_BY_PKS = "QueueMessageBody.DeleteByPks";
+    public static final String DELETE_BY_QUEUE_NAME = "QueueMessageBody.DeleteByQueueName";
+    public static final String DELETE_BY_QUEUE_NAME_AND_STATUS = "QueueMessageBody.DeleteByQueueNameAndStatus";
+    public static final String DELETE_BY_QUEUE_NAME_AND_UPDATED_BEFORE =
+            "QueueMessageBody.DeleteByQueueNameAndUpdatedBefore";
+    public static final String DELETE_BY_QUEUE_NAME_AND_STATUS_AND_UPDATED_BEFORE =
+            "QueueMessageBody.DeleteByQueueNameAndStatusAndUpdatedBefore";
+
+    @Id
+    @Column(name = "pk")
+    private long pk;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "pk")
+    private QueueMessage queueMessage;
+
+    @Basic(optional = false)
+    @Column(name = "msg_body", updatable = false)
+    private byte[] messageBody;
+
+    public QueueMessageBody() {
+    }
+
+    public QueueMessageBody(QueueMessage queueMessage, ObjectMessage msg) {
+        try {
+            this.queueMessage = queueMessage;
+            this.messageBody = serialize(msg.getObject());
+        } catch (JMSException e) {
+            throw QueueMessage.toJMSRuntimeException(e);
+        }
+    }
+
+    public long getPk() {
+        return pk;
+    }
+
+    public QueueMessage getQueueMessage() {
+        return queueMessage;
+    }
+
+    public Serializable getMessageBody() {
+        ByteArrayInputStream bais = new ByteArrayInputStream(messageBody);
+        try (ObjectInputStream ois = new ObjectInputStream(bais)) {
+            return (Serializable) ois.readObject();
+        } catch (Exception e) {
+            throw new RuntimeException("Unexpected Exception", e);
+        }
+    }
+
+    private static byte[] serialize(Serializable obj) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream(1024);
+        try {
+            try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+                oos.writeObject(obj);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Unexpected Exception", e);
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public String toString() {
+        return "QueueMessageBody[pk=" + pk + "]";
+    }
+}
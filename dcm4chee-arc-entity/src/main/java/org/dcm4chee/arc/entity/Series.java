@@ -161,6 +161,30 @@ import java.util.Date;
                 "where se.study = ?1 " +
                 "and se.metadata is not null " +
                 "and se.metadataScheduledUpdateTime is null"),
+@NamedQuery(
+        name = Series.SCHEDULED_COMPRESSION,
+        query = "select new org.dcm4chee.arc.entity.Series$Compression(se.pk, se.compressionTime, " +
+                "st.studyInstanceUID, se.seriesInstanceUID, " +
+                "se.compressionTransferSyntaxUID, se.compressionImageWriteParams) " +
+                "from Series se " +
+                "join se.study st " +
+                "where se.compressionTime < current_timestamp " +
+                "and se.instancePurgeState = ?1 " +
+                "order by se.compressionTime"),
+@NamedQuery(
+        name = Series.CLEAR_COMPRESSION_TIME,
+        query = "update Series se set se.compressionTime = null " +
+                "where se.pk = ?1 and se.compressionTime = ?2"),
+@NamedQuery(
+        name=Series.FIND_THUMBNAIL,
+        query = "select se.thumbnail from Series se " +
+                "where se.study.studyInstanceUID = ?1 " +
+                "and se.seriesInstanceUID = ?2"),
+@NamedQuery(
+        name=Series.FIND_PREVIEW,
+        query = "select se.preview from Series se " +
+                "where se.study.studyInstanceUID = ?1 " +
+                "and se.seriesInstanceUID = ?2"),
 })
 @Entity
 @Table(name = "series",
@@ -185,7 +209,8 @@ import java.util.Date;
         @Index(columnList = "completeness"),
         @Index(columnList = "metadata_update_time"),
         @Index(columnList = "inst_purge_time"),
-        @Index(columnList = "inst_purge_state")
+        @Index(columnList = "inst_purge_state"),
+        @Index(columnList = "compress_time")
 })
 public class Series {
 
@@ -206,6 +231,10 @@ public class Series {
     public static final String SCHEDULED_PURGE_INSTANCES = "Series.scheduledPurgeInstances";
     public static final String SCHEDULE_METADATA_UPDATE_FOR_PATIENT = "Series.scheduleMetadataUpdateForPatient";
     public static final String SCHEDULE_METADATA_UPDATE_FOR_STUDY = "Series.scheduleMetadataUpdateForStudy";
+    public static final String SCHEDULED_COMPRESSION = "Series.scheduledCompression";
+    public static final String CLEAR_COMPRESSION_TIME = "Series.clearCompressionTime";
+    public static final String FIND_THUMBNAIL = "Series.findThumbnail";
+    public static final String FIND_PREVIEW = "Series.findPreview";
 
     public enum InstancePurgeState { NO, PURGED, FAILED_TO_PURGE }
 
@@ -223,6 +252,25 @@ public class Series {
         }
     }
 
+    public static class Compression {
+        public final Long seriesPk;
+        public final Date compressionTime;
+        public final String studyInstanceUID;
+        public final String seriesInstanceUID;
+        public final String transferSyntaxUID;
+        public final String imageWriteParams;
+
+        public Compression(Long seriesPk, Date compressionTime, String studyInstanceUID, String seriesInstanceUID,
+                           String transferSyntaxUID, String imageWriteParams) {
+            this.seriesPk = seriesPk;
+            this.compressionTime = compressionTime;
+            this.studyInstanceUID = studyInstanceUID;
+            this.seriesInstanceUID = seriesInstanceUID;
+            this.transferSyntaxUID = transferSyntaxUID;
+            this.imageWriteParams = imageWriteParams;
+        }
+    }
+
     @Id
     @GeneratedValue(strategy=GenerationType.IDENTITY)
     @Column(name = "pk")
@@ -340,6 +388,18 @@ public class Series {
     @Column(name = "inst_purge_state")
     private InstancePurgeState instancePurgeState;
 
+    @Basic
+    @Column(name = "compress_time")
+    private Date compressionTime;
+
+    @Basic
+    @Column(name = "compress_tsuid")
+    private String compressionTransferSyntaxUID;
+
+    @Basic
+    @Column(name = "compress_params")
+    private String compressionImageWriteParams;
+
     @OneToOne(cascade=CascadeType.ALL, orphanRemoval = true, optional = false)
     @JoinColumn(name = "dicomattrs_fk")
     private AttributesBlob attributesBlob;
@@ -367,6 +427,14 @@ public class Series {
     @JoinColumn(name = "metadata_fk")
     private Metadata metadata;
 
+    @OneToOne
+    @JoinColumn(name = "thumbnail_fk")
+    private Metadata thumbnail;
+
+    @OneToOne
+    @JoinColumn(name = "preview_fk")
+    private Metadata preview;
+
     @Override
     public String toString() {
         return "Series[pk=" + pk
@@ -520,6 +588,26 @@ public class Series {
             metadataScheduledUpdateTime = new Date(System.currentTimeMillis() + delay.getSeconds() * 1000L);
     }
 
+    public Date getCompressionTime() {
+        return compressionTime;
+    }
+
+    public String getCompressionTransferSyntaxUID() {
+        return compressionTransferSyntaxUID;
+    }
+
+    public String getCompressionImageWriteParams() {
+        return compressionImageWriteParams;
+    }
+
+    public void scheduleCompression(Duration delay, String transferSyntaxUID, String imageWriteParams) {
+        Date compressionTime = new Date(System.currentTimeMillis() + delay.getSeconds() * 1000L);
+        if (this.compressionTime == null || this.compressionTime.before(compressionTime))
+            this.compressionTime = compressionTime;
+        this.compressionTransferSyntaxUID = transferSyntaxUID;
+        this.compressionImageWriteParams = imageWriteParams;
+    }
+
     public Date getInstancePurgeTime() {
         return instancePurgeTime;
     }
@@ -580,6 +668,33 @@ public class Series {
         this.metadata = metadata;
     }
 
+    public Metadata getThumbnail() {
+        return thumbnail;
+    }
+
+    public void setThumbnail(Metadata thumbnail) {
+        this.thumbnail = thumbnail;
+    }
+
+    public Metadata getPreview() {
+        return preview;
+    }
+
+    public void setPreview(Metadata preview) {
+        this.preview = preview;
+    }
+
+    public void discardPreviews() {
+        if (thumbnail != null) {
+            thumbnail.setStatus(Metadata.Status.TO_DELETE);
+            thumbnail = null;
+        }
+        if (preview != null) {
+            preview.setStatus(Metadata.Status.TO_DELETE);
+            preview = null;
+        }
+    }
+
     public Attributes getAttributes() throws BlobCorruptedException {
         return attributesBlob.getAttributes();
     }
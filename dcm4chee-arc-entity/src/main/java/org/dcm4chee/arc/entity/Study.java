@@ -88,6 +88,20 @@ import java.util.*;
                 query="select st.pk from Study st " +
                         "where st.storageIDs = ?1 and st.externalRetrieveAET = ?2 " +
                         "order by st.accessTime"),
+        @NamedQuery(
+                name=Study.FIND_PK_BY_STORAGE_ID_AND_ACCESS_TIME_BEFORE,
+                query="select st.pk from Study st " +
+                        "where st.accessTime < ?2 and exists (" +
+                        "select l.pk from Location l join l.instance i join i.series se " +
+                        "where se.study = st and l.storageID = ?1) " +
+                        "order by st.accessTime"),
+        @NamedQuery(
+                name=Study.FIND_PK_BY_STORAGE_ID_AND_ORIGIN_AND_ACCESS_TIME_AFTER,
+                query="select st.pk from Study st " +
+                        "where st.accessTime > ?3 and exists (" +
+                        "select l.pk from Location l join l.instance i join i.series se " +
+                        "where se.study = st and l.storageID = ?1 and l.originStorageID = ?2) " +
+                        "order by st.accessTime desc"),
         @NamedQuery(
                 name=Study.UPDATE_ACCESS_TIME,
                 query="update Study st set st.accessTime = CURRENT_TIMESTAMP where st.pk = ?1"),
@@ -151,6 +165,10 @@ public class Study {
     public static final String FIND_BY_STUDY_IUID_EAGER = "Study.findByStudyIUIDEager";
     public static final String FIND_PK_BY_STORAGE_ID_ORDER_BY_ACCESS_TIME = "Study.findPkByStorageIDOrderByAccessTime";
     public static final String FIND_PK_BY_STORAGE_ID_AND_EXT_RETR_AET = "Study.findPkByStorageIDAndExtRetrAET";
+    public static final String FIND_PK_BY_STORAGE_ID_AND_ACCESS_TIME_BEFORE =
+            "Study.findPkByStorageIDAndAccessTimeBefore";
+    public static final String FIND_PK_BY_STORAGE_ID_AND_ORIGIN_AND_ACCESS_TIME_AFTER =
+            "Study.findPkByStorageIDAndOriginAndAccessTimeAfter";
     public static final String UPDATE_ACCESS_TIME = "Study.UpdateAccessTime";
     public static final String SET_COMPLETENESS = "Study.SetCompleteness";
     public static final String INCREMENT_FAILED_RETRIEVES = "Study.IncrementFailedRetrieves";
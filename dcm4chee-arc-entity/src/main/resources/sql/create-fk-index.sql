@@ -25,7 +25,9 @@ create index FK_mnahh8fh77d365m6w2x4x3f4q on rel_study_pcode (study_fk) ;
 create index FK_oiq81nulcmtg6p85iu31igtf5 on series (inst_code_fk) ;
 create index FK_pu4p7k1o9hleuk9rmxvw2ybj6 on series (metadata_fk) ;
 create index FK_5n4bxxb2xa7bvvq26ao7wihky on series (perf_phys_name_fk) ;
+create index FK_2sa3g3ticlpc50e52lrqdueom on series (preview_fk) ;
 create index FK_1og1krtgxfh207rtqjg0r7pbd on series (study_fk) ;
+create index FK_blhb3xej5wtfsx2y0xmj47lmp on series (thumbnail_fk) ;
 create index FK_eiwosf6pcc97n6y282cv1n54k on series_query_attrs (series_fk) ;
 create index FK_se4n39as61wwf92ggbfc9yglo on series_req (accno_issuer_fk) ;
 create index FK_bcn0jtvurqutw865pwp34pejb on series_req (req_phys_name_fk) ;
@@ -7,16 +7,17 @@ create table ian_task (pk bigint not null auto_increment, calling_aet varchar(25
 create table id_sequence (name varchar(64) not null, next_value integer not null, version bigint, primary key (name));
 create table instance (pk bigint not null auto_increment, availability integer not null, sr_complete varchar(255) not null, content_date varchar(255) not null, content_time varchar(255) not null, created_time datetime not null, ext_retrieve_aet varchar(255), inst_custom1 varchar(255) not null, inst_custom2 varchar(255) not null, inst_custom3 varchar(255) not null, inst_no integer, num_frames integer, retrieve_aets varchar(255), sop_cuid varchar(255) not null, sop_iuid varchar(255) not null, updated_time datetime not null, sr_verified varchar(255) not null, version bigint, dicomattrs_fk bigint not null, srcode_fk bigint, reject_code_fk bigint, series_fk bigint not null, primary key (pk));
 create table issuer (pk bigint not null auto_increment, entity_id varchar(255), entity_uid varchar(255), entity_uid_type varchar(255), primary key (pk));
-create table location (pk bigint not null auto_increment, created_time datetime not null, digest varchar(255), multi_ref integer, object_type integer not null, object_size bigint not null, status integer not null, storage_id varchar(255) not null, storage_path varchar(255) not null, tsuid varchar(255), instance_fk bigint, uidmap_fk bigint, primary key (pk));
+create table location (pk bigint not null auto_increment, created_time datetime not null, digest varchar(255), multi_ref integer, object_type integer not null, origin_storage_id varchar(255), object_size bigint not null, status integer not null, storage_id varchar(255) not null, storage_path varchar(255) not null, tsuid varchar(255), verified_time datetime not null, instance_fk bigint, uidmap_fk bigint, primary key (pk));
 create table metadata (pk bigint not null auto_increment, digest varchar(255), object_size bigint not null, status integer not null, storage_id varchar(255) not null, storage_path varchar(255) not null, primary key (pk));
 create table mpps (pk bigint not null auto_increment, accession_no varchar(255) not null, created_time datetime not null, pps_start_date varchar(255) not null, pps_start_time varchar(255) not null, sop_iuid varchar(255) not null, pps_status integer not null, study_iuid varchar(255) not null, updated_time datetime not null, version bigint, dicomattrs_fk bigint not null, discreason_code_fk bigint, accno_issuer_fk bigint, patient_fk bigint not null, primary key (pk));
 create table mwl_item (pk bigint not null auto_increment, accession_no varchar(255) not null, created_time datetime not null, modality varchar(255) not null, req_proc_id varchar(255) not null, sps_id varchar(255) not null, sps_start_date varchar(255) not null, sps_start_time varchar(255) not null, sps_status integer not null, study_iuid varchar(255) not null, updated_time datetime not null, version bigint, dicomattrs_fk bigint not null, accno_issuer_fk bigint, patient_fk bigint not null, perf_phys_name_fk bigint, primary key (pk));
 create table patient (pk bigint not null auto_increment, created_time datetime not null, num_studies integer not null, pat_birthdate varchar(255) not null, pat_custom1 varchar(255) not null, pat_custom2 varchar(255) not null, pat_custom3 varchar(255) not null, pat_sex varchar(255) not null, updated_time datetime not null, version bigint, dicomattrs_fk bigint not null, merge_fk bigint, patient_id_fk bigint, pat_name_fk bigint, resp_person_fk bigint, primary key (pk));
 create table patient_id (pk bigint not null auto_increment, pat_id varchar(255) not null, pat_id_type_code varchar(255), version bigint, issuer_fk bigint, primary key (pk));
 create table person_name (pk bigint not null auto_increment, family_name varchar(255), given_name varchar(255), i_family_name varchar(255), i_given_name varchar(255), i_middle_name varchar(255), i_name_prefix varchar(255), i_name_suffix varchar(255), middle_name varchar(255), name_prefix varchar(255), name_suffix varchar(255), p_family_name varchar(255), p_given_name varchar(255), p_middle_name varchar(255), p_name_prefix varchar(255), p_name_suffix varchar(255), primary key (pk));
-create table queue_msg (pk bigint not null auto_increment, created_time datetime not null, error_msg varchar(255), msg_body longblob not null, msg_id varchar(255) not null, msg_props varchar(4000) not null, num_failures integer not null, outcome_msg varchar(255), proc_end_time datetime, proc_start_time datetime, queue_name varchar(255) not null, scheduled_time datetime not null, msg_status integer not null, updated_time datetime not null, version bigint, primary key (pk));
+create table queue_msg (pk bigint not null auto_increment, created_time datetime not null, error_msg varchar(255), msg_id varchar(255) not null, msg_props varchar(4000) not null, num_failures integer not null, outcome_msg varchar(255), priority integer not null, proc_end_time datetime, proc_start_time datetime, queue_name varchar(255) not null, scheduled_time datetime not null, msg_status integer not null, updated_time datetime not null, version bigint, primary key (pk));
+create table queue_msg_body (pk bigint not null, msg_body longblob not null, primary key (pk));
 create table rel_study_pcode (study_fk bigint not null, pcode_fk bigint not null);
-create table series (pk bigint not null auto_increment, body_part varchar(255) not null, completeness integer not null, created_time datetime not null, expiration_date varchar(255), ext_retrieve_aet varchar(255), failed_retrieves integer not null, inst_purge_state integer not null, inst_purge_time datetime, institution varchar(255) not null, department varchar(255) not null, laterality varchar(255) not null, metadata_update_time datetime, modality varchar(255) not null, pps_cuid varchar(255) not null, pps_iuid varchar(255) not null, pps_start_date varchar(255) not null, pps_start_time varchar(255) not null, rejection_state integer not null, series_custom1 varchar(255) not null, series_custom2 varchar(255) not null, series_custom3 varchar(255) not null, series_desc varchar(255) not null, series_iuid varchar(255) not null, series_no integer, src_aet varchar(255), station_name varchar(255) not null, updated_time datetime not null, version bigint, dicomattrs_fk bigint not null, inst_code_fk bigint, metadata_fk bigint, perf_phys_name_fk bigint, study_fk bigint not null, primary key (pk));
+create table series (pk bigint not null auto_increment, body_part varchar(255) not null, completeness integer not null, compress_params varchar(255), compress_time datetime, compress_tsuid varchar(255), created_time datetime not null, expiration_date varchar(255), ext_retrieve_aet varchar(255), failed_retrieves integer not null, inst_purge_state integer not null, inst_purge_time datetime, institution varchar(255) not null, department varchar(255) not null, laterality varchar(255) not null, metadata_update_time datetime, modality varchar(255) not null, pps_cuid varchar(255) not null, pps_iuid varchar(255) not null, pps_start_date varchar(255) not null, pps_start_time varchar(255) not null, rejection_state integer not null, series_custom1 varchar(255) not null, series_custom2 varchar(255) not null, series_custom3 varchar(255) not null, series_desc varchar(255) not null, series_iuid varchar(255) not null, series_no integer, src_aet varchar(255), station_name varchar(255) not null, updated_time datetime not null, version bigint, dicomattrs_fk bigint not null, inst_code_fk bigint, metadata_fk bigint, perf_phys_name_fk bigint, preview_fk bigint, study_fk bigint not null, thumbnail_fk bigint, primary key (pk));
 create table series_query_attrs (pk bigint not null auto_increment, availability integer, num_instances integer, retrieve_aets varchar(255), cuids_in_series varchar(255), view_id varchar(255), series_fk bigint not null, primary key (pk));
 create table series_req (pk bigint not null auto_increment, accession_no varchar(255) not null, req_proc_id varchar(255) not null, req_service varchar(255) not null, sps_id varchar(255) not null, study_iuid varchar(255) not null, accno_issuer_fk bigint, req_phys_name_fk bigint, series_fk bigint, primary key (pk));
 create table soundex_code (pk bigint not null auto_increment, sx_code_value varchar(255) not null, sx_pn_comp_part integer not null, sx_pn_comp integer not null, person_name_fk bigint not null, primary key (pk));
@@ -54,6 +55,8 @@ alter table issuer add constraint UK_gknfxd1vh283cmbg8ymia9ms8  unique (entity_i
 alter table issuer add constraint UK_t1p7jajas0mu12sx8jvtp2y0f  unique (entity_uid, entity_uid_type);
 create index UK_r3oh859i9osv3aluoc8dcx9wk on location (storage_id(64), status);
 create index UK_i1lnahmehau3r3j9pdyxg3p3y on location (multi_ref);
+create index UK_nhshl9xii1ls6p4f3h9vnt7p9 on location (storage_id(64), digest(64));
+create index UK_d5fcpcm7rcd09kms99na9qv5i on location (storage_id(64), verified_time);
 create index UK_f7c9hmq8pfypohkgkp5vkbhxp on metadata (storage_id(64), status);
 alter table mpps add constraint UK_o49fec996jvdo31o7ysmsn9s2  unique (dicomattrs_fk);
 alter table mpps add constraint UK_cyqglxijg7kebbj6oj821yx4d  unique (sop_iuid);
@@ -89,6 +92,7 @@ create index UK_kungbb1r2qtt9aq0vsb1l68y6 on person_name (p_middle_name(64));
 alter table queue_msg add constraint UK_k520j369nwx6rpbkvlp4kn623  unique (msg_id);
 create index UK_b5mbe6jenklf1r5wp5csrvf67 on queue_msg (queue_name(64));
 create index UK_o8pu8axwpcm4chqxy75y09gpo on queue_msg (msg_status);
+create index UK_jpf12p94ha3qmh53wyr0t1c57 on queue_msg (priority);
 create index UK_gsdfgth9kxjat98cmabtj8x1h on queue_msg (updated_time);
 alter table series add constraint UK_bdj2kuutidekc2en6dckev7l6  unique (dicomattrs_fk);
 alter table series add constraint UK_83y2fx8cou17h3xggxspgikna  unique (study_fk, series_iuid);
@@ -112,6 +116,7 @@ create index UK_4lnegvfs65fbkjn7nmg9s8usy on series (completeness);
 create index UK_hwkcpd7yv0nca7o918wm4bn69 on series (metadata_update_time);
 create index UK_a8vyikwd972jomyb3f6brcfh5 on series (inst_purge_time);
 create index UK_er4ife08f6eaki91gt3hxt5e on series (inst_purge_state);
+create index UK_f7c9k3wbqthsi2n0y6xmhaj1r on series (compress_time);
 alter table series_query_attrs add constraint UK_t1uhb1suiiqffhsv9eaopeevs  unique (view_id, series_fk);
 create index UK_m4wanupyq3yldxgh3pbo7t68h on series_req (accession_no(64));
 create index UK_l1fg3crmk6pjeu1x36e25h6p4 on series_req (req_service(64));
@@ -174,13 +179,16 @@ alter table patient add constraint FK_39gahcxyursxfxe2ucextr65s foreign key (pat
 alter table patient add constraint FK_rj42ffdtimnrcwmqqlvj24gi2 foreign key (pat_name_fk) references person_name (pk);
 alter table patient add constraint FK_56r2g5ggptqgcvb3hl11adke2 foreign key (resp_person_fk) references person_name (pk);
 alter table patient_id add constraint FK_oo232lt89k1b5h8mberi9v152 foreign key (issuer_fk) references issuer (pk);
+alter table queue_msg_body add constraint FK_a2v70uqhhipkvgxiuegl4iaa0 foreign key (pk) references queue_msg (pk);
 alter table rel_study_pcode add constraint FK_fryhnb2ppb6fcop3jrrfwvnfy foreign key (pcode_fk) references code (pk);
 alter table rel_study_pcode add constraint FK_mnahh8fh77d365m6w2x4x3f4q foreign key (study_fk) references study (pk);
 alter table series add constraint FK_bdj2kuutidekc2en6dckev7l6 foreign key (dicomattrs_fk) references dicomattrs (pk);
 alter table series add constraint FK_oiq81nulcmtg6p85iu31igtf5 foreign key (inst_code_fk) references code (pk);
 alter table series add constraint FK_pu4p7k1o9hleuk9rmxvw2ybj6 foreign key (metadata_fk) references metadata (pk);
 alter table series add constraint FK_5n4bxxb2xa7bvvq26ao7wihky foreign key (perf_phys_name_fk) references person_name (pk);
+alter table series add constraint FK_2sa3g3ticlpc50e52lrqdueom foreign key (preview_fk) references metadata (pk);
 alter table series add constraint FK_1og1krtgxfh207rtqjg0r7pbd foreign key (study_fk) references study (pk);
+alter table series add constraint FK_blhb3xej5wtfsx2y0xmj47lmp foreign key (thumbnail_fk) references metadata (pk);
 alter table series_query_attrs add constraint FK_eiwosf6pcc97n6y282cv1n54k foreign key (series_fk) references series (pk);
 alter table series_req add constraint FK_se4n39as61wwf92ggbfc9yglo foreign key (accno_issuer_fk) references issuer (pk);
 alter table series_req add constraint FK_bcn0jtvurqutw865pwp34pejb foreign key (req_phys_name_fk) references person_name (pk);
@@ -33,4 +33,33 @@ create index UK_gl5rq54a0tr8nreu27c2t04rb on study (completeness);
 update series set completeness = 1 where failed_retrieves > 0 and failed_iuids is not null;
 update series set completeness = 0 where failed_retrieves = 0 and failed_iuids = '*';
 alter table series drop failed_iuids;
-create index UK_4lnegvfs65fbkjn7nmg9s8usy on series (completeness);
\ No newline at end of file
+create index UK_4lnegvfs65fbkjn7nmg9s8usy on series (completeness);
+
+create table queue_msg_body (pk bigint not null, msg_body blob(16K) not null, primary key (pk));
+insert into queue_msg_body (pk, msg_body) select pk, msg_body from queue_msg;
+alter table queue_msg_body add constraint FK_a2v70uqhhipkvgxiuegl4iaa0 foreign key (pk) references queue_msg;
+alter table queue_msg drop msg_body;
+
+alter table queue_msg add priority integer;
+update queue_msg set priority = 4;
+alter table queue_msg alter priority set not null;
+create index UK_jpf12p94ha3qmh53wyr0t1c57 on queue_msg (priority);
+
+alter table series add thumbnail_fk bigint;
+alter table series add preview_fk bigint;
+alter table series add constraint FK_blhb3xej5wtfsx2y0xmj47lmp foreign key (thumbnail_fk) references metadata;
+alter table series add constraint FK_2sa3g3ticlpc50e52lrqdueom foreign key (preview_fk) references metadata;
+create index FK_blhb3xej5wtfsx2y0xmj47lmp on series (thumbnail_fk) ;
+create index FK_2sa3g3ticlpc50e52lrqdueom on series (preview_fk) ;
+
+alter table series add compress_time timestamp;
+alter table series add compress_tsuid varchar(255);
+alter table series add compress_params varchar(255);
+create index UK_f7c9k3wbqthsi2n0y6xmhaj1r on series (compress_time);
+create index UK_nhshl9xii1ls6p4f3h9vnt7p9 on location (storage_id, digest);
+
+alter table location add verified_time timestamp;
+update location set verified_time = created_time;
+alter table location alter verified_time set not null;
+create index UK_d5fcpcm7rcd09kms99na9qv5i on location (storage_id, verified_time);
+alter table location add origin_storage_id varchar(255);
@@ -38,3 +38,32 @@ create index UK_j1t0mj3vlmf5xwt4fs5xida1r on export_task (scheduled_time);
 create index UK_q7gmfr3aog1hateydhfeiu7si on export_task (exporter_id);
 create index UK_hb9rftf7opmg56nkg7dkvsdc8 on export_task (study_iuid, series_iuid, sop_iuid);
 create index FK_g6atpiywpo2100kn6ovix7uet on export_task (queue_msg_fk);
+
+create table queue_msg_body (pk int8 not null, msg_body longblob not null, primary key (pk));
+insert into queue_msg_body (pk, msg_body) select pk, msg_body from queue_msg;
+alter table queue_msg_body add constraint FK_a2v70uqhhipkvgxiuegl4iaa0 foreign key (pk) references queue_msg;
+alter table queue_msg drop msg_body;
+
+alter table queue_msg add priority integer;
+update queue_msg set priority = 4;
+alter table queue_msg alter column priority set not null;
+create index UK_jpf12p94ha3qmh53wyr0t1c57 on queue_msg (priority);
+
+alter table series add thumbnail_fk int8;
+alter table series add preview_fk int8;
+alter table series add constraint FK_blhb3xej5wtfsx2y0xmj47lmp foreign key (thumbnail_fk) references metadata;
+alter table series add constraint FK_2sa3g3ticlpc50e52lrqdueom foreign key (preview_fk) references metadata;
+create index FK_blhb3xej5wtfsx2y0xmj47lmp on series (thumbnail_fk) ;
+create index FK_2sa3g3ticlpc50e52lrqdueom on series (preview_fk) ;
+
+alter table series add compress_time timestamp;
+alter table series add compress_tsuid varchar(255);
+alter table series add compress_params varchar(255);
+create index UK_f7c9k3wbqthsi2n0y6xmhaj1r on series (compress_time);
+create index UK_nhshl9xii1ls6p4f3h9vnt7p9 on location (storage_id, digest);
+
+alter table location add verified_time timestamp;
+update location set verified_time = created_time;
+alter table location alter column verified_time set not null;
+create index UK_d5fcpcm7rcd09kms99na9qv5i on location (storage_id, verified_time);
+alter table location add origin_storage_id varchar(255);
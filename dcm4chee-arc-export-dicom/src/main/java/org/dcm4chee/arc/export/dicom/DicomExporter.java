@@ -42,19 +42,21 @@ import org.dcm4che3.net.service.RetrieveTask;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.exporter.AbstractExporter;
+import org.dcm4chee.arc.exporter.BatchExporter;
 import org.dcm4chee.arc.exporter.ExportContext;
 import org.dcm4chee.arc.qmgt.Outcome;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
 import org.dcm4chee.arc.retrieve.RetrieveService;
 import org.dcm4chee.arc.store.scu.CStoreSCU;
 
+import java.util.List;
 import java.util.Map;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
  * @since Oct 2015
  */
-public class DicomExporter extends AbstractExporter {
+public class DicomExporter extends AbstractExporter implements BatchExporter {
 
     private final RetrieveService retrieveService;
     private final CStoreSCU storeSCU;
@@ -98,6 +100,17 @@ public class DicomExporter extends AbstractExporter {
         }
     }
 
+    @Override
+    public void export(List<ExportContext> exportContexts) {
+        for (ExportContext exportContext : exportContexts) {
+            try {
+                exportContext.setOutcome(export(exportContext));
+            } catch (Exception e) {
+                exportContext.setException(e);
+            }
+        }
+    }
+
     private String noMatches(ExportContext exportContext) {
         StringBuilder sb = new StringBuilder(256);
         sb.append("Could not find ");
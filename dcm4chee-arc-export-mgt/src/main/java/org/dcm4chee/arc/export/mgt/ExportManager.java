@@ -45,6 +45,7 @@ import org.dcm4chee.arc.entity.ExportTask;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.qmgt.IllegalTaskStateException;
 import org.dcm4chee.arc.store.StoreContext;
+import org.dcm4chee.arc.store.PostStore;
 
 import javax.enterprise.event.Observes;
 import java.util.Date;
@@ -56,7 +57,7 @@ import java.util.List;
  * @since Feb 2016
  */
 public interface ExportManager {
-    void onStore(@Observes StoreContext ctx);
+    void onStore(@Observes @PostStore StoreContext ctx);
 
     int scheduleExportTasks(int fetchSize);
 
@@ -64,6 +65,8 @@ public interface ExportManager {
 
     void updateExportTask(Long pk);
 
+    List<ExportTask> findScheduledExportTasks(String exporterID, int limit);
+
     List<ExportTask> search(
             String deviceName, String exporterID, String studyUID, Date updatedBefore, QueueMessage.Status status,
             int offset, int limit);
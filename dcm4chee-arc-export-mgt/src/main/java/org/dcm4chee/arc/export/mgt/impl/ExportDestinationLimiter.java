@@ -0,0 +1,133 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.export.mgt.impl;
+
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Limits the number of Export Tasks concurrently processed for one Export destination by this archive instance.
+ * Tasks exceeding the limit wait until a previous Task to the same destination completes, in the order of their
+ * arrival.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class ExportDestinationLimiter {
+
+    private final Map<String, Destination> destinations = new HashMap<>();
+
+    @Inject
+    private Device device;
+
+    public synchronized void acquire(String destination) throws InterruptedException {
+        Destination dest = destinations.get(destination);
+        if (dest == null)
+            destinations.put(destination, dest = new Destination());
+        if (dest.waiting.isEmpty() && dest.hasFreeSlot(maxConcurrency())) {
+            dest.inProcess++;
+            return;
+        }
+        Waiter waiter = new Waiter();
+        dest.waiting.add(waiter);
+        try {
+            while (!waiter.granted)
+                wait();
+        } catch (InterruptedException e) {
+            if (waiter.granted)
+                release(destination);
+            else {
+                dest.waiting.remove(waiter);
+                removeIfIdle(destination, dest);
+            }
+            throw e;
+        }
+    }
+
+    public synchronized void release(String destination) {
+        Destination dest = destinations.get(destination);
+        if (dest == null)
+            return;
+
+        dest.inProcess--;
+        int maxConcurrency = maxConcurrency();
+        boolean granted = false;
+        while (!dest.waiting.isEmpty() && dest.hasFreeSlot(maxConcurrency)) {
+            dest.waiting.poll().granted = true;
+            dest.inProcess++;
+            granted = true;
+        }
+        if (granted)
+            notifyAll();
+        else
+            removeIfIdle(destination, dest);
+    }
+
+    private void removeIfIdle(String destination, Destination dest) {
+        if (dest.inProcess <= 0 && dest.waiting.isEmpty())
+            destinations.remove(destination);
+    }
+
+    private int maxConcurrency() {
+        return device.getDeviceExtension(ArchiveDeviceExtension.class).getExportMaxConcurrencyPerDestination();
+    }
+
+    private static class Destination {
+        final ArrayDeque<Waiter> waiting = new ArrayDeque<>();
+        int inProcess;
+
+        boolean hasFreeSlot(int maxConcurrency) {
+            return maxConcurrency <= 0 || inProcess < maxConcurrency;
+        }
+    }
+
+    private static class Waiter {
+        boolean granted;
+    }
+}
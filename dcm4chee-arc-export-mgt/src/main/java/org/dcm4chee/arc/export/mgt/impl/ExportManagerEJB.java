@@ -51,11 +51,13 @@ import org.dcm4chee.arc.entity.ExportTask;
 import org.dcm4chee.arc.entity.QExportTask;
 import org.dcm4chee.arc.entity.QQueueMessage;
 import org.dcm4chee.arc.entity.QueueMessage;
+import org.dcm4chee.arc.entity.QueueMessageBody;
 import org.dcm4chee.arc.export.mgt.ExportManager;
 import org.dcm4chee.arc.qmgt.IllegalTaskStateException;
 import org.dcm4chee.arc.qmgt.QueueManager;
 import org.dcm4chee.arc.query.QueryService;
 import org.dcm4chee.arc.store.StoreContext;
+import org.dcm4chee.arc.store.PostStore;
 import org.dcm4chee.arc.store.StoreSession;
 import org.hibernate.Session;
 import org.slf4j.Logger;
@@ -120,12 +122,12 @@ public class ExportManagerEJB implements ExportManager {
     };
 
     @Override
-    public void onStore(@Observes StoreContext ctx) {
+    public void onStore(@Observes @PostStore StoreContext ctx) {
         if (ctx.getLocations().isEmpty() || ctx.getException() != null)
             return;
 
         StoreSession session = ctx.getStoreSession();
-        String hostname = session.getRemoteHostName();
+        String hostname = ctx.getRemoteHostName();
         String sendingAET = session.getCallingAET();
         String receivingAET = session.getCalledAET();
         Calendar now = Calendar.getInstance();
@@ -141,16 +143,15 @@ public class ExportManagerEJB implements ExportManager {
                 case Study:
                     createOrUpdateStudyExportTask(exporterID, ctx.getStudyInstanceUID(), scheduledTime);
                     if (rule.isExportPreviousEntity() && ctx.isPreviousDifferentStudy())
-                        createOrUpdateStudyExportTask(exporterID,
-                                ctx.getPreviousInstance().getSeries().getStudy().getStudyInstanceUID(), scheduledTime);
+                        createOrUpdateStudyExportTask(exporterID, ctx.getPreviousStudyInstanceUID(), scheduledTime);
                     break;
                 case Series:
                     createOrUpdateSeriesExportTask(exporterID, ctx.getStudyInstanceUID(), ctx.getSeriesInstanceUID(),
                             scheduledTime);
                     if (rule.isExportPreviousEntity() && ctx.isPreviousDifferentSeries())
                         createOrUpdateSeriesExportTask(exporterID,
-                                ctx.getPreviousInstance().getSeries().getStudy().getStudyInstanceUID(),
-                                ctx.getPreviousInstance().getSeries().getSeriesInstanceUID(),
+                                ctx.getPreviousStudyInstanceUID(),
+                                ctx.getPreviousSeriesInstanceUID(),
                                 scheduledTime);
                     break;
                 case Instance:
@@ -252,7 +253,7 @@ public class ExportManagerEJB implements ExportManager {
 
     private void scheduleExportTask(ExportTask exportTask, ExporterDescriptor exporter) {
         QueueMessage queueMessage = queueManager.scheduleMessage(exporter.getQueueName(),
-                createMessage(exportTask, exporter.getAETitle()));
+                createMessage(exportTask, exporter.getAETitle()), exporter.getPriority());
         exportTask.setQueueMessage(queueMessage);
         try {
             Attributes attrs = queryService.queryExportTaskInfo(
@@ -287,6 +288,16 @@ public class ExportManagerEJB implements ExportManager {
         em.find(ExportTask.class, pk).setUpdatedTime();
     }
 
+    @Override
+    public List<ExportTask> findScheduledExportTasks(String exporterID, int limit) {
+        return em.createNamedQuery(ExportTask.FIND_SCHEDULED_BY_DEVICE_NAME_AND_EXPORTER_ID, ExportTask.class)
+                .setParameter(1, device.getDeviceName())
+                .setParameter(2, exporterID)
+                .setParameter(3, QueueMessage.Status.SCHEDULED)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     @Override
     public List<ExportTask> search(
             String deviceName, String exporterID, String studyUID, Date updatedBefore, QueueMessage.Status status, int offset, int limit) {
@@ -321,6 +332,11 @@ public class ExportManagerEJB implements ExportManager {
         if (task == null)
             return false;
 
+        QueueMessage queueMessage = task.getQueueMessage();
+        if (queueMessage != null)
+            em.createNamedQuery(QueueMessageBody.DELETE_BY_PK)
+                    .setParameter(1, queueMessage.getPk())
+                    .executeUpdate();
         em.remove(task);
         LOG.info("Delete {}", task);
         return true;
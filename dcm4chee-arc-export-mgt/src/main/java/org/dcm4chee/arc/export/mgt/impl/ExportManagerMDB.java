@@ -3,8 +3,9 @@ package org.dcm4chee.arc.export.mgt.impl;
 import org.dcm4che3.net.Device;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
-import org.dcm4chee.arc.entity.QueueMessage;
+import org.dcm4chee.arc.entity.ExportTask;
 import org.dcm4chee.arc.export.mgt.ExportManager;
+import org.dcm4chee.arc.exporter.BatchExporter;
 import org.dcm4chee.arc.exporter.ExportContext;
 import org.dcm4chee.arc.exporter.Exporter;
 import org.dcm4chee.arc.exporter.ExporterFactory;
@@ -20,6 +21,10 @@ import javax.inject.Inject;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.MessageListener;
+import javax.jms.ObjectMessage;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -44,20 +49,44 @@ public class ExportManagerMDB implements MessageListener {
     @Inject
     private Device device;
 
+    @Inject
+    private ExportDestinationLimiter limiter;
+
     @Override
     public void onMessage(Message msg) {
         String msgID;
+        Long exportTaskPk;
+        String destination;
         try {
             msgID = msg.getJMSMessageID();
+            exportTaskPk = (Long) ((ObjectMessage) msg).getObject();
+            destination = destinationOf(msg.getStringProperty("ExporterID"));
         } catch (JMSException e) {
             LOG.error("Failed to process {}", msg, e);
             return;
         }
-        QueueMessage queueMessage = queueManager.onProcessingStart(msgID);
-        if (queueMessage == null)
+        if (destination == null) {
+            process(msg, msgID, exportTaskPk);
+            return;
+        }
+        try {
+            limiter.acquire(destination);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for processing Task[id=" + msgID + "] to "
+                    + destination, e);
+        }
+        try {
+            process(msg, msgID, exportTaskPk);
+        } finally {
+            limiter.release(destination);
+        }
+    }
+
+    private void process(Message msg, String msgID, Long exportTaskPk) {
+        if (!queueManager.onProcessingStart(msgID))
             return;
 
-        Long exportTaskPk = (Long) queueMessage.getMessageBody();
         Outcome outcome;
         try {
             ejb.updateExportTask(exportTaskPk);
@@ -68,6 +97,11 @@ public class ExportManagerMDB implements MessageListener {
             exportContext.setSeriesInstanceUID(msg.getStringProperty("SeriesInstanceUID"));
             exportContext.setSopInstanceUID(msg.getStringProperty("SopInstanceUID"));
             exportContext.setAETitle(msg.getStringProperty("AETitle"));
+            int batchSize = device.getDeviceExtension(ArchiveDeviceExtension.class).getExportTaskBatchSize();
+            if (exporter instanceof BatchExporter && batchSize > 1) {
+                processBatch((BatchExporter) exporter, exportContext, exportTaskPk, batchSize);
+                return;
+            }
             outcome = exporter.export(exportContext);
             exportContext.setOutcome(outcome);
             exportEvent.fire(exportContext);
@@ -81,7 +115,80 @@ public class ExportManagerMDB implements MessageListener {
         ejb.updateExportTask(exportTaskPk);
     }
 
+    private void processBatch(BatchExporter exporter, ExportContext first, Long firstPk, int batchSize) {
+        List<ExportContext> exportContexts = new ArrayList<>(batchSize);
+        List<Long> exportTaskPks = new ArrayList<>(batchSize);
+        exportContexts.add(first);
+        exportTaskPks.add(firstPk);
+        ExporterDescriptor descriptor = exporter.getExporterDescriptor();
+        for (ExportTask task : ejb.findScheduledExportTasks(descriptor.getExporterID(), batchSize - 1)) {
+            String msgID = task.getQueueMessage().getMessageID();
+            if (!queueManager.onProcessingStart(msgID))
+                continue;
+
+            try {
+                ejb.updateExportTask(task.getPk());
+                ExportContext exportContext = exporter.createExportContext();
+                exportContext.setMessageID(msgID);
+                exportContext.setStudyInstanceUID(task.getStudyInstanceUID());
+                exportContext.setSeriesInstanceUID(task.getSeriesInstanceUID());
+                exportContext.setSopInstanceUID(task.getSopInstanceUID());
+                exportContext.setAETitle(descriptor.getAETitle());
+                exportContexts.add(exportContext);
+                exportTaskPks.add(task.getPk());
+            } catch (RuntimeException e) {
+                LOG.warn("Failed to process Task[id={}]", msgID, e);
+                queueManager.onProcessingFailed(msgID, e);
+                ejb.updateExportTask(task.getPk());
+            }
+        }
+        LOG.info("Process batch of {} Export Tasks by Exporter {}", exportContexts.size(), descriptor.getExporterID());
+        try {
+            exporter.export(exportContexts);
+        } catch (Throwable e) {
+            for (ExportContext exportContext : exportContexts)
+                if (exportContext.getOutcome() == null && exportContext.getException() == null)
+                    exportContext.setException(e);
+        }
+        for (int i = 0; i < exportContexts.size(); i++) {
+            ExportContext exportContext = exportContexts.get(i);
+            Outcome outcome = exportContext.getOutcome();
+            Throwable e = exportContext.getException();
+            if (outcome != null && e == null) {
+                try {
+                    exportEvent.fire(exportContext);
+                    queueManager.onProcessingSuccessful(exportContext.getMessageID(), outcome);
+                } catch (RuntimeException e1) {
+                    e = e1;
+                }
+            } else if (e == null) {
+                e = new IllegalStateException("No outcome of export");
+            }
+            if (e != null) {
+                LOG.warn("Failed to process Task[id={}]", exportContext.getMessageID(), e);
+                queueManager.onProcessingFailed(exportContext.getMessageID(), e);
+            }
+            ejb.updateExportTask(exportTaskPks.get(i));
+        }
+    }
+
     private ExporterDescriptor getExporterDescriptor(String exporterID) {
         return device.getDeviceExtension(ArchiveDeviceExtension.class).getExporterDescriptorNotNull(exporterID);
     }
+
+    private String destinationOf(String exporterID) {
+        ExporterDescriptor descriptor = device.getDeviceExtension(ArchiveDeviceExtension.class)
+                .getExporterDescriptor(exporterID);
+        if (descriptor == null)
+            return null;
+
+        URI exportURI = descriptor.getExportURI();
+        if (exportURI == null)
+            return null;
+
+        String ssp = exportURI.getSchemeSpecificPart();
+        int hostStart = ssp.indexOf("//");
+        int hostEnd = hostStart >= 0 ? ssp.indexOf('/', hostStart + 2) : -1;
+        return exportURI.getScheme() + ':' + (hostEnd >= 0 ? ssp.substring(0, hostEnd) : ssp);
+    }
 }
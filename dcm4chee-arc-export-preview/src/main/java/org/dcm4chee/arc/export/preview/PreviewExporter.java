@@ -0,0 +1,253 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.export.preview;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.image.BufferedImageUtils;
+import org.dcm4che3.image.PixelAspectRatio;
+import org.dcm4che3.imageio.plugins.dcm.DicomImageReadParam;
+import org.dcm4che3.imageio.plugins.dcm.DicomMetaData;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.util.UIDUtils;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.ExporterDescriptor;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.entity.Metadata;
+import org.dcm4chee.arc.entity.QueueMessage;
+import org.dcm4chee.arc.exporter.AbstractExporter;
+import org.dcm4chee.arc.exporter.ExportContext;
+import org.dcm4chee.arc.qmgt.Outcome;
+import org.dcm4chee.arc.query.QueryService;
+import org.dcm4chee.arc.retrieve.ImageRendering;
+import org.dcm4chee.arc.retrieve.InstanceLocations;
+import org.dcm4chee.arc.retrieve.PreviewService;
+import org.dcm4chee.arc.retrieve.RetrieveContext;
+import org.dcm4chee.arc.retrieve.RetrieveService;
+import org.dcm4chee.arc.storage.Storage;
+import org.dcm4chee.arc.storage.StorageFactory;
+import org.dcm4chee.arc.storage.WriteContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Generates a thumbnail and a preview of the representative image of each exported Series and stores them to the
+ * Storage specified by the scheme specific part of the Exporter URI - e.g.: {@code preview:PREVIEW_STORAGE}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class PreviewExporter extends AbstractExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PreviewExporter.class);
+
+    private final QueryService queryService;
+    private final RetrieveService retrieveService;
+    private final PreviewService previewService;
+    private final StorageFactory storageFactory;
+    private final Device device;
+    private final String storageID;
+
+    public PreviewExporter(ExporterDescriptor descriptor, QueryService queryService, RetrieveService retrieveService,
+                           PreviewService previewService, StorageFactory storageFactory, Device device) {
+        super(descriptor);
+        this.queryService = queryService;
+        this.retrieveService = retrieveService;
+        this.previewService = previewService;
+        this.storageFactory = storageFactory;
+        this.device = device;
+        this.storageID = descriptor.getExportURI().getSchemeSpecificPart();
+    }
+
+    @Override
+    public Outcome export(ExportContext exportContext) throws Exception {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        StorageDescriptor storageDescriptor = arcDev.getStorageDescriptorNotNull(storageID);
+        String studyIUID = exportContext.getStudyInstanceUID();
+        int count = 0;
+        try (Storage storage = storageFactory.getStorage(storageDescriptor)) {
+            for (String seriesIUID : seriesIUIDs(exportContext)) {
+                if (createPreviews(exportContext.getAETitle(), studyIUID, seriesIUID, storage, arcDev))
+                    count++;
+            }
+        }
+        String exporterID = descriptor.getExporterID();
+        return count > 0
+                ? new Outcome(QueueMessage.Status.COMPLETED,
+                    "Created previews of " + count + " Series by Preview Exporter " + exporterID)
+                : new Outcome(QueueMessage.Status.WARNING,
+                    "No images to create previews by Preview Exporter " + exporterID);
+    }
+
+    private List<String> seriesIUIDs(ExportContext exportContext) {
+        String seriesIUID = exportContext.getSeriesInstanceUID();
+        if (!seriesIUID.equals("*"))
+            return Collections.singletonList(seriesIUID);
+
+        List<Object[]> resultList = queryService.getSeriesInstanceUIDs(exportContext.getStudyInstanceUID());
+        List<String> seriesIUIDs = new ArrayList<>(resultList.size());
+        for (Object[] result : resultList)
+            seriesIUIDs.add((String) result[1]);
+        return seriesIUIDs;
+    }
+
+    private boolean createPreviews(String aet, String studyIUID, String seriesIUID, Storage storage,
+                                   ArchiveDeviceExtension arcDev) throws IOException {
+        String contentTag = previewService.seriesContentTag(studyIUID, seriesIUID);
+        if (contentTag == null)
+            return false;
+
+        BufferedImage bi;
+        float pixelAspectRatio;
+        try (RetrieveContext ctx = retrieveService.newRetrieveContextWADO(null, aet, studyIUID, seriesIUID, null)) {
+            if (!retrieveService.calculateMatches(ctx))
+                return false;
+
+            // same representative instance as selected by WADO-URI requests for the Series
+            List<InstanceLocations> matches = ctx.getMatches();
+            InstanceLocations inst = matches.get(matches.size() >>> 1);
+            Attributes attrs = inst.getAttributes();
+            if (!attrs.containsValue(Tag.Rows)) {
+                LOG.info("Representative {} of Series[uid={}] is not an image - no previews created",
+                        inst, seriesIUID);
+                return false;
+            }
+            int frame = Math.min(attrs.getInt(Tag.RepresentativeFrameNumber, 1), attrs.getInt(Tag.NumberOfFrames, 1));
+            ImageReader reader = ImageRendering.getDicomImageReader();
+            try (DicomInputStream dis = retrieveService.openDicomInputStream(ctx, inst)) {
+                reader.setInput(dis);
+                bi = reader.read(frame - 1, new DicomImageReadParam());
+                pixelAspectRatio = PixelAspectRatio.forImage(
+                        ((DicomMetaData) reader.getStreamMetadata()).getAttributes());
+            } finally {
+                reader.dispose();
+            }
+        }
+        if (bi.getColorModel().getNumComponents() == 3)
+            bi = BufferedImageUtils.convertToIntRGB(bi);
+
+        Metadata thumbnail = write(storage, studyIUID, seriesIUID,
+                rescale(bi, arcDev.getSeriesThumbnailSize(), pixelAspectRatio));
+        Metadata preview;
+        try {
+            preview = write(storage, studyIUID, seriesIUID,
+                    rescale(bi, arcDev.getSeriesPreviewSize(), pixelAspectRatio));
+        } catch (IOException e) {
+            deleteObject(storage, thumbnail);
+            throw e;
+        }
+        if (!previewService.updatePreviews(studyIUID, seriesIUID, contentTag, thumbnail, preview)) {
+            LOG.info("Series[uid={}] was modified or deleted - discard created previews", seriesIUID);
+            deleteObject(storage, thumbnail);
+            deleteObject(storage, preview);
+            return false;
+        }
+        LOG.debug("Created previews of Series[uid={}]", seriesIUID);
+        return true;
+    }
+
+    /**
+     * Scales the image to fit into a {@code size} x {@code size} square, equivalent to the rendering of
+     * WADO-URI requests with {@code rows} and {@code columns} equal to {@code size}.
+     */
+    private static BufferedImage rescale(BufferedImage bi, int size, float pixelAspectRatio) {
+        return ImageRendering.rescale(bi, size, size, pixelAspectRatio);
+    }
+
+    private Metadata write(Storage storage, String studyIUID, String seriesIUID, BufferedImage bi)
+            throws IOException {
+        WriteContext writeCtx = storage.createWriteContext();
+        Attributes attrs = new Attributes(3);
+        attrs.setString(Tag.StudyInstanceUID, VR.UI, studyIUID);
+        attrs.setString(Tag.SeriesInstanceUID, VR.UI, seriesIUID);
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, UIDUtils.createUID());
+        writeCtx.setAttributes(attrs);
+        writeCtx.setStudyInstanceUID(studyIUID);
+        writeCtx.setMessageDigest(storage.getStorageDescriptor().getMessageDigest());
+        ImageWriter writer = ImageRendering.getImageWriter("JPEG");
+        try (OutputStream out = storage.openOutputStream(writeCtx)) {
+            ImageOutputStream imageOut = new MemoryCacheImageOutputStream(out);
+            writer.setOutput(imageOut);
+            writer.write(null, new IIOImage(bi, null, null), writer.getDefaultWriteParam());
+            imageOut.close();   // does not close out
+        } catch (IOException e) {
+            storage.revokeStorage(writeCtx);
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+        try {
+            storage.commitStorage(writeCtx);
+        } catch (RuntimeException e) {
+            storage.revokeStorage(writeCtx);
+            throw e;
+        }
+        Metadata metadata = new Metadata();
+        metadata.setStorageID(storageID);
+        metadata.setStoragePath(writeCtx.getStoragePath());
+        metadata.setSize(writeCtx.getSize());
+        metadata.setDigest(writeCtx.getDigest());
+        return metadata;
+    }
+
+    private static void deleteObject(Storage storage, Metadata metadata) {
+        try {
+            storage.deleteObject(metadata.getStoragePath());
+        } catch (IOException e) {
+            LOG.warn("Failed to delete {}:\n", metadata, e);
+        }
+    }
+}
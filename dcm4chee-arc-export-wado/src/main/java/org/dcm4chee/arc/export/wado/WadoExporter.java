@@ -46,8 +46,11 @@ import org.dcm4che3.data.VR;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.util.SafeClose;
 import org.dcm4che3.util.StreamUtils;
+import org.dcm4chee.arc.Cache;
+import org.dcm4chee.arc.HttpClientPool;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
+import org.dcm4chee.arc.conf.QueueDescriptor;
 import org.dcm4chee.arc.conf.StorageDescriptor;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.exporter.AbstractExporter;
@@ -60,13 +63,17 @@ import org.dcm4chee.arc.storage.WriteContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.Invocation;
+import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -76,15 +83,24 @@ public class WadoExporter extends AbstractExporter {
 
     private static Logger LOG = LoggerFactory.getLogger(WadoExporter.class);
 
-    private static final int COPY_BUFFER_SIZE = 8192;
+    private static final int COPY_BUFFER_SIZE = 65536;
     private final QueryService queryService;
     private final StorageFactory storageFactory;
+    private final HttpClientPool httpClientPool;
+    private final Cache<String, FetchedURLs> fetchedURLsCache;
+    private final Device device;
+    private final int concurrency;
     private final EnumMap<Entity,List<WadoRequest>> wadoRequests = new EnumMap<>(Entity.class);
 
-    public WadoExporter(ExporterDescriptor descriptor, QueryService queryService, StorageFactory storageFactory, Device device) {
+    WadoExporter(ExporterDescriptor descriptor, QueryService queryService, StorageFactory storageFactory,
+                 HttpClientPool httpClientPool, Cache<String, FetchedURLs> fetchedURLsCache, Device device) {
         super(descriptor);
         this.queryService = queryService;
         this.storageFactory = storageFactory;
+        this.httpClientPool = httpClientPool;
+        this.fetchedURLsCache = fetchedURLsCache;
+        this.device = device;
+        this.concurrency = Integer.parseInt(descriptor.getProperty("Concurrency", "1"));
         EnumMap<HeaderField, String> headerFields0 = getHeaderFields(0, new EnumMap<>(HeaderField.class));
         String storageID = descriptor.getProperty("StorageID", null);
         addWadoRequest(descriptor.getExportURI().getSchemeSpecificPart(), headerFields0,
@@ -131,52 +147,135 @@ public class WadoExporter extends AbstractExporter {
 
     @Override
     public Outcome export(ExportContext exportContext) throws Exception {
-        byte[] buffer = new byte[COPY_BUFFER_SIZE];
-        int count = 0;
-        int failed = 0;
-        Exception ex = null;
-        HashMap<String, Storage> storageMap = new HashMap<>();
-        try {
-            for (Map.Entry<Entity, List<WadoRequest>> entry : wadoRequests.entrySet()) {
-                for (Object[] params : entry.getKey().queryParams(exportContext, queryService)) {
-                    for (WadoRequest wadoRequest : entry.getValue()) {
-                        try {
-                            if (invoke(wadoRequest, params, buffer, storageMap))
-                                count++;
-                        } catch (Exception e) {
-                            failed++;
-                            ex = e;
-                        }
-                    }
+        FetchedURLs fetchedURLs = fetchedURLs(exportContext);
+        List<Fetch> fetches = new ArrayList<>();
+        int skipped = 0;
+        for (Map.Entry<Entity, List<WadoRequest>> entry : wadoRequests.entrySet()) {
+            for (Object[] params : entry.getKey().queryParams(exportContext, queryService)) {
+                for (WadoRequest wadoRequest : entry.getValue()) {
+                    String url = wadoRequest.format.format(params);
+                    if (fetchedURLs.urls.contains(url))
+                        skipped++;
+                    else
+                        fetches.add(new Fetch(wadoRequest, params, url, fetchedURLs.urls));
                 }
             }
+        }
+        Client client = httpClientPool.getClient();
+        HashMap<String, Storage> storageMap = new HashMap<>();
+        try {
+            if (concurrency > 1 && fetches.size() > 1)
+                fetchConcurrently(fetches, client, storageMap);
+            else
+                fetchSequentially(fetches, client, storageMap);
         } finally {
+            httpClientPool.release(client);
             for (Storage storage : storageMap.values())
                 SafeClose.close(storage);
         }
 
+        int count = 0;
+        int failed = 0;
+        Fetch firstFailed = null;
+        for (Fetch fetch : fetches) {
+            if (fetch.exception != null) {
+                if (failed++ == 0)
+                    firstFailed = fetch;
+            } else if (fetch.found)
+                count++;
+        }
         String exporterID = exportContext.getExporter().getExporterDescriptor().getExporterID();
+        String fetchedMsg = "Fetched " + count + " objects by WADO Exporter " + exporterID
+                + (skipped > 0 ? ", skipped " + skipped + " fetched by previous attempt" : "");
         if (failed == 0) {
-            return new Outcome(QueueMessage.Status.COMPLETED,
-                    "Fetched " + count + " objects by WADO Exporter " + exporterID);
+            if (exportContext.getMessageID() != null)
+                fetchedURLsCache.remove(exportContext.getMessageID());
+            return new Outcome(QueueMessage.Status.COMPLETED, fetchedMsg);
         }
-        if (count > 0) {
-            return new Outcome(QueueMessage.Status.WARNING,
-                    "Fetched " + count + " objects by WADO Exporter " + exporterID
-                            + ", failed: " + failed + " - " + ex.getMessage());
+        if (count + skipped > 0) {
+            removeOnFinalFailure(exportContext, fetchedURLs, true);
+            return new Outcome(QueueMessage.Status.WARNING, fetchedMsg
+                    + ", failed: " + failed + " - " + firstFailed.url + " - " + firstFailed.exception.getMessage());
         }
-        throw ex;
+        removeOnFinalFailure(exportContext, fetchedURLs, false);
+        throw firstFailed.exception;
+    }
+
+    private void fetchSequentially(List<Fetch> fetches, Client client, Map<String, Storage> storageMap) {
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        for (Fetch fetch : fetches)
+            fetch.run(client, storageMap, buffer);
     }
 
-    private boolean invoke(WadoRequest request, Object[] params, byte[] buffer, Map<String, Storage> storageMap)
-            throws Exception {
-        HttpURLConnection httpConn = request.openConnection(params);
-        int responseCode = httpConn.getResponseCode();
-        if (responseCode == HttpURLConnection.HTTP_NOT_FOUND)
-            return false;
-        try (InputStream in = httpConn.getInputStream();
-             OutputStream out = getOutputStream(request.storageDescriptor, params, storageMap)) {
-            StreamUtils.copy(in, out, buffer);
+    private void fetchConcurrently(List<Fetch> fetches, final Client client, final Map<String, Storage> storageMap)
+            throws InterruptedException {
+        final Semaphore semaphore = new Semaphore(concurrency);
+        final CountDownLatch latch = new CountDownLatch(fetches.size());
+        for (final Fetch fetch : fetches) {
+            semaphore.acquire();
+            try {
+                device.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            fetch.run(client, storageMap, new byte[COPY_BUFFER_SIZE]);
+                        } finally {
+                            semaphore.release();
+                            latch.countDown();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                fetch.exception = e;
+                semaphore.release();
+                latch.countDown();
+            }
+        }
+        latch.await();
+    }
+
+    private FetchedURLs fetchedURLs(ExportContext exportContext) {
+        String key = exportContext.getMessageID();
+        if (key == null)
+            return new FetchedURLs();
+
+        synchronized (fetchedURLsCache) {
+            FetchedURLs fetchedURLs = fetchedURLsCache.get(key);
+            if (fetchedURLs == null) {
+                fetchedURLs = new FetchedURLs();
+                fetchedURLsCache.put(key, fetchedURLs);
+            }
+            return fetchedURLs;
+        }
+    }
+
+    private void removeOnFinalFailure(ExportContext exportContext, FetchedURLs fetchedURLs, boolean warning) {
+        if (exportContext.getMessageID() == null)
+            return;
+
+        QueueDescriptor queueDescriptor = device.getDeviceExtension(ArchiveDeviceExtension.class)
+                .getQueueDescriptor(descriptor.getQueueName());
+        if (queueDescriptor == null
+                || warning && !queueDescriptor.isRetryOnWarning()
+                || queueDescriptor.getRetryDelayInSeconds(++fetchedURLs.failures) < 0)
+            fetchedURLsCache.remove(exportContext.getMessageID());
+    }
+
+    private boolean invoke(Client client, WadoRequest request, Object[] params, String url, byte[] buffer,
+                           Map<String, Storage> storageMap) throws Exception {
+        Response response = request.request(client, url).get();
+        try {
+            if (response.getStatus() == Response.Status.NOT_FOUND.getStatusCode())
+                return false;
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL)
+                throw new IOException("GET " + url + " returns " + response.getStatus() + " "
+                        + response.getStatusInfo().getReasonPhrase());
+            try (InputStream in = response.readEntity(InputStream.class);
+                 OutputStream out = getOutputStream(request.storageDescriptor, params, storageMap)) {
+                StreamUtils.copy(in, out, buffer);
+            }
+        } finally {
+            response.close();
         }
         return true;
     }
@@ -186,10 +285,13 @@ public class WadoExporter extends AbstractExporter {
         if (storageDescriptor == null)
             return null;
 
-        Storage storage = storageMap.get(storageDescriptor.getStorageID());
-        if (storage == null) {
-            storage = storageFactory.getStorage(storageDescriptor);
-            storageMap.put(storageDescriptor.getStorageID(), storage);
+        Storage storage;
+        synchronized (storageMap) {
+            storage = storageMap.get(storageDescriptor.getStorageID());
+            if (storage == null) {
+                storage = storageFactory.getStorage(storageDescriptor);
+                storageMap.put(storageDescriptor.getStorageID(), storage);
+            }
         }
         WriteContext ctx = storage.createWriteContext();
         Attributes attrs = new Attributes(params.length);
@@ -260,6 +362,39 @@ public class WadoExporter extends AbstractExporter {
         abstract List<Object[]> queryParams(ExportContext ctx, QueryService queryService);
     }
 
+    private final class Fetch {
+        final WadoRequest request;
+        final Object[] params;
+        final String url;
+        final Set<String> fetchedURLs;
+        boolean found;
+        Exception exception;
+
+        Fetch(WadoRequest request, Object[] params, String url, Set<String> fetchedURLs) {
+            this.request = request;
+            this.params = params;
+            this.url = url;
+            this.fetchedURLs = fetchedURLs;
+        }
+
+        void run(Client client, Map<String, Storage> storageMap, byte[] buffer) {
+            try {
+                found = invoke(client, request, params, url, buffer, storageMap);
+                fetchedURLs.add(url);
+                LOG.debug("WADO Exporter {}: GET {} - {}",
+                        descriptor.getExporterID(), url, found ? "fetched" : "not found");
+            } catch (Exception e) {
+                exception = e;
+                LOG.info("WADO Exporter {}: failed to GET {}:\n", descriptor.getExporterID(), url, e);
+            }
+        }
+    }
+
+    static final class FetchedURLs {
+        final Set<String> urls = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        int failures;
+    }
+
     private enum HeaderField {
         Accept, Cache_Control;
 
@@ -281,13 +416,12 @@ public class WadoExporter extends AbstractExporter {
             this.storageDescriptor = storageDescriptor;
         }
 
-        public HttpURLConnection openConnection(Object[] params) throws Exception {
-            URL url = new URL(format.format(params));
-            HttpURLConnection httpConn = (HttpURLConnection) url.openConnection();
+        public Invocation.Builder request(Client client, String url) {
+            Invocation.Builder request = client.target(url).request();
             for (Map.Entry<HeaderField, String> entry : headerFields.entrySet()) {
-                httpConn.setRequestProperty(entry.getKey().toString(), entry.getValue());
+                request.header(entry.getKey().toString(), entry.getValue());
             }
-            return httpConn;
+            return request;
         }
     }
 }
@@ -41,6 +41,8 @@
 package org.dcm4chee.arc.export.wado;
 
 import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.Cache;
+import org.dcm4chee.arc.HttpClientPool;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
 import org.dcm4chee.arc.exporter.Exporter;
 import org.dcm4chee.arc.exporter.ExporterProvider;
@@ -59,17 +61,28 @@ import javax.inject.Named;
 @Named("wado")
 public class WadoExporterProvider implements ExporterProvider {
 
+    private static final int MAX_PENDING_EXPORT_TASKS = 100;
+
     @Inject
     private QueryService queryService;
 
     @Inject
     private StorageFactory storageFactory;
 
+    @Inject
+    private HttpClientPool httpClientPool;
+
     @Inject
     private Device device;
 
+    private final Cache<String, WadoExporter.FetchedURLs> fetchedURLsCache = new Cache<>();
+
+    public WadoExporterProvider() {
+        fetchedURLsCache.setMaxSize(MAX_PENDING_EXPORT_TASKS);
+    }
+
     @Override
     public Exporter getExporter(ExporterDescriptor descriptor) {
-        return new WadoExporter(descriptor, queryService, storageFactory, device);
+        return new WadoExporter(descriptor, queryService, storageFactory, httpClientPool, fetchedURLsCache, device);
     }
 }
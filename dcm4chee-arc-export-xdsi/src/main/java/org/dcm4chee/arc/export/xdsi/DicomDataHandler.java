@@ -44,6 +44,7 @@ import org.dcm4che3.io.DicomOutputStream;
 import org.dcm4che3.ws.rs.MediaTypes;
 
 import javax.activation.DataHandler;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 
@@ -61,8 +62,9 @@ public class DicomDataHandler extends DataHandler {
 
     @Override
     public void writeTo(OutputStream os) throws IOException {
-        DicomOutputStream dos = new DicomOutputStream(os, UID.ExplicitVRLittleEndian);
+        DicomOutputStream dos = new DicomOutputStream(new BufferedOutputStream(os), UID.ExplicitVRLittleEndian);
         dos.writeDataset(attrs.createFileMetaInformation(UID.ExplicitVRLittleEndian), attrs);
+        dos.flush();
     }
 
 }
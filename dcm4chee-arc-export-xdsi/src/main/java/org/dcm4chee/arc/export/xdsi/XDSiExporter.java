@@ -50,10 +50,13 @@ import org.dcm4che3.ws.rs.MediaTypes;
 import org.dcm4chee.arc.conf.ExporterDescriptor;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.exporter.AbstractExporter;
+import org.dcm4chee.arc.exporter.BatchExporter;
 import org.dcm4chee.arc.exporter.ExportContext;
 import org.dcm4chee.arc.qmgt.Outcome;
 import org.dcm4chee.arc.query.QueryService;
 import org.dcm4chee.arc.xdsi.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.enterprise.event.Event;
 import javax.net.ssl.KeyManager;
@@ -72,10 +75,11 @@ import static org.dcm4chee.arc.xdsi.XDSConstants.*;
  * @author Gunter Zeilinger <gunterze@gmail.com>
  * @since Feb 2017
  */
-public class XDSiExporter extends AbstractExporter {
+public class XDSiExporter extends AbstractExporter implements BatchExporter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(XDSiExporter.class);
 
     private static final String SUBMISSION_SET_ID = "SubmissionSet01";
-    private static final String DOCUMENT_ID = "Document01";
     private static final ObjectFactory rimFactory = new ObjectFactory();
     private static final String DEFAULT_SOURCE_ID = "1.3.6.1.4.1.21367.13.80.110";
     private static final String DEFAULT_LANGUAGE_CODE = "en-us";
@@ -139,17 +143,9 @@ public class XDSiExporter extends AbstractExporter {
     private final Code healthCareFacilityTypeCode;
     private final Code practiceSettingCode;
     private final Code defTypeCode;
-    private final List<String> sourcePatientInfo = new ArrayList<>();
-    private final Set<String> referenceIdList = new HashSet<>();
-    private final Map<Code.Key, Code> modalityCodes = new HashMap<>();
-    private final Map<Code.Key, Code> anatomicRegionCodes = new HashMap<>();
-
-    private String submissionSetUID;
-    private Attributes manifest;
-    private String documentUID;
-    private String patientId;
-    private String sourcePatientId;
-    private Code typeCode;
+    private final int maxDocumentsPerSubmissionSet;
+    private final long chunkingThreshold;
+
     private int id;
 
     public XDSiExporter(ExporterDescriptor descriptor, DocumentRepositoryService service, QueryService queryService,
@@ -163,6 +159,7 @@ public class XDSiExporter extends AbstractExporter {
         this.disableCNCheck = Boolean.parseBoolean(descriptor.getProperty("TLS.disableCNCheck", null));
         this.tlsProtocol = descriptor.getProperty("TLS.protocol", null);
         this.cipherSuites = StringUtils.split(descriptor.getProperty("TLS.cipherSuites", null), ',');
+        this.chunkingThreshold = Long.parseLong(descriptor.getProperty("ChunkingThreshold", "4096"));
         this.manifestTitle = getCodeProperty("Manifest.title", DEFAULT_MANIFEST_TITLE);
         this.manifestSeriesNumber = Integer.parseInt(descriptor.getProperty("Manifest.seriesNumber", "0"));
         this.manifestInstanceNumber = Integer.parseInt(descriptor.getProperty("Manifest.instanceNumber", "0"));
@@ -170,6 +167,8 @@ public class XDSiExporter extends AbstractExporter {
         this.assigningAuthorityOfAccessionNumber = descriptor.getProperty("AssigningAuthority.accessionNumber", null);
         this.sourceId = descriptor.getProperty("XDSSubmissionSet.sourceId", DEFAULT_SOURCE_ID);
         this.manifestContentType = getCodeProperty("XDSSubmissionSet.contentType", DICOM_KON_TYPECODE);
+        this.maxDocumentsPerSubmissionSet = Integer.parseInt(
+                descriptor.getProperty("XDSSubmissionSet.maxDocuments", "1"));
         this.defTypeCode = getCodeProperty("DocumentEntry.typeCode", DICOM_KON_TYPECODE);
         this.languageCode = descriptor.getProperty("DocumentEntry.languageCode", DEFAULT_LANGUAGE_CODE);
         this.classCode = getCodeProperty("DocumentEntry.classCode", DEFAULT_CLASS_CODE);
@@ -188,88 +187,82 @@ public class XDSiExporter extends AbstractExporter {
 
     @Override
     public Outcome export(ExportContext ctx) throws Exception {
-        ApplicationEntity ae = device.getApplicationEntity(ctx.getAETitle(), true);
-        Collection<Attributes> seriesAttrs = new ArrayList<>();
-        this.manifest = queryService.createXDSiManifest(ae, ctx.getStudyInstanceUID(),
-                descriptor.getRetrieveAETitles(), descriptor.getRetrieveLocationUID(),
-                manifestTitle, manifestSeriesNumber, manifestInstanceNumber, seriesAttrs);
-        this.documentUID = manifest.getString(Tag.SOPInstanceUID);
-        this.submissionSetUID = UIDUtils.createUID();
-        this.sourcePatientId = adjustIssuer(IDWithIssuer.pidOf(manifest)).toString();
-        this.patientId = sourcePatientId;
-        this.typeCode = typeCodeOf(manifest);
-        initSourcePatientInfo();
-        referenceIdList.add(manifest.getString(Tag.StudyInstanceUID) + "^^^^" + CXI_TYPE_STUDY_INSTANCE_UID);
-        addAccessionNumber(manifest);
-        processSeriesAttrs(seriesAttrs);
-        ctx.setXDSiManifest(manifest);
-        ctx.setSubmissionSetUID(submissionSetUID);
+        return provideAndRegister(Collections.singletonList(new Manifest(ctx)));
+    }
+
+    @Override
+    public void export(List<ExportContext> ctxs) {
+        Map<String, List<Manifest>> manifestsByPatientID = new LinkedHashMap<>();
+        for (ExportContext ctx : ctxs) {
+            Manifest manifest;
+            try {
+                manifest = new Manifest(ctx);
+            } catch (Exception e) {
+                ctx.setException(e);
+                continue;
+            }
+            List<Manifest> manifests = manifestsByPatientID.get(manifest.patientId);
+            if (manifests == null)
+                manifestsByPatientID.put(manifest.patientId, manifests = new ArrayList<>());
+            manifests.add(manifest);
+            if (manifests.size() >= maxDocumentsPerSubmissionSet) {
+                manifestsByPatientID.remove(manifest.patientId);
+                provideAndRegisterBatch(manifests);
+            }
+        }
+        for (List<Manifest> manifests : manifestsByPatientID.values())
+            provideAndRegisterBatch(manifests);
+    }
+
+    private void provideAndRegisterBatch(List<Manifest> manifests) {
+        try {
+            Outcome outcome = provideAndRegister(manifests);
+            for (Manifest manifest : manifests)
+                manifest.ctx.setOutcome(outcome);
+        } catch (Exception e) {
+            LOG.info("Provide and Register {} @ {} failed:\n", studiesOf(manifests), repositoryURL, e);
+        }
+    }
+
+    private Outcome provideAndRegister(List<Manifest> manifests) throws Exception {
+        String submissionSetUID = UIDUtils.createUID();
+        for (Manifest manifest : manifests) {
+            manifest.ctx.setXDSiManifest(manifest.manifest);
+            manifest.ctx.setSubmissionSetUID(submissionSetUID);
+        }
+        String studies = studiesOf(manifests);
         try {
-            RegistryResponseType rsp = port().documentRepositoryProvideAndRegisterDocumentSetB(createRequest());
-            ctx.setXDSiRegistryResponse(rsp);
+            RegistryResponseType rsp = port().documentRepositoryProvideAndRegisterDocumentSetB(
+                    createRequest(submissionSetUID, manifests));
+            for (Manifest manifest : manifests)
+                manifest.ctx.setXDSiRegistryResponse(rsp);
             switch (rsp.getStatus()) {
                 case XDS_STATUS_SUCCESS:
                     return new Outcome(QueueMessage.Status.COMPLETED,
-                            "Provide and Register Study[" + ctx.getStudyInstanceUID()
-                                    + "] @ " + repositoryURL + " successful");
+                            "Provide and Register " + studies + " @ " + repositoryURL + " successful");
                 case XDS_STATUS_PARTIAL_SUCCESS:
                     return new Outcome(QueueMessage.Status.WARNING,
-                            "Provide and Register Study[" + ctx.getStudyInstanceUID()
-                                    + "] @ " + repositoryURL + " partial successful - " + getRegistryErrorMessage(rsp));
+                            "Provide and Register " + studies
+                                    + " @ " + repositoryURL + " partial successful - " + getRegistryErrorMessage(rsp));
             }
-            throw new Exception("Provide and Register Study[" + ctx.getStudyInstanceUID()
-                    + "] @ " + repositoryURL + " failed - " + getRegistryErrorMessage(rsp));
+            throw new Exception("Provide and Register " + studies
+                    + " @ " + repositoryURL + " failed - " + getRegistryErrorMessage(rsp));
         } catch (Exception e) {
-            ctx.setException(e);
+            for (Manifest manifest : manifests)
+                manifest.ctx.setException(e);
             throw e;
         } finally {
-            exportEvent.fire(ctx);
-        }
-    }
-
-    private Code typeCodeOf(Attributes manifest) {
-        if (useProcedureCodeAsTypeCode) {
-            Attributes codeItem = manifest.getNestedDataset(Tag.ProcedureCodeSequence);
-            if (codeItem != null)
-                return new Code(codeItem);
-        }
-        return defTypeCode;
-    }
-
-    private void addAccessionNumber(Attributes attrs) {
-        IDWithIssuer accno = IDWithIssuer.valueOf(attrs, Tag.AccessionNumber, Tag.IssuerOfAccessionNumberSequence);
-        if (accno != null) {
-            Issuer issuer = accno.getIssuer();
-            String uid = issuer != null && "ISO".equals(issuer.getUniversalEntityIDType())
-                    ? issuer.getUniversalEntityID()
-                    : assigningAuthorityOfAccessionNumber;
-            referenceIdList.add(uid == null
-                    ? accno.getID() + "^^^^" + CXI_TYPE_ACCESSION
-                    : accno.getID() + "^^^&" + uid + "&ISO^" + CXI_TYPE_ACCESSION);
+            for (Manifest manifest : manifests)
+                exportEvent.fire(manifest.ctx);
         }
     }
 
-    private void processSeriesAttrs(Collection<Attributes> seriesAttrs) {
-        for (Attributes attrs : seriesAttrs) {
-            if (includeModalityCodes) {
-                Code modalityCode = AcquisitionModality.codeOf(attrs.getString(Tag.Modality));
-                if (modalityCode != null)
-                    modalityCodes.put(modalityCode.key(), modalityCode);
-            }
-            if (includeAnatomicRegionCodes) {
-                Attributes anatomicRegionCodeItem = attrs.getNestedDataset(Tag.AnatomicRegionSequence);
-                Code anatomicRegionCode = anatomicRegionCodeItem != null
-                        ? new Code(anatomicRegionCodeItem)
-                        : AnatomicRegion.codeOf(attrs.getString(Tag.BodyPartExamined));
-                if (anatomicRegionCode != null)
-                    anatomicRegionCodes.put(anatomicRegionCode.key(), anatomicRegionCode);
-            }
-            Sequence reqAttrsSeq = attrs.getSequence(Tag.RequestAttributesSequence);
-            if (reqAttrsSeq != null)
-                for (Attributes reqAttrs : reqAttrsSeq) {
-                    addAccessionNumber(reqAttrs);
-                }
-        }
+    private static String studiesOf(List<Manifest> manifests) {
+        StringBuilder sb = new StringBuilder(manifests.size() > 1 ? "Studies[" : "Study[");
+        for (Manifest manifest : manifests)
+            sb.append(manifest.ctx.getStudyInstanceUID()).append(", ");
+        sb.setLength(sb.length() - 2);
+        return sb.append(']').toString();
     }
 
     private String getRegistryErrorMessage(RegistryResponseType rsp) {
@@ -283,24 +276,13 @@ public class XDSiExporter extends AbstractExporter {
         return sb != null ? sb.toString() : "";
     }
 
-    private IDWithIssuer adjustIssuer(IDWithIssuer pid) {
-        Issuer issuer = pid.getIssuer();
-        String uid = issuer != null && "ISO".equals(issuer.getUniversalEntityIDType())
-                ? issuer.getUniversalEntityID()
-                : assigningAuthorityOfPatientID;
-        if (uid != null) {
-            pid.setIssuer(new Issuer(null, uid, "ISO"));
-            pid.exportPatientIDWithIssuer(manifest);
-        }
-        return pid;
-    }
-
     private DocumentRepositoryPortType port() throws Exception {
         DocumentRepositoryPortType port = service.getDocumentRepositoryPortSoap12(
                 new AddressingFeature(true, true),
                 new MTOMFeature());
         XDSUtils.ensureMustUnderstandHandler(port);
         XDSUtils.setEndpointAddress(port, repositoryURL);
+        XDSUtils.setChunkingThreshold(port, chunkingThreshold);
         if (repositoryURL.startsWith("https"))
             XDSUtils.setTlsClientParameters(port, tlsClientParams());
         return port;
@@ -317,26 +299,33 @@ public class XDSiExporter extends AbstractExporter {
         return params;
     }
 
-    private ProvideAndRegisterDocumentSetRequestType createRequest() {
+    private ProvideAndRegisterDocumentSetRequestType createRequest(String submissionSetUID, List<Manifest> manifests) {
         ProvideAndRegisterDocumentSetRequestType pnrReq = new ProvideAndRegisterDocumentSetRequestType();
-        pnrReq.setSubmitObjectsRequest(createSubmitObjectsRequest());
-        pnrReq.getDocument().add(createDocument());
+        for (int i = 0; i < manifests.size(); i++) {
+            Manifest manifest = manifests.get(i);
+            manifest.documentId = String.format("Document%02d", i + 1);
+            pnrReq.getDocument().add(manifest.createDocument());
+        }
+        pnrReq.setSubmitObjectsRequest(createSubmitObjectsRequest(submissionSetUID, manifests));
         return pnrReq;
     }
 
-    private SubmitObjectsRequest createSubmitObjectsRequest() {
+    private SubmitObjectsRequest createSubmitObjectsRequest(String submissionSetUID, List<Manifest> manifests) {
         SubmitObjectsRequest sor = new SubmitObjectsRequest();
-        sor.setRegistryObjectList(createRegistryObjectList());
+        sor.setRegistryObjectList(createRegistryObjectList(submissionSetUID, manifests));
         return sor;
     }
 
-    private RegistryObjectListType createRegistryObjectList() {
+    private RegistryObjectListType createRegistryObjectList(String submissionSetUID, List<Manifest> manifests) {
         RegistryObjectListType registryObjectList = new RegistryObjectListType();
         List<JAXBElement<? extends IdentifiableType>> identifiable = registryObjectList.getIdentifiable();
-        identifiable.add(rimFactory.createExtrinsicObject(createDocumentEntry()));
-        identifiable.add(rimFactory.createRegistryPackage(createSubmissionSet()));
+        for (Manifest manifest : manifests)
+            identifiable.add(rimFactory.createExtrinsicObject(manifest.createDocumentEntry()));
+        identifiable.add(rimFactory.createRegistryPackage(
+                createSubmissionSet(submissionSetUID, manifests.get(0).patientId)));
         identifiable.add(rimFactory.createClassification(createSubmissionSetClassification()));
-        identifiable.add(rimFactory.createAssociation(createAssociation()));
+        for (Manifest manifest : manifests)
+            identifiable.add(rimFactory.createAssociation(createAssociation(manifest.documentId)));
         return registryObjectList;
     }
 
@@ -344,112 +333,17 @@ public class XDSiExporter extends AbstractExporter {
         return "id_" + ++id;
     }
 
-    private ExtrinsicObjectType createDocumentEntry() {
-        ExtrinsicObjectType docEntry = new ExtrinsicObjectType();
-        docEntry.setId(DOCUMENT_ID);
-        docEntry.setObjectType(UUID_XDSDocumentEntry);
-        docEntry.setMimeType(MediaTypes.APPLICATION_DICOM);
-        createDocumentEntrySlots(docEntry.getSlot());
-        createDocumentEntryClassifications(docEntry.getClassification());
-        createDocumentEntryExternalIdentifiers(docEntry.getExternalIdentifier());
-        return docEntry;
-    }
-
-    private void createDocumentEntrySlots(List<SlotType1> list) {
-        list.add(new SlotBuilder(SLOT_NAME_CREATION_TIME)
-                .valueDTM(now).build());
-        list.add(new SlotBuilder(SLOT_NAME_SERVICE_START_TIME)
-                .valueDTM(manifest.getDate(Tag.StudyDateAndTime, now)).build());
-        list.add(new SlotBuilder(SLOT_NAME_LANGUAGE_CODE)
-                .valueList(languageCode).build());
-        list.add(new SlotBuilder(SLOT_NAME_SOURCE_PATIENT_ID)
-                .valueList(sourcePatientId).build());
-        list.add(new SlotBuilder(SLOT_NAME_SOURCE_PATIENT_INFO)
-                .valueList(sourcePatientInfo).build());
-        list.add(new SlotBuilder(SLOT_NAME_REFERENCE_ID_LIST)
-                .valueList(referenceIdList).build());
-    }
-
-    private void createDocumentEntryClassifications(List<ClassificationType> list) {
-        list.add(new ClassificationBuilder(nextId())
-                .classificationScheme(UUID_XDSDocumentEntry_classCode)
-                .classifiedObject(DOCUMENT_ID)
-                .code(classCode)
-                .build());
-        list.add(new ClassificationBuilder(nextId())
-                .classificationScheme(UUID_XDSDocumentEntry_confidentialityCode)
-                .classifiedObject(DOCUMENT_ID)
-                .code(confidentialityCode)
-                .build());
-        list.add(new ClassificationBuilder(nextId())
-                .classificationScheme(UUID_XDSDocumentEntry_formatCode)
-                .classifiedObject(DOCUMENT_ID)
-                .code(MANIFEST_FORMAT_CODE)
-                .build());
-        list.add(new ClassificationBuilder(nextId())
-                .classificationScheme(UUID_XDSDocumentEntry_healthCareFacilityTypeCode)
-                .classifiedObject(DOCUMENT_ID)
-                .code(healthCareFacilityTypeCode)
-                .build());
-        list.add(new ClassificationBuilder(nextId())
-                .classificationScheme(UUID_XDSDocumentEntry_practiceSettingCode)
-                .classifiedObject(DOCUMENT_ID)
-                .code(practiceSettingCode)
-                .build());
-        list.add(new ClassificationBuilder(nextId())
-                .classificationScheme(UUID_XDSDocumentEntry_typeCode)
-                .classifiedObject(DOCUMENT_ID)
-                .code(typeCode)
-                .build());
-        for (Code code : modalityCodes.values()) {
-            list.add(new ClassificationBuilder(nextId())
-                    .classificationScheme(UUID_XDSDocumentEntry_eventCodeList)
-                    .classifiedObject(DOCUMENT_ID)
-                    .code(code)
-                    .build());
-        }
-        for (Code code : anatomicRegionCodes.values()) {
-            list.add(new ClassificationBuilder(nextId())
-                    .classificationScheme(UUID_XDSDocumentEntry_eventCodeList)
-                    .classifiedObject(DOCUMENT_ID)
-                    .code(code)
-                    .build());
-        }
-    }
-
-    private void createDocumentEntryExternalIdentifiers(List<ExternalIdentifierType> list) {
-        list.add(new ExternalIdentifierBuilder(nextId())
-                .identificationScheme(UUID_XDSDocumentEntry_uniqueId)
-                .registryObject(DOCUMENT_ID)
-                .name("XDSDocumentEntry.uniqueId")
-                .value(documentUID)
-                .build());
-        list.add(new ExternalIdentifierBuilder(nextId())
-                .identificationScheme(UUID_XDSDocumentEntry_patientId)
-                .registryObject(DOCUMENT_ID)
-                .name("XDSDocumentEntry.patientId")
-                .value(patientId)
-                .build());
-    }
-
-    private void initSourcePatientInfo() {
-        sourcePatientInfo.add("PID-3|" + IDWithIssuer.pidOf(manifest).toString());
-        addIfNotNullTo("PID-5|", manifest.getString(Tag.PatientName), sourcePatientInfo);
-        addIfNotNullTo("PID-7|", manifest.getString(Tag.PatientBirthDate), sourcePatientInfo);
-        addIfNotNullTo("PID-8|", manifest.getString(Tag.PatientSex), sourcePatientInfo);
-    }
-
     private static void addIfNotNullTo(String prefix, String value, Collection<String> list) {
         if (value != null)
             list.add(prefix + value);
     }
 
-    private RegistryPackageType createSubmissionSet() {
+    private RegistryPackageType createSubmissionSet(String submissionSetUID, String patientId) {
         RegistryPackageType submissionSet = new RegistryPackageType();
         submissionSet.setId(SUBMISSION_SET_ID);
         createSubmissionSetSlots(submissionSet.getSlot());
         createSubmissionSetClassifications(submissionSet.getClassification());
-        createSubmissionSetExternalIdentifiers(submissionSet.getExternalIdentifier());
+        createSubmissionSetExternalIdentifiers(submissionSet.getExternalIdentifier(), submissionSetUID, patientId);
         return submissionSet;
     }
 
@@ -466,7 +360,8 @@ public class XDSiExporter extends AbstractExporter {
                 .build());
     }
 
-    private void createSubmissionSetExternalIdentifiers(List<ExternalIdentifierType> list) {
+    private void createSubmissionSetExternalIdentifiers(List<ExternalIdentifierType> list,
+            String submissionSetUID, String patientId) {
         list.add(new ExternalIdentifierBuilder(nextId())
                 .identificationScheme(UUID_XDSSubmissionSet_uniqueId)
                 .registryObject(SUBMISSION_SET_ID)
@@ -494,20 +389,204 @@ public class XDSiExporter extends AbstractExporter {
                 .build();
     }
 
-    private AssociationType1 createAssociation() {
+    private AssociationType1 createAssociation(String documentId) {
         return new AssociationBuilder(nextId())
                 .associationType(HAS_MEMBER)
                 .sourceObject(SUBMISSION_SET_ID)
-                .targetObject(DOCUMENT_ID)
+                .targetObject(documentId)
                 .submissionSetStatus("Original")
                 .build();
     }
 
-    private ProvideAndRegisterDocumentSetRequestType.Document createDocument() {
-        ProvideAndRegisterDocumentSetRequestType.Document doc = new ProvideAndRegisterDocumentSetRequestType.Document();
-        doc.setId(DOCUMENT_ID);
-        doc.setValue(new DicomDataHandler(manifest));
-        return doc;
+    private final class Manifest {
+        final ExportContext ctx;
+        final Attributes manifest;
+        final String documentUID;
+        final String sourcePatientId;
+        final String patientId;
+        final Code typeCode;
+        final List<String> sourcePatientInfo = new ArrayList<>();
+        final Set<String> referenceIdList = new HashSet<>();
+        final Map<Code.Key, Code> modalityCodes = new HashMap<>();
+        final Map<Code.Key, Code> anatomicRegionCodes = new HashMap<>();
+        String documentId;
+
+        Manifest(ExportContext ctx) {
+            this.ctx = ctx;
+            ApplicationEntity ae = device.getApplicationEntity(ctx.getAETitle(), true);
+            Collection<Attributes> seriesAttrs = new ArrayList<>();
+            this.manifest = queryService.createXDSiManifest(ae, ctx.getStudyInstanceUID(),
+                    descriptor.getRetrieveAETitles(), descriptor.getRetrieveLocationUID(),
+                    manifestTitle, manifestSeriesNumber, manifestInstanceNumber, seriesAttrs);
+            this.documentUID = manifest.getString(Tag.SOPInstanceUID);
+            this.sourcePatientId = adjustIssuer(IDWithIssuer.pidOf(manifest)).toString();
+            this.patientId = sourcePatientId;
+            this.typeCode = typeCodeOf(manifest);
+            initSourcePatientInfo();
+            referenceIdList.add(manifest.getString(Tag.StudyInstanceUID) + "^^^^" + CXI_TYPE_STUDY_INSTANCE_UID);
+            addAccessionNumber(manifest);
+            processSeriesAttrs(seriesAttrs);
+        }
+
+        private Code typeCodeOf(Attributes manifest) {
+            if (useProcedureCodeAsTypeCode) {
+                Attributes codeItem = manifest.getNestedDataset(Tag.ProcedureCodeSequence);
+                if (codeItem != null)
+                    return new Code(codeItem);
+            }
+            return defTypeCode;
+        }
+
+        private void addAccessionNumber(Attributes attrs) {
+            IDWithIssuer accno = IDWithIssuer.valueOf(attrs, Tag.AccessionNumber, Tag.IssuerOfAccessionNumberSequence);
+            if (accno != null) {
+                Issuer issuer = accno.getIssuer();
+                String uid = issuer != null && "ISO".equals(issuer.getUniversalEntityIDType())
+                        ? issuer.getUniversalEntityID()
+                        : assigningAuthorityOfAccessionNumber;
+                referenceIdList.add(uid == null
+                        ? accno.getID() + "^^^^" + CXI_TYPE_ACCESSION
+                        : accno.getID() + "^^^&" + uid + "&ISO^" + CXI_TYPE_ACCESSION);
+            }
+        }
+
+        private void processSeriesAttrs(Collection<Attributes> seriesAttrs) {
+            for (Attributes attrs : seriesAttrs) {
+                if (includeModalityCodes) {
+                    Code modalityCode = AcquisitionModality.codeOf(attrs.getString(Tag.Modality));
+                    if (modalityCode != null)
+                        modalityCodes.put(modalityCode.key(), modalityCode);
+                }
+                if (includeAnatomicRegionCodes) {
+                    Attributes anatomicRegionCodeItem = attrs.getNestedDataset(Tag.AnatomicRegionSequence);
+                    Code anatomicRegionCode = anatomicRegionCodeItem != null
+                            ? new Code(anatomicRegionCodeItem)
+                            : AnatomicRegion.codeOf(attrs.getString(Tag.BodyPartExamined));
+                    if (anatomicRegionCode != null)
+                        anatomicRegionCodes.put(anatomicRegionCode.key(), anatomicRegionCode);
+                }
+                Sequence reqAttrsSeq = attrs.getSequence(Tag.RequestAttributesSequence);
+                if (reqAttrsSeq != null)
+                    for (Attributes reqAttrs : reqAttrsSeq) {
+                        addAccessionNumber(reqAttrs);
+                    }
+            }
+        }
+
+        private IDWithIssuer adjustIssuer(IDWithIssuer pid) {
+            Issuer issuer = pid.getIssuer();
+            String uid = issuer != null && "ISO".equals(issuer.getUniversalEntityIDType())
+                    ? issuer.getUniversalEntityID()
+                    : assigningAuthorityOfPatientID;
+            if (uid != null) {
+                pid.setIssuer(new Issuer(null, uid, "ISO"));
+                pid.exportPatientIDWithIssuer(manifest);
+            }
+            return pid;
+        }
+
+        private void initSourcePatientInfo() {
+            sourcePatientInfo.add("PID-3|" + IDWithIssuer.pidOf(manifest).toString());
+            addIfNotNullTo("PID-5|", manifest.getString(Tag.PatientName), sourcePatientInfo);
+            addIfNotNullTo("PID-7|", manifest.getString(Tag.PatientBirthDate), sourcePatientInfo);
+            addIfNotNullTo("PID-8|", manifest.getString(Tag.PatientSex), sourcePatientInfo);
+        }
+
+        ExtrinsicObjectType createDocumentEntry() {
+            ExtrinsicObjectType docEntry = new ExtrinsicObjectType();
+            docEntry.setId(documentId);
+            docEntry.setObjectType(UUID_XDSDocumentEntry);
+            docEntry.setMimeType(MediaTypes.APPLICATION_DICOM);
+            createDocumentEntrySlots(docEntry.getSlot());
+            createDocumentEntryClassifications(docEntry.getClassification());
+            createDocumentEntryExternalIdentifiers(docEntry.getExternalIdentifier());
+            return docEntry;
+        }
+
+        private void createDocumentEntrySlots(List<SlotType1> list) {
+            list.add(new SlotBuilder(SLOT_NAME_CREATION_TIME)
+                    .valueDTM(now).build());
+            list.add(new SlotBuilder(SLOT_NAME_SERVICE_START_TIME)
+                    .valueDTM(manifest.getDate(Tag.StudyDateAndTime, now)).build());
+            list.add(new SlotBuilder(SLOT_NAME_LANGUAGE_CODE)
+                    .valueList(languageCode).build());
+            list.add(new SlotBuilder(SLOT_NAME_SOURCE_PATIENT_ID)
+                    .valueList(sourcePatientId).build());
+            list.add(new SlotBuilder(SLOT_NAME_SOURCE_PATIENT_INFO)
+                    .valueList(sourcePatientInfo).build());
+            list.add(new SlotBuilder(SLOT_NAME_REFERENCE_ID_LIST)
+                    .valueList(referenceIdList).build());
+        }
+
+        private void createDocumentEntryClassifications(List<ClassificationType> list) {
+            list.add(new ClassificationBuilder(nextId())
+                    .classificationScheme(UUID_XDSDocumentEntry_classCode)
+                    .classifiedObject(documentId)
+                    .code(classCode)
+                    .build());
+            list.add(new ClassificationBuilder(nextId())
+                    .classificationScheme(UUID_XDSDocumentEntry_confidentialityCode)
+                    .classifiedObject(documentId)
+                    .code(confidentialityCode)
+                    .build());
+            list.add(new ClassificationBuilder(nextId())
+                    .classificationScheme(UUID_XDSDocumentEntry_formatCode)
+                    .classifiedObject(documentId)
+                    .code(MANIFEST_FORMAT_CODE)
+                    .build());
+            list.add(new ClassificationBuilder(nextId())
+                    .classificationScheme(UUID_XDSDocumentEntry_healthCareFacilityTypeCode)
+                    .classifiedObject(documentId)
+                    .code(healthCareFacilityTypeCode)
+                    .build());
+            list.add(new ClassificationBuilder(nextId())
+                    .classificationScheme(UUID_XDSDocumentEntry_practiceSettingCode)
+                    .classifiedObject(documentId)
+                    .code(practiceSettingCode)
+                    .build());
+            list.add(new ClassificationBuilder(nextId())
+                    .classificationScheme(UUID_XDSDocumentEntry_typeCode)
+                    .classifiedObject(documentId)
+                    .code(typeCode)
+                    .build());
+            for (Code code : modalityCodes.values()) {
+                list.add(new ClassificationBuilder(nextId())
+                        .classificationScheme(UUID_XDSDocumentEntry_eventCodeList)
+                        .classifiedObject(documentId)
+                        .code(code)
+                        .build());
+            }
+            for (Code code : anatomicRegionCodes.values()) {
+                list.add(new ClassificationBuilder(nextId())
+                        .classificationScheme(UUID_XDSDocumentEntry_eventCodeList)
+                        .classifiedObject(documentId)
+                        .code(code)
+                        .build());
+            }
+        }
+
+        private void createDocumentEntryExternalIdentifiers(List<ExternalIdentifierType> list) {
+            list.add(new ExternalIdentifierBuilder(nextId())
+                    .identificationScheme(UUID_XDSDocumentEntry_uniqueId)
+                    .registryObject(documentId)
+                    .name("XDSDocumentEntry.uniqueId")
+                    .value(documentUID)
+                    .build());
+            list.add(new ExternalIdentifierBuilder(nextId())
+                    .identificationScheme(UUID_XDSDocumentEntry_patientId)
+                    .registryObject(documentId)
+                    .name("XDSDocumentEntry.patientId")
+                    .value(patientId)
+                    .build());
+        }
+
+        ProvideAndRegisterDocumentSetRequestType.Document createDocument() {
+            ProvideAndRegisterDocumentSetRequestType.Document doc =
+                    new ProvideAndRegisterDocumentSetRequestType.Document();
+            doc.setId(documentId);
+            doc.setValue(new DicomDataHandler(manifest));
+            return doc;
+        }
     }
 
 }
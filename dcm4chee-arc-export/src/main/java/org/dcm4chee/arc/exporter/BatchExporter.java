@@ -0,0 +1,17 @@
+package org.dcm4chee.arc.exporter;
+
+import java.util.List;
+
+/**
+ * Exporter, which is able to export several Export Tasks to its destination in one operation.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public interface BatchExporter extends Exporter {
+
+    /**
+     * Exports all export contexts, setting the outcome or - on failure - the exception of each export context.
+     */
+    void export(List<ExportContext> exportContexts);
+}
@@ -53,6 +53,7 @@ import org.dcm4chee.arc.entity.MPPS;
 import org.dcm4chee.arc.mpps.MPPSContext;
 import org.dcm4chee.arc.query.QueryService;
 import org.dcm4chee.arc.store.StoreContext;
+import org.dcm4chee.arc.store.PostStore;
 import org.dcm4chee.arc.store.StoreSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -154,7 +155,7 @@ public class HL7PSUScheduler extends Scheduler {
         MWL, HL7, BOTH
     }
 
-    public void onStore(@Observes StoreContext ctx) {
+    public void onStore(@Observes @PostStore StoreContext ctx) {
         if (ctx.getLocations().isEmpty() || ctx.getRejectionNote() != null)
             return;
 
@@ -84,7 +84,7 @@ public class HL7SenderMDB implements MessageListener {
         } catch (JMSException e) {
             LOG.error("Failed to process {}", msg, e);
         }
-        if (queueManager.onProcessingStart(msgID) == null)
+        if (!queueManager.onProcessingStart(msgID))
             return;
         try {
             byte[] hl7msg = (byte[]) ((ObjectMessage) msg).getObject();
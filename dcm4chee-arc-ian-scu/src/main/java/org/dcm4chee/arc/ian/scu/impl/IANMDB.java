@@ -86,7 +86,7 @@ public class IANMDB implements MessageListener {
         } catch (JMSException e) {
             LOG.error("Failed to process {}", msg, e);
         }
-        if (queueManager.onProcessingStart(msgID) == null)
+        if (!queueManager.onProcessingStart(msgID))
             return;
         try {
             Attributes attrs = (Attributes) ((ObjectMessage) msg).getObject();
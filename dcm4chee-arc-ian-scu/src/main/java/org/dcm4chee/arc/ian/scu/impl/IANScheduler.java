@@ -52,6 +52,7 @@ import org.dcm4chee.arc.exporter.ExportContext;
 import org.dcm4chee.arc.mpps.MPPSContext;
 import org.dcm4chee.arc.query.QueryService;
 import org.dcm4chee.arc.store.StoreContext;
+import org.dcm4chee.arc.store.PostStore;
 import org.dcm4chee.arc.store.StoreSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -166,7 +167,7 @@ public class IANScheduler extends Scheduler {
         }
     }
 
-    public void onStore(@Observes StoreContext ctx) {
+    public void onStore(@Observes @PostStore StoreContext ctx) {
         if (ctx.getLocations().isEmpty() || ctx.getException() != null)
             return;
 
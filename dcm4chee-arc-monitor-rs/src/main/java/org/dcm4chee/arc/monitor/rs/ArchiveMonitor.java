@@ -48,6 +48,7 @@ package org.dcm4chee.arc.monitor.rs;
 import org.dcm4che3.net.Association;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.net.Dimse;
+import org.dcm4chee.arc.store.PostStoreEventDispatcher;
 import org.jboss.resteasy.annotations.cache.NoCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +76,9 @@ public class ArchiveMonitor {
     @Inject
     private Device device;
 
+    @Inject
+    private PostStoreEventDispatcher postStoreEventDispatcher;
+
     @Context
     private HttpServletRequest request;
 
@@ -117,6 +121,35 @@ public class ArchiveMonitor {
         };
     }
 
+    @GET
+    @NoCache
+    @Path("post-store-events")
+    @Produces("application/json")
+    public StreamingOutput postStoreEvents() throws Exception {
+        return new StreamingOutput() {
+            @Override
+            public void write(OutputStream out) throws IOException {
+                Writer w = new OutputStreamWriter(out, "UTF-8");
+                w.write("{\"queueSize\":");
+                w.write(String.valueOf(postStoreEventDispatcher.getQueueSize()));
+                w.write(",\"activeThreads\":");
+                w.write(String.valueOf(postStoreEventDispatcher.getActiveThreads()));
+                w.write(",\"dispatched\":");
+                w.write(String.valueOf(postStoreEventDispatcher.getDispatched()));
+                w.write(",\"completed\":");
+                w.write(String.valueOf(postStoreEventDispatcher.getCompleted()));
+                w.write(",\"failed\":");
+                w.write(String.valueOf(postStoreEventDispatcher.getFailed()));
+                w.write(",\"blocked\":");
+                w.write(String.valueOf(postStoreEventDispatcher.getBlocked()));
+                w.write(",\"blockedTimeMillis\":");
+                w.write(String.valueOf(postStoreEventDispatcher.getBlockedTimeMillis()));
+                w.write('}');
+                w.flush();
+            }
+        };
+    }
+
     @DELETE
     @Path("associations/{serialNo}")
     public void abortAssociation(@PathParam("serialNo") int serialNo) {
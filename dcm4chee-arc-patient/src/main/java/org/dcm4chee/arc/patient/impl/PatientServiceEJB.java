@@ -42,6 +42,7 @@ package org.dcm4chee.arc.patient.impl;
 
 import org.dcm4che3.audit.AuditMessages;
 import org.dcm4che3.data.*;
+import org.dcm4chee.arc.PatientCache;
 import org.dcm4chee.arc.conf.AttributeFilter;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.issuer.IssuerService;
@@ -74,6 +75,9 @@ public class PatientServiceEJB {
     @Inject
     private IssuerService issuerService;
 
+    @Inject
+    private PatientCache patientCache;
+
     public List<Patient> findPatients(IDWithIssuer pid) {
         List<Patient> list = em.createNamedQuery(Patient.FIND_BY_PATIENT_ID_EAGER, Patient.class)
                 .setParameter(1, pid.getID())
@@ -112,6 +116,7 @@ public class PatientServiceEJB {
     }
 
     private Patient createPatient(PatientMgtContext ctx, IDWithIssuer patientID, Attributes attributes) {
+        patientCache.invalidate(patientID);
         Patient patient = new Patient();
         patient.setAttributes(attributes, ctx.getAttributeFilter(), ctx.getFuzzyStr());
         patient.setPatientID(createPatientID(patientID));
@@ -133,14 +138,19 @@ public class PatientServiceEJB {
 
     public Patient findPatient(IDWithIssuer pid)
             throws NonUniquePatientException, PatientMergedException {
-        List<Patient> list = findPatients(pid);
-        if (list.isEmpty())
-            return null;
+        Patient pat = findCachedPatient(pid, false);
+        if (pat == null) {
+            long generation = patientCache.generation();
+            List<Patient> list = findPatients(pid);
+            if (list.isEmpty())
+                return null;
 
-        if (list.size() > 1)
-            throw new NonUniquePatientException("Multiple Patients with ID " + pid);
+            if (list.size() > 1)
+                throw new NonUniquePatientException("Multiple Patients with ID " + pid);
 
-        Patient pat = list.get(0);
+            pat = list.get(0);
+            cachePatient(pid, pat, generation);
+        }
         Patient mergedWith = pat.getMergedWith();
         if (mergedWith != null)
             throw new PatientMergedException("" + pat + " merged with " + mergedWith);
@@ -148,6 +158,42 @@ public class PatientServiceEJB {
         return pat;
     }
 
+    private Patient findCachedPatient(IDWithIssuer pid, boolean resolveMerged) {
+        PatientCache.Entry entry = patientCache.get(pid);
+        if (entry == null)
+            return null;
+
+        long pk = resolveMerged && entry.getMergedWithPk() != 0 ? entry.getMergedWithPk() : entry.getPatientPk();
+        Patient pat = em.find(Patient.class, pk);
+        if (pat == null)
+            patientCache.invalidate(pid);
+        return pat;
+    }
+
+    private void cachePatient(IDWithIssuer pid, Patient pat, long generation) {
+        Patient mergedWith = pat.getMergedWith();
+        if (mergedWith == null) {
+            patientCache.put(pid, new PatientCache.Entry(pat.getPk(), 0L), generation);
+            return;
+        }
+        Patient target = resolveMergedWith(mergedWith);
+        if (target != null)
+            patientCache.put(pid, new PatientCache.Entry(pat.getPk(), target.getPk()), generation);
+    }
+
+    private static Patient resolveMergedWith(Patient mergedWith) {
+        HashSet<Long> patPks = new HashSet<>();
+        Patient pat;
+        do {
+            if (!patPks.add(mergedWith.getPk()))
+                return null;
+
+            pat = mergedWith;
+            mergedWith = pat.getMergedWith();
+        } while (mergedWith != null);
+        return pat;
+    }
+
     private boolean updatePatient(Patient pat, PatientMgtContext ctx) {
         Attributes.UpdatePolicy updatePolicy = ctx.getAttributeUpdatePolicy();
         AttributeFilter filter = ctx.getAttributeFilter();
@@ -170,6 +216,7 @@ public class PatientServiceEJB {
 
     public Patient mergePatient(PatientMgtContext ctx)
             throws NonUniquePatientException, PatientMergedException {
+        patientCache.clear();
         Patient pat = findPatient(ctx.getPatientID());
         if (pat == null)
             pat = createPatient(ctx);
@@ -197,6 +244,8 @@ public class PatientServiceEJB {
 
     public Patient changePatientID(PatientMgtContext ctx)
             throws NonUniquePatientException, PatientMergedException, PatientAlreadyExistsException {
+        patientCache.invalidate(ctx.getPreviousPatientID());
+        patientCache.invalidate(ctx.getPatientID());
         Patient pat = findPatient(ctx.getPreviousPatientID());
         if (pat == null) {
             ctx.setPreviousAttributes(null); // suppress audit message for deletion of merge patient
@@ -234,6 +283,11 @@ public class PatientServiceEJB {
             return null;
         }
 
+        Patient cached = findCachedPatient(ctx.getPatientID(), true);
+        if (cached != null)
+            return cached;
+
+        long generation = patientCache.generation();
         List<Patient> list = findPatients(ctx.getPatientID());
         if (list.isEmpty())
             return null;
@@ -245,20 +299,18 @@ public class PatientServiceEJB {
 
         Patient pat = list.get(0);
         Patient mergedWith = pat.getMergedWith();
-        if (mergedWith == null)
+        if (mergedWith == null) {
+            patientCache.put(ctx.getPatientID(), new PatientCache.Entry(pat.getPk(), 0L), generation);
             return pat;
+        }
 
-        HashSet<Long> patPks = new HashSet<>();
-        do {
-            if (!patPks.add(mergedWith.getPk())) {
-                LOG.warn("{}: Detected circular merged {}", ctx, ctx.getPatientID());
-                return null;
-            }
-
-            pat = mergedWith;
-            mergedWith = pat.getMergedWith();
-        } while (mergedWith != null);
-        return pat;
+        Patient target = resolveMergedWith(mergedWith);
+        if (target == null) {
+            LOG.warn("{}: Detected circular merged {}", ctx, ctx.getPatientID());
+            return null;
+        }
+        patientCache.put(ctx.getPatientID(), new PatientCache.Entry(pat.getPk(), target.getPk()), generation);
+        return target;
     }
 
     private void moveStudies(Patient from, Patient to) {
@@ -306,6 +358,9 @@ public class PatientServiceEJB {
     }
 
     private void removeMPPSAndPatient(Patient patient) {
+        PatientID patientID = patient.getPatientID();
+        if (patientID != null)
+            patientCache.invalidate(patientID.getID());
         List<MPPS> mppsList = em.createNamedQuery(MPPS.FIND_BY_PATIENT, MPPS.class)
                 .setParameter(1, patient)
                 .getResultList();
@@ -45,6 +45,7 @@ import org.dcm4che3.hl7.HL7Segment;
 import org.dcm4che3.net.ApplicationEntity;
 import org.dcm4che3.net.Association;
 import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.PatientCache;
 import org.dcm4chee.arc.entity.Patient;
 import org.dcm4chee.arc.patient.NonUniquePatientException;
 import org.dcm4chee.arc.patient.PatientMergedException;
@@ -75,6 +76,9 @@ public class PatientServiceImpl implements PatientService {
     @Inject
     private Event<PatientMgtContext> patientMgtEvent;
 
+    @Inject
+    private PatientCache patientCache;
+
     @Override
     public PatientMgtContext createPatientMgtContextDIMSE(Association as) {
         return new PatientMgtContextImpl(device, null, as, as.getApplicationEntity(), as.getSocket(), null);
@@ -147,6 +151,7 @@ public class PatientServiceImpl implements PatientService {
             ctx.setException(e);
             throw e;
         } finally {
+            patientCache.clear();
             if (ctx.getEventActionCode() != null)
                 patientMgtEvent.fire(ctx);
         }
@@ -161,6 +166,8 @@ public class PatientServiceImpl implements PatientService {
             ctx.setException(e);
             throw e;
         } finally {
+            patientCache.invalidate(ctx.getPreviousPatientID());
+            patientCache.invalidate(ctx.getPatientID());
             if (ctx.getEventActionCode() != null)
                 patientMgtEvent.fire(ctx);
         }
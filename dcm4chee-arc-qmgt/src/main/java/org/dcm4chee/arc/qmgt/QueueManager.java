@@ -56,9 +56,11 @@ public interface QueueManager {
 
     QueueMessage scheduleMessage(String queueName, ObjectMessage message);
 
-    QueueMessage onProcessingStart(String msgId);
+    QueueMessage scheduleMessage(String queueName, ObjectMessage message, int priority);
 
-    QueueMessage onProcessingSuccessful(String msgId, Outcome outcome);
+    boolean onProcessingStart(String msgId);
+
+    void onProcessingSuccessful(String msgId, Outcome outcome);
 
     QueueMessage onProcessingFailed(String msgId, Throwable e);
 
@@ -70,5 +72,7 @@ public interface QueueManager {
 
     int deleteMessages(String queueName, QueueMessage.Status status, Date updatedBefore);
 
+    int deleteMessages(String queueName, QueueMessage.Status status, Date updatedBefore, int fetchSize);
+
     List<QueueMessage> search(String queueName, QueueMessage.Status status, int offset, int limit);
 }
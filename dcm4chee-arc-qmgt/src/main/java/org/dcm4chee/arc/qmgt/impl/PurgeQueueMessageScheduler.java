@@ -87,15 +87,23 @@ public class PurgeQueueMessageScheduler extends Scheduler {
     @Override
     protected void execute() {
         ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        int fetchSize = arcDev.getPurgeQueueMessageFetchSize();
         for (QueueDescriptor desc : arcDev.getQueueDescriptors())
-            delete(desc.getQueueName(), QueueMessage.Status.COMPLETED, desc.getPurgeQueueMessageCompletedDelay());
+            delete(desc.getQueueName(), QueueMessage.Status.COMPLETED, desc.getPurgeQueueMessageCompletedDelay(),
+                    fetchSize);
     }
 
-    private void delete(String queueName, QueueMessage.Status status, Duration delay) {
+    private void delete(String queueName, QueueMessage.Status status, Duration delay, int fetchSize) {
         if (delay == null)
             return;
 
         Date before = new Date(System.currentTimeMillis() - delay.getSeconds() * 1000);
-        ejb.deleteMessages(queueName, status, before);
+        int deleted;
+        int total = 0;
+        do {
+            total += deleted = ejb.deleteMessages(queueName, status, before, fetchSize);
+        } while (deleted == fetchSize);
+        if (total > 0)
+            LOG.info("Deleted {} {} messages from Queue {}", total, status, queueName);
     }
 }
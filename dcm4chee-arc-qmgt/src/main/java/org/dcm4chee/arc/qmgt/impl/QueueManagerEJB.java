@@ -41,10 +41,12 @@
 package org.dcm4chee.arc.qmgt.impl;
 
 import org.dcm4che3.net.Device;
+import org.dcm4che3.util.StringUtils;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.conf.QueueDescriptor;
 import org.dcm4chee.arc.entity.ExportTask;
 import org.dcm4chee.arc.entity.QueueMessage;
+import org.dcm4chee.arc.entity.QueueMessageBody;
 import org.dcm4chee.arc.qmgt.IllegalTaskStateException;
 import org.dcm4chee.arc.qmgt.MessageCanceled;
 import org.dcm4chee.arc.qmgt.Outcome;
@@ -58,6 +60,7 @@ import javax.ejb.TransactionAttributeType;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.jms.JMSContext;
+import javax.jms.Message;
 import javax.jms.ObjectMessage;
 import javax.jms.Queue;
 import javax.naming.InitialContext;
@@ -99,46 +102,64 @@ public class QueueManagerEJB implements QueueManager {
 
     @Override
     public QueueMessage scheduleMessage(String queueName, ObjectMessage msg) {
-        sendMessage(descriptorOf(queueName), msg, 0L);
-        QueueMessage entity = new QueueMessage(queueName, msg);
+        return scheduleMessage(queueName, msg, Message.DEFAULT_PRIORITY);
+    }
+
+    @Override
+    public QueueMessage scheduleMessage(String queueName, ObjectMessage msg, int priority) {
+        sendMessage(descriptorOf(queueName), msg, priority, 0L);
+        QueueMessage entity = new QueueMessage(queueName, msg, priority);
         em.persist(entity);
-        LOG.info("Schedule Task[id={}] at Queue {}", entity.getMessageID(), entity.getQueueName());
+        em.persist(new QueueMessageBody(entity, msg));
+        LOG.info("Schedule Task[id={}] at Queue {} with Priority {}",
+                entity.getMessageID(), entity.getQueueName(), priority);
         return entity;
     }
 
     @Override
-    public QueueMessage onProcessingStart(String msgId) {
-        QueueMessage entity = findQueueMessage(msgId);
-        if (entity == null || !entity.getStatus().equals(QueueMessage.Status.SCHEDULED)) {
+    public boolean onProcessingStart(String msgId) {
+        if (em.createNamedQuery(QueueMessage.UPDATE_STATUS_TO_IN_PROCESS)
+                .setParameter(1, msgId)
+                .setParameter(2, new Date())
+                .setParameter(3, QueueMessage.Status.IN_PROCESS)
+                .setParameter(4, QueueMessage.Status.SCHEDULED)
+                .executeUpdate() == 0) {
+            QueueMessage entity = findQueueMessage(msgId);
             if (entity == null)
                 LOG.info("Suppress processing of Task[id={}]", msgId);
             else
                 LOG.info("Suppress processing of Task[id={}] at Queue {} with Status: {}",
                         msgId, entity.getQueueName(), entity.getStatus());
-            return null;
+            return false;
         }
-        entity.setProcessingStartTime(new Date());
-        entity.setStatus(QueueMessage.Status.IN_PROCESS);
-        LOG.info("Start processing Task[id={}] from Queue {}", entity.getMessageID(), entity.getQueueName());
-        return entity;
+        LOG.info("Start processing Task[id={}]", msgId);
+        return true;
     }
 
     @Override
-    public QueueMessage onProcessingSuccessful(String msgId, Outcome outcome) {
+    public void onProcessingSuccessful(String msgId, Outcome outcome) {
+        QueueMessage.Status status = outcome.getStatus();
+        if (status == QueueMessage.Status.COMPLETED) {
+            String outcomeMessage = outcome.getDescription();
+            if (em.createNamedQuery(QueueMessage.UPDATE_STATUS_TO_COMPLETED)
+                    .setParameter(1, msgId)
+                    .setParameter(2, new Date())
+                    .setParameter(3, status)
+                    .setParameter(4, outcomeMessage != null ? StringUtils.truncate(outcomeMessage, 255) : null)
+                    .executeUpdate() > 0)
+                LOG.info("Finished processing of Task[id={}]", msgId);
+            else
+                LOG.info("Finished processing of Task[id={}] - no such Task", msgId);
+            return;
+        }
         QueueMessage entity = findQueueMessage(msgId);
         if (entity == null) {
             LOG.info("Finished processing of Task[id={}]", msgId);
-            return null;
+            return;
         }
-        QueueMessage.Status status = outcome.getStatus();
         String queueName = entity.getQueueName();
         entity.setProcessingEndTime(new Date());
         entity.setOutcomeMessage(outcome.getDescription());
-        if (status == QueueMessage.Status.COMPLETED) {
-            LOG.info("Finished processing of Task[id={}] at Queue {}", msgId, queueName);
-            entity.setStatus(status);
-            return entity;
-        }
         if (status == QueueMessage.Status.FAILED || status == QueueMessage.Status.WARNING) {
             QueueDescriptor descriptor = descriptorOf(queueName);
             long delay = status == QueueMessage.Status.FAILED || descriptor.isRetryOnWarning()
@@ -152,7 +173,6 @@ public class QueueManagerEJB implements QueueManager {
         }
         LOG.warn("Failed processing of Task[id={}] at Queue {} with Status {}", msgId, queueName, status);
         entity.setStatus(status);
-        return entity;
     }
 
     @Override
@@ -222,8 +242,9 @@ public class QueueManagerEJB implements QueueManager {
     }
 
     private void rescheduleMessage(QueueMessage entity, QueueDescriptor descriptor, long delay) {
-        ObjectMessage msg = entity.initProperties(createObjectMessage(entity.getMessageBody()));
-        sendMessage(descriptor, msg, delay);
+        QueueMessageBody body = em.find(QueueMessageBody.class, entity.getPk());
+        ObjectMessage msg = entity.initProperties(createObjectMessage(body.getMessageBody()));
+        sendMessage(descriptor, msg, entity.getPriority(), delay);
         entity.reschedule(msg, new Date(System.currentTimeMillis() + delay));
         if (entity.getExportTask() != null)
             entity.getExportTask().setUpdatedTime();
@@ -236,6 +257,9 @@ public class QueueManagerEJB implements QueueManager {
         if (entity == null)
             return false;
 
+        em.createNamedQuery(QueueMessageBody.DELETE_BY_PK)
+                .setParameter(1, entity.getPk())
+                .executeUpdate();
         if (entity.getExportTask() != null)
             em.remove(entity.getExportTask());
         else
@@ -248,6 +272,11 @@ public class QueueManagerEJB implements QueueManager {
     public int deleteMessages(String queueName, QueueMessage.Status status, Date updatedBefore) {
         if (status != null) {
             if (updatedBefore != null) {
+                em.createNamedQuery(QueueMessageBody.DELETE_BY_QUEUE_NAME_AND_STATUS_AND_UPDATED_BEFORE)
+                        .setParameter(1, queueName)
+                        .setParameter(2, status)
+                        .setParameter(3, updatedBefore)
+                        .executeUpdate();
                 em.createNamedQuery(ExportTask.DELETE_BY_QUEUE_NAME_AND_STATUS_AND_UPDATED_BEFORE)
                         .setParameter(1, queueName)
                         .setParameter(2, status)
@@ -259,6 +288,10 @@ public class QueueManagerEJB implements QueueManager {
                         .setParameter(3, updatedBefore)
                         .executeUpdate();
             }
+            em.createNamedQuery(QueueMessageBody.DELETE_BY_QUEUE_NAME_AND_STATUS)
+                    .setParameter(1, queueName)
+                    .setParameter(2, status)
+                    .executeUpdate();
             em.createNamedQuery(ExportTask.DELETE_BY_QUEUE_NAME_AND_STATUS)
                     .setParameter(1, queueName)
                     .setParameter(2, status)
@@ -269,6 +302,10 @@ public class QueueManagerEJB implements QueueManager {
                     .executeUpdate();
         }
         if (updatedBefore != null) {
+            em.createNamedQuery(QueueMessageBody.DELETE_BY_QUEUE_NAME_AND_UPDATED_BEFORE)
+                    .setParameter(1, queueName)
+                    .setParameter(2, updatedBefore)
+                    .executeUpdate();
             em.createNamedQuery(ExportTask.DELETE_BY_QUEUE_NAME_AND_UPDATED_BEFORE)
                     .setParameter(1, queueName)
                     .setParameter(2, updatedBefore)
@@ -278,6 +315,9 @@ public class QueueManagerEJB implements QueueManager {
                     .setParameter(2, updatedBefore)
                     .executeUpdate();
         }
+        em.createNamedQuery(QueueMessageBody.DELETE_BY_QUEUE_NAME)
+                .setParameter(1, queueName)
+                .executeUpdate();
         em.createNamedQuery(ExportTask.DELETE_BY_QUEUE_NAME)
                 .setParameter(1, queueName)
                 .executeUpdate();
@@ -286,6 +326,29 @@ public class QueueManagerEJB implements QueueManager {
                 .executeUpdate();
     }
 
+    @Override
+    public int deleteMessages(String queueName, QueueMessage.Status status, Date updatedBefore, int fetchSize) {
+        List<Long> pks = em.createNamedQuery(
+                QueueMessage.FIND_PK_BY_QUEUE_NAME_AND_STATUS_AND_UPDATED_BEFORE, Long.class)
+                .setParameter(1, queueName)
+                .setParameter(2, status)
+                .setParameter(3, updatedBefore)
+                .setMaxResults(fetchSize)
+                .getResultList();
+        if (pks.isEmpty())
+            return 0;
+
+        em.createNamedQuery(QueueMessageBody.DELETE_BY_PKS)
+                .setParameter(1, pks)
+                .executeUpdate();
+        em.createNamedQuery(ExportTask.DELETE_BY_QUEUE_MSG_PKS)
+                .setParameter(1, pks)
+                .executeUpdate();
+        return em.createNamedQuery(QueueMessage.DELETE_BY_PKS)
+                .setParameter(1, pks)
+                .executeUpdate();
+    }
+
     @Override
     public List<QueueMessage> search(String queueName, QueueMessage.Status status, int offset, int limit) {
         TypedQuery<QueueMessage> query = status != null
@@ -301,8 +364,11 @@ public class QueueManagerEJB implements QueueManager {
         return query.getResultList();
     }
 
-    private void sendMessage(QueueDescriptor desc, ObjectMessage msg, long delay) {
-        jmsCtx.createProducer().setDeliveryDelay(delay).send(lookup(desc.getJndiName()), msg);
+    private void sendMessage(QueueDescriptor desc, ObjectMessage msg, int priority, long delay) {
+        jmsCtx.createProducer()
+                .setPriority(priority)
+                .setDeliveryDelay(delay)
+                .send(lookup(desc.getJndiName()), msg);
     }
 
     private Queue lookup(String jndiName) {
@@ -45,13 +45,19 @@ import org.dcm4che3.data.*;
 import org.dcm4che3.net.*;
 import org.dcm4che3.net.pdu.AAssociateRQ;
 import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.Cache;
 import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
 import org.dcm4chee.arc.conf.Entity;
 import org.dcm4chee.arc.query.scu.CFindSCU;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -60,19 +66,26 @@ import javax.inject.Inject;
 @ApplicationScoped
 public class CFindSCUImpl implements CFindSCU {
 
+    private static final Logger LOG = LoggerFactory.getLogger(CFindSCUImpl.class);
     private static final ElementDictionary DICT = ElementDictionary.getStandardElementDictionary();
 
+    private final ConcurrentHashMap<String, CompletableFuture<Attributes>> pendingQueries =
+            new ConcurrentHashMap<>();
+
     @Inject
     private Device device;
 
     @Inject
     private IApplicationEntityCache aeCache;
 
+    @Inject
+    private AssociationPool associationPool;
+
     @Override
     public Attributes queryStudy(ApplicationEntity localAE, String calledAET, String studyIUID)
             throws Exception {
         ApplicationEntity remoteAE = aeCache.get(calledAET);
-        Association as = localAE.connect(remoteAE, createAARQ());
+        Association as = associationPool.open(localAE, remoteAE, createAARQ());
         try {
             DimseRSP rsp = as.cfind(UID.StudyRootQueryRetrieveInformationModelFIND, Priority.NORMAL,
                     mkQueryStudyKeys(studyIUID), UID.ImplicitVRLittleEndian, 0);
@@ -80,7 +93,7 @@ public class CFindSCUImpl implements CFindSCU {
             return rsp.getDataset();
         } finally {
             as.waitForOutstandingRSP();
-            as.release();
+            associationPool.release(as);
         }
     }
 
@@ -88,20 +101,90 @@ public class CFindSCUImpl implements CFindSCU {
     public Attributes queryStudy(
             ApplicationEntity localAE, String calledAET, String studyIUID, Cache<String, Attributes> cache) {
         Cache.Entry<Attributes> entry = cache.getEntry(studyIUID);
-        Attributes newAttrs;
         if (entry != null) {
-            newAttrs = entry.value();
-        } else {
-            try {
-                newAttrs = queryStudy(localAE, calledAET, studyIUID);
-            } catch (Exception e) {
-                newAttrs = null;
+            if (cache.isDueToRefresh(entry))
+                refreshInBackground(localAE, calledAET, studyIUID, cache, entry.value());
+            return entry.value();
+        }
+        String key = calledAET + '\\' + studyIUID;
+        CompletableFuture<Attributes> future = new CompletableFuture<>();
+        CompletableFuture<Attributes> pending = pendingQueries.putIfAbsent(key, future);
+        if (pending != null)
+            return waitForPendingQuery(pending);
+
+        entry = cache.getEntry(studyIUID);
+        if (entry != null) {
+            complete(key, future, entry.value());
+            return entry.value();
+        }
+        Attributes newAttrs = null;
+        try {
+            newAttrs = queryAndCache(localAE, calledAET, studyIUID, cache, null);
+        } finally {
+            complete(key, future, newAttrs);
+        }
+        return newAttrs;
+    }
+
+    private void refreshInBackground(final ApplicationEntity localAE, final String calledAET,
+            final String studyIUID, final Cache<String, Attributes> cache, final Attributes staleAttrs) {
+        final String key = calledAET + '\\' + studyIUID;
+        final CompletableFuture<Attributes> future = new CompletableFuture<>();
+        if (pendingQueries.putIfAbsent(key, future) != null)
+            return;
+
+        try {
+            device.execute(new Runnable() {
+                @Override
+                public void run() {
+                    Attributes newAttrs = staleAttrs;
+                    try {
+                        newAttrs = queryAndCache(localAE, calledAET, studyIUID, cache, staleAttrs);
+                    } finally {
+                        complete(key, future, newAttrs);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to schedule refresh of cached query result for Study[uid={}] from {}:\n",
+                    studyIUID, calledAET, e);
+            complete(key, future, staleAttrs);
+        }
+    }
+
+    private Attributes queryAndCache(ApplicationEntity localAE, String calledAET, String studyIUID,
+            Cache<String, Attributes> cache, Attributes staleAttrs) {
+        Attributes newAttrs;
+        try {
+            newAttrs = queryStudy(localAE, calledAET, studyIUID);
+        } catch (Exception e) {
+            if (staleAttrs != null) {
+                LOG.info("Failed to refresh cached query result for Study[uid={}] from {} - keep stale result:\n",
+                        studyIUID, calledAET, e);
+                return staleAttrs;
             }
-            cache.put(studyIUID, newAttrs);
+            newAttrs = null;
         }
+        cache.put(studyIUID, newAttrs);
         return newAttrs;
     }
 
+    private void complete(String key, CompletableFuture<Attributes> future, Attributes attrs) {
+        pendingQueries.remove(key, future);
+        future.complete(attrs);
+    }
+
+    private static Attributes waitForPendingQuery(CompletableFuture<Attributes> pending) {
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
     private Attributes mkQueryStudyKeys(String studyIUID) {
         ArchiveDeviceExtension arcdev = device.getDeviceExtension(ArchiveDeviceExtension.class);
         int[] patTags = arcdev.getAttributeFilter(Entity.Patient).getSelection();
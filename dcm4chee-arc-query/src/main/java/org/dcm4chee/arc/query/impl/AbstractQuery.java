@@ -42,6 +42,7 @@ package org.dcm4chee.arc.query.impl;
 
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.jpa.hibernate.HibernateQuery;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
@@ -53,6 +54,7 @@ import org.hibernate.StatelessSession;
 
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -66,6 +68,10 @@ abstract class AbstractQuery implements Query {
     private Iterator<Tuple> results;
     private long offset;
     private long limit;
+    private boolean ordered;
+    private boolean seekPaging;
+    private boolean lastPage;
+    private Long lastPk;
     private int rejected;
     private int matches;
 
@@ -82,6 +88,12 @@ abstract class AbstractQuery implements Query {
 
     protected abstract Attributes toAttributes(Tuple results);
 
+    /**
+     * Returns the primary key of the queried entity, which has to be included in the selected expressions.
+     * Used for keyset pagination and for resuming the query after rejected matches.
+     */
+    protected abstract NumberPath<Long> primaryKey();
+
     private void checkQuery() {
         if (query == null)
             throw new IllegalStateException("query not initalized");
@@ -92,9 +104,31 @@ abstract class AbstractQuery implements Query {
         checkQuery();
         rejected = 0;
         matches = 0;
+        lastPk = null;
+        int fetchSize = fetchSize();
+        seekPaging = fetchSize > 0 && !ordered && offset == 0 && limit == 0;
+        if (seekPaging) {
+            results = fetchPage(fetchSize);
+            return;
+        }
+        if (!ordered && limit > 0)
+            query.orderBy(primaryKey().asc());
         results = offset > 0 ? query.fetch().iterator() : query.iterate();
     }
 
+    private int fetchSize() {
+        return context.getArchiveAEExtension().getArchiveDeviceExtension().getQueryFetchSize();
+    }
+
+    private Iterator<Tuple> fetchPage(long pageSize) {
+        HibernateQuery<Tuple> q = newHibernateQuery();
+        if (lastPk != null)
+            q.where(primaryKey().gt(lastPk));
+        List<Tuple> page = q.orderBy(primaryKey().asc()).limit(pageSize).fetch();
+        lastPage = page.size() < pageSize;
+        return page.iterator();
+    }
+
     @Override
     public long count() {
         checkQuery();
@@ -119,23 +153,44 @@ abstract class AbstractQuery implements Query {
     public void orderBy(OrderSpecifier<?>... orderSpecifiers) {
         checkQuery();
         query.orderBy(orderSpecifiers);
+        ordered = true;
     }
 
     @Override
     public boolean hasMoreMatches() throws DicomServiceException {
         boolean hasNext = results.hasNext();
-        if (hasNext || rejected == 0 || limit != matches)
-            return hasNext;
+        if (hasNext)
+            return true;
+
+        if (seekPaging) {
+            if (lastPage)
+                return false;
 
-        offset(offset + matches);
-        limit(rejected);
-        executeQuery();
+            results = fetchPage(fetchSize());
+            return results.hasNext();
+        }
+
+        if (rejected == 0 || limit != matches)
+            return false;
+
+        if (ordered) {
+            offset(offset + matches);
+            limit(rejected);
+            executeQuery();
+        } else {
+            limit = rejected;
+            rejected = 0;
+            matches = 0;
+            results = fetchPage(limit);
+        }
         return results.hasNext();
     }
 
     @Override
     public Attributes nextMatch() {
-        Attributes attrs = toAttributes(results.next());
+        Tuple tuple = results.next();
+        lastPk = tuple.get(primaryKey());
+        Attributes attrs = toAttributes(tuple);
         matches++;
         if (attrs == null)
             rejected++;
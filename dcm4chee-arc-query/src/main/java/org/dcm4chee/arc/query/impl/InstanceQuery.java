@@ -43,6 +43,7 @@ package org.dcm4chee.arc.query.impl;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.jpa.hibernate.HibernateQuery;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Sequence;
@@ -78,6 +79,7 @@ import java.util.zip.ZipInputStream;
 class InstanceQuery extends AbstractQuery {
 
     private static final Expression<?>[] SELECT = {
+            QInstance.instance.pk,
             QSeries.series.pk,
             QInstance.instance.retrieveAETs,
             QInstance.instance.externalRetrieveAET,
@@ -178,6 +180,11 @@ class InstanceQuery extends AbstractQuery {
         return query.where(builder);
     }
 
+    @Override
+    protected NumberPath<Long> primaryKey() {
+        return QInstance.instance.pk;
+    }
+
     @Override
     protected Attributes toAttributes(Tuple results) {
         Long seriesPk = results.get(QSeries.series.pk);
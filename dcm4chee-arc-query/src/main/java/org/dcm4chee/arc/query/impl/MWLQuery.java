@@ -43,6 +43,7 @@ package org.dcm4chee.arc.query.impl;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.jpa.hibernate.HibernateQuery;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
@@ -61,6 +62,7 @@ import org.hibernate.StatelessSession;
 public class MWLQuery extends AbstractQuery {
 
     static final Expression<?>[] SELECT = {
+            QMWLItem.mWLItem.pk,
             QPatient.patient.numberOfStudies,
             QueryBuilder.mwlAttributesBlob.encodedAttributes,
             QueryBuilder.patientAttributesBlob.encodedAttributes
@@ -92,6 +94,11 @@ public class MWLQuery extends AbstractQuery {
         return q.where(predicates);
     }
 
+    @Override
+    protected NumberPath<Long> primaryKey() {
+        return QMWLItem.mWLItem.pk;
+    }
+
     @Override
     protected Attributes toAttributes(Tuple results) {
         Attributes mwlAttrs = AttributesBlob.decodeAttributes(
@@ -43,6 +43,7 @@ package org.dcm4chee.arc.query.impl;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.jpa.hibernate.HibernateQuery;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
@@ -89,6 +90,11 @@ class PatientQuery extends AbstractQuery {
         return q.where(predicates);
     }
 
+    @Override
+    protected NumberPath<Long> primaryKey() {
+        return QPatient.patient.pk;
+    }
+
     @Override
     protected Attributes toAttributes(Tuple results) {
         Attributes patAttrs = AttributesBlob.decodeAttributes(
@@ -43,6 +43,7 @@ package org.dcm4chee.arc.query.impl;
 import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.Tuple;
 import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.dsl.NumberPath;
 import com.querydsl.jpa.hibernate.HibernateQuery;
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
@@ -142,6 +143,11 @@ class SeriesQuery extends AbstractQuery {
         return q.where(predicates);
     }
 
+    @Override
+    protected NumberPath<Long> primaryKey() {
+        return QSeries.series.pk;
+    }
+
     @Override
     protected Attributes toAttributes(Tuple results) {
         Long studyPk = results.get(QStudy.study.pk);
@@ -50,6 +50,7 @@ import org.dcm4che3.net.pdu.ExtendedNegotiation;
 import org.dcm4che3.net.pdu.PresentationContext;
 import org.dcm4che3.net.service.DicomServiceException;
 import org.dcm4che3.net.service.RetrieveTask;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.conf.ArchiveAEExtension;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
 import org.dcm4chee.arc.retrieve.RetrieveEnd;
@@ -76,6 +77,9 @@ public class CMoveSCUImpl implements CMoveSCU {
     @Inject
     private CStoreForwardSCU storeForwardSCU;
 
+    @Inject
+    private AssociationPool associationPool;
+
     @Inject @RetrieveEnd
     private Event<RetrieveContext> retrieveEnd;
 
@@ -91,7 +95,7 @@ public class CMoveSCUImpl implements CMoveSCU {
             ctx.setFallbackAssociation(fwdas);
             rq.setString(Tag.MoveDestination, VR.AE, otherMoveDest);
             storeForwardSCU.addRetrieveContext(ctx);
-            fwdas.addAssociationListener(new AssociationListener() {
+            associationPool.addReleaseListener(fwdas, new AssociationListener() {
                 @Override
                 public void onClose(Association association) {
                     storeForwardSCU.removeRetrieveContext(ctx);
@@ -116,7 +120,7 @@ public class CMoveSCUImpl implements CMoveSCU {
                 ctx.setFallbackAssociation(fwdas);
                 rq.setString(Tag.MoveDestination, VR.AE, otherMoveDest);
                 storeForwardSCU.addRetrieveContext(ctx);
-                fwdas.addAssociationListener(new AssociationListener() {
+                associationPool.addReleaseListener(fwdas, new AssociationListener() {
                     @Override
                     public void onClose(Association association) {
                         storeForwardSCU.removeRetrieveContext(ctx);
@@ -140,7 +144,7 @@ public class CMoveSCUImpl implements CMoveSCU {
         aarq.addPresentationContext(rqpc);
         aarq.addExtendedNegotiation(new ExtendedNegotiation(rqpc.getAbstractSyntax(),
                 QueryOption.toExtendedNegotiationInformation(EnumSet.of(QueryOption.RELATIONAL))));
-        Association fwdas = ctx.getLocalApplicationEntity().connect(remoteAE, aarq);
+        Association fwdas = associationPool.open(ctx.getLocalApplicationEntity(), remoteAE, aarq);
         fwdas.setProperty("forward-C-MOVE-RQ-for-Study", ctx.getStudyInstanceUID());
         return fwdas;
     }
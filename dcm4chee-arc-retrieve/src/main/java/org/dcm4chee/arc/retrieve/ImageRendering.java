@@ -0,0 +1,130 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.retrieve;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import java.awt.geom.AffineTransform;
+import java.awt.image.AffineTransformOp;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.util.Iterator;
+
+/**
+ * Image reading, scaling and writing shared by WADO rendering and pre-generation of Series previews.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class ImageRendering {
+
+    private ImageRendering() {}
+
+    public static ImageReader getDicomImageReader() {
+        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("DICOM");
+        if (!readers.hasNext()) {
+            ImageIO.scanForPlugins();
+            readers = ImageIO.getImageReadersByFormatName("DICOM");
+            if (!readers.hasNext())
+                throw new RuntimeException("DICOM Image Reader not registered");
+        }
+        return readers.next();
+    }
+
+    public static ImageWriter getImageWriter(String formatName) {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new RuntimeException(formatName + " Image Writer not registered");
+        }
+        return writers.next();
+    }
+
+    /**
+     * Scale image to fit into {@code rows} x {@code columns}, preserving the aspect ratio and correcting
+     * non-square pixels by {@code pixelAspectRatio}. {@code 0} for {@code rows} or {@code columns} leaves that
+     * dimension unconstrained.
+     */
+    public static BufferedImage rescale(BufferedImage bi, int rows, int columns, float pixelAspectRatio) {
+        int r = rows;
+        int c = columns;
+        float sy = pixelAspectRatio;
+        if (r == 0 && c == 0 && sy == 1f)
+            return bi;
+
+        float sx = 1f;
+        if (r != 0 || c != 0) {
+            if (r != 0 && c != 0)
+                if (r * bi.getWidth() > c * bi.getHeight() * sy)
+                    r = 0;
+                else
+                    c = 0;
+            sx = r != 0 ? r / (bi.getHeight() * sy) : c / (float)bi.getWidth();
+            sy *= sx;
+        }
+        return scale(bi, sx, sy);
+    }
+
+    /**
+     * Scale image by bilinear interpolation. Reductions by more than factor 2 are performed in successive
+     * halving steps, which approximates area averaging and avoids the aliasing of a single interpolation step.
+     * Images with indexed color model are scaled by nearest neighbour to preserve the palette.
+     */
+    public static BufferedImage scale(BufferedImage bi, float sx, float sy) {
+        if (bi.getColorModel() instanceof IndexColorModel)
+            return scale(bi, sx, sy, AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
+
+        while (sx < 0.5f || sy < 0.5f) {
+            float stepX = sx < 0.5f ? 0.5f : 1f;
+            float stepY = sy < 0.5f ? 0.5f : 1f;
+            bi = scale(bi, stepX, stepY, AffineTransformOp.TYPE_BILINEAR);
+            sx /= stepX;
+            sy /= stepY;
+        }
+        return sx == 1f && sy == 1f ? bi : scale(bi, sx, sy, AffineTransformOp.TYPE_BILINEAR);
+    }
+
+    private static BufferedImage scale(BufferedImage bi, float sx, float sy, int interpolationType) {
+        AffineTransformOp op = new AffineTransformOp(AffineTransform.getScaleInstance(sx, sy), interpolationType);
+        return op.filter(bi, null);
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.retrieve.impl;
+
+import org.dcm4chee.arc.entity.Instance;
+import org.dcm4chee.arc.entity.Metadata;
+import org.dcm4chee.arc.entity.Series;
+import org.dcm4chee.arc.retrieve.PreviewService;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.NoResultException;
+import javax.persistence.PersistenceContext;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@Stateless
+public class PreviewServiceEJB {
+
+    @PersistenceContext(unitName = "dcm4chee-arc")
+    private EntityManager em;
+
+    public Metadata findPreview(String studyIUID, String seriesIUID, PreviewService.Type type) {
+        List<Metadata> resultList = em.createNamedQuery(
+                    type == PreviewService.Type.THUMBNAIL ? Series.FIND_THUMBNAIL : Series.FIND_PREVIEW,
+                    Metadata.class)
+                .setParameter(1, studyIUID)
+                .setParameter(2, seriesIUID)
+                .getResultList();
+        return resultList.isEmpty() ? null : resultList.get(0);
+    }
+
+    public String seriesContentTag(String studyIUID, String seriesIUID) {
+        Series series = findSeries(studyIUID, seriesIUID, LockModeType.NONE);
+        return series != null ? contentTag(series) : null;
+    }
+
+    public boolean updatePreviews(String studyIUID, String seriesIUID, String contentTag,
+                                  Metadata thumbnail, Metadata preview) {
+        Series series = findSeries(studyIUID, seriesIUID, LockModeType.PESSIMISTIC_WRITE);
+        if (series == null || !contentTag.equals(contentTag(series)))
+            return false;
+
+        em.persist(thumbnail);
+        em.persist(preview);
+        series.discardPreviews();
+        series.setThumbnail(thumbnail);
+        series.setPreview(preview);
+        return true;
+    }
+
+    private Series findSeries(String studyIUID, String seriesIUID, LockModeType lockMode) {
+        try {
+            return em.createNamedQuery(Series.FIND_BY_SERIES_IUID, Series.class)
+                    .setParameter(1, studyIUID)
+                    .setParameter(2, seriesIUID)
+                    .setLockMode(lockMode)
+                    .getSingleResult();
+        } catch (NoResultException e) {
+            return null;
+        }
+    }
+
+    private String contentTag(Series series) {
+        Object[] result = em.createNamedQuery(Instance.COUNT_AND_MAX_UPDATED_TIME_OF_SERIES, Object[].class)
+                .setParameter(1, series)
+                .getSingleResult();
+        Date maxUpdatedTime = (Date) result[1];
+        return result[0] + "/" + (maxUpdatedTime != null ? maxUpdatedTime.getTime() : 0L);
+    }
+}
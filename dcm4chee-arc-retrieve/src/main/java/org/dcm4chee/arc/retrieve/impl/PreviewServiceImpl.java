@@ -0,0 +1,113 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.retrieve.impl;
+
+import org.dcm4che3.net.Device;
+import org.dcm4che3.util.StreamUtils;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.entity.Metadata;
+import org.dcm4chee.arc.retrieve.PreviewService;
+import org.dcm4chee.arc.storage.ReadContext;
+import org.dcm4chee.arc.storage.Storage;
+import org.dcm4chee.arc.storage.StorageFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class PreviewServiceImpl implements PreviewService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PreviewServiceImpl.class);
+
+    @Inject
+    private Device device;
+
+    @Inject
+    private StorageFactory storageFactory;
+
+    @Inject
+    private PreviewServiceEJB ejb;
+
+    @Override
+    public byte[] getPreview(String studyIUID, String seriesIUID, Type type) throws IOException {
+        Metadata metadata = ejb.findPreview(studyIUID, seriesIUID, type);
+        if (metadata == null)
+            return null;
+
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        StorageDescriptor storageDescriptor = arcDev.getStorageDescriptor(metadata.getStorageID());
+        if (storageDescriptor == null) {
+            LOG.warn("{} refers not configured StorageID={}", metadata, metadata.getStorageID());
+            return null;
+        }
+        byte[] b = new byte[(int) metadata.getSize()];
+        try (Storage storage = storageFactory.getStorage(storageDescriptor)) {
+            ReadContext readContext = storage.createReadContext();
+            readContext.setStoragePath(metadata.getStoragePath());
+            readContext.setStudyInstanceUID(studyIUID);
+            try (InputStream in = storage.openInputStream(readContext)) {
+                StreamUtils.readFully(in, b, 0, b.length);
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public String seriesContentTag(String studyIUID, String seriesIUID) {
+        return ejb.seriesContentTag(studyIUID, seriesIUID);
+    }
+
+    @Override
+    public boolean updatePreviews(String studyIUID, String seriesIUID, String contentTag, Metadata thumbnail,
+                                  Metadata preview) {
+        return ejb.updatePreviews(studyIUID, seriesIUID, contentTag, thumbnail, preview);
+    }
+}
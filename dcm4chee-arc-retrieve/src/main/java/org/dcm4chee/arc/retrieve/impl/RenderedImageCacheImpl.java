@@ -0,0 +1,287 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.retrieve.impl;
+
+import org.dcm4che3.net.Device;
+import org.dcm4che3.util.StringUtils;
+import org.dcm4che3.util.TagUtils;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.retrieve.RenderedImageCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class RenderedImageCacheImpl implements RenderedImageCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenderedImageCacheImpl.class);
+    private static final String TMP_FILE_SUFFIX = ".part";
+
+    @Inject
+    private Device device;
+
+    private Path cacheDir;
+    private long totalSize;
+    private LinkedHashMap<Path, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private Set<Path> removedWhileLoading;
+
+    @Override
+    public Path getCachedImage(String studyIUID, String key) {
+        Path dir = cacheDir();
+        if (dir == null)
+            return null;
+
+        Path path = studyDir(dir, studyIUID).resolve(digest(key));
+        synchronized (this) {
+            return entries.get(path) != null ? path : null;
+        }
+    }
+
+    @Override
+    public Path createTempFile(String studyIUID) throws IOException {
+        Path dir = cacheDir();
+        return dir != null
+                ? Files.createTempFile(Files.createDirectories(studyDir(dir, studyIUID)), null, TMP_FILE_SUFFIX)
+                : null;
+    }
+
+    @Override
+    public void putCachedImage(String studyIUID, String key, Path tmpFile) throws IOException {
+        Path dir = cacheDir();
+        if (dir == null || !tmpFile.startsWith(dir)) {
+            Files.deleteIfExists(tmpFile);
+            return;
+        }
+        Path path = studyDir(dir, studyIUID).resolve(digest(key));
+        long size = Files.size(tmpFile);
+        Files.move(tmpFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (!dir.equals(cacheDir))
+                evicted.add(path);
+            else {
+                add(path, size);
+                evict(maxSize(), evicted);
+            }
+        }
+        delete(evicted);
+    }
+
+    @Override
+    public void invalidate(String studyIUID) {
+        Path dir = cacheDir();
+        if (dir == null || studyIUID == null)
+            return;
+
+        Path studyDir = studyDir(dir, studyIUID);
+        synchronized (this) {
+            if (removedWhileLoading != null)
+                removedWhileLoading.add(studyDir);
+            for (Iterator<Map.Entry<Path, Long>> iter = entries.entrySet().iterator(); iter.hasNext();) {
+                Map.Entry<Path, Long> entry = iter.next();
+                if (entry.getKey().startsWith(studyDir)) {
+                    totalSize -= entry.getValue();
+                    iter.remove();
+                }
+            }
+        }
+        try {
+            deleteDirectory(studyDir);
+            LOG.debug("Invalidated cached rendered images of Study[uid={}]", studyIUID);
+        } catch (IOException e) {
+            LOG.warn("Failed to delete cached rendered images of Study[uid={}]:\n", studyIUID, e);
+        }
+    }
+
+    private Path cacheDir() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        String cacheDirectory = arcDev.getWadoRenderedImageCacheDirectory();
+        if (cacheDirectory == null)
+            return null;
+
+        Path dir = Paths.get(StringUtils.replaceSystemProperties(cacheDirectory));
+        synchronized (this) {
+            if (dir.equals(cacheDir))
+                return dir;
+
+            entries.clear();
+            totalSize = 0L;
+            cacheDir = dir;
+            removedWhileLoading = new HashSet<>();
+        }
+        load(dir);
+        return dir;
+    }
+
+    private long maxSize() {
+        return device.getDeviceExtension(ArchiveDeviceExtension.class).wadoRenderedImageCacheMaxSizeInBytes();
+    }
+
+    private void load(Path dir) {
+        List<Map.Entry<Path, BasicFileAttributes>> files = scan(dir);
+        List<Path> evicted = new ArrayList<>();
+        synchronized (this) {
+            if (!dir.equals(cacheDir))
+                return;
+
+            LinkedHashMap<Path, Long> added = entries;
+            entries = new LinkedHashMap<>(256, 0.75f, true);
+            totalSize = 0L;
+            for (Map.Entry<Path, BasicFileAttributes> file : files)
+                if (!added.containsKey(file.getKey()) && !isRemovedWhileLoading(file.getKey()))
+                    add(file.getKey(), file.getValue().size());
+            for (Map.Entry<Path, Long> entry : added.entrySet())
+                add(entry.getKey(), entry.getValue());
+            removedWhileLoading = null;
+            evict(maxSize(), evicted);
+            LOG.info("Loaded {} cached rendered images with {} bytes from {}", entries.size(), totalSize, dir);
+        }
+        delete(evicted);
+    }
+
+    private boolean isRemovedWhileLoading(Path path) {
+        return removedWhileLoading.contains(path) || removedWhileLoading.contains(path.getParent());
+    }
+
+    private static List<Map.Entry<Path, BasicFileAttributes>> scan(Path dir) {
+        final List<Map.Entry<Path, BasicFileAttributes>> files = new ArrayList<>();
+        if (!Files.isDirectory(dir))
+            return files;
+
+        final FileTime scanStart = FileTime.fromMillis(System.currentTimeMillis());
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (!file.getFileName().toString().endsWith(TMP_FILE_SUFFIX))
+                        files.add(new AbstractMap.SimpleEntry<>(file, attrs));
+                    else if (attrs.lastModifiedTime().compareTo(scanStart) < 0)
+                        Files.deleteIfExists(file);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Failed to scan rendered image cache directory {}:\n", dir, e);
+        }
+        Collections.sort(files, new Comparator<Map.Entry<Path, BasicFileAttributes>>() {
+            @Override
+            public int compare(Map.Entry<Path, BasicFileAttributes> o1, Map.Entry<Path, BasicFileAttributes> o2) {
+                return o1.getValue().lastModifiedTime().compareTo(o2.getValue().lastModifiedTime());
+            }
+        });
+        return files;
+    }
+
+    private void add(Path path, long size) {
+        Long prev = entries.put(path, size);
+        if (prev != null)
+            totalSize -= prev;
+        totalSize += size;
+    }
+
+    private void evict(long maxSize, List<Path> evicted) {
+        for (Iterator<Map.Entry<Path, Long>> iter = entries.entrySet().iterator();
+             totalSize > maxSize && iter.hasNext();) {
+            Map.Entry<Path, Long> entry = iter.next();
+            totalSize -= entry.getValue();
+            evicted.add(entry.getKey());
+            if (removedWhileLoading != null)
+                removedWhileLoading.add(entry.getKey());
+            iter.remove();
+        }
+    }
+
+    private static void delete(List<Path> paths) {
+        for (Path path : paths)
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                LOG.info("Failed to delete evicted cached rendered image {}:\n", path, e);
+            }
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.isDirectory(dir))
+            return;
+
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                Files.deleteIfExists(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static Path studyDir(Path dir, String studyIUID) {
+        return dir.resolve(digest(studyIUID));
+    }
+
+    private static String digest(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes(StandardCharsets.UTF_8));
+            return TagUtils.toHexString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
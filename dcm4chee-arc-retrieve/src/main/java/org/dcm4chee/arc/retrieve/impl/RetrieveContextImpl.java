@@ -60,6 +60,7 @@ import org.dcm4chee.arc.storage.Storage;
 import javax.servlet.http.HttpServletRequest;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -103,7 +104,7 @@ class RetrieveContextImpl implements RetrieveContext {
             Collections.synchronizedCollection(new ArrayList<InstanceLocations>());
     private final Collection<String> failedSOPInstanceUIDs =
             Collections.synchronizedCollection(new ArrayList<String>());
-    private final HashMap<String, Storage> storageMap = new HashMap<>();
+    private final Map<String, Storage> storageMap = new ConcurrentHashMap<>();
     private CodeEntity[] showInstancesRejectedByCode = {};
     private CodeEntity[] hideRejectionNotesWithCode = {};
     private ScheduledFuture<?> writePendingRSP;
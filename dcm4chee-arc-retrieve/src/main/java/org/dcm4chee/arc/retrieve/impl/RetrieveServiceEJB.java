@@ -41,6 +41,7 @@
 package org.dcm4chee.arc.retrieve.impl;
 
 import org.dcm4chee.arc.entity.Completeness;
+import org.dcm4chee.arc.entity.Location;
 import org.dcm4chee.arc.entity.Series;
 import org.dcm4chee.arc.entity.Study;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
@@ -48,6 +49,9 @@ import org.dcm4chee.arc.retrieve.RetrieveContext;
 import javax.ejb.Stateless;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -65,6 +69,20 @@ public class RetrieveServiceEJB {
                 .executeUpdate();
     }
 
+    public Map<String, Long> findStoragePathsAndSizesOfStudy(String studyIUID, String storageID) {
+        List<Object[]> resultList = em.createNamedQuery(
+                Location.FIND_STORAGE_PATH_AND_SIZE_BY_STUDY_IUID_AND_STORAGE_ID, Object[].class)
+                .setParameter(1, studyIUID)
+                .setParameter(2, storageID)
+                .setParameter(3, Location.ObjectType.DICOM_FILE)
+                .setParameter(4, Location.Status.OK)
+                .getResultList();
+        Map<String, Long> sizeByStoragePath = new LinkedHashMap<>(resultList.size() * 4 / 3 + 1);
+        for (Object[] result : resultList)
+            sizeByStoragePath.put((String) result[0], (Long) result[1]);
+        return sizeByStoragePath;
+    }
+
     public void updateCompleteness(RetrieveContext ctx, Completeness completeness) {
         String[] studyIUIDs = ctx.getStudyInstanceUIDs();
         String[] seriesIUIDs = ctx.getSeriesInstanceUIDs();
@@ -59,6 +59,7 @@ import org.dcm4che3.net.service.DicomServiceException;
 import org.dcm4che3.net.service.QueryRetrieveLevel2;
 import org.dcm4che3.util.SafeClose;
 import org.dcm4che3.util.StringUtils;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.LeadingCFindSCPQueryCache;
 import org.dcm4chee.arc.conf.*;
 import org.dcm4chee.arc.entity.*;
@@ -67,6 +68,7 @@ import org.dcm4chee.arc.query.scu.CFindSCUAttributeCoercion;
 import org.dcm4chee.arc.retrieve.*;
 import org.dcm4chee.arc.code.CodeCache;
 import org.dcm4chee.arc.query.util.QueryBuilder;
+import org.dcm4chee.arc.storage.ReadCacheStorage;
 import org.dcm4chee.arc.storage.ReadContext;
 import org.dcm4chee.arc.storage.Storage;
 import org.dcm4chee.arc.storage.StorageFactory;
@@ -177,6 +179,9 @@ public class RetrieveServiceImpl implements RetrieveService {
     @Inject
     private LeadingCFindSCPQueryCache leadingCFindSCPQueryCache;
 
+    @Inject
+    private AssociationPool associationPool;
+
     StatelessSession openStatelessSession() {
         return em.unwrap(Session.class).getSessionFactory().openStatelessSession();
     }
@@ -764,7 +769,7 @@ public class RetrieveServiceImpl implements RetrieveService {
                     rqas, moveSCP, e);
         }
         try {
-            fwdas.release();
+            associationPool.release(fwdas);
         } catch (IOException e) {
             LOG.warn("{}: failed to release association to {}:\n", rqas, moveSCP, e);
         }
@@ -879,7 +884,9 @@ public class RetrieveServiceImpl implements RetrieveService {
         for (Location location : inst.getLocations()) {
             if (location.getObjectType() == Location.ObjectType.DICOM_FILE)
                 try {
-                    return openLocationInputStream(getStorage(location.getStorageID(), ctx), location, studyInstanceUID);
+                    Storage storage = getStorage(location.getStorageID(), ctx);
+                    prefetch(storage, studyInstanceUID);
+                    return openLocationInputStream(storage, location, studyInstanceUID);
                 } catch (IOException e) {
                     ex = e;
                 }
@@ -888,6 +895,16 @@ public class RetrieveServiceImpl implements RetrieveService {
         return null;
     }
 
+    private void prefetch(Storage storage, String studyInstanceUID) {
+        if (storage instanceof ReadCacheStorage) {
+            ReadCacheStorage readCacheStorage = (ReadCacheStorage) storage;
+            if (readCacheStorage.markPrefetch(studyInstanceUID))
+                readCacheStorage.prefetch(studyInstanceUID,
+                        ejb.findStoragePathsAndSizesOfStudy(studyInstanceUID,
+                                storage.getStorageDescriptor().getStorageID()));
+        }
+    }
+
     private LocationDicomInputStream openLocationInputStream(
             Storage storage, Location location, String studyInstanceUID)
             throws IOException {
@@ -911,9 +928,14 @@ public class RetrieveServiceImpl implements RetrieveService {
     private Storage getStorage(String storageID, RetrieveContext ctx) {
         Storage storage = ctx.getStorage(storageID);
         if (storage == null) {
-            ArchiveDeviceExtension arcDev = getArchiveDeviceExtension();
-            storage = storageFactory.getStorage(arcDev.getStorageDescriptorNotNull(storageID));
-            ctx.putStorage(storageID, storage);
+            synchronized (ctx) { // may be invoked concurrently by parallel rendering of WADO-RS
+                storage = ctx.getStorage(storageID);
+                if (storage == null) {
+                    ArchiveDeviceExtension arcDev = getArchiveDeviceExtension();
+                    storage = storageFactory.getStorage(arcDev.getStorageDescriptorNotNull(storageID));
+                    ctx.putStorage(storageID, storage);
+                }
+            }
         }
         return storage;
     }
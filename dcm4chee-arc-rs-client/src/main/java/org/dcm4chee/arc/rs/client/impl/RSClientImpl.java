@@ -40,6 +40,7 @@
 
 package org.dcm4chee.arc.rs.client.impl;
 
+import org.dcm4chee.arc.HttpClientPool;
 import org.dcm4chee.arc.entity.QueueMessage;
 import org.dcm4chee.arc.qmgt.Outcome;
 import org.dcm4chee.arc.qmgt.QueueManager;
@@ -51,7 +52,6 @@ import javax.jms.JMSException;
 import javax.jms.JMSRuntimeException;
 import javax.jms.ObjectMessage;
 import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
@@ -67,6 +67,9 @@ public class RSClientImpl implements RSClient {
     @Inject
     private QueueManager queueManager;
 
+    @Inject
+    private HttpClientPool httpClientPool;
+
     @Override
     public void scheduleRequest(String method, String uri, byte[] content) {
         try {
@@ -81,24 +84,29 @@ public class RSClientImpl implements RSClient {
 
     @Override
     public Outcome request(String method, String uri, byte[] content) throws Exception {
-        Client client = ClientBuilder.newBuilder().build();
-        WebTarget target = client.target(uri);
-        Response response = null;
-        Outcome outcome;
-        switch (method) {
-            case "DELETE":
-                response = target.request().delete();
-                break;
-            case "POST":
-                response = target.request().post(Entity.json(content));
-                break;
-            case "PUT":
-                response = target.request().put(Entity.json(content));
-                break;
+        Client client = httpClientPool.getClient();
+        try {
+            WebTarget target = client.target(uri);
+            Response response = null;
+            switch (method) {
+                case "DELETE":
+                    response = target.request().delete();
+                    break;
+                case "POST":
+                    response = target.request().post(Entity.json(content));
+                    break;
+                case "PUT":
+                    response = target.request().put(Entity.json(content));
+                    break;
+            }
+            try {
+                return buildOutcome(Response.Status.fromStatusCode(response.getStatus()), response.getStatusInfo());
+            } finally {
+                response.close();
+            }
+        } finally {
+            httpClientPool.release(client);
         }
-        outcome = buildOutcome(Response.Status.fromStatusCode(response.getStatus()), response.getStatusInfo());
-        response.close();
-        return outcome;
     }
 
     private Outcome buildOutcome(Response.Status status, Response.StatusType st) {
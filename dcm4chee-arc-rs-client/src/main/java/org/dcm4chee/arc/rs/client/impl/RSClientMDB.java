@@ -85,7 +85,7 @@ public class RSClientMDB implements MessageListener {
         } catch (JMSException e) {
             LOG.error("Failed to process {}", msg, e);
         }
-        if (queueManager.onProcessingStart(msgID) == null)
+        if (!queueManager.onProcessingStart(msgID))
             return;
         try {
             byte[] content = (byte[]) ((ObjectMessage) msg).getObject();
@@ -0,0 +1,102 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc;
+
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.pdu.PresentationContext;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Caches Transfer Syntaxes accepted by Storage SCPs per SOP Class, keyed by calling and called AE Title.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class AcceptedTransferSyntaxCache extends Cache<String,Map<String,Set<String>>> {
+
+    /**
+     * Merges the result of the Presentation Context negotiation of {@code as} into the cached Transfer Syntaxes:
+     * accepted Transfer Syntaxes are added, proposed but not accepted Transfer Syntaxes are removed. SOP Classes
+     * for which no Presentation Context was accepted are removed.
+     */
+    public synchronized void update(String key, Association as) {
+        Map<String, Set<String>> prev = get(key);
+        Map<String, Set<String>> proposed = new HashMap<>();
+        for (PresentationContext pc : as.getAAssociateRQ().getPresentationContexts()) {
+            Set<String> tsuids = proposed.get(pc.getAbstractSyntax());
+            if (tsuids == null)
+                proposed.put(pc.getAbstractSyntax(), tsuids = new HashSet<>());
+            for (String tsuid : pc.getTransferSyntaxes())
+                tsuids.add(tsuid);
+        }
+        Map<String, Set<String>> accepted = new HashMap<>();
+        if (prev != null)
+            accepted.putAll(prev);
+        boolean updated = false;
+        for (Map.Entry<String, Set<String>> entry : proposed.entrySet()) {
+            String cuid = entry.getKey();
+            Set<String> acceptedTSs = as.getTransferSyntaxesFor(cuid);
+            if (acceptedTSs.isEmpty()) {
+                updated |= accepted.remove(cuid) != null;
+                continue;
+            }
+            Set<String> prevTSs = accepted.get(cuid);
+            Set<String> mergedTSs = new HashSet<>();
+            if (prevTSs != null) {
+                mergedTSs.addAll(prevTSs);
+                mergedTSs.removeAll(entry.getValue());
+            }
+            mergedTSs.addAll(acceptedTSs);
+            if (!mergedTSs.equals(prevTSs)) {
+                accepted.put(cuid, mergedTSs);
+                updated = true;
+            }
+        }
+        if (updated)
+            put(key, accepted);
+    }
+}
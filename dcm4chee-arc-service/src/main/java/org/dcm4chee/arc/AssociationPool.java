@@ -0,0 +1,311 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc;
+
+import org.dcm4che3.net.ApplicationEntity;
+import org.dcm4che3.net.Association;
+import org.dcm4che3.net.AssociationListener;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.net.IncompatibleConnectionException;
+import org.dcm4che3.net.pdu.AAssociateAC;
+import org.dcm4che3.net.pdu.AAssociateRQ;
+import org.dcm4che3.net.pdu.ExtendedNegotiation;
+import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4che3.net.pdu.RoleSelection;
+import org.dcm4che3.net.pdu.UserIdentityRQ;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.Duration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.*;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pool of idle outbound associations, keyed by local AE, remote AE, Calling AE Title and User Identity. An idle
+ * association is reused for a subsequent request, if the remote AE accepted each requested Abstract Syntax with one
+ * of the requested Transfer Syntaxes and its A-ASSOCIATE-RQ contains all requested Extended Negotiations and Role
+ * Selections. Idle associations are released after the configured idle timeout; outbound
+ * associations are not pooled at all, if no idle timeout is configured.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class AssociationPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AssociationPool.class);
+    private static final String POOL_KEY = AssociationPool.class.getName() + ".key";
+    private static final String RELEASE_LISTENERS = AssociationPool.class.getName() + ".releaseListeners";
+
+    @Inject
+    private Device device;
+
+    private final Map<String, Deque<IdleAssociation>> idleAssociations = new HashMap<>();
+
+    /**
+     * Returns an idle pooled association to {@code remoteAE} with accepted Presentation Contexts for all Abstract
+     * Syntaxes of {@code aarq}, or opens a new association, if there is none.
+     */
+    public Association open(ApplicationEntity localAE, ApplicationEntity remoteAE, AAssociateRQ aarq)
+            throws IOException, InterruptedException, IncompatibleConnectionException, GeneralSecurityException {
+        String key = keyOf(localAE.getAETitle(), remoteAE.getAETitle(),
+                aarq.getCallingAET() != null ? aarq.getCallingAET() : localAE.getAETitle(),
+                aarq.getUserIdentityRQ());
+        Association as = borrow(key, aarq);
+        if (as != null) {
+            LOG.debug("{}: reuse pooled association", as);
+            return as;
+        }
+        as = localAE.connect(remoteAE, aarq);
+        if (idleTimeout() != null)
+            as.setProperty(POOL_KEY, key);
+        return as;
+    }
+
+    /**
+     * Returns association to the pool, if it was opened by {@link #open} with pooling enabled and is still
+     * ready for data transfer, otherwise releases it. The caller has to wait for outstanding responses before.
+     */
+    public void release(Association as) throws IOException {
+        fireReleaseListeners(as);
+        String key = (String) as.getProperty(POOL_KEY);
+        if (key == null || !as.isReadyForDataTransfer() || !offer(key, as))
+            as.release();
+    }
+
+    /**
+     * Registers {@code listener} to be notified, when the association is returned to the pool by
+     * {@link #release} or closed, whichever happens first.
+     */
+    public void addReleaseListener(Association as, AssociationListener listener) {
+        ReleaseListener releaseListener = new ReleaseListener(listener);
+        as.addAssociationListener(releaseListener);
+        releaseListeners(as).add(releaseListener);
+    }
+
+    @PreDestroy
+    public void releaseAll() {
+        List<IdleAssociation> list = new ArrayList<>();
+        synchronized (idleAssociations) {
+            for (Deque<IdleAssociation> deque : idleAssociations.values())
+                list.addAll(deque);
+            idleAssociations.clear();
+        }
+        for (IdleAssociation idle : list)
+            idle.close();
+    }
+
+    private Association borrow(String key, AAssociateRQ aarq) {
+        while (true) {
+            IdleAssociation idle = null;
+            synchronized (idleAssociations) {
+                Deque<IdleAssociation> deque = idleAssociations.get(key);
+                if (deque == null)
+                    return null;
+
+                for (Iterator<IdleAssociation> iter = deque.iterator(); iter.hasNext();) {
+                    IdleAssociation next = iter.next();
+                    if (covers(next.as, aarq)) {
+                        iter.remove();
+                        idle = next;
+                        break;
+                    }
+                }
+                if (deque.isEmpty())
+                    idleAssociations.remove(key);
+            }
+            if (idle == null)
+                return null;
+
+            idle.timeout.cancel(false);
+            if (idle.as.isReadyForDataTransfer())
+                return idle.as;
+
+            LOG.info("{}: discard pooled association which is no longer ready for data transfer", idle.as);
+        }
+    }
+
+    private boolean offer(String key, Association as) {
+        Duration idleTimeout = idleTimeout();
+        if (idleTimeout == null)
+            return false;
+
+        IdleAssociation idle = new IdleAssociation(key, as);
+        synchronized (idleAssociations) {
+            Deque<IdleAssociation> deque = idleAssociations.get(key);
+            if (deque == null)
+                idleAssociations.put(key, deque = new ArrayDeque<>());
+            else if (deque.size() >= arcDev().getAssociationPoolMaxIdle())
+                return false;
+            deque.addFirst(idle);
+            idle.timeout = device.schedule(idle, idleTimeout.getSeconds(), TimeUnit.SECONDS);
+        }
+        LOG.debug("{}: return association to pool", as);
+        return true;
+    }
+
+    private void expire(IdleAssociation idle) {
+        synchronized (idleAssociations) {
+            Deque<IdleAssociation> deque = idleAssociations.get(idle.key);
+            if (deque == null || !deque.remove(idle))
+                return;
+
+            if (deque.isEmpty())
+                idleAssociations.remove(idle.key);
+        }
+        LOG.debug("{}: release pooled association after idle timeout", idle.as);
+        idle.close();
+    }
+
+    private static boolean covers(Association as, AAssociateRQ rq) {
+        AAssociateRQ pooled = as.getAAssociateRQ();
+        AAssociateAC pooledAC = as.getAAssociateAC();
+        for (PresentationContext pc : rq.getPresentationContexts()) {
+            if (!covers(pooled.getPresentationContexts(), pooledAC, pc))
+                return false;
+        }
+        for (ExtendedNegotiation extNeg : rq.getExtendedNegotiations()) {
+            ExtendedNegotiation pooledExtNeg = pooled.getExtNegotiationFor(extNeg.getSOPClassUID());
+            if (pooledExtNeg == null || !Arrays.equals(pooledExtNeg.getInformation(), extNeg.getInformation()))
+                return false;
+        }
+        for (RoleSelection rs : rq.getRoleSelections()) {
+            RoleSelection pooledRS = pooled.getRoleSelectionFor(rs.getSOPClassUID());
+            if (pooledRS == null || pooledRS.isSCU() != rs.isSCU() || pooledRS.isSCP() != rs.isSCP())
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean covers(Collection<PresentationContext> pooledPCs, AAssociateAC pooledAC,
+            PresentationContext pc) {
+        for (PresentationContext pooledPC : pooledPCs) {
+            if (!pooledPC.getAbstractSyntax().equals(pc.getAbstractSyntax()))
+                continue;
+
+            PresentationContext acceptedPC = pooledAC.getPresentationContext(pooledPC.getPCID());
+            if (acceptedPC != null && acceptedPC.isAccepted()
+                    && Arrays.asList(pc.getTransferSyntaxes()).contains(acceptedPC.getTransferSyntax()))
+                return true;
+        }
+        return false;
+    }
+
+    private static String keyOf(String localAET, String remoteAET, String callingAET, UserIdentityRQ userIdentity) {
+        String key = localAET + '\\' + remoteAET + '\\' + callingAET;
+        return userIdentity != null ? key + '\\' + userIdentity.getType() + ':' + userIdentity.getUsername() : key;
+    }
+
+    private Duration idleTimeout() {
+        return arcDev().getAssociationPoolIdleTimeout();
+    }
+
+    private ArchiveDeviceExtension arcDev() {
+        return device.getDeviceExtension(ArchiveDeviceExtension.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<ReleaseListener> releaseListeners(Association as) {
+        List<ReleaseListener> list = (List<ReleaseListener>) as.getProperty(RELEASE_LISTENERS);
+        if (list == null)
+            as.setProperty(RELEASE_LISTENERS, list = new ArrayList<>(1));
+        return list;
+    }
+
+    private static void fireReleaseListeners(Association as) {
+        List<ReleaseListener> list = releaseListeners(as);
+        for (ReleaseListener listener : list) {
+            as.removeAssociationListener(listener);
+            listener.onClose(as);
+        }
+        list.clear();
+    }
+
+    private static class ReleaseListener implements AssociationListener {
+        private final AssociationListener listener;
+        private final AtomicBoolean fired = new AtomicBoolean();
+
+        ReleaseListener(AssociationListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public void onClose(Association as) {
+            if (fired.compareAndSet(false, true))
+                listener.onClose(as);
+        }
+    }
+
+    private class IdleAssociation implements Runnable {
+        final String key;
+        final Association as;
+        ScheduledFuture<?> timeout;
+
+        IdleAssociation(String key, Association as) {
+            this.key = key;
+            this.as = as;
+        }
+
+        @Override
+        public void run() {
+            expire(this);
+        }
+
+        void close() {
+            if (timeout != null)
+                timeout.cancel(false);
+            try {
+                as.release();
+            } catch (IOException e) {
+                LOG.info("{}: failed to release pooled association:\n", as, e);
+            }
+        }
+    }
+}
@@ -64,6 +64,7 @@ public class Cache<K,V> {
 
     private int maxSize;
     private long staleTimeout;
+    private long refreshTimeout;
 
     private final LinkedHashMap<K,Entry<V>> cache = new LinkedHashMap<K,Entry<V>>(){
         @Override
@@ -72,11 +73,11 @@ public class Cache<K,V> {
         }
     };
 
-    public int getMaxSize() {
+    public synchronized int getMaxSize() {
         return maxSize;
     }
 
-    public void setMaxSize(int maxSize) {
+    public synchronized void setMaxSize(int maxSize) {
         if (maxSize > 0) {
             int remove = cache.size() - maxSize;
             if (remove > 0) {
@@ -90,15 +91,27 @@ public class Cache<K,V> {
         this.maxSize = maxSize;
     }
 
-    public long getStaleTimeout() {
+    public synchronized long getStaleTimeout() {
         return staleTimeout;
     }
 
-    public void setStaleTimeout(long staleTimeout) {
+    public synchronized void setStaleTimeout(long staleTimeout) {
         this.staleTimeout = staleTimeout;
     }
 
-    public Entry<V> getEntry(K key) {
+    public synchronized long getRefreshTimeout() {
+        return refreshTimeout;
+    }
+
+    public synchronized void setRefreshTimeout(long refreshTimeout) {
+        this.refreshTimeout = refreshTimeout;
+    }
+
+    public synchronized boolean isDueToRefresh(Entry<V> entry) {
+        return refreshTimeout > 0 && entry.fetchTime < System.currentTimeMillis() - refreshTimeout;
+    }
+
+    public synchronized Entry<V> getEntry(K key) {
         if (staleTimeout <= 0)
             return cache.get(key);
 
@@ -114,17 +127,17 @@ public class Cache<K,V> {
         return entry != null ? entry.value : null;
     }
 
-    public V put(K key, V value) {
+    public synchronized V put(K key, V value) {
         Entry<V> entry = cache.put(key, new Entry<V>(value, System.currentTimeMillis()));
         return entry != null ? entry.value : null;
     }
 
-    public V remove(K key) {
+    public synchronized V remove(K key) {
         Entry<V> entry = cache.remove(key);
         return entry != null ? entry.value : null;
     }
 
-    public void clear() {
+    public synchronized void clear() {
         cache.clear();
     }
 }
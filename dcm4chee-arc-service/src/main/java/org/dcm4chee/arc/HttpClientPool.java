@@ -0,0 +1,190 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc;
+
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.Duration;
+import org.jboss.resteasy.client.jaxrs.ResteasyClientBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.ws.rs.client.Client;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Provides a JAX-RS client shared by all outbound REST requests of the archive, which keeps connections to
+ * remote hosts alive in a pool, limited by the configured maximal number of connections in total and per host.
+ * The client is re-created on the next request after a change of its configuration. Callers have to return the
+ * client by {@link #release} after completion of their request, so a replaced client is closed as soon as its
+ * pending requests are completed. At most {@value #MAX_RETIRED_CLIENTS} replaced clients are kept open for pending
+ * requests; if there are more, the oldest one is closed immediately.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class HttpClientPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(HttpClientPool.class);
+    private static final int MAX_RETIRED_CLIENTS = 4;
+
+    @Inject
+    private Device device;
+
+    private PooledClient current;
+    private final Deque<PooledClient> retiredClients = new ArrayDeque<>();
+
+    /**
+     * Returns the current client; the caller has to invoke {@link #release} after completion of its request.
+     */
+    public Client getClient() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        List<Object> config = Arrays.<Object>asList(
+                arcDev.getHttpClientMaxConnections(),
+                arcDev.getHttpClientMaxConnectionsPerHost(),
+                arcDev.getHttpClientConnectTimeout(),
+                arcDev.getHttpClientReadTimeout());
+        List<Client> toClose = new ArrayList<>(2);
+        Client client;
+        synchronized (this) {
+            if (current == null || !config.equals(current.config)) {
+                if (current != null)
+                    retire(current, toClose);
+                current = new PooledClient(createClient(arcDev), config);
+            }
+            current.inUse++;
+            client = current.client;
+        }
+        closeAll(toClose);
+        return client;
+    }
+
+    /**
+     * Returns {@code client} obtained by {@link #getClient}. Closes it, if it was replaced in the meantime and has no
+     * further pending requests.
+     */
+    public void release(Client client) {
+        Client toClose = null;
+        synchronized (this) {
+            if (current != null && current.client == client) {
+                current.inUse--;
+                return;
+            }
+            for (Iterator<PooledClient> iter = retiredClients.iterator(); iter.hasNext();) {
+                PooledClient retired = iter.next();
+                if (retired.client == client) {
+                    if (--retired.inUse == 0) {
+                        iter.remove();
+                        toClose = client;
+                    }
+                    break;
+                }
+            }
+        }
+        if (toClose != null) {
+            LOG.info("Close replaced HTTP client after completion of pending requests");
+            toClose.close();
+        }
+    }
+
+    private void retire(PooledClient pooled, List<Client> toClose) {
+        if (pooled.inUse == 0) {
+            toClose.add(pooled.client);
+            return;
+        }
+        retiredClients.add(pooled);
+        if (retiredClients.size() > MAX_RETIRED_CLIENTS) {
+            PooledClient oldest = retiredClients.remove();
+            LOG.warn("Close replaced HTTP client with {} pending requests", oldest.inUse);
+            toClose.add(oldest.client);
+        }
+    }
+
+    private static void closeAll(List<Client> clients) {
+        for (Client client : clients)
+            client.close();
+    }
+    private static Client createClient(ArchiveDeviceExtension arcDev) {
+        ResteasyClientBuilder builder = new ResteasyClientBuilder()
+                .connectionPoolSize(arcDev.getHttpClientMaxConnections())
+                .maxPooledPerRoute(arcDev.getHttpClientMaxConnectionsPerHost());
+        Duration connectTimeout = arcDev.getHttpClientConnectTimeout();
+        if (connectTimeout != null)
+            builder.establishConnectionTimeout(connectTimeout.getSeconds(), TimeUnit.SECONDS);
+        Duration readTimeout = arcDev.getHttpClientReadTimeout();
+        if (readTimeout != null)
+            builder.socketTimeout(readTimeout.getSeconds(), TimeUnit.SECONDS);
+        LOG.info("Create HTTP client with max {} connections, max {} connections per host",
+                arcDev.getHttpClientMaxConnections(), arcDev.getHttpClientMaxConnectionsPerHost());
+        return builder.build();
+    }
+
+    @PreDestroy
+    public void close() {
+        List<Client> toClose = new ArrayList<>();
+        synchronized (this) {
+            if (current != null) {
+                toClose.add(current.client);
+                current = null;
+            }
+            for (PooledClient retired : retiredClients)
+                toClose.add(retired.client);
+            retiredClients.clear();
+        }
+        closeAll(toClose);
+    }
+
+    private static class PooledClient {
+        final Client client;
+        final List<Object> config;
+        int inUse;
+
+        PooledClient(Client client, List<Object> config) {
+            this.client = client;
+            this.config = config;
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc;
+
+import org.dcm4che3.data.IDWithIssuer;
+
+import javax.enterprise.context.ApplicationScoped;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caches the resolution of Patient IDs to the primary key of the Patient record and of the Patient it was merged
+ * with. Entries are grouped by the Patient ID value, so all entries for one ID - with or without different
+ * Issuers - can be invalidated together.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class PatientCache {
+
+    public static final class Entry {
+        private final long patientPk;
+        private final long mergedWithPk;
+        private final long fetchTime;
+
+        public Entry(long patientPk, long mergedWithPk) {
+            this.patientPk = patientPk;
+            this.mergedWithPk = mergedWithPk;
+            this.fetchTime = System.currentTimeMillis();
+        }
+
+        public long getPatientPk() {
+            return patientPk;
+        }
+
+        /**
+         * @return primary key of the Patient finally merged with or {@code 0}, if the Patient is not merged
+         */
+        public long getMergedWithPk() {
+            return mergedWithPk;
+        }
+    }
+
+    private int maxSize;
+    private long staleTimeout;
+    private long generation;
+    private long prunedGeneration;
+
+    private final LinkedHashMap<String,Map<IDWithIssuer,Entry>> cache =
+            new LinkedHashMap<String,Map<IDWithIssuer,Entry>>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Map<IDWithIssuer,Entry>> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private final LinkedHashMap<String,Long> invalidated = new LinkedHashMap<String,Long>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String,Long> eldest) {
+            if (size() <= maxSize)
+                return false;
+
+            prunedGeneration = eldest.getValue();
+            return true;
+        }
+    };
+
+    public synchronized int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized void setMaxSize(int maxSize) {
+        int remove = cache.size() - maxSize;
+        if (remove > 0) {
+            Iterator<String> iter = cache.keySet().iterator();
+            do {
+                iter.next();
+                iter.remove();
+            } while (--remove > 0);
+        }
+        remove = invalidated.size() - maxSize;
+        if (remove > 0) {
+            Iterator<Long> iter = invalidated.values().iterator();
+            do {
+                prunedGeneration = iter.next();
+                iter.remove();
+            } while (--remove > 0);
+        }
+        this.maxSize = maxSize;
+    }
+
+    public synchronized long getStaleTimeout() {
+        return staleTimeout;
+    }
+
+    public synchronized void setStaleTimeout(long staleTimeout) {
+        this.staleTimeout = staleTimeout;
+    }
+
+    /**
+     * Returns the current generation of the cache, which has to be passed to a subsequent
+     * {@link #put(IDWithIssuer, Entry, long)} of a value fetched from the database. The generation is incremented by
+     * each invalidation, which is recorded with the invalidated Patient ID, so only values fetched for that Patient
+     * ID before its invalidation are rejected.
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    public synchronized Entry get(IDWithIssuer pid) {
+        Map<IDWithIssuer,Entry> entries = cache.get(pid.getID());
+        if (entries == null)
+            return null;
+
+        Entry entry = entries.get(pid);
+        if (entry != null && staleTimeout > 0 && entry.fetchTime + staleTimeout < System.currentTimeMillis()) {
+            entries.remove(pid);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the entry, if there was no invalidation of its Patient ID since {@code generation} was obtained by
+     * {@link #generation()} before fetching the value from the database.
+     */
+    public synchronized void put(IDWithIssuer pid, Entry entry, long generation) {
+        if (maxSize == 0 || invalidatedSince(pid.getID(), generation))
+            return;
+
+        Map<IDWithIssuer,Entry> entries = cache.get(pid.getID());
+        if (entries == null)
+            cache.put(pid.getID(), entries = new HashMap<>(2));
+        entries.put(pid, entry);
+    }
+
+    public void invalidate(IDWithIssuer pid) {
+        if (pid != null)
+            invalidate(pid.getID());
+    }
+
+    public synchronized void invalidate(String patientID) {
+        generation++;
+        cache.remove(patientID);
+        invalidated.remove(patientID);
+        invalidated.put(patientID, generation);
+    }
+
+    public synchronized void clear() {
+        generation++;
+        prunedGeneration = generation;
+        cache.clear();
+        invalidated.clear();
+    }
+
+    private boolean invalidatedSince(String patientID, long generation) {
+        if (generation < prunedGeneration)
+            return true;
+
+        Long invalidatedGeneration = invalidated.get(patientID);
+        return invalidatedGeneration != null && invalidatedGeneration > generation;
+    }
+}
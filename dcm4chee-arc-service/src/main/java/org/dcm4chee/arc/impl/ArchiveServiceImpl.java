@@ -103,9 +103,15 @@ public class ArchiveServiceImpl implements ArchiveService {
     @Inject
     private MergeMWLCache mergeMWLCache;
 
+    @Inject
+    private AcceptedTransferSyntaxCache acceptedTransferSyntaxCache;
+
     @Inject
     private StorePermissionCache storePermissionCache;
 
+    @Inject
+    private PatientCache patientCache;
+
     @Inject
     private Device device;
 
@@ -213,13 +219,21 @@ public class ArchiveServiceImpl implements ArchiveService {
         hl7AppCache.setStaleTimeout(arcdev.getAECacheStaleTimeoutSeconds());
         leadingCFindSCPQueryCache.setStaleTimeout(
                 arcdev.getLeadingCFindSCPQueryCacheStaleTimeoutSeconds() * 1000L);
+        leadingCFindSCPQueryCache.setRefreshTimeout(
+                arcdev.getLeadingCFindSCPQueryCacheRefreshTimeoutSeconds() * 1000L);
         leadingCFindSCPQueryCache.setMaxSize(arcdev.getLeadingCFindSCPQueryCacheSize());
+        acceptedTransferSyntaxCache.setStaleTimeout(
+                arcdev.getAcceptedTransferSyntaxCacheStaleTimeoutSeconds() * 1000L);
+        acceptedTransferSyntaxCache.setMaxSize(arcdev.getAcceptedTransferSyntaxCacheSize());
         mergeMWLCache.setStaleTimeout(
                 arcdev.getMergeMWLCacheStaleTimeoutSeconds() * 1000L);
         mergeMWLCache.setMaxSize(arcdev.getMergeMWLCacheSize());
         storePermissionCache.setStaleTimeout(
                 arcdev.getStorePermissionCacheStaleTimeoutSeconds() * 1000L);
         storePermissionCache.setMaxSize(arcdev.getStorePermissionCacheSize());
+        patientCache.setStaleTimeout(
+                arcdev.getPatientCacheStaleTimeoutSeconds() * 1000L);
+        patientCache.setMaxSize(arcdev.getPatientCacheSize());
         Patient.setShowPatientInfo(arcdev.showPatientInfoInSystemLog());
     }
 
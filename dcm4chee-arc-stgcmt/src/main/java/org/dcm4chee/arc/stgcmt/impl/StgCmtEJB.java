@@ -318,7 +318,7 @@ public class StgCmtEJB implements StgCmtManager {
     private Storage getStorage(HashMap<String, Storage> storageMap, String storageID) {
         Storage storage = storageMap.get(storageID);
         if (storage == null) {
-            storage = storageFactory.getStorage(
+            storage = storageFactory.getUncachedStorage(
                     device.getDeviceExtension(ArchiveDeviceExtension.class).getStorageDescriptorNotNull(storageID));
             storageMap.put(storageID, storage);
         }
@@ -107,7 +107,7 @@ public class StgCmtSCPMDB implements MessageListener {
         } catch (JMSException e) {
             LOG.error("Failed to process {}", msg, e);
         }
-        if (queueManager.onProcessingStart(msgID) == null)
+        if (!queueManager.onProcessingStart(msgID))
             return;
         try {
             String localAET = msg.getStringProperty("LocalAET");
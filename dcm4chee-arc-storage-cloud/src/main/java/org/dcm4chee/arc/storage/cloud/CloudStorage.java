@@ -44,22 +44,33 @@ import org.dcm4che3.net.Device;
 import org.dcm4che3.util.AttributesFormat;
 import org.dcm4chee.arc.conf.StorageDescriptor;
 import org.dcm4chee.arc.storage.AbstractStorage;
+import org.dcm4chee.arc.storage.AsyncStorage;
+import org.dcm4chee.arc.storage.ExecutorAsyncStorage;
+import org.dcm4chee.arc.storage.ObjectVisitor;
 import org.dcm4chee.arc.storage.ReadContext;
 import org.dcm4chee.arc.storage.WriteContext;
 import org.jclouds.ContextBuilder;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.StorageType;
+import org.jclouds.blobstore.options.ListContainerOptions;
 import org.jclouds.io.Payload;
 import org.jclouds.io.payloads.InputStreamPayload;
 import org.jclouds.logging.slf4j.config.SLF4JLoggingModule;
 
 import java.io.*;
+import java.nio.channels.AsynchronousByteChannel;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Map;
 import java.util.Properties;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -84,8 +95,8 @@ public class CloudStorage extends AbstractStorage {
     private final AttributesFormat pathFormat;
     private final String container;
     private final BlobStoreContext context;
-    private final Uploader uploader;
-    private int count;
+    private final boolean s3;
+    private volatile boolean containerExists;
 
     @Override
     public WriteContext createWriteContext() {
@@ -97,7 +108,7 @@ public class CloudStorage extends AbstractStorage {
         this.device = device;
         pathFormat = new AttributesFormat(descriptor.getProperty("pathFormat", DEFAULT_PATH_FORMAT));
         container = descriptor.getProperty("container", DEFAULT_CONTAINER);
-        if (Boolean.parseBoolean(descriptor.getProperty("containerExists", null))) count++;
+        containerExists = Boolean.parseBoolean(descriptor.getProperty("containerExists", null));
         String api = descriptor.getStorageURI().getSchemeSpecificPart();
         String endpoint = null;
         int endApi = api.indexOf(':');
@@ -105,7 +116,7 @@ public class CloudStorage extends AbstractStorage {
             endpoint = api.substring(endApi + 1);
             api = api.substring(0, endApi);
         }
-        this.uploader = api.endsWith("s3") ? new S3Uploader() : DEFAULT_UPLOADER;
+        this.s3 = api.endsWith("s3");
         ContextBuilder ctxBuilder = ContextBuilder.newBuilder(api);
         String identity = descriptor.getProperty("identity", null);
         if (identity != null)
@@ -123,8 +134,25 @@ public class CloudStorage extends AbstractStorage {
         context = ctxBuilder.buildView(BlobStoreContext.class);
     }
 
+    @Override
+    public AsyncStorage async(Executor executor) {
+        return new ExecutorAsyncStorage(this, executor) {
+            @Override
+            public CompletableFuture<Void> storeObject(final WriteContext ctx, final AsynchronousByteChannel src) {
+                ctx.setStoragePath(uniqueStoragePath(ctx));
+                return runAsync(new IOTask() {
+                    @Override
+                    public void run() throws IOException {
+                        upload(ctx, newInputStream(src, ctx));
+                    }
+                });
+            }
+        };
+    }
+
     @Override
     protected OutputStream openOutputStreamA(final WriteContext ctx) throws IOException {
+        ctx.setStoragePath(uniqueStoragePath(ctx));
         final PipedInputStream in = new PipedInputStream();
         FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
             @Override
@@ -157,18 +185,59 @@ public class CloudStorage extends AbstractStorage {
         }
     }
 
+    /**
+     * Appends a random 64-bit suffix to the formatted path, so concurrent uploads never target the same blob,
+     * without checking for an existing blob by a remote request.
+     */
+    private String uniqueStoragePath(WriteContext ctx) {
+        return pathFormat.format(ctx.getAttributes()) + '-'
+                + String.format("%016X", ThreadLocalRandom.current().nextLong());
+    }
+
     private void upload(WriteContext ctx, InputStream in) throws IOException {
         BlobStore blobStore = context.getBlobStore();
-        String storagePath = pathFormat.format(ctx.getAttributes());
-        if (count++ == 0 && !blobStore.containerExists(container))
-            blobStore.createContainerInLocation(null, container);
-        else {
-            while (blobStore.blobExists(container, storagePath))
-                storagePath = storagePath.substring(0, storagePath.lastIndexOf('/') + 1)
-                        .concat(String.format("%08X", ThreadLocalRandom.current().nextInt()));
+        ensureContainerExists(blobStore);
+        // S3Uploader buffers parts of one upload, so it cannot be shared by concurrent uploads
+        Uploader uploader = s3 ? new S3Uploader() : DEFAULT_UPLOADER;
+        uploader.upload(context, in, blobStore, container, ctx.getStoragePath());
+    }
+
+    private void ensureContainerExists(BlobStore blobStore) {
+        if (containerExists)
+            return;
+
+        synchronized (this) {
+            if (!containerExists) {
+                if (!blobStore.containerExists(container))
+                    blobStore.createContainerInLocation(null, container);
+                containerExists = true;
+            }
         }
-        uploader.upload(context, in, blobStore, container, storagePath);
-        ctx.setStoragePath(storagePath);
+    }
+
+    @Override
+    public void listObjects(String prefix, ObjectVisitor visitor) throws IOException {
+        BlobStore blobStore = context.getBlobStore();
+        ListContainerOptions options = ListContainerOptions.Builder.recursive();
+        if (prefix != null)
+            options.prefix(prefix);
+        PageSet<? extends StorageMetadata> page;
+        do {
+            page = blobStore.list(container, options);
+            for (StorageMetadata metadata : page) {
+                if (metadata.getType() != StorageType.BLOB)
+                    continue;
+
+                Long size = metadata.getSize();
+                Date lastModified = metadata.getLastModified();
+                if (!visitor.visitObject(metadata.getName(),
+                        size != null ? size : -1L,
+                        lastModified != null ? lastModified.getTime() : 0L))
+                    return;
+            }
+            if (page.getNextMarker() != null)
+                options.afterMarker(page.getNextMarker());
+        } while (page.getNextMarker() != null);
     }
 
     @Override
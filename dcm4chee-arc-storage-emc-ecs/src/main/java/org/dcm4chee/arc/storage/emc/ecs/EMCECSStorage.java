@@ -44,19 +44,29 @@ import com.emc.object.s3.S3Client;
 import com.emc.object.s3.S3Config;
 import com.emc.object.s3.S3Exception;
 import com.emc.object.s3.bean.GetObjectResult;
+import com.emc.object.s3.bean.ListObjectsResult;
+import com.emc.object.s3.bean.S3Object;
+import com.emc.object.s3.request.ListObjectsRequest;
 import com.emc.object.s3.jersey.S3JerseyClient;
 import com.sun.jersey.client.urlconnection.URLConnectionClientHandler;
 import org.dcm4che3.net.Device;
 import org.dcm4che3.util.AttributesFormat;
 import org.dcm4chee.arc.conf.StorageDescriptor;
 import org.dcm4chee.arc.storage.AbstractStorage;
+import org.dcm4chee.arc.storage.AsyncStorage;
+import org.dcm4chee.arc.storage.ExecutorAsyncStorage;
+import org.dcm4chee.arc.storage.ObjectVisitor;
 import org.dcm4chee.arc.storage.ReadContext;
 import org.dcm4chee.arc.storage.WriteContext;
 
 import java.io.*;
 import java.net.URI;
+import java.nio.channels.AsynchronousByteChannel;
+import java.util.Date;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
 import java.util.concurrent.FutureTask;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -81,23 +91,21 @@ public class EMCECSStorage extends AbstractStorage {
     private final AttributesFormat pathFormat;
     private final String container;
     private final S3Client s3;
-    private final Uploader uploader;
-    private int count;
+    private final boolean streaming;
+    private volatile boolean containerExists;
 
     public EMCECSStorage(StorageDescriptor descriptor, Device device) {
         super(descriptor);
         this.device = device;
         pathFormat = new AttributesFormat(descriptor.getProperty("pathFormat", DEFAULT_PATH_FORMAT));
         container = descriptor.getProperty("container", DEFAULT_CONTAINER);
-        if (Boolean.parseBoolean(descriptor.getProperty("containerExists", null))) count++;
+        containerExists = Boolean.parseBoolean(descriptor.getProperty("containerExists", null));
         String endpoint = descriptor.getStorageURI().getSchemeSpecificPart();
         S3Config config = new S3Config(URI.create(endpoint));
         String identity = descriptor.getProperty("identity", null);
         if (identity != null)
             config.withIdentity(identity).withSecretKey(descriptor.getProperty("credential", null));
-        this.uploader = Boolean.parseBoolean(descriptor.getProperty(PROPERTY_STREAMING, null))
-                ? STREAMING_UPLOADER
-                : new S3Uploader();
+        this.streaming = Boolean.parseBoolean(descriptor.getProperty(PROPERTY_STREAMING, null));
         s3 = new S3JerseyClient(config,
                 Boolean.parseBoolean(descriptor.getProperty(PROPERTY_URL_CONNECTION_CLIENT_HANDLER, null))
                         ? new URLConnectionClientHandler()
@@ -109,8 +117,25 @@ public class EMCECSStorage extends AbstractStorage {
         return new EMCECSWriteContext(this);
     }
 
+    @Override
+    public AsyncStorage async(Executor executor) {
+        return new ExecutorAsyncStorage(this, executor) {
+            @Override
+            public CompletableFuture<Void> storeObject(final WriteContext ctx, final AsynchronousByteChannel src) {
+                ctx.setStoragePath(uniqueStoragePath(ctx));
+                return runAsync(new IOTask() {
+                    @Override
+                    public void run() throws IOException {
+                        upload(ctx, newInputStream(src, ctx));
+                    }
+                });
+            }
+        };
+    }
+
     @Override
     protected OutputStream openOutputStreamA(final WriteContext ctx) throws IOException {
+        ctx.setStoragePath(uniqueStoragePath(ctx));
         final PipedInputStream in = new PipedInputStream();
         FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
             @Override
@@ -143,25 +168,54 @@ public class EMCECSStorage extends AbstractStorage {
         }
     }
 
+    private String uniqueStoragePath(WriteContext ctx) {
+        return pathFormat.format(ctx.getAttributes()) + '-'
+                + String.format("%016X", ThreadLocalRandom.current().nextLong());
+    }
+
     private void upload(WriteContext ctx, InputStream in) throws IOException {
-        String storagePath = pathFormat.format(ctx.getAttributes());
-        if (count++ == 0 && !s3.bucketExists(container))
-            s3.createBucket(container);
-        else while (exits(storagePath)) {
-            storagePath = storagePath.substring(0, storagePath.lastIndexOf('/') + 1)
-                    .concat(String.format("%08X", ThreadLocalRandom.current().nextInt()));
-        }
-        uploader.upload(s3, in, container, storagePath);
-        ctx.setStoragePath(storagePath);
+        ensureBucketExists();
+        // S3Uploader buffers parts of one upload, so it cannot be shared by concurrent uploads
+        Uploader uploader = streaming ? STREAMING_UPLOADER : new S3Uploader();
+        uploader.upload(s3, in, container, ctx.getStoragePath());
     }
 
-    private boolean exits(String storagePath) {
-        try {
-            s3.getObjectMetadata(container, storagePath);
-            return true;
-        } catch (S3Exception e) {
+    private void ensureBucketExists() {
+        if (containerExists)
+            return;
+
+        synchronized (this) {
+            if (!containerExists) {
+                if (!s3.bucketExists(container))
+                    s3.createBucket(container);
+                containerExists = true;
+            }
         }
-        return false;
+    }
+
+    @Override
+    public void listObjects(String prefix, ObjectVisitor visitor) throws IOException {
+        ListObjectsRequest request = new ListObjectsRequest(container).withPrefix(prefix);
+        ListObjectsResult result;
+        do {
+            try {
+                result = s3.listObjects(request);
+            } catch (S3Exception e) {
+                throw new IOException(e);
+            }
+            String lastKey = null;
+            for (S3Object object : result.getObjects()) {
+                lastKey = object.getKey();
+                Long size = object.getSize();
+                Date lastModified = object.getLastModified();
+                if (!visitor.visitObject(lastKey,
+                        size != null ? size : -1L,
+                        lastModified != null ? lastModified.getTime() : 0L))
+                    return;
+            }
+            // NextMarker is only returned for requests specifying a delimiter
+            request.setMarker(result.getNextMarker() != null ? result.getNextMarker() : lastKey);
+        } while (result.isTruncated());
     }
 
     @Override
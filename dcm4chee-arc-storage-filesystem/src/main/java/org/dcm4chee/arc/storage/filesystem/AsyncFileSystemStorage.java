@@ -0,0 +1,211 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.storage.filesystem;
+
+import org.dcm4chee.arc.storage.ExecutorAsyncStorage;
+import org.dcm4chee.arc.storage.ReadContext;
+import org.dcm4chee.arc.storage.WriteContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.EnumSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Transfers objects between {@link AsynchronousFileChannel}s and {@link AsynchronousByteChannel}s. Reads and writes
+ * of the file are performed by threads of the given executor service, so the transfer does not block the calling
+ * thread, but occupies a pool thread for each pending file operation.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+final class AsyncFileSystemStorage extends ExecutorAsyncStorage {
+
+    private static final int BUFFER_SIZE = 65536;
+
+    private final FileSystemStorage fsStorage;
+    private final ExecutorService executorService;
+
+    AsyncFileSystemStorage(FileSystemStorage storage, ExecutorService executorService) {
+        super(storage, executorService);
+        this.fsStorage = storage;
+        this.executorService = executorService;
+    }
+
+    @Override
+    public CompletableFuture<Void> storeObject(WriteContext ctx, AsynchronousByteChannel src) {
+        AsynchronousFileChannel file;
+        try {
+            checkAccessable();
+            file = fsStorage.createAsynchronousFileChannel(ctx, executorService);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        return new Transfer(ctx, file, src, true).start();
+    }
+
+    @Override
+    public CompletableFuture<Void> retrieveObject(ReadContext ctx, AsynchronousByteChannel dst) {
+        AsynchronousFileChannel file;
+        try {
+            checkAccessable();
+            file = AsynchronousFileChannel.open(fsStorage.toPath(ctx.getStoragePath()),
+                    EnumSet.of(StandardOpenOption.READ), executorService);
+        } catch (IOException e) {
+            return failed(e);
+        }
+        return new Transfer(ctx, file, dst, false).start();
+    }
+
+    private void checkAccessable() throws IOException {
+        if (!fsStorage.isAccessable())
+            throw new IOException(fsStorage.getStorageDescriptor().getStorageURI() + " not accessable");
+    }
+
+    @Override
+    public String toString() {
+        return "AsyncFileSystemStorage{" + fsStorage + '}';
+    }
+
+    private static final class Transfer {
+        final ReadContext ctx;
+        final AsynchronousFileChannel file;
+        final AsynchronousByteChannel channel;
+        final boolean toFile;
+        final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        long position;
+
+        final CompletionHandler<Integer, Void> onRead = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer read, Void attachment) {
+                if (read < 0) {
+                    complete(null);
+                    return;
+                }
+                buffer.flip();
+                MessageDigest digest = ctx.getMessageDigest();
+                if (digest != null)
+                    digest.update(buffer.duplicate());
+                ctx.incrementSize(read);
+                if (!toFile)
+                    position += read;
+                write();
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                complete(e);
+            }
+        };
+
+        final CompletionHandler<Integer, Void> onWritten = new CompletionHandler<Integer, Void>() {
+            @Override
+            public void completed(Integer written, Void attachment) {
+                if (toFile)
+                    position += written;
+                if (buffer.hasRemaining())
+                    write();
+                else
+                    read();
+            }
+
+            @Override
+            public void failed(Throwable e, Void attachment) {
+                complete(e);
+            }
+        };
+
+        Transfer(ReadContext ctx, AsynchronousFileChannel file, AsynchronousByteChannel channel, boolean toFile) {
+            this.ctx = ctx;
+            this.file = file;
+            this.channel = channel;
+            this.toFile = toFile;
+        }
+
+        CompletableFuture<Void> start() {
+            read();
+            return future;
+        }
+
+        private void read() {
+            buffer.clear();
+            try {
+                if (toFile)
+                    channel.read(buffer, null, onRead);
+                else
+                    file.read(buffer, position, null, onRead);
+            } catch (RuntimeException e) {
+                complete(e);
+            }
+        }
+
+        private void write() {
+            try {
+                if (toFile)
+                    file.write(buffer, position, null, onWritten);
+                else
+                    channel.write(buffer, null, onWritten);
+            } catch (RuntimeException e) {
+                complete(e);
+            }
+        }
+
+        private void complete(Throwable e) {
+            try {
+                file.close();
+            } catch (IOException ce) {
+                if (e == null)
+                    e = ce;
+            }
+            if (e != null)
+                future.completeExceptionally(e);
+            else
+                future.complete(null);
+        }
+    }
+}
@@ -43,16 +43,27 @@ package org.dcm4chee.arc.storage.filesystem;
 import org.dcm4che3.util.AttributesFormat;
 import org.dcm4chee.arc.conf.StorageDescriptor;
 import org.dcm4chee.arc.storage.AbstractStorage;
+import org.dcm4chee.arc.storage.AsyncStorage;
+import org.dcm4chee.arc.storage.ObjectVisitor;
 import org.dcm4chee.arc.storage.ReadContext;
 import org.dcm4chee.arc.storage.WriteContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -63,16 +74,30 @@ public class FileSystemStorage extends AbstractStorage {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileSystemStorage.class);
 
+    enum Durability { NONE, FSYNC, GROUP_COMMIT }
+
     private final URI rootURI;
     private final AttributesFormat pathFormat;
     private final Path checkMountFilePath;
+    private final Durability durability;
+    private final GroupCommit groupCommit;
+    private final int shardLevels;
+    private final int shardWidth;
+    private final Set<Path> emptyDirectoryCandidates =
+            Collections.newSetFromMap(new ConcurrentHashMap<Path, Boolean>());
 
-    public FileSystemStorage(StorageDescriptor descriptor) {
+    public FileSystemStorage(StorageDescriptor descriptor, GroupCommit groupCommit) {
         super(descriptor);
         rootURI = ensureTrailingSlash(descriptor.getStorageURI());
         pathFormat = new AttributesFormat(descriptor.getProperty("pathFormat", DEFAULT_PATH_FORMAT));
         String checkMountFile = descriptor.getProperty("checkMountFile", null);
         checkMountFilePath = checkMountFile != null ?  Paths.get(rootURI.resolve(checkMountFile)) : null;
+        durability = Durability.valueOf(descriptor.getProperty("durability", "NONE"));
+        this.groupCommit = groupCommit;
+        shardLevels = Integer.parseInt(descriptor.getProperty("shardLevels", "0"));
+        shardWidth = Integer.parseInt(descriptor.getProperty("shardWidth", "2"));
+        if (shardLevels < 0 || shardWidth <= 0 || shardLevels * shardWidth > 8)
+            throw new IllegalArgumentException("shardLevels=" + shardLevels + ", shardWidth=" + shardWidth);
     }
 
     private URI ensureTrailingSlash(URI uri) {
@@ -90,49 +115,205 @@ public class FileSystemStorage extends AbstractStorage {
         return Files.getFileStore(Paths.get(rootURI)).getUsableSpace();
     }
 
+    @Override
+    public AsyncStorage async(Executor executor) {
+        return durability == Durability.NONE && executor instanceof ExecutorService
+                ? new AsyncFileSystemStorage(this, (ExecutorService) executor)
+                : super.async(executor);
+    }
+
     @Override
     protected OutputStream openOutputStreamA(WriteContext ctx) throws IOException {
-        Path path = Paths.get(rootURI.resolve(pathFormat.format(ctx.getAttributes())));
+        return createObject(ctx, new ObjectCreator<OutputStream>() {
+            @Override
+            public OutputStream create(Path path, List<Path> dirs) throws IOException {
+                return durability == Durability.NONE
+                        ? Files.newOutputStream(path, StandardOpenOption.CREATE_NEW)
+                        : new ForceOnCloseOutputStream(
+                                FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE),
+                                dirs);
+            }
+        });
+    }
+
+    AsynchronousFileChannel createAsynchronousFileChannel(WriteContext ctx, final ExecutorService executor)
+            throws IOException {
+        return createObject(ctx, new ObjectCreator<AsynchronousFileChannel>() {
+            @Override
+            public AsynchronousFileChannel create(Path path, List<Path> dirs) throws IOException {
+                return AsynchronousFileChannel.open(path,
+                        EnumSet.of(StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE), executor);
+            }
+        });
+    }
+
+    private <T> T createObject(WriteContext ctx, ObjectCreator<T> creator) throws IOException {
+        Path path = Paths.get(rootURI.resolve(shard(pathFormat.format(ctx.getAttributes()))));
         Path dir = path.getParent();
-        Files.createDirectories(dir);
-        OutputStream stream = null;
-        while (stream == null)
+        List<Path> dirs = createDirectories(dir);
+        T object = null;
+        while (object == null)
             try {
-                stream = Files.newOutputStream(path, StandardOpenOption.CREATE_NEW);
+                object = creator.create(path, dirs);
             } catch (FileAlreadyExistsException e) {
                 path = dir.resolve(String.format("%08X", ThreadLocalRandom.current().nextInt()));
+            } catch (NoSuchFileException e) {
+                // directory removed concurrently by sweep of empty directories
+                dirs = createDirectories(dir);
             }
         ctx.setStoragePath(rootURI.relativize(path.toUri()).toString());
-        return stream;
+        return object;
+    }
+
+    /**
+     * Creates the directory and all non-existing parent directories.
+     *
+     * @return the directory and the parent directories of all created directories, which have to be forced to
+     * make the new file durable
+     */
+    private static List<Path> createDirectories(Path dir) throws IOException {
+        List<Path> dirs = new ArrayList<>();
+        dirs.add(dir);
+        for (Path d = dir; d.getParent() != null && Files.notExists(d); d = d.getParent())
+            dirs.add(d.getParent());
+        Files.createDirectories(dir);
+        return dirs;
+    }
+
+    private interface ObjectCreator<T> {
+        T create(Path path, List<Path> dirs) throws IOException;
+    }
+
+    Path toPath(String storagePath) {
+        return Paths.get(rootURI.resolve(storagePath));
+    }
+
+    /**
+     * Prepends {@code shardLevels} directories derived from a hash of the directory of {@code storagePath}, so all
+     * objects of one directory - e.g. of one Series - share the same shard directories. A flat {@code storagePath}
+     * without directory is hashed as a whole.
+     */
+    private String shard(String storagePath) {
+        if (shardLevels == 0)
+            return storagePath;
+
+        int endDir = storagePath.lastIndexOf('/');
+        int h = (endDir > 0 ? storagePath.substring(0, endDir) : storagePath).hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        String hex = String.format("%08x", h);
+        StringBuilder sb = new StringBuilder(storagePath.length() + shardLevels * (shardWidth + 1));
+        for (int i = 0; i < shardLevels; i++)
+            sb.append(hex, i * shardWidth, (i + 1) * shardWidth).append('/');
+        return sb.append(storagePath).toString();
+    }
+
+    private final class ForceOnCloseOutputStream extends FilterOutputStream {
+        private final FileChannel channel;
+        private final List<Path> dirs;
+
+        ForceOnCloseOutputStream(FileChannel channel, List<Path> dirs) {
+            super(Channels.newOutputStream(channel));
+            this.channel = channel;
+            this.dirs = dirs;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (durability == Durability.GROUP_COMMIT)
+                    groupCommit.force(channel, dirs);
+                else
+                    GroupCommit.force(channel, dirs);
+            } finally {
+                out.close();
+            }
+        }
     }
 
     @Override
     protected InputStream openInputStreamA(ReadContext ctx) throws IOException {
-        Path path = Paths.get(rootURI.resolve(ctx.getStoragePath()));
-        return Files.newInputStream(path);
+        return Files.newInputStream(toPath(ctx.getStoragePath()));
     }
 
     @Override
     public void deleteObject(String storagePath) throws IOException {
-        Path path = Paths.get(rootURI.resolve(storagePath));
+        Path path = toPath(storagePath);
         Files.delete(path);
-        deleteEmptyDirectories(path);
+        emptyDirectoryCandidates.add(path.getParent());
+    }
+
+    @Override
+    public void listObjects(final String prefix, final ObjectVisitor visitor) throws IOException {
+        String dir = prefix != null ? prefix.substring(0, prefix.lastIndexOf('/') + 1) : "";
+        Path startPath = Paths.get(rootURI.resolve(dir));
+        if (!Files.isDirectory(startPath))
+            return;
+
+        Files.walkFileTree(startPath, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                String storagePath = rootURI.relativize(file.toUri()).toString();
+                if ((prefix != null && !storagePath.startsWith(prefix)) || file.equals(checkMountFilePath))
+                    return FileVisitResult.CONTINUE;
+
+                return visitor.visitObject(storagePath, attrs.size(), attrs.lastModifiedTime().toMillis())
+                        ? FileVisitResult.CONTINUE
+                        : FileVisitResult.TERMINATE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) // deleted concurrently
+                    return FileVisitResult.CONTINUE;
+                throw e;
+            }
+        });
     }
 
-    private void deleteEmptyDirectories(Path path) {
+    @Override
+    public void close() throws IOException {
+        deleteEmptyDirectories();
+    }
+
+    private void deleteEmptyDirectories() {
+        if (emptyDirectoryCandidates.isEmpty())
+            return;
+
+        List<Path> candidates = new ArrayList<>(emptyDirectoryCandidates);
+        emptyDirectoryCandidates.removeAll(candidates);
+        TreeSet<Path> dirPaths = new TreeSet<>(new Comparator<Path>() {
+            @Override
+            public int compare(Path o1, Path o2) {
+                int diff = o2.getNameCount() - o1.getNameCount();
+                return diff != 0 ? diff : o1.compareTo(o2);
+            }
+        });
+        dirPaths.addAll(candidates);
         Path rootPath = Paths.get(rootURI);
-        Path dirPath = path.getParent();
-        while (!dirPath.equals(rootPath)) {
+        int deleted = 0;
+        Path dirPath;
+        while ((dirPath = dirPaths.pollFirst()) != null) {
+            if (dirPath.equals(rootPath))
+                continue;
+
             try {
-                Files.deleteIfExists(dirPath);
+                if (Files.deleteIfExists(dirPath)) {
+                    deleted++;
+                    dirPaths.add(dirPath.getParent());
+                }
             } catch (DirectoryNotEmptyException ignore) {
-                break;
             } catch (IOException e) {
-                LOG.warn("Failed to delete directory {}", path, e);
-                break;
+                LOG.warn("Failed to delete directory {}", dirPath, e);
             }
-            dirPath = dirPath.getParent();
         }
+        LOG.debug("Deleted {} empty directories from {}", deleted, this);
     }
 
     @Override
@@ -6,6 +6,8 @@ import org.dcm4chee.arc.storage.StorageProvider;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Named;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -14,8 +16,20 @@ import javax.inject.Named;
 @ApplicationScoped
 @Named("file")
 class FileSystemStorageProvider implements StorageProvider {
+    private final Map<String, GroupCommit> groupCommits = new ConcurrentHashMap<>();
+
     @Override
     public Storage openStorage(StorageDescriptor descriptor) {
-        return new FileSystemStorage(descriptor);
+        return new FileSystemStorage(descriptor, groupCommit(descriptor.getStorageID()));
+    }
+
+    private GroupCommit groupCommit(String storageID) {
+        GroupCommit groupCommit = groupCommits.get(storageID);
+        if (groupCommit == null) {
+            GroupCommit prev = groupCommits.putIfAbsent(storageID, groupCommit = new GroupCommit());
+            if (prev != null)
+                groupCommit = prev;
+        }
+        return groupCommit;
     }
 }
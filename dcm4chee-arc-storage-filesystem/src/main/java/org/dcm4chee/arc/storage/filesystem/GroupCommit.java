@@ -0,0 +1,150 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.storage.filesystem;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Batches forcing of directories to disk across concurrent writers. Each writer forces its own file, so files are
+ * forced in parallel. Directories of files closed while a flush is in progress are collected and forced once by
+ * one of the waiting writers as soon as the previous flush completed.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+class GroupCommit {
+
+    private static final Logger LOG = LoggerFactory.getLogger(GroupCommit.class);
+
+    private Batch pending;
+    private boolean flushing;
+
+    public void force(FileChannel channel, Collection<Path> dirs) throws IOException {
+        channel.force(true);
+        if (dirs.isEmpty())
+            return;
+
+        Batch batch;
+        boolean leader;
+        synchronized (this) {
+            if (pending == null)
+                pending = new Batch();
+            batch = pending;
+            batch.dirs.addAll(dirs);
+            try {
+                while (flushing && !batch.done)
+                    wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for group commit");
+            }
+            leader = !batch.done;
+            if (leader) {
+                flushing = true;
+                pending = null;
+            }
+        }
+        if (leader) {
+            try {
+                batch.forceAll();
+            } finally {
+                synchronized (this) {
+                    batch.done = true;
+                    flushing = false;
+                    notifyAll();
+                }
+            }
+        }
+        batch.checkForced(dirs);
+    }
+
+    static void force(FileChannel channel, Collection<Path> dirs) throws IOException {
+        channel.force(true);
+        for (Path dir : dirs)
+            forceDirectory(dir);
+    }
+
+    private static void forceDirectory(Path dir) throws IOException {
+        FileChannel dirChannel;
+        try {
+            dirChannel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException e) {
+            LOG.debug("Failed to open directory {} - not supported by file system?", dir, e);
+            return;
+        }
+        try (FileChannel channel = dirChannel) {
+            channel.force(true);
+        }
+    }
+
+    private static class Batch {
+        final Set<Path> dirs = new HashSet<>();
+        final Map<Path, IOException> exceptions = new HashMap<>();
+        boolean done;
+
+        void forceAll() {
+            for (Path dir : dirs)
+                try {
+                    forceDirectory(dir);
+                } catch (IOException e) {
+                    LOG.warn("Failed to force directory {}:\n", dir, e);
+                    exceptions.put(dir, e);
+                }
+            LOG.debug("Forced {} directories", dirs.size());
+        }
+
+        void checkForced(Collection<Path> dirs) throws IOException {
+            for (Path dir : dirs) {
+                IOException e = exceptions.get(dir);
+                if (e != null)
+                    throw e;
+            }
+        }
+    }
+}
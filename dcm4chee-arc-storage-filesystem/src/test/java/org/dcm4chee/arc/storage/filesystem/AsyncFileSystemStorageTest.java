@@ -0,0 +1,198 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.storage.filesystem;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.VR;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.storage.ReadContext;
+import org.dcm4chee.arc.storage.WriteContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class AsyncFileSystemStorageTest {
+
+    private static final int LENGTH = 200000;
+    private static final int MAX_TRANSFER = 1000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService executor;
+    private FileSystemStorage storage;
+    private AsyncFileSystemStorage asyncStorage;
+    private byte[] data;
+
+    @Before
+    public void setUp() throws Exception {
+        executor = Executors.newFixedThreadPool(2);
+        StorageDescriptor descriptor = new StorageDescriptor("test");
+        descriptor.setStorageURIStr(folder.getRoot().toURI().toString());
+        descriptor.setProperty("pathFormat", "{0020000D}/{00080018}");
+        descriptor.setDigestAlgorithm("MD5");
+        storage = new FileSystemStorage(descriptor, null);
+        asyncStorage = new AsyncFileSystemStorage(storage, executor);
+        data = new byte[LENGTH];
+        new Random(1).nextBytes(data);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testStoreObject() throws Exception {
+        WriteContext ctx = storage.createWriteContext();
+        Attributes attrs = new Attributes(2);
+        attrs.setString(Tag.StudyInstanceUID, VR.UI, "1.2.3");
+        attrs.setString(Tag.SOPInstanceUID, VR.UI, "1.2.3.4");
+        ctx.setAttributes(attrs);
+        ctx.setMessageDigest(MessageDigest.getInstance("MD5"));
+        asyncStorage.storeObject(ctx, new ChunkedChannel(data)).get(10, TimeUnit.SECONDS);
+
+        assertEquals("1.2.3/1.2.3.4", ctx.getStoragePath());
+        assertArrayEquals(data, Files.readAllBytes(storage.toPath(ctx.getStoragePath())));
+        assertEquals(LENGTH, ctx.getSize());
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(data), ctx.getDigest());
+    }
+
+    @Test
+    public void testRetrieveObject() throws Exception {
+        Files.createDirectories(storage.toPath("1.2.3"));
+        Files.write(storage.toPath("1.2.3/1.2.3.4"), data);
+        ReadContext ctx = storage.createReadContext();
+        ctx.setStoragePath("1.2.3/1.2.3.4");
+        ctx.setMessageDigest(MessageDigest.getInstance("MD5"));
+        ChunkedChannel channel = new ChunkedChannel(null);
+        asyncStorage.retrieveObject(ctx, channel).get(10, TimeUnit.SECONDS);
+
+        assertArrayEquals(data, channel.written.toByteArray());
+        assertEquals(LENGTH, ctx.getSize());
+        assertArrayEquals(MessageDigest.getInstance("MD5").digest(data), ctx.getDigest());
+    }
+
+    @Test
+    public void testRetrieveMissingObject() throws Exception {
+        ReadContext ctx = storage.createReadContext();
+        ctx.setStoragePath("1.2.3/missing");
+        CompletableFuture<Void> future = asyncStorage.retrieveObject(ctx, new ChunkedChannel(null));
+        assertTrue(future.isCompletedExceptionally());
+    }
+
+    /**
+     * Channel, which reads and writes at most {@link #MAX_TRANSFER} bytes per operation.
+     */
+    private static final class ChunkedChannel implements AsynchronousByteChannel {
+        final ByteBuffer src;
+        final ByteArrayOutputStream written = new ByteArrayOutputStream();
+
+        ChunkedChannel(byte[] src) {
+            this.src = src != null ? ByteBuffer.wrap(src) : null;
+        }
+
+        @Override
+        public <A> void read(ByteBuffer dst, A attachment, CompletionHandler<Integer, ? super A> handler) {
+            if (!src.hasRemaining()) {
+                handler.completed(-1, attachment);
+                return;
+            }
+            int n = Math.min(Math.min(dst.remaining(), src.remaining()), MAX_TRANSFER);
+            ByteBuffer chunk = src.duplicate();
+            chunk.limit(chunk.position() + n);
+            dst.put(chunk);
+            src.position(src.position() + n);
+            handler.completed(n, attachment);
+        }
+
+        @Override
+        public <A> void write(ByteBuffer buf, A attachment, CompletionHandler<Integer, ? super A> handler) {
+            int n = Math.min(buf.remaining(), MAX_TRANSFER);
+            byte[] b = new byte[n];
+            buf.get(b);
+            written.write(b, 0, n);
+            handler.completed(n, attachment);
+        }
+
+        @Override
+        public Future<Integer> read(ByteBuffer dst) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Future<Integer> write(ByteBuffer src) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
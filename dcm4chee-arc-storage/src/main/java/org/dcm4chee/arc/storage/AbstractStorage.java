@@ -45,6 +45,7 @@ import org.dcm4chee.arc.conf.StorageDescriptor;
 import java.io.*;
 import java.security.DigestInputStream;
 import java.security.DigestOutputStream;
+import java.util.concurrent.Executor;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -140,6 +141,16 @@ public abstract class AbstractStorage implements Storage {
         throw new IOException(descriptor.getStorageURI() + " does not support getUsableSpace()");
     }
 
+    @Override
+    public void listObjects(String prefix, ObjectVisitor visitor) throws IOException {
+        throw new IOException(descriptor.getStorageURI() + " does not support listObjects()");
+    }
+
+    @Override
+    public AsyncStorage async(Executor executor) {
+        return new ExecutorAsyncStorage(this, executor);
+    }
+
     protected abstract OutputStream openOutputStreamA(WriteContext ctx) throws IOException;
 
     protected void beforeOutputStreamClosed(WriteContext ctx, OutputStream stream) throws IOException {}
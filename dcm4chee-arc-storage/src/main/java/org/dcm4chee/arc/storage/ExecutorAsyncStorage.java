@@ -0,0 +1,216 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.storage;
+
+import org.dcm4che3.util.StreamUtils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.AsynchronousByteChannel;
+import java.nio.channels.Channels;
+import java.security.DigestInputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Adapts a blocking {@link Storage} to {@link AsyncStorage} by executing its operations by an {@link Executor}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class ExecutorAsyncStorage implements AsyncStorage {
+
+    protected final Storage storage;
+    protected final Executor executor;
+
+    public ExecutorAsyncStorage(Storage storage, Executor executor) {
+        this.storage = storage;
+        this.executor = executor;
+    }
+
+    @Override
+    public Storage getStorage() {
+        return storage;
+    }
+
+    @Override
+    public CompletableFuture<Void> storeObject(final WriteContext ctx, final AsynchronousByteChannel src) {
+        return runAsync(new IOTask() {
+            @Override
+            public void run() throws IOException {
+                try (OutputStream out = storage.openOutputStream(ctx)) {
+                    StreamUtils.copy(Channels.newInputStream(src), out);
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> retrieveObject(final ReadContext ctx, final AsynchronousByteChannel dst) {
+        return runAsync(new IOTask() {
+            @Override
+            public void run() throws IOException {
+                try (InputStream in = storage.openInputStream(ctx)) {
+                    StreamUtils.copy(in, Channels.newOutputStream(dst));
+                }
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> commitStorage(final WriteContext ctx) {
+        return runAsync(new IOTask() {
+            @Override
+            public void run() throws IOException {
+                storage.commitStorage(ctx);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> revokeStorage(final WriteContext ctx) {
+        return runAsync(new IOTask() {
+            @Override
+            public void run() throws IOException {
+                storage.revokeStorage(ctx);
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteObject(final String storagePath) {
+        return runAsync(new IOTask() {
+            @Override
+            public void run() throws IOException {
+                storage.deleteObject(storagePath);
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorAsyncStorage{" + storage + '}';
+    }
+
+    protected CompletableFuture<Void> runAsync(final IOTask task) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        task.run();
+                        future.complete(null);
+                    } catch (Throwable e) {
+                        future.completeExceptionally(e);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    protected static CompletableFuture<Void> failed(Throwable e) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * Returns stream reading from the specified channel, which updates size and digest of the specified context.
+     * Closing the returned stream does not close the channel.
+     */
+    protected static InputStream newInputStream(AsynchronousByteChannel src, final ReadContext ctx) {
+        InputStream in = Channels.newInputStream(src);
+        if (ctx.getMessageDigest() != null)
+            in = new DigestInputStream(in, ctx.getMessageDigest());
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                int read = in.read();
+                if (read >= 0)
+                    ctx.incrementSize(1);
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = in.read(b, off, len);
+                if (read > 0)
+                    ctx.incrementSize(read);
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                // read skipped bytes to include them in the digest
+                byte[] b = new byte[(int) Math.min(Math.max(n, 0), 8192)];
+                long skipped = 0;
+                int read;
+                while (skipped < n && (read = read(b, 0, (int) Math.min(n - skipped, b.length))) > 0)
+                    skipped += read;
+                return skipped;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+
+    protected interface IOTask {
+        void run() throws IOException;
+    }
+}
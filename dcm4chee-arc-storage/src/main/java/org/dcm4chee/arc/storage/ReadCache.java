@@ -0,0 +1,299 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+/**
+ * Size bounded local disk cache of objects read from a Storage with LRU eviction.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+class ReadCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReadCache.class);
+    private static final int MAX_PREFETCHED_STUDIES = 1000;
+    private static final int PREFETCH_MAX_SIZE_DIVISOR = 4;
+
+    private final Path dir;
+    private volatile long maxSize;
+    private final Executor executor;
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(256, 0.75f, true);
+    private final ConcurrentHashMap<String, Fill> fills = new ConcurrentHashMap<>();
+    private final Set<String> prefetchedStudies = Collections.newSetFromMap(
+            new LinkedHashMap<String, Boolean>() {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                    return size() > MAX_PREFETCHED_STUDIES;
+                }
+            });
+    private long size;
+
+    ReadCache(Path dir, long maxSize, Executor executor) throws IOException {
+        this.dir = dir;
+        this.maxSize = maxSize;
+        this.executor = executor;
+        Files.createDirectories(dir);
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (file.getFileName().toString().endsWith(".part"))
+                    Files.delete(file);
+                else
+                    add(ReadCache.this.dir.relativize(file).toString().replace('\\', '/'), attrs.size());
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        LOG.info("Initialized read cache {} with {} objects of total size {}", dir, entries.size(), size);
+    }
+
+    public void setMaxSize(long maxSize) {
+        if (this.maxSize == maxSize)
+            return;
+
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            this.maxSize = maxSize;
+            evict(null, evicted);
+        }
+        for (String path : evicted)
+            delete(path);
+    }
+
+    public InputStream openInputStream(Storage storage, String storagePath, String studyIUID) throws IOException {
+        Path path = dir.resolve(storagePath);
+        Path file = contains(storagePath) ? path : fill(storage, storagePath, studyIUID, true);
+        if (file == null)
+            return null;
+
+        if (!file.equals(path)) // too large to cache
+            return Files.newInputStream(file, StandardOpenOption.DELETE_ON_CLOSE);
+
+        try {
+            return Files.newInputStream(path);
+        } catch (NoSuchFileException e) {
+            remove(storagePath);
+        }
+        return null;
+    }
+
+    public void remove(String storagePath) {
+        synchronized (entries) {
+            Long length = entries.remove(storagePath);
+            if (length == null)
+                return;
+
+            size -= length;
+        }
+        delete(storagePath);
+    }
+
+    public boolean markPrefetched(String studyIUID) {
+        synchronized (prefetchedStudies) {
+            return prefetchedStudies.add(studyIUID);
+        }
+    }
+
+    /**
+     * Prefetches missing objects of a Study in background. The total size of prefetched objects is limited to a
+     * quarter of the cache size, so prefetching a large Study does not evict the rest of the cache.
+     */
+    public void prefetch(final StorageProvider provider, final Storage storage,
+                         final String studyIUID, Map<String, Long> sizeByStoragePath) {
+        final List<String> missing = new ArrayList<>(sizeByStoragePath.size());
+        long maxPrefetchSize = maxSize / PREFETCH_MAX_SIZE_DIVISOR;
+        long prefetchSize = 0L;
+        for (Map.Entry<String, Long> entry : sizeByStoragePath.entrySet()) {
+            String storagePath = entry.getKey();
+            if (contains(storagePath))
+                continue;
+
+            prefetchSize += entry.getValue();
+            if (prefetchSize > maxPrefetchSize) {
+                LOG.debug("Limit prefetch of Study[uid={}] to {} objects to not exceed {} bytes",
+                        studyIUID, missing.size(), maxPrefetchSize);
+                break;
+            }
+            missing.add(storagePath);
+        }
+        if (missing.isEmpty())
+            return;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                Storage prefetchStorage = provider.openStorage(storage.getStorageDescriptor());
+                try {
+                    for (String storagePath : missing)
+                        fill(prefetchStorage, storagePath, studyIUID, false);
+                    LOG.debug("Prefetched {} objects of Study[uid={}] to {}", missing.size(), studyIUID, dir);
+                } catch (IOException e) {
+                    LOG.info("Failed to prefetch objects of Study[uid={}] to {}:\n", studyIUID, dir, e);
+                } finally {
+                    try {
+                        prefetchStorage.close();
+                    } catch (IOException e) {
+                        LOG.info("Failed to close {}:\n", prefetchStorage, e);
+                    }
+                }
+            }
+        });
+    }
+
+    private boolean contains(String storagePath) {
+        synchronized (entries) {
+            return entries.get(storagePath) != null;
+        }
+    }
+
+    /**
+     * Fills the cache with the object, if it is not already filled by another thread.
+     *
+     * @param keepTooLarge keep the downloaded object, if it is too large to be cached
+     * @return path of the cached object, path of a temporary file containing the object too large to be cached -
+     * which has to be deleted by the caller - or {@code null}, if the object was not cached by another thread
+     */
+    private Path fill(Storage storage, String storagePath, String studyIUID, boolean keepTooLarge)
+            throws IOException {
+        Fill fill = new Fill();
+        Fill prev = fills.putIfAbsent(storagePath, fill);
+        if (prev != null)
+            return prev.await() ? dir.resolve(storagePath) : null;
+
+        Path file = null;
+        try {
+            file = contains(storagePath) ? dir.resolve(storagePath) : copy(storage, storagePath, studyIUID);
+            fill.cached = file.equals(dir.resolve(storagePath));
+        } finally {
+            fills.remove(storagePath);
+            fill.done.countDown();
+        }
+        if (fill.cached || keepTooLarge)
+            return file;
+
+        Files.deleteIfExists(file);
+        return null;
+    }
+
+    private Path copy(Storage storage, String storagePath, String studyIUID) throws IOException {
+        ReadContext readCtx = storage.createReadContext();
+        readCtx.setStoragePath(storagePath);
+        readCtx.setStudyInstanceUID(studyIUID);
+        Path path = dir.resolve(storagePath);
+        Path tmp = Files.createTempFile(dir, null, ".part");
+        boolean keepTmp = false;
+        try {
+            try (InputStream in = storage.openInputStream(readCtx)) {
+                Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            long length = Files.size(tmp);
+            if (length > maxSize) {
+                keepTmp = true;
+                return tmp;
+            }
+            Files.createDirectories(path.getParent());
+            Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            add(storagePath, length);
+            return path;
+        } finally {
+            if (!keepTmp)
+                Files.deleteIfExists(tmp);
+        }
+    }
+
+    private void add(String storagePath, long length) {
+        List<String> evicted = new ArrayList<>();
+        synchronized (entries) {
+            Long prev = entries.put(storagePath, length);
+            size += length - (prev != null ? prev : 0L);
+            evict(storagePath, evicted);
+        }
+        for (String path : evicted)
+            delete(path);
+    }
+
+    private void evict(String keep, List<String> evicted) {
+        Iterator<Map.Entry<String, Long>> iter = entries.entrySet().iterator();
+        while (size > maxSize && iter.hasNext()) {
+            Map.Entry<String, Long> eldest = iter.next();
+            if (eldest.getKey().equals(keep))
+                continue;
+
+            iter.remove();
+            size -= eldest.getValue();
+            evicted.add(eldest.getKey());
+        }
+    }
+
+    private void delete(String storagePath) {
+        try {
+            Files.deleteIfExists(dir.resolve(storagePath));
+        } catch (IOException e) {
+            LOG.info("Failed to delete {} from read cache {}:\n", storagePath, dir, e);
+        }
+    }
+
+    private static class Fill {
+        final CountDownLatch done = new CountDownLatch(1);
+        volatile boolean cached;
+
+        boolean await() {
+            try {
+                done.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return cached;
+        }
+    }
+}
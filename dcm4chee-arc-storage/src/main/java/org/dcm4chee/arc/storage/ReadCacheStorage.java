@@ -0,0 +1,197 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.storage;
+
+import org.dcm4chee.arc.conf.StorageDescriptor;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Storage decorator, which reads objects through a local disk {@link ReadCache}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class ReadCacheStorage implements Storage {
+
+    private final Storage storage;
+    private final ReadCache cache;
+    private final StorageProvider provider;
+    private final boolean prefetch;
+
+    ReadCacheStorage(Storage storage, ReadCache cache, StorageProvider provider, boolean prefetch) {
+        this.storage = storage;
+        this.cache = cache;
+        this.provider = provider;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public StorageDescriptor getStorageDescriptor() {
+        return storage.getStorageDescriptor();
+    }
+
+    @Override
+    public WriteContext createWriteContext() {
+        return storage.createWriteContext();
+    }
+
+    @Override
+    public ReadContext createReadContext() {
+        return storage.createReadContext();
+    }
+
+    @Override
+    public boolean isAccessable() {
+        return storage.isAccessable();
+    }
+
+    @Override
+    public OutputStream openOutputStream(WriteContext ctx) throws IOException {
+        return storage.openOutputStream(ctx);
+    }
+
+    @Override
+    public long getUsableSpace() throws IOException {
+        return storage.getUsableSpace();
+    }
+
+    @Override
+    public void commitStorage(WriteContext ctx) throws IOException {
+        storage.commitStorage(ctx);
+    }
+
+    @Override
+    public void revokeStorage(WriteContext ctx) throws IOException {
+        storage.revokeStorage(ctx);
+    }
+
+    @Override
+    public void deleteObject(String storagePath) throws IOException {
+        cache.remove(storagePath);
+        storage.deleteObject(storagePath);
+    }
+
+    @Override
+    public void listObjects(String prefix, ObjectVisitor visitor) throws IOException {
+        storage.listObjects(prefix, visitor);
+    }
+
+    @Override
+    public AsyncStorage async(Executor executor) {
+        return new ExecutorAsyncStorage(this, executor);
+    }
+
+    @Override
+    public InputStream openInputStream(final ReadContext ctx) throws IOException {
+        InputStream stream = cache.openInputStream(storage, ctx.getStoragePath(), ctx.getStudyInstanceUID());
+        if (stream == null)
+            return storage.openInputStream(ctx);
+
+        if (ctx.getMessageDigest() != null)
+            stream = new DigestInputStream(stream, ctx.getMessageDigest());
+        return new FilterInputStream(stream) {
+            @Override
+            public int read() throws IOException {
+                int read = in.read();
+                if (read >= 0)
+                    ctx.incrementSize(1);
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = in.read(b, off, len);
+                if (read > 0)
+                    ctx.incrementSize(read);
+                return read;
+            }
+
+            @Override
+            public long skip(long n) throws IOException {
+                long skip = in.skip(n);
+                ctx.incrementSize(skip);
+                return skip;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Returns {@code true} on the first invocation for a Study, if prefetch of Studies is enabled.
+     *
+     * @param studyIUID Study Instance UID
+     * @return {@code true} if the objects of the Study shall be prefetched by {@link #prefetch}
+     */
+    public boolean markPrefetch(String studyIUID) {
+        return prefetch && cache.markPrefetched(studyIUID);
+    }
+
+    /**
+     * Prefetches objects of a Study into the read cache in background.
+     *
+     * @param studyIUID    Study Instance UID
+     * @param sizeByStoragePath sizes of the objects of the Study on this Storage by their storage paths
+     */
+    public void prefetch(String studyIUID, Map<String, Long> sizeByStoragePath) {
+        cache.prefetch(provider, storage, studyIUID, sizeByStoragePath);
+    }
+
+    @Override
+    public void close() throws IOException {
+        storage.close();
+    }
+
+    @Override
+    public String toString() {
+        return "ReadCacheStorage{" + storage + '}';
+    }
+}
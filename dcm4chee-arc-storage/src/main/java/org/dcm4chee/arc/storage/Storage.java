@@ -6,6 +6,7 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.Executor;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -31,4 +32,22 @@ public interface Storage extends Closeable {
     void deleteObject(String storagePath) throws IOException;
 
     InputStream openInputStream(ReadContext ctx) throws IOException;
+
+    /**
+     * Lists all objects on the storage with a storage path starting with the specified prefix, e.g. to reconcile
+     * the storage with the archive database. Objects are passed to the visitor in no specified order.
+     *
+     * @param prefix   prefix of storage paths of the listed objects or {@code null} to list all objects
+     * @param visitor  invoked for each listed object
+     * @throws IOException if the storage does not support listing of objects or listing failed
+     */
+    void listObjects(String prefix, ObjectVisitor visitor) throws IOException;
+
+    /**
+     * Returns asynchronous view of this Storage.
+     *
+     * @param executor  executes operations, which cannot be performed non-blocking by this Storage
+     * @return asynchronous view of this Storage
+     */
+    AsyncStorage async(Executor executor);
 }
@@ -1,11 +1,24 @@
 package org.dcm4chee.arc.storage;
 
+import org.dcm4chee.arc.conf.BinaryPrefix;
 import org.dcm4chee.arc.conf.NamedQualifier;
 import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -13,12 +26,78 @@ import javax.inject.Inject;
  */
 @ApplicationScoped
 public class StorageFactory {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageFactory.class);
+
     @Inject
     private Instance<StorageProvider> providers;
 
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final Map<Path, FutureTask<ReadCache>> readCaches = new HashMap<>();
+
     public Storage getStorage(StorageDescriptor descriptor) {
+        StorageProvider provider = provider(descriptor);
+        Storage storage = provider.openStorage(descriptor);
+        ReadCache readCache = readCache(descriptor);
+        return readCache != null
+                ? new ReadCacheStorage(storage, readCache, provider,
+                        Boolean.parseBoolean(descriptor.getProperty("readCachePrefetch", "false")))
+                : storage;
+    }
+
+    public AsyncStorage getAsyncStorage(StorageDescriptor descriptor) {
+        return getStorage(descriptor).async(executor);
+    }
+
+    /**
+     * Returns Storage which reads objects directly from the Storage System, bypassing a configured read cache.
+     */
+    public Storage getUncachedStorage(StorageDescriptor descriptor) {
+        return provider(descriptor).openStorage(descriptor);
+    }
+
+    private StorageProvider provider(StorageDescriptor descriptor) {
         String scheme = descriptor.getStorageURI().getScheme();
-        StorageProvider provider = providers.select(new NamedQualifier(scheme)).get();
-        return provider.openStorage(descriptor);
+        return providers.select(new NamedQualifier(scheme)).get();
+    }
+
+    private ReadCache readCache(StorageDescriptor descriptor) {
+        String readCacheDirectory = descriptor.getProperty("readCacheDirectory", null);
+        if (readCacheDirectory == null)
+            return null;
+
+        final Path dir = Paths.get(readCacheDirectory, descriptor.getStorageID());
+        final long maxSize = BinaryPrefix.parse(descriptor.getProperty("readCacheSize", "1GiB"));
+        FutureTask<ReadCache> init;
+        boolean create;
+        synchronized (readCaches) {
+            init = readCaches.get(dir);
+            create = init == null;
+            if (create)
+                readCaches.put(dir, init = new FutureTask<>(new Callable<ReadCache>() {
+                    @Override
+                    public ReadCache call() throws IOException {
+                        return new ReadCache(dir, maxSize, executor);
+                    }
+                }));
+        }
+        if (create) // scan the cache directory without blocking access to other read caches
+            init.run();
+        try {
+            ReadCache readCache = init.get();
+            readCache.setMaxSize(maxSize);
+            return readCache;
+        } catch (ExecutionException e) {
+            LOG.warn("Failed to initialize read cache {} for {}:\n", dir, descriptor, e.getCause());
+            synchronized (readCaches) {
+                if (readCaches.get(dir) == init)
+                    readCaches.remove(dir);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return null;
     }
 }
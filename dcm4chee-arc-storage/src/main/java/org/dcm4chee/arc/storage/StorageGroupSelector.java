@@ -0,0 +1,287 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.storage;
+
+import org.dcm4che3.util.StringUtils;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.conf.StoragePlacement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Selects the Storage of a Storage Group to which a received object is written.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class StorageGroupSelector {
+
+    private static final Logger LOG = LoggerFactory.getLogger(StorageGroupSelector.class);
+    private static final long USABLE_SPACE_CACHE_MILLIS = 10000L;
+    private static final long UNKNOWN_USABLE_SPACE = -1L;
+    private static final double WRITE_LATENCY_WEIGHT = 0.2;
+    private static final double WRITE_LATENCY_DECAY_MILLIS = 60000.;
+
+    @Inject
+    private StorageFactory storageFactory;
+
+    private final Map<String, AtomicInteger> roundRobinCounters = new ConcurrentHashMap<>();
+    private final Map<String, UsableSpace> usableSpaceCache = new ConcurrentHashMap<>();
+    private final Map<String, WriteLatency> writeLatencies = new ConcurrentHashMap<>();
+
+    public StorageDescriptor select(ArchiveDeviceExtension arcDev, String storageID, String studyIUID) {
+        StorageDescriptor desc = arcDev.getStorageDescriptor(storageID);
+        if (desc == null)
+            return null;
+
+        String groupID = desc.getStorageGroupID();
+        if (groupID == null)
+            return desc;
+
+        List<StorageDescriptor> members = availableMembers(arcDev, groupID);
+        if (members.isEmpty()) {
+            LOG.warn("No Storage of Storage Group {} available - use Storage {}", groupID, storageID);
+            return desc;
+        }
+        if (members.size() == 1)
+            return members.get(0);
+
+        switch (StringUtils.maskNull(arcDev.getStoragePlacement(), StoragePlacement.ROUND_ROBIN)) {
+            case FREE_SPACE:
+                StorageDescriptor selected = selectByFreeSpace(members);
+                if (selected != null)
+                    return selected;
+                break;
+            case WRITE_LATENCY:
+                return selectByWriteLatency(members);
+            case STUDY_AFFINITY:
+                if (studyIUID != null)
+                    return members.get(Math.floorMod(studyIUID.hashCode(), members.size()));
+        }
+        return selectRoundRobin(groupID, members);
+    }
+
+    public boolean monitorWriteLatency(ArchiveDeviceExtension arcDev, StorageDescriptor desc) {
+        return desc.getStorageGroupID() != null && arcDev.getStoragePlacement() == StoragePlacement.WRITE_LATENCY;
+    }
+
+    public OutputStream monitorWriteLatency(StorageDescriptor desc, OutputStream out) {
+        return new WriteLatencyOutputStream(desc.getStorageID(), out);
+    }
+
+    private List<StorageDescriptor> availableMembers(ArchiveDeviceExtension arcDev, String groupID) {
+        List<StorageDescriptor> members = new ArrayList<>();
+        for (StorageDescriptor member : arcDev.getStorageDescriptors()) {
+            if (groupID.equals(member.getStorageGroupID())
+                    && !member.isReadOnly()
+                    && !isStorageThresholdExceeded(member))
+                members.add(member);
+        }
+        Collections.sort(members, new Comparator<StorageDescriptor>() {
+            @Override
+            public int compare(StorageDescriptor o1, StorageDescriptor o2) {
+                return o1.getStorageID().compareTo(o2.getStorageID());
+            }
+        });
+        return members;
+    }
+
+    private boolean isStorageThresholdExceeded(StorageDescriptor desc) {
+        if (desc.getStorageThreshold() == null)
+            return false;
+
+        long usableSpace = usableSpace(desc);
+        return usableSpace != UNKNOWN_USABLE_SPACE && desc.isStorageThresholdExceeded(usableSpace);
+    }
+
+    private StorageDescriptor selectRoundRobin(String groupID, List<StorageDescriptor> members) {
+        AtomicInteger counter = roundRobinCounters.get(groupID);
+        if (counter == null) {
+            AtomicInteger prev = roundRobinCounters.putIfAbsent(groupID, counter = new AtomicInteger());
+            if (prev != null)
+                counter = prev;
+        }
+        return members.get(Math.floorMod(counter.getAndIncrement(), members.size()));
+    }
+
+    private StorageDescriptor selectByFreeSpace(List<StorageDescriptor> members) {
+        StorageDescriptor selected = null;
+        long maxUsableSpace = UNKNOWN_USABLE_SPACE;
+        for (StorageDescriptor member : members) {
+            long usableSpace = usableSpace(member);
+            if (usableSpace > maxUsableSpace) {
+                maxUsableSpace = usableSpace;
+                selected = member;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Compares the decayed write latencies of two randomly chosen members and returns the faster one. Members without
+     * recent samples are preferred, so they are probed again.
+     */
+    private StorageDescriptor selectByWriteLatency(List<StorageDescriptor> members) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(members.size());
+        int j = random.nextInt(members.size() - 1);
+        if (j >= i)
+            j++;
+        long now = System.currentTimeMillis();
+        StorageDescriptor member1 = members.get(i);
+        StorageDescriptor member2 = members.get(j);
+        return writeLatency(member1, now) <= writeLatency(member2, now) ? member1 : member2;
+    }
+
+    private double writeLatency(StorageDescriptor desc, long now) {
+        WriteLatency latency = writeLatencies.get(desc.getStorageID());
+        return latency != null ? latency.valueAt(now) : 0.;
+    }
+
+    private long usableSpace(StorageDescriptor desc) {
+        long now = System.currentTimeMillis();
+        UsableSpace cached = usableSpaceCache.get(desc.getStorageID());
+        if (cached != null && now < cached.expires)
+            return cached.value;
+
+        long value;
+        try (Storage storage = storageFactory.getUncachedStorage(desc)) {
+            value = storage.getUsableSpace();
+        } catch (IOException e) {
+            LOG.warn("Failed to determine usable space of {}:\n", desc, e);
+            value = UNKNOWN_USABLE_SPACE;
+        }
+        usableSpaceCache.put(desc.getStorageID(), new UsableSpace(value, now + USABLE_SPACE_CACHE_MILLIS));
+        return value;
+    }
+
+    private void updateWriteLatency(String storageID, long nanos, long bytes) {
+        if (bytes == 0)
+            return;
+
+        long now = System.currentTimeMillis();
+        double sample = (double) nanos * 1024 / bytes;
+        WriteLatency prev = writeLatencies.get(storageID);
+        double value = prev != null ? prev.valueAt(now) : sample;
+        writeLatencies.put(storageID, new WriteLatency(value + WRITE_LATENCY_WEIGHT * (sample - value), now));
+    }
+
+    private static class WriteLatency {
+        final double value;
+        final long time;
+
+        WriteLatency(double value, long time) {
+            this.value = value;
+            this.time = time;
+        }
+
+        double valueAt(long now) {
+            return value * Math.exp((time - now) / WRITE_LATENCY_DECAY_MILLIS);
+        }
+    }
+
+    private static class UsableSpace {
+        final long value;
+        final long expires;
+
+        UsableSpace(long value, long expires) {
+            this.value = value;
+            this.expires = expires;
+        }
+    }
+
+    private class WriteLatencyOutputStream extends FilterOutputStream {
+        private final String storageID;
+        private long nanos;
+        private long bytes;
+
+        WriteLatencyOutputStream(String storageID, OutputStream out) {
+            super(out);
+            this.storageID = storageID;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            out.write(b);
+            nanos += System.nanoTime() - start;
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            out.write(b, off, len);
+            nanos += System.nanoTime() - start;
+            bytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            long start = System.nanoTime();
+            out.flush();
+            nanos += System.nanoTime() - start;
+        }
+
+        @Override
+        public void close() throws IOException {
+            long start = System.nanoTime();
+            try {
+                out.close();
+            } finally {
+                nanos += System.nanoTime() - start;
+                updateWriteLatency(storageID, nanos, bytes);
+            }
+        }
+    }
+}
@@ -45,6 +45,7 @@ import org.dcm4che3.net.Association;
 import org.dcm4che3.net.AssociationListener;
 import org.dcm4che3.net.pdu.AAssociateRQ;
 import org.dcm4che3.net.pdu.PresentationContext;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
 import org.dcm4chee.arc.store.StoreContext;
 import org.slf4j.Logger;
@@ -61,10 +62,12 @@ class CStoreForward {
     static final Logger LOG = LoggerFactory.getLogger(CStoreForward.class);
 
     private final RetrieveContext retrieveCtx;
+    private final AssociationPool associationPool;
     private final IdentityHashMap<Association,CStoreForwardTask> forwardTasks = new IdentityHashMap<>();
 
-    public CStoreForward(RetrieveContext retrieveCtx) {
+    public CStoreForward(RetrieveContext retrieveCtx, AssociationPool associationPool) {
         this.retrieveCtx = retrieveCtx;
+        this.associationPool = associationPool;
     }
 
     public void onStore(StoreContext storeCtx) {
@@ -78,7 +81,7 @@ class CStoreForward {
     private CStoreForwardTask createTask(final Association as) {
         ApplicationEntity localAE = retrieveCtx.getLocalApplicationEntity();
         Association storeas = openAssociation(as, localAE);
-        final CStoreForwardTask task = new CStoreForwardTask(retrieveCtx, storeas);
+        final CStoreForwardTask task = new CStoreForwardTask(retrieveCtx, storeas, associationPool);
         forwardTasks.put(as, task);
         as.addAssociationListener(new AssociationListener() {
             @Override
@@ -100,7 +103,7 @@ class CStoreForward {
                     retrieveCtx.getRequestAssociation(),
                     retrieveCtx.getDestinationAETitle(),
                     as);
-            return localAE.connect(retrieveCtx.getDestinationAE(), createAARQ(as));
+            return associationPool.open(localAE, retrieveCtx.getDestinationAE(), createAARQ(as));
         } catch (Exception e) {
             LOG.warn("{}: failed to open association to {} for forwarding C-STORE-RQ received in association {}:\n",
                     retrieveCtx.getRequestAssociation(),
@@ -42,12 +42,15 @@ package org.dcm4chee.arc.store.scu.impl;
 
 import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
 import org.dcm4chee.arc.store.StoreContext;
 import org.dcm4chee.arc.store.scu.CStoreForwardSCU;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
+import javax.enterprise.inject.Default;
+import javax.inject.Inject;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Map;
@@ -59,11 +62,14 @@ import java.util.Map;
 @ApplicationScoped
 public class CStoreForwardSCUImpl implements CStoreForwardSCU {
 
+    @Inject
+    private AssociationPool associationPool;
+
     private final Map<String,Map<RetrieveContext,CStoreForward>> registry = new HashMap<>();
 
     @Override
     public synchronized void addRetrieveContext(RetrieveContext ctx) {
-        forMoveOriginatorAET(ctx.getMoveOriginatorAETitle()).put(ctx, new CStoreForward(ctx));
+        forMoveOriginatorAET(ctx.getMoveOriginatorAETitle()).put(ctx, new CStoreForward(ctx, associationPool));
     }
 
     private Map<RetrieveContext,CStoreForward> forMoveOriginatorAET(String aet) {
@@ -81,7 +87,7 @@ public class CStoreForwardSCUImpl implements CStoreForwardSCU {
         return map != null && map.remove(ctx) != null;
     }
 
-    public void onStore(@Observes StoreContext storeContext) {
+    public void onStore(@Observes @Default StoreContext storeContext) {
         if (storeContext.getStoredInstance() == null)
             return;
 
@@ -44,6 +44,7 @@ import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.imageio.codec.Transcoder;
 import org.dcm4che3.net.*;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.retrieve.InstanceLocations;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
@@ -69,12 +70,14 @@ class CStoreForwardTask implements Runnable {
     private final RetrieveContext ctx;
     private final Association rqas;
     private final Association storeas;
+    private final AssociationPool associationPool;
     private final LinkedBlockingQueue<WrappedStoreContext> queue = new LinkedBlockingQueue();
 
-    public CStoreForwardTask(RetrieveContext ctx, Association storeas) {
+    public CStoreForwardTask(RetrieveContext ctx, Association storeas, AssociationPool associationPool) {
         this.ctx = ctx;
         this.rqas = ctx.getRequestAssociation();
         this.storeas = storeas;
+        this.associationPool = associationPool;
     }
 
     public void onStore(StoreContext storeContext) {
@@ -104,7 +107,7 @@ class CStoreForwardTask implements Runnable {
 
     private void releaseStoreAssociation() {
         try {
-            storeas.release();
+            associationPool.release(storeas);
         } catch (IOException e) {
             LOG.warn("{}: failed to release association to {}", rqas, storeas.getRemoteAET(), e);
         }
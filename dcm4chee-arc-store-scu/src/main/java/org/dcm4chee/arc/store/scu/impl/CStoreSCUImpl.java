@@ -50,6 +50,8 @@ import org.dcm4che3.net.pdu.AAssociateRQ;
 import org.dcm4che3.net.pdu.PresentationContext;
 import org.dcm4che3.net.service.DicomServiceException;
 import org.dcm4che3.net.service.RetrieveTask;
+import org.dcm4chee.arc.AcceptedTransferSyntaxCache;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.entity.Location;
 import org.dcm4chee.arc.retrieve.InstanceLocations;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
@@ -60,6 +62,8 @@ import org.dcm4chee.arc.store.scu.CStoreSCU;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * @author Gunter Zeilinger <gunterze@gmail.com>
@@ -74,12 +78,23 @@ public class CStoreSCUImpl implements CStoreSCU {
     @Inject @RetrieveEnd
     private Event<RetrieveContext> retrieveEnd;
 
+    @Inject
+    private AssociationPool associationPool;
+
+    @Inject
+    private AcceptedTransferSyntaxCache acceptedTransferSyntaxCache;
+
     private Association openAssociation(RetrieveContext ctx)
             throws DicomServiceException {
         try {
             try {
                 ApplicationEntity localAE = ctx.getLocalApplicationEntity();
-                return localAE.connect(ctx.getDestinationAE(), createAARQ(ctx));
+                String key = acceptedTransferSyntaxCacheKey(ctx);
+                Map<String, Set<String>> accepted = key != null ? acceptedTransferSyntaxCache.get(key) : null;
+                Association as = associationPool.open(localAE, ctx.getDestinationAE(), createAARQ(ctx, accepted));
+                if (key != null)
+                    acceptedTransferSyntaxCache.update(key, as);
+                return as;
             } catch (Exception e) {
                 throw new DicomServiceException(Status.UnableToPerformSubOperations, e);
             }
@@ -90,13 +105,25 @@ public class CStoreSCUImpl implements CStoreSCU {
         }
     }
 
-    private AAssociateRQ createAARQ(RetrieveContext ctx) {
+    private static String acceptedTransferSyntaxCacheKey(RetrieveContext ctx) {
+        return ctx.getArchiveAEExtension().getArchiveDeviceExtension()
+                .getAcceptedTransferSyntaxCacheStaleTimeout() != null
+                ? ctx.getLocalAETitle() + '\\' + ctx.getDestinationAETitle()
+                : null;
+    }
+
+    private AAssociateRQ createAARQ(RetrieveContext ctx, Map<String, Set<String>> accepted) {
         AAssociateRQ aarq = new AAssociateRQ();
         ApplicationEntity localAE = ctx.getLocalApplicationEntity();
         if (!localAE.isMasqueradeCallingAETitle(ctx.getDestinationAETitle()))
             aarq.setCallingAET(ctx.getLocalAETitle());
         for (InstanceLocations inst : ctx.getMatches()) {
             String cuid = inst.getSopClassUID();
+            Set<String> tsuids = accepted != null ? accepted.get(cuid) : null;
+            if (tsuids != null) {
+                addPresentationContextsFor(aarq, cuid, inst, tsuids);
+                continue;
+            }
             if (!aarq.containsPresentationContextFor(cuid)) {
                 aarq.addPresentationContextFor(cuid, UID.ImplicitVRLittleEndian);
                 aarq.addPresentationContextFor(cuid, UID.ExplicitVRLittleEndian);
@@ -111,11 +138,31 @@ public class CStoreSCUImpl implements CStoreSCU {
         return aarq;
     }
 
+    private static void addPresentationContextsFor(AAssociateRQ aarq, String cuid, InstanceLocations inst,
+            Set<String> accepted) {
+        for (Location location : inst.getLocations()) {
+            String tsuid = location.getTransferSyntaxUID();
+            if (accepted.contains(tsuid)) {
+                aarq.addPresentationContextFor(cuid, tsuid);
+                return;
+            }
+        }
+        for (Location location : inst.getLocations())
+            aarq.addPresentationContextFor(cuid, location.getTransferSyntaxUID());
+        if (accepted.contains(UID.ExplicitVRLittleEndian))
+            aarq.addPresentationContextFor(cuid, UID.ExplicitVRLittleEndian);
+        if (accepted.contains(UID.ImplicitVRLittleEndian))
+            aarq.addPresentationContextFor(cuid, UID.ImplicitVRLittleEndian);
+        else if (!accepted.contains(UID.ExplicitVRLittleEndian))
+            for (String tsuid : accepted)
+                aarq.addPresentationContextFor(cuid, tsuid);
+    }
+
     @Override
     public RetrieveTask newRetrieveTaskSTORE(RetrieveContext ctx) throws DicomServiceException {
         Association storeas = openAssociation(ctx);
         ctx.setStoreAssociation(storeas);
-        return new RetrieveTaskImpl(ctx, storeas, retrieveStart, retrieveEnd);
+        return new RetrieveTaskImpl(ctx, storeas, retrieveStart, retrieveEnd, associationPool);
     }
 
     @Override
@@ -124,7 +171,7 @@ public class CStoreSCUImpl implements CStoreSCU {
             throws DicomServiceException {
         Association storeas = openAssociation(ctx);
         ctx.setStoreAssociation(storeas);
-        RetrieveTaskImpl retrieveTask = new RetrieveTaskImpl(ctx, storeas, retrieveStart, retrieveEnd);
+        RetrieveTaskImpl retrieveTask = new RetrieveTaskImpl(ctx, storeas, retrieveStart, retrieveEnd, associationPool);
         retrieveTask.setRequestAssociation(Dimse.C_MOVE_RQ, as, pc, rq);
         return retrieveTask;
     }
@@ -134,7 +181,7 @@ public class CStoreSCUImpl implements CStoreSCU {
             Association as, PresentationContext pc, Attributes rq, RetrieveContext ctx)
             throws DicomServiceException {
         ctx.setStoreAssociation(as);
-        RetrieveTaskImpl retrieveTask = new RetrieveTaskImpl(ctx, as, retrieveStart, retrieveEnd);
+        RetrieveTaskImpl retrieveTask = new RetrieveTaskImpl(ctx, as, retrieveStart, retrieveEnd, associationPool);
         retrieveTask.setRequestAssociation(Dimse.C_GET_RQ, as, pc, rq);
         return retrieveTask;
     }
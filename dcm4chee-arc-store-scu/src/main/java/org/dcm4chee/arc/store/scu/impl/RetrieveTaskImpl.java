@@ -48,6 +48,7 @@ import org.dcm4che3.net.*;
 import org.dcm4che3.net.pdu.PresentationContext;
 import org.dcm4che3.net.service.RetrieveTask;
 import org.dcm4che3.util.SafeClose;
+import org.dcm4chee.arc.AssociationPool;
 import org.dcm4chee.arc.conf.ArchiveAEExtension;
 import org.dcm4chee.arc.conf.Duration;
 import org.dcm4chee.arc.retrieve.InstanceLocations;
@@ -71,6 +72,7 @@ final class RetrieveTaskImpl implements RetrieveTask {
 
     private final Event<RetrieveContext> retrieveStart;
     private final Event<RetrieveContext> retrieveEnd;
+    private final AssociationPool associationPool;
     private final RetrieveContext ctx;
     private final Association storeas;
     private final ArchiveAEExtension aeExt;
@@ -87,9 +89,11 @@ final class RetrieveTaskImpl implements RetrieveTask {
     private volatile boolean canceled;
 
     RetrieveTaskImpl(RetrieveContext ctx, Association storeas,
-                     Event<RetrieveContext> retrieveStart, Event<RetrieveContext> retrieveEnd) {
+                     Event<RetrieveContext> retrieveStart, Event<RetrieveContext> retrieveEnd,
+                     AssociationPool associationPool) {
         this.retrieveStart = retrieveStart;
         this.retrieveEnd = retrieveEnd;
+        this.associationPool = associationPool;
         this.ctx = ctx;
         this.storeas = storeas;
         this.aeExt = ctx.getArchiveAEExtension();
@@ -278,7 +282,7 @@ final class RetrieveTaskImpl implements RetrieveTask {
     protected void releaseStoreAssociation() {
         if (dimserq != Dimse.C_GET_RQ)
             try {
-                storeas.release();
+                associationPool.release(storeas);
             } catch (IOException e) {
                 LOG.warn("{}: failed to release association to {}", rqas, storeas.getRemoteAET(), e);
             }
@@ -1,6 +1,7 @@
 package org.dcm4chee.arc.store;
 
 import org.dcm4che3.data.Attributes;
+import org.dcm4chee.arc.conf.ArchiveCompressionRule;
 import org.dcm4chee.arc.conf.Availability;
 import org.dcm4chee.arc.conf.RejectionNote;
 import org.dcm4chee.arc.entity.Instance;
@@ -20,6 +21,8 @@ public interface StoreContext {
 
     StoreSession getStoreSession();
 
+    String getRemoteHostName();
+
     String getSopClassUID();
 
     void setSopClassUID(String string);
@@ -38,6 +41,10 @@ public interface StoreContext {
 
     void setStoreTranferSyntax(String storeTranferSyntaxUID);
 
+    ArchiveCompressionRule getDeferredCompressionRule();
+
+    void setDeferredCompressionRule(ArchiveCompressionRule deferredCompressionRule);
+
     String getAcceptedStudyInstanceUID();
 
     void setAcceptedStudyInstanceUID(String acceptedStudyInstanceUID);
@@ -78,6 +85,10 @@ public interface StoreContext {
 
     void setPreviousInstance(Instance previousInstance);
 
+    String getPreviousStudyInstanceUID();
+
+    String getPreviousSeriesInstanceUID();
+
     Instance getStoredInstance();
 
     void setStoredInstance(Instance storedInstance);
@@ -0,0 +1,107 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4chee.arc.conf.Duration;
+import org.dcm4chee.arc.entity.Location;
+import org.dcm4chee.arc.entity.Series;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import java.util.List;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@Stateless
+public class CompressionEJB {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionEJB.class);
+
+    @PersistenceContext(unitName="dcm4chee-arc")
+    private EntityManager em;
+
+    public List<Series.Compression> findSeriesForScheduledCompression(int fetchSize) {
+        return em.createNamedQuery(Series.SCHEDULED_COMPRESSION, Series.Compression.class)
+                .setParameter(1, Series.InstancePurgeState.NO)
+                .setMaxResults(fetchSize)
+                .getResultList();
+    }
+
+    public List<Location> findLocationsOfSeries(Long seriesPk) {
+        return em.createNamedQuery(Location.FIND_NOT_MULTI_REFERENCED_BY_SERIES_PK, Location.class)
+                .setParameter(1, seriesPk)
+                .setParameter(2, Location.ObjectType.DICOM_FILE)
+                .setParameter(3, Location.Status.OK)
+                .getResultList();
+    }
+
+    public boolean replaceLocation(Long prevLocationPk, Location location) {
+        Location prev = em.find(Location.class, prevLocationPk);
+        if (prev == null || prev.getInstance() == null || prev.getStatus() != Location.Status.OK) {
+            LOG.info("Instance of {} was deleted or modified during compression", prev);
+            return false;
+        }
+        location.setInstance(prev.getInstance());
+        em.persist(location);
+        prev.setInstance(null);
+        prev.setStatus(Location.Status.TO_DELETE);
+        LOG.info("Replace {} by {}", prev, location);
+        return true;
+    }
+
+    public void onCompressionCompleted(Series.Compression compression, boolean updated, Duration metadataDelay) {
+        em.createNamedQuery(Series.CLEAR_COMPRESSION_TIME)
+                .setParameter(1, compression.seriesPk)
+                .setParameter(2, compression.compressionTime, TemporalType.TIMESTAMP)
+                .executeUpdate();
+        if (updated) {
+            Series series = em.find(Series.class, compression.seriesPk);
+            if (series != null && series.getMetadata() != null)
+                series.scheduleMetadataUpdate(metadataDelay);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.imageio.codec.ImageDescriptor;
+import org.dcm4che3.imageio.codec.Transcoder;
+import org.dcm4che3.imageio.codec.TransferSyntaxType;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.util.Property;
+import org.dcm4che3.util.StreamUtils;
+import org.dcm4che3.util.StringUtils;
+import org.dcm4chee.arc.Scheduler;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.Duration;
+import org.dcm4chee.arc.conf.ScheduleExpression;
+import org.dcm4chee.arc.entity.Location;
+import org.dcm4chee.arc.entity.Series;
+import org.dcm4chee.arc.storage.ReadContext;
+import org.dcm4chee.arc.storage.Storage;
+import org.dcm4chee.arc.storage.StorageFactory;
+import org.dcm4chee.arc.storage.WriteContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class CompressionScheduler extends Scheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CompressionScheduler.class);
+
+    @Inject
+    private Device device;
+
+    @Inject
+    private CompressionEJB ejb;
+
+    @Inject
+    private StorageFactory storageFactory;
+
+    protected CompressionScheduler() {
+        super(Mode.scheduleWithFixedDelay);
+    }
+
+    @Override
+    protected Logger log() {
+        return LOG;
+    }
+
+    @Override
+    protected Duration getPollingInterval() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        return arcDev.getCompressionPollingInterval();
+    }
+
+    @Override
+    protected void execute() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        int fetchSize = arcDev.getCompressionFetchSize();
+        List<Series.Compression> compressions;
+        do {
+            if (getPollingInterval() == null || !inSchedule(arcDev.getCompressionSchedules()))
+                return;
+
+            compressions = ejb.findSeriesForScheduledCompression(fetchSize);
+            for (Series.Compression compression : compressions) {
+                if (getPollingInterval() == null || !inSchedule(arcDev.getCompressionSchedules()))
+                    return;
+
+                try {
+                    compress(arcDev, compression);
+                } catch (InterruptedException e) {
+                    LOG.info("Interrupted compression of Series[uid={}]", compression.seriesInstanceUID);
+                    return;
+                } catch (Exception e) {
+                    LOG.warn("Failed to compress Series[uid={}]:\n", compression.seriesInstanceUID, e);
+                }
+            }
+        } while (compressions.size() == fetchSize);
+    }
+
+    private static boolean inSchedule(ScheduleExpression[] schedules) {
+        Calendar now = Calendar.getInstance();
+        return ScheduleExpression.ceil(now, schedules).compareTo(now) <= 0;
+    }
+
+    private void compress(ArchiveDeviceExtension arcDev, Series.Compression compression)
+            throws InterruptedException {
+        List<Compress> compresses = new ArrayList<>();
+        for (Location location : ejb.findLocationsOfSeries(compression.seriesPk)) {
+            if (isUncompressed(location.getTransferSyntaxUID()))
+                compresses.add(new Compress(compression, location));
+        }
+        Map<String, Storage> storageMap = new HashMap<>();
+        try {
+            for (Compress compress : compresses) {
+                String storageID = compress.location.getStorageID();
+                if (!storageMap.containsKey(storageID))
+                    storageMap.put(storageID,
+                            storageFactory.getUncachedStorage(arcDev.getStorageDescriptorNotNull(storageID)));
+            }
+            compressConcurrently(compresses, storageMap, arcDev.getCompressionThreads());
+        } finally {
+            for (Storage storage : storageMap.values())
+                try {
+                    storage.close();
+                } catch (IOException e) {
+                    LOG.warn("Failed to close {}:\n", storage, e);
+                }
+        }
+        int compressed = 0;
+        int failed = 0;
+        for (Compress compress : compresses) {
+            if (compress.exception != null)
+                failed++;
+            else if (compress.replaced)
+                compressed++;
+        }
+        ejb.onCompressionCompleted(compression, compressed > 0, arcDev.getSeriesMetadataDelay());
+        if (failed > 0)
+            LOG.warn("Compressed {} of {} objects of Series[uid={}] to {} - failed: {}",
+                    compressed, compresses.size(), compression.seriesInstanceUID, compression.transferSyntaxUID,
+                    failed);
+        else
+            LOG.info("Compressed {} of {} objects of Series[uid={}] to {}",
+                    compressed, compresses.size(), compression.seriesInstanceUID, compression.transferSyntaxUID);
+    }
+
+    private static boolean isUncompressed(String tsuid) {
+        return tsuid != null && TransferSyntaxType.forUID(tsuid) == TransferSyntaxType.NATIVE;
+    }
+
+    private void compressConcurrently(List<Compress> compresses, final Map<String, Storage> storageMap, int threads)
+            throws InterruptedException {
+        final Semaphore semaphore = new Semaphore(threads);
+        final CountDownLatch latch = new CountDownLatch(compresses.size());
+        for (final Compress compress : compresses) {
+            semaphore.acquire();
+            try {
+                device.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            compress.run(storageMap.get(compress.location.getStorageID()));
+                        } finally {
+                            semaphore.release();
+                            latch.countDown();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                compress.exception = e;
+                semaphore.release();
+                latch.countDown();
+            }
+        }
+        latch.await();
+    }
+
+    private final class Compress {
+        final Series.Compression compression;
+        final Location location;
+        boolean replaced;
+        Exception exception;
+
+        Compress(Series.Compression compression, Location location) {
+            this.compression = compression;
+            this.location = location;
+        }
+
+        void run(Storage storage) {
+            try {
+                WriteContext writeCtx = transcode(storage);
+                if (writeCtx == null)
+                    return;
+
+                try {
+                    verify(storage, writeCtx);
+                    storage.commitStorage(writeCtx);
+                    replaced = ejb.replaceLocation(location.getPk(), createLocation(writeCtx));
+                } catch (Exception e) {
+                    storage.revokeStorage(writeCtx);
+                    throw e;
+                }
+                if (!replaced)
+                    storage.revokeStorage(writeCtx);
+            } catch (Exception e) {
+                exception = e;
+                LOG.warn("Failed to compress {}:\n", location, e);
+            }
+        }
+
+        private WriteContext transcode(final Storage storage) throws IOException {
+            ReadContext readCtx = storage.createReadContext();
+            readCtx.setStoragePath(location.getStoragePath());
+            readCtx.setStudyInstanceUID(compression.studyInstanceUID);
+            final WriteContext[] writeCtx = new WriteContext[1];
+            try (InputStream in = storage.openInputStream(readCtx);
+                 Transcoder transcoder = new Transcoder(in)) {
+                transcoder.setIncludeFileMetaInformation(true);
+                transcoder.transcode(new Transcoder.Handler() {
+                    @Override
+                    public OutputStream newOutputStream(Transcoder transcoder, Attributes dataset) throws IOException {
+                        if (!isCompressible(transcoder, dataset))
+                            throw new NotCompressible();
+
+                        transcoder.setDestinationTransferSyntax(compression.transferSyntaxUID);
+                        transcoder.setCompressParams(imageWriteParams());
+                        writeCtx[0] = storage.createWriteContext();
+                        writeCtx[0].setAttributes(dataset);
+                        writeCtx[0].setStudyInstanceUID(compression.studyInstanceUID);
+                        writeCtx[0].setMessageDigest(storage.getStorageDescriptor().getMessageDigest());
+                        return storage.openOutputStream(writeCtx[0]);
+                    }
+                });
+            } catch (NotCompressible e) {
+                LOG.debug("Skip compression of {}", location);
+                return null;
+            } catch (IOException | RuntimeException e) {
+                if (writeCtx[0] != null)
+                    storage.revokeStorage(writeCtx[0]);
+                throw e;
+            }
+            return writeCtx[0];
+        }
+
+        private boolean isCompressible(Transcoder transcoder, Attributes dataset) {
+            ImageDescriptor imageDescriptor = transcoder.getImageDescriptor();
+            return imageDescriptor != null
+                    && transcoder.getSourceTransferSyntaxType() == TransferSyntaxType.NATIVE
+                    && !imageDescriptor.isMultiframeWithEmbeddedOverlays()
+                    && location.getInstance().getSopInstanceUID().equals(dataset.getString(Tag.SOPInstanceUID));
+        }
+
+        private Property[] imageWriteParams() {
+            return compression.imageWriteParams != null
+                    ? Property.valueOf(StringUtils.split(compression.imageWriteParams, '\\'))
+                    : new Property[0];
+        }
+
+        private void verify(Storage storage, WriteContext writeCtx) throws IOException {
+            ReadContext readCtx = storage.createReadContext();
+            readCtx.setStoragePath(writeCtx.getStoragePath());
+            readCtx.setStudyInstanceUID(compression.studyInstanceUID);
+            readCtx.setMessageDigest(storage.getStorageDescriptor().getMessageDigest());
+            Attributes fmi;
+            Attributes dataset;
+            boolean pixelData;
+            try (DicomInputStream dis = new DicomInputStream(storage.openInputStream(readCtx))) {
+                fmi = dis.readFileMetaInformation();
+                dataset = dis.readDataset(-1, Tag.PixelData);
+                pixelData = dis.tag() == Tag.PixelData;
+                StreamUtils.copy(dis, null);
+            }
+            if (fmi == null || !compression.transferSyntaxUID.equals(fmi.getString(Tag.TransferSyntaxUID)))
+                throw new IOException("Transfer Syntax of compressed object does not match "
+                        + compression.transferSyntaxUID);
+            if (!location.getInstance().getSopInstanceUID().equals(dataset.getString(Tag.SOPInstanceUID)))
+                throw new IOException("SOP Instance UID of compressed object does not match");
+            if (!pixelData)
+                throw new IOException("Missing Pixel Data in compressed object");
+            if (readCtx.getSize() != writeCtx.getSize())
+                throw new IOException("Size of compressed object " + readCtx.getSize()
+                        + " does not match written size " + writeCtx.getSize());
+            if (writeCtx.getDigest() != null && !Arrays.equals(readCtx.getDigest(), writeCtx.getDigest()))
+                throw new IOException("Digest of compressed object does not match digest of written object");
+        }
+
+        private Location createLocation(WriteContext writeCtx) {
+            return new Location.Builder()
+                    .storageID(location.getStorageID())
+                    .storagePath(writeCtx.getStoragePath())
+                    .transferSyntaxUID(compression.transferSyntaxUID)
+                    .objectType(Location.ObjectType.DICOM_FILE)
+                    .size(writeCtx.getSize())
+                    .digest(writeCtx.getDigest())
+                    .build();
+        }
+    }
+
+    private static class NotCompressible extends IOException {
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.store.PostStore;
+import org.dcm4chee.arc.store.PostStoreEventDispatcher;
+import org.dcm4chee.arc.store.StoreContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Event;
+import javax.inject.Inject;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+class PostStoreEventDispatcherImpl implements PostStoreEventDispatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostStoreEventDispatcherImpl.class);
+
+    @Inject
+    private Device device;
+
+    @Inject @PostStore
+    private Event<StoreContext> postStoreEvent;
+
+    @Resource
+    private ManagedExecutorService executor;
+
+    private final Object lock = new Object();
+    private final Map<String, ArrayDeque<StoreContext>> pendingByStudy = new HashMap<>();
+    private final ArrayDeque<String> readyStudies = new ArrayDeque<>();
+    private int queueSize;
+    private int activeThreads;
+
+    private final AtomicLong dispatched = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong blocked = new AtomicLong();
+    private final AtomicLong blockedTimeMillis = new AtomicLong();
+
+    @Override
+    public void dispatch(StoreContext ctx) {
+        dispatched.getAndIncrement();
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        int maxThreads = arcDev.getPostStoreEventMaxThreads();
+        if (maxThreads == 0) {
+            fire(ctx);
+            return;
+        }
+        String studyIUID = studyIUIDOf(ctx);
+        boolean startThread = false;
+        synchronized (lock) {
+            if (queueSize >= arcDev.getPostStoreEventMaxQueueSize()) {
+                if (!awaitQueueSpace(arcDev.getPostStoreEventMaxQueueSize())) {
+                    fire(ctx);
+                    return;
+                }
+            }
+            ArrayDeque<StoreContext> queue = pendingByStudy.get(studyIUID);
+            if (queue == null) {
+                pendingByStudy.put(studyIUID, queue = new ArrayDeque<>());
+                readyStudies.add(studyIUID);
+            }
+            queue.add(ctx);
+            queueSize++;
+            if (activeThreads < maxThreads && !readyStudies.isEmpty()) {
+                activeThreads++;
+                startThread = true;
+            }
+        }
+        if (startThread)
+            startThread();
+    }
+
+    private void startThread() {
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Failed to start thread for processing post store events - process by storing thread:\n", e);
+            drain();
+        }
+    }
+
+    private boolean awaitQueueSpace(int maxQueueSize) {
+        blocked.getAndIncrement();
+        long start = System.currentTimeMillis();
+        try {
+            while (queueSize >= maxQueueSize)
+                lock.wait();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            blockedTimeMillis.getAndAdd(System.currentTimeMillis() - start);
+        }
+    }
+
+    private void drain() {
+        boolean terminated = false;
+        try {
+            String studyIUID;
+            while ((studyIUID = nextStudy()) != null) {
+                StoreContext ctx;
+                synchronized (lock) {
+                    ctx = pendingByStudy.get(studyIUID).poll();
+                    queueSize--;
+                    lock.notifyAll();
+                }
+                try {
+                    fire(ctx);
+                } finally {
+                    release(studyIUID);
+                }
+            }
+            terminated = true;
+        } finally {
+            if (!terminated)
+                replaceThread();
+        }
+    }
+
+    private void release(String studyIUID) {
+        synchronized (lock) {
+            if (pendingByStudy.get(studyIUID).isEmpty())
+                pendingByStudy.remove(studyIUID);
+            else
+                readyStudies.add(studyIUID);
+        }
+    }
+
+    private void replaceThread() {
+        synchronized (lock) {
+            if (readyStudies.isEmpty()) {
+                activeThreads--;
+                return;
+            }
+        }
+        try {
+            executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            LOG.warn("Failed to start thread for processing remaining post store events:\n", e);
+            synchronized (lock) {
+                activeThreads--;
+            }
+        }
+    }
+
+    private String nextStudy() {
+        synchronized (lock) {
+            String studyIUID = readyStudies.poll();
+            if (studyIUID == null)
+                activeThreads--;
+            return studyIUID;
+        }
+    }
+
+    private void fire(StoreContext ctx) {
+        boolean success = false;
+        try {
+            postStoreEvent.fire(ctx);
+            success = true;
+        } catch (Exception e) {
+            LOG.warn("{}: Failed to process post store event:\n", ctx, e);
+        } finally {
+            (success ? completed : failed).getAndIncrement();
+        }
+    }
+
+    private static String studyIUIDOf(StoreContext ctx) {
+        String studyIUID = ctx.getStudyInstanceUID();
+        return studyIUID != null ? studyIUID : ctx.getSopInstanceUID();
+    }
+
+    @Override
+    public int getQueueSize() {
+        synchronized (lock) {
+            return queueSize;
+        }
+    }
+
+    @Override
+    public int getActiveThreads() {
+        synchronized (lock) {
+            return activeThreads;
+        }
+    }
+
+    @Override
+    public long getDispatched() {
+        return dispatched.get();
+    }
+
+    @Override
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    @Override
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public long getBlocked() {
+        return blocked.get();
+    }
+
+    @Override
+    public long getBlockedTimeMillis() {
+        return blockedTimeMillis.get();
+    }
+}
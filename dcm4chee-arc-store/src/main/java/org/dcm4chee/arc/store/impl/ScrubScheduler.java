@@ -0,0 +1,283 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.Scheduler;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.Duration;
+import org.dcm4chee.arc.conf.ScheduleExpression;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.entity.Location;
+import org.dcm4chee.arc.storage.ReadContext;
+import org.dcm4chee.arc.storage.Storage;
+import org.dcm4chee.arc.storage.StorageFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.NoSuchFileException;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Verifies objects on Storages with configured Scrub Interval by reading them and comparing their size and digest
+ * with the values recorded when the object was stored. Mismatches are recorded by the status of the Location.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class ScrubScheduler extends Scheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScrubScheduler.class);
+
+    private static final int BUFFER_SIZE = 8192;
+
+    @Inject
+    private Device device;
+
+    @Inject
+    private ScrubEJB ejb;
+
+    @Inject
+    private StorageFactory storageFactory;
+
+    protected ScrubScheduler() {
+        super(Mode.scheduleWithFixedDelay);
+    }
+
+    @Override
+    protected Logger log() {
+        return LOG;
+    }
+
+    @Override
+    protected Duration getPollingInterval() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        return arcDev.getScrubPollingInterval();
+    }
+
+    @Override
+    protected void execute() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        int maxBytesPerSecond = arcDev.getScrubMaxBytesPerSecond();
+        Throttle throttle = maxBytesPerSecond > 0 ? new Throttle(maxBytesPerSecond) : null;
+        for (StorageDescriptor desc : arcDev.getStorageDescriptors()) {
+            if (getPollingInterval() == null || !inSchedule(arcDev.getScrubSchedules()))
+                return;
+
+            if (desc.getScrubInterval() == null)
+                continue;
+
+            try {
+                scrub(arcDev, desc, throttle);
+            } catch (InterruptedException e) {
+                LOG.info("Interrupted verification of objects on {}", desc);
+                return;
+            } catch (Exception e) {
+                LOG.warn("Failed to verify objects on {}:\n", desc, e);
+            }
+        }
+    }
+
+    private static boolean inSchedule(ScheduleExpression[] schedules) {
+        Calendar now = Calendar.getInstance();
+        return ScheduleExpression.ceil(now, schedules).compareTo(now) <= 0;
+    }
+
+    private void scrub(ArchiveDeviceExtension arcDev, StorageDescriptor desc, Throttle throttle)
+            throws InterruptedException {
+        Date verifiedBefore = new Date(System.currentTimeMillis() - desc.getScrubInterval().getSeconds() * 1000L);
+        int fetchSize = arcDev.getScrubFetchSize();
+        int verified = 0;
+        int mismatches = 0;
+        Storage storage = storageFactory.getUncachedStorage(desc);
+        try {
+            List<Location> locations;
+            do {
+                if (getPollingInterval() == null || !inSchedule(arcDev.getScrubSchedules()))
+                    return;
+
+                locations = ejb.findLocationsVerifiedBefore(desc.getStorageID(), verifiedBefore, fetchSize);
+                List<Verify> verifies = new ArrayList<>(locations.size());
+                for (Location location : locations)
+                    verifies.add(new Verify(location));
+                verifyConcurrently(verifies, storage, throttle, arcDev);
+                List<Long> verifiedPks = new ArrayList<>(verifies.size());
+                Verify failed = null;
+                for (Verify verify : verifies) {
+                    if (verify.exception != null) {
+                        failed = verify;
+                    } else if (verify.status != null) {
+                        verifiedPks.add(verify.location.getPk());
+                        if (verify.status != Location.Status.OK
+                                && ejb.updateStatus(verify.location.getPk(), verify.status)) {
+                            mismatches++;
+                            LOG.warn("Verification of {} on {} failed: {}", verify.location, desc, verify.status);
+                        }
+                    }
+                }
+                ejb.updateVerifiedTime(verifiedPks, new Date());
+                verified += verifiedPks.size();
+                if (failed != null) {
+                    LOG.warn("Abort verification of objects on {} - failed to read {}:\n",
+                            desc, failed.location, failed.exception);
+                    return;
+                }
+                if (verifiedPks.size() < verifies.size())
+                    return;
+            } while (locations.size() == fetchSize);
+        } finally {
+            try {
+                storage.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close {}:\n", storage, e);
+            }
+            if (mismatches > 0)
+                LOG.warn("Verified {} objects on {} - mismatches: {}", verified, desc, mismatches);
+            else if (verified > 0)
+                LOG.info("Verified {} objects on {}", verified, desc);
+        }
+    }
+
+    private void verifyConcurrently(List<Verify> verifies, final Storage storage, final Throttle throttle,
+                                    ArchiveDeviceExtension arcDev) throws InterruptedException {
+        final Semaphore semaphore = new Semaphore(arcDev.getScrubThreads());
+        final CountDownLatch latch = new CountDownLatch(verifies.size());
+        for (final Verify verify : verifies) {
+            if (getPollingInterval() == null || !inSchedule(arcDev.getScrubSchedules())) {
+                latch.countDown();
+                continue;
+            }
+            semaphore.acquire();
+            try {
+                device.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            verify.run(storage, throttle);
+                        } finally {
+                            semaphore.release();
+                            latch.countDown();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                verify.exception = e;
+                semaphore.release();
+                latch.countDown();
+            }
+        }
+        latch.await();
+    }
+
+    private static final class Verify {
+        final Location location;
+        Location.Status status;
+        Exception exception;
+
+        Verify(Location location) {
+            this.location = location;
+        }
+
+        void run(Storage storage, Throttle throttle) {
+            ReadContext readContext = storage.createReadContext();
+            readContext.setStoragePath(location.getStoragePath());
+            if (location.getDigest() != null)
+                readContext.setMessageDigest(storage.getStorageDescriptor().getMessageDigest());
+            byte[] buffer = new byte[BUFFER_SIZE];
+            try (InputStream in = storage.openInputStream(readContext)) {
+                int read;
+                while ((read = in.read(buffer)) > 0)
+                    if (throttle != null)
+                        throttle.acquire(read);
+            } catch (NoSuchFileException | FileNotFoundException e) {
+                status = Location.Status.MISSING_OBJECT;
+                return;
+            } catch (IOException | RuntimeException e) {
+                exception = e;
+                return;
+            }
+            status = readContext.getSize() != location.getSize()
+                    ? Location.Status.DIFFERING_OBJECT_SIZE
+                    : readContext.getDigest() != null && !Arrays.equals(readContext.getDigest(), location.getDigest())
+                    ? Location.Status.DIFFERING_OBJECT_CHECKSUM
+                    : Location.Status.OK;
+        }
+    }
+
+    /**
+     * Limits the number of bytes read per second by all concurrent verifications.
+     */
+    private static final class Throttle {
+        private final long bytesPerSecond;
+        private long next = System.nanoTime();
+
+        Throttle(long bytesPerSecond) {
+            this.bytesPerSecond = bytesPerSecond;
+        }
+
+        void acquire(int bytes) throws InterruptedIOException {
+            long delay;
+            synchronized (this) {
+                long now = System.nanoTime();
+                if (next < now)
+                    next = now;
+                delay = next - now;
+                next += bytes * 1000000000L / bytesPerSecond;
+            }
+            if (delay > 0)
+                try {
+                    TimeUnit.NANOSECONDS.sleep(delay);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+        }
+    }
+}
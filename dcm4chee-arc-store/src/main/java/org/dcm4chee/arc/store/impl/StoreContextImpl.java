@@ -44,10 +44,13 @@ import org.dcm4che3.data.Attributes;
 import org.dcm4che3.data.Tag;
 import org.dcm4che3.data.UID;
 import org.dcm4che3.util.StringUtils;
+import org.dcm4chee.arc.conf.ArchiveCompressionRule;
 import org.dcm4chee.arc.conf.Availability;
 import org.dcm4chee.arc.conf.RejectionNote;
 import org.dcm4chee.arc.entity.Instance;
 import org.dcm4chee.arc.entity.Location;
+import org.dcm4chee.arc.entity.Series;
+import org.dcm4chee.arc.entity.Study;
 import org.dcm4chee.arc.storage.WriteContext;
 import org.dcm4chee.arc.store.StoreContext;
 import org.dcm4chee.arc.store.StoreSession;
@@ -66,10 +69,12 @@ import java.util.List;
 class StoreContextImpl implements StoreContext {
 
     private final StoreSession storeSession;
+    private final String remoteHostName;
     private String sopClassUID;
     private String sopInstanceUID;
     private String receiveTranferSyntaxUID;
     private String storeTranferSyntaxUID;
+    private ArchiveCompressionRule deferredCompressionRule;
     private String acceptedStudyInstanceUID;
     private int moveOriginatorMessageID;
     private String moveOriginatorAETitle;
@@ -83,6 +88,12 @@ class StoreContextImpl implements StoreContext {
     private RejectionNote rejectionNote;
     private Instance previousInstance;
     private Instance storedInstance;
+    private String previousStudyInstanceUID;
+    private String previousSeriesInstanceUID;
+    private long previousStudyPk;
+    private long previousSeriesPk;
+    private long storedStudyPk;
+    private long storedSeriesPk;
     private Exception exception;
     private final List<Location> locations = new ArrayList<>();
     private String[] retrieveAETs;
@@ -92,6 +103,7 @@ class StoreContextImpl implements StoreContext {
 
     public StoreContextImpl(StoreSession storeSession) {
         this.storeSession = storeSession;
+        this.remoteHostName = storeSession.getRemoteHostName();
     }
 
     @Override
@@ -99,6 +111,11 @@ class StoreContextImpl implements StoreContext {
         return storeSession;
     }
 
+    @Override
+    public String getRemoteHostName() {
+        return remoteHostName;
+    }
+
     @Override
     public String getSopClassUID() {
         return sopClassUID;
@@ -155,6 +172,16 @@ class StoreContextImpl implements StoreContext {
         this.storeTranferSyntaxUID = storeTranferSyntaxUID;
     }
 
+    @Override
+    public ArchiveCompressionRule getDeferredCompressionRule() {
+        return deferredCompressionRule;
+    }
+
+    @Override
+    public void setDeferredCompressionRule(ArchiveCompressionRule deferredCompressionRule) {
+        this.deferredCompressionRule = deferredCompressionRule;
+    }
+
     @Override
     public String getAcceptedStudyInstanceUID() {
         return acceptedStudyInstanceUID;
@@ -253,6 +280,24 @@ class StoreContextImpl implements StoreContext {
     @Override
     public void setPreviousInstance(Instance previousInstance) {
         this.previousInstance = previousInstance;
+        if (previousInstance != null) {
+            Series series = previousInstance.getSeries();
+            Study study = series.getStudy();
+            this.previousSeriesInstanceUID = series.getSeriesInstanceUID();
+            this.previousStudyInstanceUID = study.getStudyInstanceUID();
+            this.previousSeriesPk = series.getPk();
+            this.previousStudyPk = study.getPk();
+        }
+    }
+
+    @Override
+    public String getPreviousStudyInstanceUID() {
+        return previousStudyInstanceUID;
+    }
+
+    @Override
+    public String getPreviousSeriesInstanceUID() {
+        return previousSeriesInstanceUID;
     }
 
     @Override
@@ -263,6 +308,11 @@ class StoreContextImpl implements StoreContext {
     @Override
     public void setStoredInstance(Instance storedInstance) {
         this.storedInstance = storedInstance;
+        if (storedInstance != null) {
+            Series series = storedInstance.getSeries();
+            this.storedSeriesPk = series.getPk();
+            this.storedStudyPk = series.getStudy().getPk();
+        }
     }
 
     @Override
@@ -314,14 +364,12 @@ class StoreContextImpl implements StoreContext {
 
     @Override
     public boolean isPreviousDifferentStudy() {
-        return previousInstance != null
-                && previousInstance.getSeries().getStudy().getPk() != storedInstance.getSeries().getStudy().getPk();
+        return previousInstance != null && previousStudyPk != storedStudyPk;
     }
 
     @Override
     public boolean isPreviousDifferentSeries() {
-        return previousInstance != null
-                && previousInstance.getSeries().getPk() != storedInstance.getSeries().getPk();
+        return previousInstance != null && previousSeriesPk != storedSeriesPk;
     }
 
     @Override
@@ -48,8 +48,10 @@ import org.dcm4che3.net.Status;
 import org.dcm4che3.net.service.DicomServiceException;
 import org.dcm4che3.soundex.FuzzyStr;
 import org.dcm4che3.util.AttributesFormat;
+import org.dcm4che3.util.Property;
 import org.dcm4che3.util.StringUtils;
 import org.dcm4che3.util.TagUtils;
+import org.dcm4chee.arc.HttpClientPool;
 import org.dcm4chee.arc.MergeMWLQueryParam;
 import org.dcm4chee.arc.StorePermission;
 import org.dcm4chee.arc.StorePermissionCache;
@@ -72,11 +74,12 @@ import javax.ejb.Stateless;
 import javax.inject.Inject;
 import javax.json.Json;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
 import javax.servlet.http.HttpServletRequest;
-import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Client;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
@@ -121,6 +124,9 @@ public class StoreServiceEJB {
     @Inject
     private StorePermissionCache storePermissionCache;
 
+    @Inject
+    private HttpClientPool httpClientPool;
+
     @Inject
     private IDService idService;
 
@@ -142,7 +148,7 @@ public class StoreServiceEJB {
                     logInfo(IGNORE, ctx);
                     return result;
                 }
-                prevStudy.addStorageID(arcAE.storageID());
+                prevStudy.addStorageID(storageID(ctx));
                 prevStudy.updateAccessTime(arcDev.getMaxAccessTimeStaleness());
                 createLocation(ctx, prevInstance, result, Location.ObjectType.DICOM_FILE);
                 result.setStoredInstance(prevInstance);
@@ -186,6 +192,7 @@ public class StoreServiceEJB {
                     result.setStoredInstance(prevInstance);
                     deleteQueryAttributes(prevInstance);
                     prevSeries.scheduleMetadataUpdate(arcAE.seriesMetadataDelay());
+                    prevSeries.discardPreviews();
                     prevStudy.setExternalRetrieveAET("*");
                     prevStudy.updateAccessTime(arcDev.getMaxAccessTimeStaleness());
                     logInfo(REVOKE_REJECTION, ctx, rjNote.getRejectionNoteCode());
@@ -223,6 +230,8 @@ public class StoreServiceEJB {
         deleteQueryAttributes(instance);
         Series series = instance.getSeries();
         series.scheduleMetadataUpdate(arcAE.seriesMetadataDelay());
+        scheduleCompression(ctx, series);
+        series.discardPreviews();
         if(rjNote == null) {
             updateSeriesRejectionState(ctx, series);
             if (series.getRejectionState() == RejectionState.NONE) {
@@ -235,6 +244,20 @@ public class StoreServiceEJB {
         return result;
     }
 
+    private void scheduleCompression(StoreContext ctx, Series series) {
+        ArchiveCompressionRule rule = ctx.getDeferredCompressionRule();
+        if (rule == null || !ctx.getLocations().isEmpty())
+            return;
+
+        Property[] imageWriteParams = rule.getImageWriteParams();
+        String[] ss = new String[imageWriteParams.length];
+        for (int i = 0; i < ss.length; i++)
+            ss[i] = imageWriteParams[i].toString();
+        series.scheduleCompression(rule.getDelay(), rule.getTransferSyntax(),
+                ss.length > 0 ? StringUtils.concat(ss, '\\') : null);
+        LOG.debug("{}: Schedule compression of {} by {}", ctx.getStoreSession(), series, rule);
+    }
+
     public void restoreInstances(StoreSession session, String studyUID, String seriesUID) throws DicomServiceException {
         List<Series> resultList = (seriesUID == null
                 ? em.createNamedQuery(Series.FIND_SERIES_OF_STUDY_BY_INSTANCE_PURGE_STATE, Series.class)
@@ -317,6 +340,7 @@ public class StoreServiceEJB {
                         series.setExpirationDate(null);
                     deleteSeriesQueryAttributes(series);
                     series.scheduleMetadataUpdate(seriesMetadataDelay);
+                    series.discardPreviews();
                     series.setInstancePurgeTime(null);
                 }
             }
@@ -434,6 +458,8 @@ public class StoreServiceEJB {
     }
 
     public void removeOrMarkToDelete(Location location) {
+        if (location.getObjectType() == Location.ObjectType.DICOM_FILE)
+            em.refresh(location, LockModeType.PESSIMISTIC_WRITE); // serialize with referenceDuplicate
         if (countLocationsByMultiRef(location.getMultiReference()) > 1) {
             em.remove(location);
         } else {
@@ -475,8 +501,10 @@ public class StoreServiceEJB {
             deleteQueryAttributes(instance);
             if (deleteSeriesIfEmpty(series, ctx))
                 deleteStudyIfEmpty(study, ctx);
-            else
+            else {
                 series.scheduleMetadataUpdate(ctx.getStoreSession().getArchiveAEExtension().seriesMetadataDelay());
+                series.discardPreviews();
+            }
         }
     }
 
@@ -499,6 +527,7 @@ public class StoreServiceEJB {
             return false;
 
         LOG.info("{}: Delete {}", ctx.getStoreSession(), series);
+        series.discardPreviews();
         em.remove(series);
         return true;
     }
@@ -792,7 +821,7 @@ public class StoreServiceEJB {
                 study = em.createNamedQuery(Study.FIND_BY_STUDY_IUID_EAGER, Study.class)
                         .setParameter(1, ctx.getStudyInstanceUID())
                         .getSingleResult();
-                study.addStorageID(arcAE.storageID());
+                study.addStorageID(storageID(ctx));
                 study.updateAccessTime(arcDev.getMaxAccessTimeStaleness());
                 if (result.getRejectionNote() == null)
                     updateStudyRejectionState(ctx, study);
@@ -896,7 +925,7 @@ public class StoreServiceEJB {
         StoreSession session = ctx.getStoreSession();
         ArchiveAEExtension arcAE = session.getArchiveAEExtension();
         Study study = new Study();
-        study.addStorageID(arcAE.storageID());
+        study.addStorageID(storageID(ctx));
         study.setAccessControlID(arcAE.storeAccessControlID(
                 session.getRemoteHostName(), session.getCallingAET(), session.getCalledAET(), ctx.getAttributes()));
         study.setCompleteness(Completeness.COMPLETE);
@@ -937,30 +966,37 @@ public class StoreServiceEJB {
         LOG.info("{}: Query Store Permission Service {}", session, urlspec);
         LocalDate expirationDate = null;
         DicomServiceException exception = null;
+        Client client = httpClientPool.getClient();
         try {
-            WebTarget target = ClientBuilder.newBuilder().build().target(urlspec);
+            WebTarget target = client.target(urlspec);
             Response resp = target.request().get();
-            Pattern responsePattern = session.getArchiveAEExtension().storePermissionServiceResponsePattern();
-            switch (resp.getStatus()) {
-                case 200:
-                    String responseContent = resp.readEntity(String.class);
-                    LOG.debug("{}: Store Permission Service {} response:\n{}", session, urlspec, responseContent);
-                    if (responsePattern == null || responsePattern.matcher(responseContent).find() )
-                        expirationDate = selectExpirationDate(session, urlspec, responseContent);
-                    else
-                        exception = selectErrorCodeComment(session, urlspec, responseContent);
-                    break;
-                case 204:
-                    if (responsePattern == null)
+            try {
+                Pattern responsePattern = session.getArchiveAEExtension().storePermissionServiceResponsePattern();
+                switch (resp.getStatus()) {
+                    case 200:
+                        String responseContent = resp.readEntity(String.class);
+                        LOG.debug("{}: Store Permission Service {} response:\n{}", session, urlspec, responseContent);
+                        if (responsePattern == null || responsePattern.matcher(responseContent).find() )
+                            expirationDate = selectExpirationDate(session, urlspec, responseContent);
+                        else
+                            exception = selectErrorCodeComment(session, urlspec, responseContent);
+                        break;
+                    case 204:
+                        if (responsePattern == null)
+                            break;
+                    default:
+                        exception = new DicomServiceException(Status.NotAuthorized, StoreService.NOT_AUTHORIZED);
                         break;
-                default:
-                    exception = new DicomServiceException(Status.NotAuthorized, StoreService.NOT_AUTHORIZED);
-                    break;
+                }
+            } finally {
+                resp.close();
             }
         } catch (Exception e) {
             LOG.warn("{}: Failed to query Store Permission Service {}:\n", session, urlspec, e);
             throw new DicomServiceException(Status.ProcessingFailure,
                     StoreService.FAILED_TO_QUERY_STORE_PERMISSION_SERVICE);
+        } finally {
+            httpClientPool.release(client);
         }
         StorePermission result = new StorePermission(expirationDate, exception);
         LOG.info("{}: Store Permission Service {} returns {}", session, urlspec, result);
@@ -1112,6 +1148,17 @@ public class StoreServiceEJB {
 
         Storage storage = writeContext.getStorage();
         StorageDescriptor descriptor = storage.getStorageDescriptor();
+        if (objectType == Location.ObjectType.DICOM_FILE && descriptor.isDeduplication()
+                && writeContext.getDigest() != null) {
+            Location reference = referenceDuplicate(descriptor.getStorageID(), writeContext, instance);
+            if (reference != null) {
+                LOG.info("{}: Reference byte-identical {} instead of storing object again",
+                        ctx.getStoreSession(), reference);
+                result.getLocations().add(reference);
+                instance.getSeries().getStudy().addStorageID(descriptor.getStorageID());
+                return;
+            }
+        }
         Location location = new Location.Builder()
                 .storageID(descriptor.getStorageID())
                 .storagePath(writeContext.getStoragePath())
@@ -1128,6 +1175,53 @@ public class StoreServiceEJB {
             instance.getSeries().getStudy().addStorageID(descriptor.getStorageID());
     }
 
+    private static String storageID(StoreContext ctx) {
+        WriteContext writeContext = ctx.getWriteContext(Location.ObjectType.DICOM_FILE);
+        return writeContext != null
+                ? writeContext.getStorage().getStorageDescriptor().getStorageID()
+                : ctx.getStoreSession().getArchiveAEExtension().storageID();
+    }
+
+    /**
+     * Returns a new Location of {@code instance} referencing a byte-identical object already stored on the Storage,
+     * or {@code null}, if there is none. The found Location is locked and its status re-checked, so it cannot be
+     * marked for deletion concurrently.
+     */
+    Location referenceDuplicate(String storageID, WriteContext writeContext, Instance instance) {
+        Location duplicate = findDuplicate(storageID, writeContext);
+        if (duplicate == null)
+            return null;
+
+        em.detach(duplicate);
+        Location locked = em.find(Location.class, duplicate.getPk(), LockModeType.PESSIMISTIC_WRITE);
+        if (locked == null || locked.getStatus() != Location.Status.OK || locked.getInstance() == null) {
+            LOG.info("{} was deleted concurrently - store object again", duplicate);
+            return null;
+        }
+        return referenceLocation(locked, instance);
+    }
+
+    private Location findDuplicate(String storageID, WriteContext writeContext) {
+        List<Location> duplicates = em.createNamedQuery(Location.FIND_BY_STORAGE_ID_AND_DIGEST, Location.class)
+                .setParameter(1, storageID)
+                .setParameter(2, TagUtils.toHexString(writeContext.getDigest()))
+                .setParameter(3, writeContext.getSize())
+                .setParameter(4, Location.ObjectType.DICOM_FILE)
+                .setParameter(5, Location.Status.OK)
+                .setMaxResults(1)
+                .getResultList();
+        return duplicates.isEmpty() ? null : duplicates.get(0);
+    }
+
+    private Location referenceLocation(Location duplicate, Instance instance) {
+        if (duplicate.getMultiReference() == null)
+            duplicate.setMultiReference(idService.newLocationMultiReference());
+        Location location = new Location(duplicate);
+        location.setInstance(instance);
+        em.persist(location);
+        return location;
+    }
+
     private void copyLocations(StoreContext ctx, Instance instance, UpdateDBResult result) {
         StoreSession session = ctx.getStoreSession();
         Map<Long, UIDMap> uidMapCache = session.getUIDMapCache();
@@ -58,9 +58,11 @@ import org.dcm4chee.arc.MergeMWLCache;
 import org.dcm4chee.arc.conf.*;
 import org.dcm4chee.arc.entity.*;
 import org.dcm4chee.arc.retrieve.InstanceLocations;
+import org.dcm4chee.arc.retrieve.RenderedImageCache;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
 import org.dcm4chee.arc.retrieve.RetrieveService;
 import org.dcm4chee.arc.storage.*;
+import org.dcm4chee.arc.store.PostStoreEventDispatcher;
 import org.dcm4chee.arc.store.StoreContext;
 import org.dcm4chee.arc.store.StoreService;
 import org.dcm4chee.arc.store.StoreSession;
@@ -101,12 +103,21 @@ class StoreServiceImpl implements StoreService {
     @Inject
     private StorageFactory storageFactory;
 
+    @Inject
+    private StorageGroupSelector storageGroupSelector;
+
     @Inject
     private StoreServiceEJB ejb;
 
     @Inject
     private Event<StoreContext> storeEvent;
 
+    @Inject
+    private PostStoreEventDispatcher postStoreEventDispatcher;
+
+    @Inject
+    private RenderedImageCache renderedImageCache;
+
     @Inject
     private RetrieveService retrieveService;
 
@@ -188,6 +199,7 @@ class StoreServiceImpl implements StoreService {
                 tmpFile.delete();
             revokeStorage(ctx, result);
             storeEvent.fire(ctx);
+            postStoreEventDispatcher.dispatch(ctx);
         }
     }
 
@@ -240,6 +252,18 @@ class StoreServiceImpl implements StoreService {
         ctx.setRejectionNote(result.getRejectionNote());
         ctx.setPreviousInstance(result.getPreviousInstance());
         ctx.setStoredInstance(result.getStoredInstance());
+        invalidateRenderedImages(ctx);
+    }
+
+    private void invalidateRenderedImages(StoreContext ctx) {
+        if (ctx.getPreviousInstance() != null)
+            renderedImageCache.invalidate(ctx.getStudyInstanceUID());
+        if (ctx.getRejectionNote() != null) {
+            Sequence evidenceSeq = ctx.getAttributes().getSequence(Tag.CurrentRequestedProcedureEvidenceSequence);
+            if (evidenceSeq != null)
+                for (Attributes studyRef : evidenceSeq)
+                    renderedImageCache.invalidate(studyRef.getString(Tag.StudyInstanceUID));
+        }
     }
 
     private void commitStorage(UpdateDBResult result) throws IOException {
@@ -281,6 +305,7 @@ class StoreServiceImpl implements StoreService {
         } finally {
             revokeStorage(ctx, result);
             storeEvent.fire(ctx);
+            postStoreEventDispatcher.dispatch(ctx);
         }
     }
 
@@ -519,9 +544,13 @@ class StoreServiceImpl implements StoreService {
             storeContext.setAttributes(dataset);
             ArchiveCompressionRule compressionRule = selectCompressionRule(transcoder, storeContext);
             if (compressionRule != null) {
-                transcoder.setDestinationTransferSyntax(compressionRule.getTransferSyntax());
-                transcoder.setCompressParams(compressionRule.getImageWriteParams());
-                storeContext.setStoreTranferSyntax(compressionRule.getTransferSyntax());
+                if (isDeferredCompression(storeContext, compressionRule)) {
+                    storeContext.setDeferredCompressionRule(compressionRule);
+                } else {
+                    transcoder.setDestinationTransferSyntax(compressionRule.getTransferSyntax());
+                    transcoder.setCompressParams(compressionRule.getImageWriteParams());
+                    storeContext.setStoreTranferSyntax(compressionRule.getTransferSyntax());
+                }
             }
             return openOutputStream(storeContext, Location.ObjectType.DICOM_FILE);
         }
@@ -532,8 +561,9 @@ class StoreServiceImpl implements StoreService {
             throws IOException {
         StoreSession session = storeContext.getStoreSession();
         ArchiveAEExtension arcAE = session.getArchiveAEExtension();
+        ArchiveDeviceExtension arcDev = arcAE.getArchiveDeviceExtension();
         StorageDescriptor descriptor = objectType == Location.ObjectType.DICOM_FILE
-                ? arcAE.getStorageDescriptor()
+                ? storageGroupSelector.select(arcDev, arcAE.storageID(), storeContext.getStudyInstanceUID())
                 : arcAE.getMetadataStorageDescriptor();
         if (descriptor == null)
             return null;
@@ -544,7 +574,11 @@ class StoreServiceImpl implements StoreService {
         writeCtx.setStudyInstanceUID(storeContext.getStudyInstanceUID());
         writeCtx.setMessageDigest(storage.getStorageDescriptor().getMessageDigest());
         storeContext.setWriteContext(objectType, writeCtx);
-        return storage.openOutputStream(writeCtx);
+        OutputStream out = storage.openOutputStream(writeCtx);
+        return objectType == Location.ObjectType.DICOM_FILE
+                && storageGroupSelector.monitorWriteLatency(arcDev, descriptor)
+                ? storageGroupSelector.monitorWriteLatency(descriptor, out)
+                : out;
     }
 
     @Override
@@ -564,6 +598,12 @@ class StoreServiceImpl implements StoreService {
         ejb.restoreInstances(session, studyUID, seriesUID);
     }
 
+    private static boolean isDeferredCompression(StoreContext storeContext, ArchiveCompressionRule compressionRule) {
+        return compressionRule.getDelay() != null
+                && storeContext.getStoreSession().getArchiveAEExtension().getArchiveDeviceExtension()
+                        .getCompressionPollingInterval() != null;
+    }
+
     private ArchiveCompressionRule selectCompressionRule(Transcoder transcoder, StoreContext storeContext) {
         ImageDescriptor imageDescriptor = transcoder.getImageDescriptor();
         if (imageDescriptor == null) // not an image
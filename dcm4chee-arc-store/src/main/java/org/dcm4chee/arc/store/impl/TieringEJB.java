@@ -0,0 +1,137 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4chee.arc.conf.Duration;
+import org.dcm4chee.arc.entity.Location;
+import org.dcm4chee.arc.entity.Series;
+import org.dcm4chee.arc.entity.Study;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TemporalType;
+import java.util.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@Stateless
+public class TieringEJB {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TieringEJB.class);
+
+    @PersistenceContext(unitName="dcm4chee-arc")
+    private EntityManager em;
+
+    public List<Long> findStudiesNotAccessedSince(String storageID, Date accessTime, int fetchSize) {
+        return em.createNamedQuery(Study.FIND_PK_BY_STORAGE_ID_AND_ACCESS_TIME_BEFORE, Long.class)
+                .setParameter(1, storageID)
+                .setParameter(2, accessTime, TemporalType.TIMESTAMP)
+                .setMaxResults(fetchSize)
+                .getResultList();
+    }
+
+    public List<Long> findStudiesAccessedSince(String storageID, String originStorageID, Date accessTime,
+                                               int fetchSize) {
+        return em.createNamedQuery(Study.FIND_PK_BY_STORAGE_ID_AND_ORIGIN_AND_ACCESS_TIME_AFTER, Long.class)
+                .setParameter(1, storageID)
+                .setParameter(2, originStorageID)
+                .setParameter(3, accessTime, TemporalType.TIMESTAMP)
+                .setMaxResults(fetchSize)
+                .getResultList();
+    }
+
+    public List<Location> findLocationsOfStudy(Long studyPk, String storageID) {
+        return em.createNamedQuery(Location.FIND_NOT_MULTI_REFERENCED_BY_STUDY_PK_AND_STORAGE_ID, Location.class)
+                .setParameter(1, studyPk)
+                .setParameter(2, storageID)
+                .setParameter(3, Location.ObjectType.DICOM_FILE)
+                .setParameter(4, Location.Status.OK)
+                .getResultList();
+    }
+
+    public Set<Long> replaceLocations(Long studyPk, String storageID, String targetStorageID,
+                                      Map<Long, Location> replacements, Duration metadataDelay) {
+        Set<Long> notReplaced = new HashSet<>();
+        Set<Series> seriesSet = new HashSet<>();
+        for (Map.Entry<Long, Location> entry : replacements.entrySet()) {
+            Location prev = em.find(Location.class, entry.getKey());
+            if (prev == null || prev.getInstance() == null || prev.getStatus() != Location.Status.OK) {
+                LOG.info("Instance of {} was deleted or modified during migration", prev);
+                notReplaced.add(entry.getKey());
+                continue;
+            }
+            Location location = entry.getValue();
+            location.setInstance(prev.getInstance());
+            em.persist(location);
+            prev.setInstance(null);
+            prev.setStatus(Location.Status.TO_DELETE);
+            seriesSet.add(location.getInstance().getSeries());
+        }
+        Study study = em.find(Study.class, studyPk);
+        if (study != null)
+            updateStorageIDs(study, storageID, targetStorageID);
+        for (Series series : seriesSet)
+            if (series.getMetadata() != null)
+                series.scheduleMetadataUpdate(metadataDelay);
+        return notReplaced;
+    }
+
+    private void updateStorageIDs(Study study, String storageID, String targetStorageID) {
+        study.addStorageID(targetStorageID);
+        if (!em.createNamedQuery(Location.FIND_BY_STUDY_PK_AND_STORAGE_ID, Location.class)
+                .setParameter(1, study.getPk())
+                .setParameter(2, storageID)
+                .setMaxResults(1)
+                .getResultList().isEmpty())
+            return;
+
+        String[] storageIDs = study.getStorageIDs();
+        study.clearStorageIDs();
+        for (String id : storageIDs)
+            if (!id.equals(storageID))
+                study.addStorageID(id);
+    }
+}
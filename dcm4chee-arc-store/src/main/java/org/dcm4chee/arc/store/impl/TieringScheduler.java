@@ -0,0 +1,349 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.data.Tag;
+import org.dcm4che3.data.VR;
+import org.dcm4che3.net.Device;
+import org.dcm4che3.util.StreamUtils;
+import org.dcm4chee.arc.Scheduler;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.conf.Duration;
+import org.dcm4chee.arc.conf.StorageDescriptor;
+import org.dcm4chee.arc.entity.Instance;
+import org.dcm4chee.arc.entity.Location;
+import org.dcm4chee.arc.storage.ReadContext;
+import org.dcm4chee.arc.storage.Storage;
+import org.dcm4chee.arc.storage.StorageFactory;
+import org.dcm4chee.arc.storage.WriteContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Migrates Studies not accessed for the configured Tiering Delay to the Tiering Storage, and - if Tiering Recall
+ * is enabled - Studies accessed again within the Tiering Delay back to the Storage from which they were migrated.
+ * The origin Storage is recorded in the Locations on the Tiering Storage, so a Tiering Storage may be shared by
+ * several Storages.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+@ApplicationScoped
+public class TieringScheduler extends Scheduler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TieringScheduler.class);
+
+    @Inject
+    private Device device;
+
+    @Inject
+    private TieringEJB ejb;
+
+    @Inject
+    private StorageFactory storageFactory;
+
+    protected TieringScheduler() {
+        super(Mode.scheduleWithFixedDelay);
+    }
+
+    @Override
+    protected Logger log() {
+        return LOG;
+    }
+
+    @Override
+    protected Duration getPollingInterval() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        return arcDev.getTieringPollingInterval();
+    }
+
+    @Override
+    protected void execute() {
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        for (StorageDescriptor desc : arcDev.getStorageDescriptors()) {
+            if (!desc.isTiering() || desc.isReadOnly())
+                continue;
+
+            StorageDescriptor tier = arcDev.getStorageDescriptor(desc.getTieringStorageID());
+            if (tier == null) {
+                LOG.warn("No Storage configured with Tiering Storage ID: {} of {}", desc.getTieringStorageID(), desc);
+                continue;
+            }
+            if (tier.isReadOnly())
+                continue;
+
+            Date accessTime = new Date(System.currentTimeMillis() - desc.getTieringDelay().getSeconds() * 1000);
+            try {
+                migrateStudies(arcDev, desc, tier, accessTime, false);
+                if (desc.isTieringRecall())
+                    migrateStudies(arcDev, tier, desc, accessTime, true);
+            } catch (InterruptedException e) {
+                LOG.info("Interrupted migration of Studies between {} and {}",
+                        desc.getStorageID(), tier.getStorageID());
+                return;
+            }
+        }
+    }
+
+    private void migrateStudies(ArchiveDeviceExtension arcDev, StorageDescriptor source, StorageDescriptor target,
+                                Date accessTime, boolean recall) throws InterruptedException {
+        int fetchSize = arcDev.getTieringFetchSize();
+        Set<Long> failed = new HashSet<>();
+        List<Long> studyPks;
+        int maxResults;
+        int processed;
+        do {
+            if (getPollingInterval() == null)
+                return;
+
+            maxResults = fetchSize + failed.size();
+            studyPks = recall
+                    ? ejb.findStudiesAccessedSince(source.getStorageID(), target.getStorageID(), accessTime,
+                            maxResults)
+                    : ejb.findStudiesNotAccessedSince(source.getStorageID(), accessTime, maxResults);
+            processed = 0;
+            for (Long studyPk : studyPks) {
+                if (failed.contains(studyPk))
+                    continue;
+
+                if (getPollingInterval() == null)
+                    return;
+
+                processed++;
+                try {
+                    if (!migrateStudy(arcDev, studyPk, source, target, recall))
+                        failed.add(studyPk);
+                } catch (InterruptedException e) {
+                    throw e;
+                } catch (Exception e) {
+                    LOG.warn("Failed to migrate Study[pk={}] from {} to {}:\n",
+                            studyPk, source.getStorageID(), target.getStorageID(), e);
+                    failed.add(studyPk);
+                }
+            }
+        } while (studyPks.size() == maxResults && processed > 0);
+    }
+
+    private boolean migrateStudy(ArchiveDeviceExtension arcDev, Long studyPk, StorageDescriptor source,
+                                 StorageDescriptor target, boolean recall) throws InterruptedException {
+        List<Copy> copies = new ArrayList<>();
+        for (Location location : ejb.findLocationsOfStudy(studyPk, source.getStorageID()))
+            if (!recall || target.getStorageID().equals(location.getOriginStorageID()))
+                copies.add(new Copy(location, recall ? null : source.getStorageID()));
+        if (copies.isEmpty())
+            return false;
+
+        Storage sourceStorage = storageFactory.getUncachedStorage(source);
+        Storage targetStorage = storageFactory.getUncachedStorage(target);
+        try {
+            copyConcurrently(copies, sourceStorage, targetStorage, arcDev.getTieringThreads());
+            int failed = 0;
+            for (Copy copy : copies)
+                if (copy.exception != null)
+                    failed++;
+            if (failed > 0) {
+                LOG.warn("Failed to copy {} of {} objects of Study[pk={}] from {} to {} - keep Study on {}",
+                        failed, copies.size(), studyPk, source.getStorageID(), target.getStorageID(),
+                        source.getStorageID());
+                revoke(targetStorage, copies);
+                return false;
+            }
+            Map<Long, Location> replacements = new HashMap<>();
+            for (Copy copy : copies)
+                replacements.put(copy.location.getPk(), copy.createLocation());
+            Set<Long> notReplaced;
+            try {
+                notReplaced = ejb.replaceLocations(studyPk, source.getStorageID(), target.getStorageID(),
+                        replacements, arcDev.getSeriesMetadataDelay());
+            } catch (RuntimeException e) {
+                revoke(targetStorage, copies);
+                throw e;
+            }
+            for (Copy copy : copies)
+                if (notReplaced.contains(copy.location.getPk()))
+                    copy.revoke(targetStorage);
+            LOG.info("Migrated {} objects of Study[pk={}] from {} to {}",
+                    copies.size() - notReplaced.size(), studyPk, source.getStorageID(), target.getStorageID());
+            return true;
+        } finally {
+            close(sourceStorage);
+            close(targetStorage);
+        }
+    }
+
+    private static void close(Storage storage) {
+        try {
+            storage.close();
+        } catch (IOException e) {
+            LOG.warn("Failed to close {}:\n", storage, e);
+        }
+    }
+
+    private static void revoke(Storage storage, List<Copy> copies) {
+        for (Copy copy : copies)
+            copy.revoke(storage);
+    }
+
+    private void copyConcurrently(List<Copy> copies, final Storage source, final Storage target, int threads)
+            throws InterruptedException {
+        final Semaphore semaphore = new Semaphore(threads);
+        final CountDownLatch latch = new CountDownLatch(copies.size());
+        for (final Copy copy : copies) {
+            semaphore.acquire();
+            try {
+                device.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            copy.run(source, target);
+                        } finally {
+                            semaphore.release();
+                            latch.countDown();
+                        }
+                    }
+                });
+            } catch (RuntimeException e) {
+                copy.exception = e;
+                semaphore.release();
+                latch.countDown();
+            }
+        }
+        latch.await();
+    }
+
+    private static final class Copy {
+        final Location location;
+        final String originStorageID;
+        WriteContext writeCtx;
+        Exception exception;
+
+        Copy(Location location, String originStorageID) {
+            this.location = location;
+            this.originStorageID = originStorageID;
+        }
+
+        void run(Storage source, Storage target) {
+            try {
+                copy(source, target);
+                target.commitStorage(writeCtx);
+                verify(target);
+            } catch (Exception e) {
+                exception = e;
+                LOG.warn("Failed to copy {} to {}:\n", location, target.getStorageDescriptor().getStorageURI(), e);
+            }
+        }
+
+        private void copy(Storage source, Storage target) throws IOException {
+            Instance inst = location.getInstance();
+            String studyIUID = inst.getSeries().getStudy().getStudyInstanceUID();
+            Attributes attrs = new Attributes(3);
+            attrs.setString(Tag.StudyInstanceUID, VR.UI, studyIUID);
+            attrs.setString(Tag.SeriesInstanceUID, VR.UI, inst.getSeries().getSeriesInstanceUID());
+            attrs.setString(Tag.SOPInstanceUID, VR.UI, inst.getSopInstanceUID());
+            ReadContext readCtx = source.createReadContext();
+            readCtx.setStoragePath(location.getStoragePath());
+            readCtx.setStudyInstanceUID(studyIUID);
+            if (location.getDigest() != null)
+                readCtx.setMessageDigest(source.getStorageDescriptor().getMessageDigest());
+            writeCtx = target.createWriteContext();
+            writeCtx.setAttributes(attrs);
+            writeCtx.setStudyInstanceUID(studyIUID);
+            writeCtx.setMessageDigest(target.getStorageDescriptor().getMessageDigest());
+            try (InputStream in = source.openInputStream(readCtx);
+                 OutputStream out = target.openOutputStream(writeCtx)) {
+                StreamUtils.copy(in, out);
+            }
+            if (readCtx.getSize() != location.getSize())
+                throw new IOException("Size of " + location + " does not match read size " + readCtx.getSize());
+            if (readCtx.getDigest() != null && !Arrays.equals(readCtx.getDigest(), location.getDigest()))
+                throw new IOException("Digest of " + location + " does not match digest of read object");
+        }
+
+        private void verify(Storage target) throws IOException {
+            ReadContext readCtx = target.createReadContext();
+            readCtx.setStoragePath(writeCtx.getStoragePath());
+            readCtx.setStudyInstanceUID(writeCtx.getStudyInstanceUID());
+            readCtx.setMessageDigest(target.getStorageDescriptor().getMessageDigest());
+            try (InputStream in = target.openInputStream(readCtx)) {
+                StreamUtils.copy(in, null);
+            }
+            if (readCtx.getSize() != writeCtx.getSize())
+                throw new IOException("Size of copied object " + readCtx.getSize()
+                        + " does not match written size " + writeCtx.getSize());
+            if (writeCtx.getDigest() != null && !Arrays.equals(readCtx.getDigest(), writeCtx.getDigest()))
+                throw new IOException("Digest of copied object does not match digest of written object");
+        }
+
+        void revoke(Storage target) {
+            if (writeCtx == null || writeCtx.getStoragePath() == null)
+                return;
+
+            try {
+                target.revokeStorage(writeCtx);
+            } catch (IOException e) {
+                LOG.warn("Failed to revoke copy of {} on {}:\n", location,
+                        target.getStorageDescriptor().getStorageURI(), e);
+            }
+        }
+
+        Location createLocation() {
+            return new Location.Builder()
+                    .storageID(writeCtx.getStorage().getStorageDescriptor().getStorageID())
+                    .storagePath(writeCtx.getStoragePath())
+                    .transferSyntaxUID(location.getTransferSyntaxUID())
+                    .objectType(Location.ObjectType.DICOM_FILE)
+                    .size(writeCtx.getSize())
+                    .digest(writeCtx.getDigest())
+                    .originStorageID(originStorageID)
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4che3.net.Device;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.store.StoreContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.enterprise.event.Event;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class PostStoreEventDispatcherImplTest {
+
+    private static final String[] STUDY_IUIDS = { "1.2.3", "1.2.4", "1.2.5" };
+    private static final int EVENTS_PER_STUDY = 50;
+    private static final long TIMEOUT = 10000L;
+
+    private final Map<String, List<String>> received = new HashMap<>();
+    private final ArchiveDeviceExtension arcDev = new ArchiveDeviceExtension();
+    private ExecutorService threadPool;
+    private PostStoreEventDispatcherImpl dispatcher;
+
+    @Before
+    public void setUp() {
+        for (String studyIUID : STUDY_IUIDS)
+            received.put(studyIUID, Collections.synchronizedList(new ArrayList<>()));
+        arcDev.setPostStoreEventMaxThreads(4);
+        arcDev.setPostStoreEventMaxQueueSize(10);
+        threadPool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        threadPool.shutdownNow();
+    }
+
+    @Test
+    public void testOrderPerStudy() throws Exception {
+        dispatcher = createDispatcher(false, this::receive);
+        dispatchAll();
+        awaitProcessed();
+        assertReceivedInOrder();
+        assertEquals(STUDY_IUIDS.length * EVENTS_PER_STUDY, dispatcher.getCompleted());
+        assertEquals(0, dispatcher.getFailed());
+    }
+
+    @Test
+    public void testContinueAfterFailedObserver() throws Exception {
+        dispatcher = createDispatcher(false, ctx -> {
+            receive(ctx);
+            if (ctx.getSopInstanceUID().endsWith(".0"))
+                throw new IllegalStateException("Test Exception");
+            if (ctx.getSopInstanceUID().endsWith(".1"))
+                throw new AssertionError("Test Error");
+        });
+        dispatchAll();
+        awaitProcessed();
+        assertReceivedInOrder();
+        assertEquals(STUDY_IUIDS.length * (EVENTS_PER_STUDY - 2), dispatcher.getCompleted());
+        assertEquals(STUDY_IUIDS.length * 2, dispatcher.getFailed());
+    }
+
+    @Test
+    public void testProcessByStoringThreadIfRejected() throws Exception {
+        dispatcher = createDispatcher(true, this::receive);
+        dispatchAll();
+        awaitProcessed();
+        assertReceivedInOrder();
+        assertEquals(STUDY_IUIDS.length * EVENTS_PER_STUDY, dispatcher.getCompleted());
+    }
+
+    private void receive(StoreContext ctx) {
+        received.get(ctx.getStudyInstanceUID()).add(ctx.getSopInstanceUID());
+        Thread.yield();
+    }
+
+    private void dispatchAll() throws Exception {
+        for (int i = 0; i < EVENTS_PER_STUDY; i++)
+            for (String studyIUID : STUDY_IUIDS)
+                dispatcher.dispatch(storeContext(studyIUID, studyIUID + '.' + i));
+    }
+
+    private void awaitProcessed() throws InterruptedException {
+        long end = System.currentTimeMillis() + TIMEOUT;
+        while (dispatcher.getCompleted() + dispatcher.getFailed() < dispatcher.getDispatched()
+                || dispatcher.getActiveThreads() > 0) {
+            assertTrue("Timeout", System.currentTimeMillis() < end);
+            Thread.sleep(10);
+        }
+        assertEquals(0, dispatcher.getQueueSize());
+    }
+
+    private void assertReceivedInOrder() {
+        for (String studyIUID : STUDY_IUIDS) {
+            List<String> iuids = received.get(studyIUID);
+            assertEquals(studyIUID, EVENTS_PER_STUDY, iuids.size());
+            for (int i = 0; i < EVENTS_PER_STUDY; i++)
+                assertEquals(studyIUID + '.' + i, iuids.get(i));
+        }
+    }
+
+    private PostStoreEventDispatcherImpl createDispatcher(boolean reject, Consumer<StoreContext> observer)
+            throws Exception {
+        Device device = new Device("test");
+        device.addDeviceExtension(arcDev);
+        PostStoreEventDispatcherImpl dispatcher = new PostStoreEventDispatcherImpl();
+        inject(dispatcher, "device", device);
+        inject(dispatcher, "postStoreEvent", proxy(Event.class, (proxy, method, args) -> {
+            if (!method.getName().equals("fire"))
+                throw new UnsupportedOperationException(method.getName());
+            observer.accept((StoreContext) args[0]);
+            return null;
+        }));
+        inject(dispatcher, "executor", proxy(ManagedExecutorService.class, (proxy, method, args) -> {
+            if (!method.getName().equals("execute"))
+                throw new UnsupportedOperationException(method.getName());
+            if (reject)
+                throw new RejectedExecutionException();
+            threadPool.execute((Runnable) args[0]);
+            return null;
+        }));
+        return dispatcher;
+    }
+
+    private static StoreContext storeContext(String studyIUID, String iuid) {
+        return proxy(StoreContext.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getStudyInstanceUID":
+                    return studyIUID;
+                case "getSopInstanceUID":
+                case "toString":
+                    return iuid;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, java.lang.reflect.InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type }, handler));
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
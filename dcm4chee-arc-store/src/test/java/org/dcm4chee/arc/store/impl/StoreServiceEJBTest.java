@@ -0,0 +1,195 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+
+
+package org.dcm4chee.arc.store.impl;
+
+import org.dcm4chee.arc.entity.Instance;
+import org.dcm4chee.arc.entity.Location;
+import org.dcm4chee.arc.id.IDService;
+import org.dcm4chee.arc.storage.WriteContext;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class StoreServiceEJBTest {
+
+    private static final String STORAGE_ID = "fs1";
+    private static final long DUPLICATE_PK = 1L;
+    private static final int MULTI_REF = 42;
+
+    private final List<Object> persisted = new ArrayList<>();
+    private final List<LockModeType> lockModes = new ArrayList<>();
+    private final Instance instance = new Instance();
+    private List<Location> duplicates;
+    private Location locked;
+    private StoreServiceEJB ejb;
+
+    @Before
+    public void setUp() throws Exception {
+        duplicates = Collections.singletonList(location(Location.Status.OK));
+        locked = location(Location.Status.OK);
+        ejb = new StoreServiceEJB();
+        inject(ejb, "em", entityManager());
+        inject(ejb, "idService", proxy(IDService.class, (proxy, method, args) -> {
+            if (method.getName().equals("newLocationMultiReference"))
+                return MULTI_REF;
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+
+    @Test
+    public void testReferenceDuplicate() {
+        Location reference = ejb.referenceDuplicate(STORAGE_ID, writeContext(), instance);
+        assertNotNull(reference);
+        assertSame(instance, reference.getInstance());
+        assertEquals("1/2/3", reference.getStoragePath());
+        assertEquals(Integer.valueOf(MULTI_REF), reference.getMultiReference());
+        assertEquals(Integer.valueOf(MULTI_REF), locked.getMultiReference());
+        assertEquals(Collections.singletonList(LockModeType.PESSIMISTIC_WRITE), lockModes);
+        assertEquals(Collections.<Object>singletonList(reference), persisted);
+    }
+
+    @Test
+    public void testStoreAgainIfDuplicateMarkedToDelete() {
+        locked = location(Location.Status.TO_DELETE);
+        assertNull(ejb.referenceDuplicate(STORAGE_ID, writeContext(), instance));
+        assertEquals(Collections.singletonList(LockModeType.PESSIMISTIC_WRITE), lockModes);
+        assertTrue(persisted.isEmpty());
+    }
+
+    @Test
+    public void testStoreAgainIfDuplicateDeleted() {
+        locked = null;
+        assertNull(ejb.referenceDuplicate(STORAGE_ID, writeContext(), instance));
+        assertTrue(persisted.isEmpty());
+    }
+
+    @Test
+    public void testStoreIfNoDuplicate() {
+        duplicates = Collections.emptyList();
+        assertNull(ejb.referenceDuplicate(STORAGE_ID, writeContext(), instance));
+        assertTrue(lockModes.isEmpty());
+        assertTrue(persisted.isEmpty());
+    }
+
+    private static Location location(Location.Status status) {
+        Location location = new Location.Builder()
+                .pk(DUPLICATE_PK)
+                .storageID(STORAGE_ID)
+                .storagePath("1/2/3")
+                .size(100L)
+                .digest(new byte[]{ 1, 2, 3 })
+                .status(status)
+                .build();
+        if (status == Location.Status.OK)
+            location.setInstance(new Instance());
+        return location;
+    }
+
+    private EntityManager entityManager() {
+        return proxy(EntityManager.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "createNamedQuery":
+                    assertEquals(Location.FIND_BY_STORAGE_ID_AND_DIGEST, args[0]);
+                    return query();
+                case "detach":
+                    return null;
+                case "find":
+                    assertEquals(DUPLICATE_PK, args[1]);
+                    lockModes.add((LockModeType) args[2]);
+                    return locked;
+                case "persist":
+                    persisted.add(args[0]);
+                    return null;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private TypedQuery<?> query() {
+        return proxy(TypedQuery.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "setParameter":
+                case "setMaxResults":
+                    return proxy;
+                case "getResultList":
+                    return duplicates;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static WriteContext writeContext() {
+        return proxy(WriteContext.class, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "getDigest":
+                    return new byte[]{ 1, 2, 3 };
+                case "getSize":
+                    return 100L;
+            }
+            throw new UnsupportedOperationException(method.getName());
+        });
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{ type }, handler));
+    }
+
+    private static void inject(Object target, String name, Object value) throws Exception {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
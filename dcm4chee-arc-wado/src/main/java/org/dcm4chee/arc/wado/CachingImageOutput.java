@@ -0,0 +1,156 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.wado;
+
+import org.dcm4che3.util.SafeClose;
+import org.dcm4chee.arc.retrieve.RenderedImageCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the rendered image to the response and to the {@link RenderedImageCache}.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class CachingImageOutput implements StreamingOutput {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CachingImageOutput.class);
+
+    private final StreamingOutput output;
+    private final RenderedImageCache cache;
+    private final String studyIUID;
+    private final String key;
+
+    public CachingImageOutput(StreamingOutput output, RenderedImageCache cache, String studyIUID, String key) {
+        this.output = output;
+        this.cache = cache;
+        this.studyIUID = studyIUID;
+        this.key = key;
+    }
+
+    @Override
+    public void write(OutputStream out) throws IOException, WebApplicationException {
+        Path tmpFile = null;
+        try {
+            tmpFile = cache.createTempFile(studyIUID);
+        } catch (IOException e) {
+            LOG.warn("Failed to create file in rendered image cache:\n", e);
+        }
+        if (tmpFile == null) {
+            output.write(out);
+            return;
+        }
+        try {
+            OutputStream fileOut = Files.newOutputStream(tmpFile);
+            TeeOutputStream tee = new TeeOutputStream(out, fileOut);
+            try {
+                output.write(tee);
+            } finally {
+                SafeClose.close(fileOut);
+            }
+            if (tee.out2Exception != null) {
+                LOG.info("Failed to cache rendered image:\n", tee.out2Exception);
+                return;
+            }
+            try {
+                cache.putCachedImage(studyIUID, key, tmpFile);
+                tmpFile = null;
+            } catch (IOException e) {
+                LOG.info("Failed to cache rendered image:\n", e);
+            }
+        } finally {
+            if (tmpFile != null)
+                Files.deleteIfExists(tmpFile);
+        }
+    }
+
+    private static class TeeOutputStream extends FilterOutputStream {
+        private final OutputStream out2;
+        private IOException out2Exception;
+
+        TeeOutputStream(OutputStream out, OutputStream out2) {
+            super(out);
+            this.out2 = out2;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (out2Exception == null)
+                try {
+                    out2.write(b);
+                } catch (IOException e) {
+                    out2Exception = e;
+                }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (out2Exception == null)
+                try {
+                    out2.write(b, off, len);
+                } catch (IOException e) {
+                    out2Exception = e;
+                }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() {
+            // does not close out
+        }
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * *** BEGIN LICENSE BLOCK *****
+ * Version: MPL 1.1/GPL 2.0/LGPL 2.1
+ *
+ * The contents of this file are subject to the Mozilla Public License Version
+ * 1.1 (the "License"); you may not use this file except in compliance with
+ * the License. You may obtain a copy of the License at
+ * http://www.mozilla.org/MPL/
+ *
+ * Software distributed under the License is distributed on an "AS IS" basis,
+ * WITHOUT WARRANTY OF ANY KIND, either express or implied. See the License
+ * for the specific language governing rights and limitations under the
+ * License.
+ *
+ * The Original Code is part of dcm4che, an implementation of DICOM(TM) in
+ * Java(TM), hosted at https://github.com/gunterze/dcm4che.
+ *
+ * The Initial Developer of the Original Code is
+ * J4Care.
+ * Portions created by the Initial Developer are Copyright (C) 2017
+ * the Initial Developer. All Rights Reserved.
+ *
+ * Contributor(s):
+ * See @authors listed below
+ *
+ * Alternatively, the contents of this file may be used under the terms of
+ * either the GNU General Public License Version 2 or later (the "GPL"), or
+ * the GNU Lesser General Public License Version 2.1 or later (the "LGPL"),
+ * in which case the provisions of the GPL or the LGPL are applicable instead
+ * of those above. If you wish to allow use of your version of this file only
+ * under the terms of either the GPL or the LGPL, and not to allow others to
+ * use your version of this file under the terms of the MPL, indicate your
+ * decision by deleting the provisions above and replace them with the notice
+ * and other provisions required by the GPL or the LGPL. If you do not delete
+ * the provisions above, a recipient may use your version of this file under
+ * the terms of any one of the MPL, the GPL or the LGPL.
+ *
+ * *** END LICENSE BLOCK *****
+ */
+
+
+package org.dcm4chee.arc.wado;
+
+import org.dcm4che3.data.Attributes;
+import org.dcm4che3.image.BufferedImageUtils;
+import org.dcm4che3.image.PixelAspectRatio;
+import org.dcm4che3.imageio.plugins.dcm.DicomImageReadParam;
+import org.dcm4che3.imageio.plugins.dcm.DicomMetaData;
+import org.dcm4che3.io.DicomInputStream;
+import org.dcm4che3.util.SafeClose;
+import org.dcm4chee.arc.retrieve.ImageRendering;
+import org.dcm4chee.arc.retrieve.InstanceLocations;
+import org.dcm4chee.arc.retrieve.RetrieveContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Renders frames of several instances concurrently, while the frames are written in request order as parts
+ * of a multipart response. Frames of one instance are distributed round-robin over up to {@code concurrency}
+ * chunks, each decoded sequentially from its own input stream. A chunk only renders frames within a window of
+ * {@code concurrency} frames following the currently written frame and pauses - releasing its thread - at the
+ * first frame beyond. Written frames are released, so at most {@code concurrency} rendered frames are kept in
+ * memory per request.
+ *
+ * @author Gunter Zeilinger <gunterze@gmail.com>
+ * @since Oct 2017
+ */
+public class RenderedFramesOutput implements StreamingOutput, Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RenderedFramesOutput.class);
+
+    private final RetrieveContext ctx;
+    private final Executor executor;
+    private final int concurrency;
+    private final int rows;
+    private final int columns;
+    private final float windowCenter;
+    private final float windowWidth;
+    private final int quality;
+    private final List<Frame> frames = new ArrayList<>();
+    private final PriorityQueue<Chunk> paused = new PriorityQueue<>();
+    private int written;
+    private boolean closed;
+
+    public RenderedFramesOutput(RetrieveContext ctx, Executor executor, int concurrency,
+                                int rows, int columns, float windowCenter, float windowWidth, int quality) {
+        this.ctx = ctx;
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.rows = rows;
+        this.columns = columns;
+        this.windowCenter = windowCenter;
+        this.windowWidth = windowWidth;
+        this.quality = quality;
+    }
+
+    public void addFrames(InstanceLocations inst, int[] frameList, MediaType mediaType) {
+        int numChunks = Math.min(concurrency, frameList.length);
+        List<Chunk> chunks = new ArrayList<>(numChunks);
+        for (int i = 0; i < numChunks; i++)
+            chunks.add(new Chunk(inst, mediaType));
+        synchronized (this) {
+            for (int i = 0; i < frameList.length; i++) {
+                Frame frame = new Frame(frames.size(), frameList[i]);
+                chunks.get(i % numChunks).frames.add(frame);
+                frames.add(frame);
+            }
+            paused.addAll(chunks);
+            resumeChunks();
+        }
+    }
+
+    @Override
+    public void write(OutputStream out) throws IOException {
+        Frame frame;
+        synchronized (this) {
+            frame = frames.set(written++, null);
+            resumeChunks();
+        }
+        out.write(frame.await());
+    }
+
+    @Override
+    public void close() {
+        List<Chunk> chunks;
+        synchronized (this) {
+            closed = true;
+            chunks = new ArrayList<>(paused);
+            paused.clear();
+            for (int i = written; i < frames.size(); i++)
+                frames.get(i).image.cancel(false);
+        }
+        for (Chunk chunk : chunks)
+            chunk.release();
+    }
+
+    private boolean inWindow(Frame frame) {
+        return frame.index < written + concurrency;
+    }
+
+    private void resumeChunks() {
+        while (!closed && !paused.isEmpty() && inWindow(paused.peek().nextFrame()))
+            executor.execute(paused.poll());
+    }
+
+    private static final class Frame {
+        final int index;
+        final int number;
+        final CompletableFuture<byte[]> image = new CompletableFuture<>();
+
+        Frame(int index, int number) {
+            this.index = index;
+            this.number = number;
+        }
+
+        byte[] await() throws IOException {
+            try {
+                return image.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch (CancellationException e) {
+                throw new IOException("Rendering of frame #" + number + " cancelled");
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+        }
+    }
+
+    private final class Chunk implements Runnable, Comparable<Chunk> {
+        final InstanceLocations inst;
+        final MediaType mediaType;
+        final List<Frame> frames = new ArrayList<>();
+        int next;
+        ImageReader reader;
+        DicomInputStream dis;
+        int prevImageIndex = -1;
+
+        Chunk(InstanceLocations inst, MediaType mediaType) {
+            this.inst = inst;
+            this.mediaType = mediaType;
+        }
+
+        Frame nextFrame() {
+            return frames.get(next);
+        }
+
+        @Override
+        public int compareTo(Chunk other) {
+            return Integer.compare(nextFrame().index, other.nextFrame().index);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (next < frames.size()) {
+                    Frame frame = frames.get(next);
+                    synchronized (RenderedFramesOutput.this) {
+                        if (closed)
+                            break;
+
+                        if (!inWindow(frame)) {
+                            paused.add(this);
+                            return;
+                        }
+                    }
+                    frame.image.complete(renderFrame(frame.number - 1));
+                    next++;
+                }
+            } catch (Throwable e) {
+                LOG.warn("Failed to render frames of instance[iuid={}]:\n", inst.getSopInstanceUID(), e);
+                for (int i = next; i < frames.size(); i++)
+                    frames.get(i).image.completeExceptionally(e);
+            }
+            release();
+        }
+
+        private byte[] renderFrame(int imageIndex) throws IOException {
+            if (reader == null)
+                reader = ImageRendering.getDicomImageReader();
+            if (dis == null || imageIndex <= prevImageIndex) {
+                // DICOM Image Reader only supports forward access to frames read from a stream
+                SafeClose.close(dis);
+                dis = ctx.getRetrieveService().openDicomInputStream(ctx, inst);
+                reader.setInput(dis);
+            }
+            prevImageIndex = imageIndex;
+            return render(reader, imageIndex);
+        }
+
+        void release() {
+            SafeClose.close(dis);
+            dis = null;
+            if (reader != null) {
+                reader.dispose();
+                reader = null;
+            }
+        }
+
+        private byte[] render(ImageReader reader, int imageIndex) throws IOException {
+            DicomImageReadParam readParam = new DicomImageReadParam();
+            if (windowWidth != 0) {
+                readParam.setWindowCenter(windowCenter);
+                readParam.setWindowWidth(windowWidth);
+            }
+            BufferedImage bi = reader.read(imageIndex, readParam);
+            if (bi.getColorModel().getNumComponents() == 3)
+                bi = BufferedImageUtils.convertToIntRGB(bi);
+            Attributes attrs = ((DicomMetaData) reader.getStreamMetadata()).getAttributes();
+            bi = ImageRendering.rescale(bi, rows, columns, PixelAspectRatio.forImage(attrs));
+            ImageWriter writer = ImageRendering.getImageWriter(mediaType.getSubtype().toUpperCase());
+            try {
+                ImageWriteParam writeParam = writer.getDefaultWriteParam();
+                if (quality > 0 && writeParam.canWriteCompressed()) {
+                    writeParam.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    writeParam.setCompressionQuality(quality / 100.f);
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                ImageOutputStream imageOut = new MemoryCacheImageOutputStream(out);
+                writer.setOutput(imageOut);
+                writer.write(null, new IIOImage(bi, null, null), writeParam);
+                imageOut.close();
+                return out.toByteArray();
+            } finally {
+                writer.dispose();
+            }
+        }
+    }
+}
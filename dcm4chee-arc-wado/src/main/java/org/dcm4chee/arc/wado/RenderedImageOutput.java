@@ -48,6 +48,7 @@ import org.dcm4che3.imageio.plugins.dcm.DicomImageReadParam;
 import org.dcm4che3.imageio.plugins.dcm.DicomMetaData;
 import org.dcm4che3.io.DicomInputStream;
 import org.dcm4che3.util.SafeClose;
+import org.dcm4chee.arc.retrieve.ImageRendering;
 
 import javax.imageio.*;
 import javax.imageio.metadata.IIOMetadata;
@@ -56,7 +57,6 @@ import javax.imageio.stream.ImageOutputStream;
 import javax.imageio.stream.MemoryCacheImageOutputStream;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.StreamingOutput;
-import java.awt.geom.AffineTransform;
 import java.awt.image.*;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -155,30 +155,7 @@ public class RenderedImageOutput implements StreamingOutput {
     private BufferedImage adjust(BufferedImage bi) throws IOException {
         if (bi.getColorModel().getNumComponents() == 3)
             bi = BufferedImageUtils.convertToIntRGB(bi);
-        return rescale(bi);
-    }
-
-    private BufferedImage rescale(BufferedImage bi) throws IOException {
-        int r = rows;
-        int c = columns;
-        float sy = getPixelAspectRatio();
-        if (r == 0 && c == 0 && sy == 1f)
-            return bi;
-
-        float sx = 1f;
-        if (r != 0 || c != 0) {
-            if (r != 0 && c != 0)
-                if (r * bi.getWidth() > c * bi.getHeight() * sy)
-                    r = 0;
-                else
-                    c = 0;
-            sx = r != 0 ? r / (bi.getHeight() * sy) : c / (float)bi.getWidth();
-            sy *= sx;
-        }
-        AffineTransformOp op = new AffineTransformOp(
-                AffineTransform.getScaleInstance(sx, sy),
-                AffineTransformOp.TYPE_NEAREST_NEIGHBOR);
-        return op.filter(bi, null);
+        return ImageRendering.rescale(bi, rows, columns, getPixelAspectRatio());
     }
 
     private float getPixelAspectRatio() throws IOException {
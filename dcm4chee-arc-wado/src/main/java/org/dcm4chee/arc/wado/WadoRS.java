@@ -58,12 +58,15 @@ import org.jboss.resteasy.spi.ResteasyProviderFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Resource;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.enterprise.context.RequestScoped;
 import javax.enterprise.event.Event;
 import javax.inject.Inject;
 import javax.json.Json;
 import javax.json.stream.JsonGenerator;
 import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.Pattern;
 import javax.ws.rs.*;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.CompletionCallback;
@@ -88,6 +91,11 @@ public class WadoRS {
 
     private static final Logger LOG = LoggerFactory.getLogger(WadoRS.class);
     private static final String JBOSS_SERVER_TEMP = "${jboss.server.temp}";
+    private static final MediaType[] RENDERED_MEDIA_TYPES = {
+            MediaTypes.IMAGE_JPEG_TYPE,
+            MediaTypes.IMAGE_PNG_TYPE,
+            MediaTypes.IMAGE_GIF_TYPE
+    };
 
     @Inject
     private RetrieveService service;
@@ -107,15 +115,34 @@ public class WadoRS {
     @Inject
     private Device device;
 
+    @Inject
+    private PreviewService previewService;
+
     @Inject @RetrieveStart
     private Event<RetrieveContext> retrieveStart;
 
     @Inject @RetrieveEnd
     private Event<RetrieveContext> retrieveEnd;
 
+    @Resource
+    private ManagedExecutorService executor;
+
     @PathParam("AETitle")
     private String aet;
 
+    @QueryParam("viewport")
+    @Pattern(regexp = "[1-9]\\d{0,4},[1-9]\\d{0,4}")
+    private String viewport;
+
+    // only linear VOI LUT function supported by DICOM Image Reader
+    @QueryParam("window")
+    @Pattern(regexp = "-?\\d+(\\.\\d+)?,\\d+(\\.\\d+)?(,(?i:linear))?")
+    private String window;
+
+    @QueryParam("quality")
+    @Pattern(regexp = "[1-9]\\d?|100")
+    private String quality;
+
     private Collection<String> acceptableTransferSyntaxes;
     private List<MediaType> acceptableMediaTypes;
     private Map<String, MediaType> selectedMediaTypes;
@@ -123,6 +150,7 @@ public class WadoRS {
     private UncompressedFramesOutput uncompressedFramesOutput;
     private CompressedFramesOutput compressedFramesOutput;
     private DecompressFramesOutput decompressFramesOutput;
+    private RenderedFramesOutput renderedFramesOutput;
     private Response.Status responseStatus;
     private java.nio.file.Path spoolDirectory;
 
@@ -261,14 +289,46 @@ public class WadoRS {
                 new FrameList(frameList).frames, null, null, ar, Output.BULKDATA_FRAME);
     }
 
-/*
+    @GET
+    @Path("/studies/{studyUID}/series/{seriesUID}/thumbnail")
+    @Produces("image/jpeg")
+    public void retrieveSeriesThumbnail(
+            @PathParam("studyUID") String studyUID,
+            @PathParam("seriesUID") String seriesUID,
+            @Suspended AsyncResponse ar) {
+        LOG.info("Process GET {} from {}@{}", this, request.getRemoteUser(), request.getRemoteHost());
+        try {
+            checkAET();
+            byte[] thumbnail = previewService.getPreview(studyUID, seriesUID, PreviewService.Type.THUMBNAIL);
+            if (thumbnail == null)
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+
+            HttpServletRequest request = ResteasyProviderFactory.getContextData(HttpServletRequest.class);
+            final RetrieveContext ctx = service.newRetrieveContextWADO(request, aet, studyUID, seriesUID, null);
+            if (!service.calculateMatches(ctx))
+                throw new WebApplicationException(Response.Status.NOT_FOUND);
+
+            retrieveStart.fire(ctx);
+            ar.register(new CompletionCallback() {
+                @Override
+                public void onComplete(Throwable throwable) {
+                    ctx.setException(throwable);
+                    retrieveEnd.fire(ctx);
+                }
+            });
+            ar.resume(Response.ok(thumbnail, MediaTypes.IMAGE_JPEG_TYPE).build());
+        } catch (Exception e) {
+            ar.resume(e);
+        }
+    }
+
     @GET
     @Path("/studies/{studyUID}/rendered")
     @Produces("multipart/related")
     public void retrieveRenderedStudy(
             @PathParam("studyUID") String studyUID,
             @Suspended AsyncResponse ar) {
-        retrieve("retrieveRenderedStudy", studyUID, null, null, null, null, ar, Output.RENDER);
+        retrieve("retrieveRenderedStudy", studyUID, null, null, null, null, null, ar, Output.RENDER);
     }
 
     @GET
@@ -278,7 +338,7 @@ public class WadoRS {
             @PathParam("studyUID") String studyUID,
             @PathParam("seriesUID") String seriesUID,
             @Suspended AsyncResponse ar) {
-        retrieve("retrieveRenderedSeries", studyUID, seriesUID, null, null, null, ar, Output.RENDER);
+        retrieve("retrieveRenderedSeries", studyUID, seriesUID, null, null, null, null, ar, Output.RENDER);
     }
 
     @GET
@@ -289,7 +349,7 @@ public class WadoRS {
             @PathParam("seriesUID") String seriesUID,
             @PathParam("objectUID") String objectUID,
             @Suspended AsyncResponse ar) {
-        retrieve("retrieveRenderedInstance", studyUID, seriesUID, objectUID, null, null, ar, Output.RENDER);
+        retrieve("retrieveRenderedInstance", studyUID, seriesUID, objectUID, null, null, null, ar, Output.RENDER);
     }
 
     @GET
@@ -302,9 +362,8 @@ public class WadoRS {
             @PathParam("frameList") @ValidValueOf(type = FrameList.class) String frameList,
             @Suspended AsyncResponse ar) {
         retrieve("retrieveRenderedFrames", studyUID, seriesUID, objectUID,
-                new FrameList(frameList).frames, null, ar, Output.RENDER_FRAME);
+                new FrameList(frameList).frames, null, null, ar, Output.RENDER_FRAME);
     }
-*/
 
     @GET
     @Path("/studies/{studyUID}/series/{seriesUID}/instances/{objectUID}/metadata")
@@ -399,6 +458,7 @@ public class WadoRS {
                 SafeClose.close(uncompressedFramesOutput);
                 SafeClose.close(compressedFramesOutput);
                 SafeClose.close(decompressFramesOutput);
+                SafeClose.close(renderedFramesOutput);
                 purgeSpoolDirectory();
                 ctx.setException(throwable);
                 retrieveEnd.fire(ctx);
@@ -464,17 +524,25 @@ public class WadoRS {
             }
         },
         RENDER {
+            @Override
+            protected MediaType[] mediaTypesFor(InstanceLocations match, ObjectType objectType) {
+                return renderedMediaTypesFor(objectType);
+            }
             @Override
             protected void addPart(MultipartRelatedOutput output, WadoRS wadoRS, RetrieveContext ctx,
-                                   InstanceLocations inst, int[] frameList, int[] attributePath) throws IOException {
-                super.addPart(output, wadoRS, ctx, inst, frameList, attributePath);
+                                   InstanceLocations inst, int[] frameList, int[] attributePath) {
+                wadoRS.writeRenderedFrames(output, ctx, inst, null);
             }
         },
         RENDER_FRAME {
+            @Override
+            protected MediaType[] mediaTypesFor(InstanceLocations match, ObjectType objectType) {
+                return renderedMediaTypesFor(objectType);
+            }
             @Override
             protected void addPart(MultipartRelatedOutput output, WadoRS wadoRS, RetrieveContext ctx,
-                                   InstanceLocations inst, int[] frameList, int[] attributePath) throws IOException {
-                super.addPart(output, wadoRS, ctx, inst, frameList, attributePath);
+                                   InstanceLocations inst, int[] frameList, int[] attributePath) {
+                wadoRS.writeRenderedFrames(output, ctx, inst, frameList);
             }
         },
         METADATA_XML {
@@ -556,6 +624,68 @@ public class WadoRS {
         public boolean isMetadata() {
             return false;
         }
+
+        private static MediaType[] renderedMediaTypesFor(ObjectType objectType) {
+            switch (objectType) {
+                case UncompressedSingleFrameImage:
+                case CompressedSingleFrameImage:
+                case UncompressedMultiFrameImage:
+                case CompressedMultiFrameImage:
+                    return RENDERED_MEDIA_TYPES;
+            }
+            return null;
+        }
+    }
+
+    private void writeRenderedFrames(MultipartRelatedOutput output, RetrieveContext ctx, InstanceLocations inst,
+                                     int[] frameList) {
+        int numFrames = inst.getAttributes().getInt(Tag.NumberOfFrames, 1);
+        frameList = frameList != null ? adjustFrameList(frameList, numFrames) : allFrames(numFrames);
+        MediaType mediaType = selectedMediaTypes.get(inst.getSopInstanceUID());
+        StringBuffer renderedURL = request.getRequestURL();
+        int endOfInstanceURL = renderedURL.lastIndexOf("/frames/");
+        renderedURL.setLength(endOfInstanceURL >= 0 ? endOfInstanceURL : renderedURL.lastIndexOf("/rendered"));
+        mkInstanceURL(renderedURL, inst);
+        renderedURL.append("/frames/");
+        int length = renderedURL.length();
+        RenderedFramesOutput entity = renderedFramesOutput(ctx);
+        entity.addFrames(inst, frameList, mediaType);
+        for (int frame : frameList) {
+            OutputPart outputPart = output.addPart(entity, mediaType);
+            renderedURL.setLength(length);
+            renderedURL.append(frame).append("/rendered");
+            outputPart.getHeaders().putSingle("Content-Location", renderedURL.toString());
+        }
+    }
+
+    private RenderedFramesOutput renderedFramesOutput(RetrieveContext ctx) {
+        if (renderedFramesOutput == null) {
+            int rows = 0;
+            int columns = 0;
+            if (viewport != null) {
+                String[] vwvh = StringUtils.split(viewport, ',');
+                columns = Integer.parseInt(vwvh[0]);
+                rows = Integer.parseInt(vwvh[1]);
+            }
+            float windowCenter = 0;
+            float windowWidth = 0;
+            if (window != null) {
+                String[] cw = StringUtils.split(window, ',');
+                windowCenter = Float.parseFloat(cw[0]);
+                windowWidth = Float.parseFloat(cw[1]);
+            }
+            ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+            renderedFramesOutput = new RenderedFramesOutput(ctx, executor, arcDev.getWadoRenderConcurrency(),
+                    rows, columns, windowCenter, windowWidth, quality != null ? Integer.parseInt(quality) : 0);
+        }
+        return renderedFramesOutput;
+    }
+
+    private static int[] allFrames(int numFrames) {
+        int[] frameList = new int[numFrames];
+        for (int i = 0; i < numFrames; i++)
+            frameList[i] = i + 1;
+        return frameList;
     }
 
     private void writeBulkdata(MultipartRelatedOutput output, RetrieveContext ctx, InstanceLocations inst) {
@@ -50,7 +50,11 @@ import org.dcm4che3.net.Device;
 import org.dcm4che3.util.StringUtils;
 import org.dcm4che3.ws.rs.MediaTypes;
 import org.dcm4chee.arc.conf.ArchiveAEExtension;
+import org.dcm4chee.arc.conf.ArchiveDeviceExtension;
+import org.dcm4chee.arc.retrieve.ImageRendering;
 import org.dcm4chee.arc.retrieve.InstanceLocations;
+import org.dcm4chee.arc.retrieve.PreviewService;
+import org.dcm4chee.arc.retrieve.RenderedImageCache;
 import org.dcm4chee.arc.retrieve.RetrieveContext;
 import org.dcm4chee.arc.retrieve.RetrieveService;
 import org.dcm4chee.arc.retrieve.RetrieveWADO;
@@ -61,7 +65,6 @@ import org.slf4j.LoggerFactory;
 
 import javax.enterprise.context.RequestScoped;
 import javax.enterprise.event.Event;
-import javax.imageio.ImageIO;
 import javax.imageio.ImageReader;
 import javax.imageio.ImageWriteParam;
 import javax.imageio.ImageWriter;
@@ -76,7 +79,10 @@ import javax.ws.rs.core.*;
 import javax.xml.transform.Templates;
 import javax.xml.transform.Transformer;
 import java.awt.*;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.util.*;
 import java.util.List;
 
@@ -110,6 +116,12 @@ public class WadoURI {
     @Inject
     private Device device;
 
+    @Inject
+    private RenderedImageCache renderedImageCache;
+
+    @Inject
+    private PreviewService previewService;
+
     @Inject @RetrieveWADO
     private Event<RetrieveContext> retrieveWado;
 
@@ -292,8 +304,23 @@ public class WadoURI {
         throw new AssertionError("objectType: " + objectType);
     }
 
-    private RenderedImageOutput renderImage(RetrieveContext ctx, InstanceLocations inst,
-                                            MediaType mimeType, int imageIndex) throws IOException {
+    private StreamingOutput renderImage(RetrieveContext ctx, InstanceLocations inst,
+                                        MediaType mimeType, int imageIndex) throws IOException {
+        byte[] preview = pregeneratedPreview(mimeType);
+        if (preview != null)
+            return new StreamCopyOutput(new ByteArrayInputStream(preview), preview.length);
+
+        String cacheKey = imageIndex >= 0 ? renderedImageCacheKey(inst, mimeType, imageIndex) : null;
+        if (cacheKey != null) {
+            java.nio.file.Path cachedImage = renderedImageCache.getCachedImage(studyUID, cacheKey);
+            if (cachedImage != null) {
+                try {
+                    return new StreamCopyOutput(Files.newInputStream(cachedImage), (int) Files.size(cachedImage));
+                } catch (NoSuchFileException e) {
+                    LOG.debug("Cached rendered image {} evicted concurrently", cachedImage);
+                }
+            }
+        }
         Attributes attrs = inst.getAttributes();
         DicomImageReadParam readParam = new DicomImageReadParam();
         if (windowCenter != null && windowWidth != null) {
@@ -307,15 +334,59 @@ public class WadoURI {
         if (presentationUID != null)
             readParam.setPresentationState(retrievePresentationState());
 
-        ImageWriter imageWriter = getImageWriter(mimeType);
+        ImageWriter imageWriter = ImageRendering.getImageWriter(mimeType.getSubtype().toUpperCase());
         ImageWriteParam writeParam = imageWriter.getDefaultWriteParam();
         if (imageQuality != null)
             writeParam.setCompressionQuality(parseInt(imageQuality) / 100.f);
 
-        ImageReader imageReader = getDicomImageReader();
-        return new RenderedImageOutput(service.openDicomInputStream(ctx, inst),
+        ImageReader imageReader = ImageRendering.getDicomImageReader();
+        RenderedImageOutput output = new RenderedImageOutput(service.openDicomInputStream(ctx, inst),
                 imageReader, readParam, parseInt(rows), parseInt(columns), imageIndex,
                 imageWriter, writeParam);
+        return cacheKey != null
+                ? new CachingImageOutput(output, renderedImageCache, studyUID, cacheKey)
+                : output;
+    }
+
+    private byte[] pregeneratedPreview(MediaType mimeType) {
+        if (objectUID != null || seriesUID == null || rows == null || !rows.equals(columns)
+                || frameNumber != null || windowCenter != null || windowWidth != null || region != null
+                || imageQuality != null || presentationUID != null
+                || !mimeType.isCompatible(MediaTypes.IMAGE_JPEG_TYPE))
+            return null;
+
+        ArchiveDeviceExtension arcDev = device.getDeviceExtension(ArchiveDeviceExtension.class);
+        int size = Integer.parseInt(rows);
+        PreviewService.Type type = size == arcDev.getSeriesThumbnailSize()
+                ? PreviewService.Type.THUMBNAIL
+                : size == arcDev.getSeriesPreviewSize()
+                ? PreviewService.Type.PREVIEW
+                : null;
+        if (type == null)
+            return null;
+
+        try {
+            return previewService.getPreview(studyUID, seriesUID, type);
+        } catch (IOException e) {
+            LOG.warn("Failed to read pre-generated {} of Series[uid={}] - render image:\n", type, seriesUID, e);
+            return null;
+        }
+    }
+
+    private String renderedImageCacheKey(InstanceLocations inst, MediaType mimeType, int imageIndex) {
+        Date updatedTime = inst.getUpdatedTime();
+        return inst.getSopInstanceUID()
+                + '/' + (updatedTime != null ? updatedTime.getTime() : 0L)
+                + '/' + (imageIndex + 1)
+                + '/' + mimeType.getType() + '/' + mimeType.getSubtype()
+                + '/' + rows
+                + '/' + columns
+                + '/' + windowCenter
+                + '/' + windowWidth
+                + '/' + region
+                + '/' + imageQuality
+                + '/' + presentationSeriesUID
+                + '/' + presentationUID;
     }
 
     private int frameNumber(Attributes attrs) {
@@ -380,32 +451,6 @@ public class WadoURI {
         return new StreamCopyOutput(dis, dis.length());
     }
 
-    private static ImageReader getDicomImageReader() {
-        Iterator<ImageReader> readers = ImageIO.getImageReadersByFormatName("DICOM");
-        if (!readers.hasNext()) {
-            ImageIO.scanForPlugins();
-            readers = ImageIO.getImageReadersByFormatName("DICOM");
-            if (!readers.hasNext())
-                throw new RuntimeException("DICOM Image Reader not registered");
-        }
-        ImageReader reader = readers.next();
-        return reader;
-    }
-
-    private static ImageWriter getImageWriter(MediaType mimeType) {
-        String formatName = formatNameOf(mimeType);
-        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
-        if (!writers.hasNext()) {
-            throw new RuntimeException(formatName + " Image Writer not registered");
-        }
-        return writers.next();
-    }
-
-    private static String formatNameOf(MediaType mimeType) {
-        return mimeType.getSubtype().toUpperCase();
-    }
-
-
     private Attributes retrievePresentationState() throws IOException {
         RetrieveContext ctx = service.newRetrieveContextWADO(
                 request, aet, studyUID, presentationSeriesUID, presentationUID);
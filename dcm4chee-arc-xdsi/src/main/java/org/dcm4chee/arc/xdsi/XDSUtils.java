@@ -42,6 +42,7 @@ import org.apache.cxf.configuration.jsse.TLSClientParameters;
 import org.apache.cxf.endpoint.Client;
 import org.apache.cxf.frontend.ClientProxy;
 import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.HTTPClientPolicy;
 import org.dcm4che3.data.DatePrecision;
 import org.dcm4che3.util.DateUtils;
 
@@ -76,6 +77,18 @@ public class XDSUtils {
         conduit.setTlsClientParameters(params);
     }
 
+    public static void setChunkingThreshold(Object port, long chunkingThreshold) {
+        Client client = ClientProxy.getClient(port);
+        HTTPConduit conduit = (HTTPConduit) client.getConduit();
+        HTTPClientPolicy policy = conduit.getClient();
+        if (chunkingThreshold > 0) {
+            policy.setAllowChunking(true);
+            policy.setChunkingThreshold((int) Math.min(chunkingThreshold, Integer.MAX_VALUE));
+        } else {
+            policy.setAllowChunking(false);
+        }
+    }
+
     public static String formatDTM(Date date) {
         return DateUtils.formatDT(TimeZone.getTimeZone("UTC"), date, new DatePrecision(Calendar.SECOND));
     }